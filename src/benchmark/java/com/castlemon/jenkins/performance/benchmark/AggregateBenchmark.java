@@ -0,0 +1,91 @@
+package com.castlemon.jenkins.performance.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.reporting.PerformanceReporter;
+import com.castlemon.jenkins.performance.reporting.ReportBuilder;
+import com.castlemon.jenkins.performance.util.StringPool;
+
+/*
+ * Turning a build history into summaries - a single reporter over the whole
+ * history, and the full rebuild, which splits a long history between the
+ * workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AggregateBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int builds;
+
+	@Param({ "SMALL", "LARGE", BenchmarkData.FIXTURES })
+	public String source;
+
+	private List<ProjectRun> history;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		history = BenchmarkData.getHistory(builds, source);
+	}
+
+	/*
+	 * how much the shared names and ids are saving at this size, reported
+	 * alongside the scores - the pool of the last run of each iteration
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class PoolCounters {
+
+		public long distinctStrings;
+
+		public long duplicateStrings;
+
+		public long bytesSaved;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			distinctStrings = 0;
+			duplicateStrings = 0;
+			bytesSaved = 0;
+		}
+
+		void record(StringPool pool) {
+			distinctStrings = pool.size();
+			duplicateStrings = pool.getDuplicates();
+			bytesSaved = pool.getBytesSaved();
+		}
+
+	}
+
+	@Benchmark
+	public Summary getPerformanceData(PoolCounters counters) {
+		PerformanceReporter reporter = new PerformanceReporter();
+		reporter.initialiseEntryMaps();
+		Summary summary = reporter.getPerformanceData(history);
+		counters.record(reporter.getStringPool());
+		return summary;
+	}
+
+	@Benchmark
+	public ProjectSummary buildProjectSummary() {
+		return new ReportBuilder().buildProjectSummary(history, "benchmark");
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.castlemon.jenkins.performance.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+import com.castlemon.jenkins.performance.ReportGenerator;
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+
+/*
+ * The inputs shared by the benchmarks - the json fixtures used by the tests,
+ * and build histories made up by a seeded ReportGenerator so that every
+ * fork measures the same data.
+ */
+public class BenchmarkData {
+
+	public static final long SEED = 20161018l;
+
+	// the history made up from the cuc-large fixtures rather than generated
+	public static final String FIXTURES = "FIXTURES";
+
+	private static final String[] LARGE_FIXTURES = { "cuc-large-1.json",
+			"cuc-large-2.json", "cuc-large-3.json" };
+
+	// the time between consecutive builds
+	private static final long BUILD_INTERVAL = 60l * 60000l;
+
+	// the distinct step definitions the synthetic steps are matched to
+	private static final int STEP_DEFINITIONS = 40;
+
+	// rare enough that most large builds pass
+	private static final double FAILURE_RATIO = 0.00005;
+
+	/*
+	 * the contents of a json fixture from the test resources
+	 */
+	public static String loadFixture(String name) throws IOException {
+		InputStream input = BenchmarkData.class.getResourceAsStream("/" + name);
+		if (input == null) {
+			throw new IOException("no such fixture: " + name);
+		}
+		try {
+			return IOUtils.toString(input, "UTF-8");
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	/*
+	 * a history of the given number of builds - generated at one of the
+	 * report sizes, or cycling through the cuc-large fixtures
+	 */
+	public static List<ProjectRun> getHistory(int builds, String source)
+			throws IOException {
+		if (FIXTURES.equals(source)) {
+			return fixtureHistory(builds);
+		}
+		return generateHistory(builds, ReportSize.valueOf(source), SEED);
+	}
+
+	public static List<ProjectRun> fixtureHistory(int builds)
+			throws IOException {
+		List<List<Feature>> reports = new ArrayList<List<Feature>>();
+		for (String fixture : LARGE_FIXTURES) {
+			reports.add(CucumberPerfUtils.getData(loadFixture(fixture)));
+		}
+		List<ProjectRun> runs = new ArrayList<ProjectRun>(builds);
+		long start = System.currentTimeMillis() - builds * BUILD_INTERVAL;
+		for (int build = 1; build <= builds; build++) {
+			ProjectRun run = new ProjectRun();
+			run.setBuildNumber(build);
+			run.setRunDate(new Date(start + build * BUILD_INTERVAL));
+			// the features are only read, so the builds can share them
+			run.setFeatures(reports.get(build % reports.size()));
+			runs.add(run);
+		}
+		return runs;
+	}
+
+	/*
+	 * a history of the given number of builds, each running the same
+	 * features, scenarios and steps with varying durations and the odd
+	 * failure
+	 */
+	public static List<ProjectRun> generateHistory(int builds,
+			ReportSize reportSize, long seed) {
+		ReportGenerator generator = new ReportGenerator();
+		generator.setSeed(seed);
+		generator.setFeatures(reportSize.features);
+		generator.setScenariosPerFeature(reportSize.scenarios);
+		generator.setStepsPerScenario(reportSize.steps);
+		generator.setStepDefinitions(STEP_DEFINITIONS);
+		generator.setFailureRatio(FAILURE_RATIO);
+		List<ProjectRun> runs = new ArrayList<ProjectRun>(builds);
+		long start = System.currentTimeMillis() - builds * BUILD_INTERVAL;
+		for (int build = 1; build <= builds; build++) {
+			ProjectRun run = new ProjectRun();
+			run.setBuildNumber(build);
+			run.setRunDate(new Date(start + build * BUILD_INTERVAL));
+			run.setFeatures(CucumberPerfUtils.getData(generator.generate(build)));
+			runs.add(run);
+		}
+		return runs;
+	}
+
+	/*
+	 * the number of features in a report and of scenarios and steps in each
+	 */
+	public enum ReportSize {
+
+		SMALL(5, 3, 3), MEDIUM(10, 5, 5), LARGE(20, 10, 10);
+
+		private final int features;
+
+		private final int scenarios;
+
+		private final int steps;
+
+		private ReportSize(int features, int scenarios, int steps) {
+			this.features = features;
+			this.scenarios = scenarios;
+			this.steps = steps;
+		}
+
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.castlemon.jenkins.performance.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the benchmarks with the gc profiler, so that the allocation rate is
+ * reported alongside the throughput, and writes the results as json to
+ * target/jmh-result.json:
+ *
+ * mvn -Pbenchmark test-compile exec:exec [-Dbenchmark.include=Aggregate]
+ */
+public class BenchmarkRunner {
+
+	private static final String RESULT_FILE = "target/jmh-result.json";
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : BenchmarkRunner.class
+				.getPackage().getName() + ".*Benchmark";
+		Options options = new OptionsBuilder().include(include)
+				.addProfiler(GCProfiler.class).forks(1).warmupIterations(3)
+				.measurementIterations(5).resultFormat(ResultFormatType.JSON)
+				.result(RESULT_FILE).shouldFailOnError(true).build();
+		new Runner(options).run();
+	}
+
+}
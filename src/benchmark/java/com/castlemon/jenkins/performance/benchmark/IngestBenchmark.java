@@ -0,0 +1,73 @@
+package com.castlemon.jenkins.performance.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+
+/*
+ * Reading a build's cucumber reports - a single report bound in one go, and
+ * a build's report files streamed from disk, one per fork of the test run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IngestBenchmark {
+
+	@Param({ "cucumber-success.json", "cuc-large-1.json" })
+	public String report;
+
+	@Param({ "1", "16" })
+	public int files;
+
+	private String json;
+
+	private File reportDirectory;
+
+	private String[] reportFiles;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		json = BenchmarkData.loadFixture(report);
+		reportDirectory = File.createTempFile("ingest", "");
+		FileUtils.deleteQuietly(reportDirectory);
+		reportDirectory.mkdirs();
+		reportFiles = new String[files];
+		for (int i = 0; i < files; i++) {
+			reportFiles[i] = "cucumber-" + i + ".json";
+			FileUtils.writeStringToFile(new File(reportDirectory,
+					reportFiles[i]), json, "UTF-8");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileUtils.deleteQuietly(reportDirectory);
+	}
+
+	@Benchmark
+	public List<Feature> bindReport() {
+		return CucumberPerfUtils.getData(json);
+	}
+
+	@Benchmark
+	public List<Feature> streamReportFiles() {
+		return CucumberPerfUtils.getData(reportFiles, reportDirectory);
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.castlemon.jenkins.performance.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.reporting.ReportBuilder;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+
+/*
+ * Writing and reading the stored summary, and the whole of a report
+ * generation - building the summary from the history and writing it out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PersistBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int builds;
+
+	@Param({ "SMALL", "LARGE", BenchmarkData.FIXTURES })
+	public String source;
+
+	private List<ProjectRun> history;
+
+	private ProjectSummary projectSummary;
+
+	private File writeDirectory;
+
+	private File readDirectory;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		history = BenchmarkData.getHistory(builds, source);
+		projectSummary = new ReportBuilder().buildProjectSummary(history,
+				"benchmark");
+		writeDirectory = createDirectory("persist-write");
+		readDirectory = createDirectory("persist-read");
+		if (!CucumberPerfUtils.writeSummaryToDisk(projectSummary,
+				readDirectory)) {
+			throw new IOException("unable to write the summary to read back");
+		}
+	}
+
+	private File createDirectory(String prefix) throws IOException {
+		File directory = File.createTempFile(prefix, "");
+		FileUtils.deleteQuietly(directory);
+		directory.mkdirs();
+		return directory;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileUtils.deleteQuietly(writeDirectory);
+		FileUtils.deleteQuietly(readDirectory);
+	}
+
+	@Benchmark
+	public boolean writeSummaryToDisk() {
+		return CucumberPerfUtils.writeSummaryToDisk(projectSummary,
+				writeDirectory);
+	}
+
+	@Benchmark
+	public ProjectSummary readSummaryFromDisk() {
+		return CucumberPerfUtils.readSummaryFromDisk(readDirectory);
+	}
+
+	@Benchmark
+	public boolean generateProjectReports() {
+		return new ReportBuilder().generateProjectReports(history,
+				writeDirectory, "benchmark");
+	}
+
+}
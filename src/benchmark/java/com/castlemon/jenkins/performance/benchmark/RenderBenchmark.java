@@ -0,0 +1,63 @@
+package com.castlemon.jenkins.performance.benchmark;
+
+import hudson.model.AbstractProject;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.castlemon.jenkins.performance.SummaryView;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.reporting.ReportBuilder;
+import com.castlemon.jenkins.performance.util.SeriesDownsampler;
+
+/*
+ * The chart data rendered for the project page, from the view
+ * CucumberProjectAction makes for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RenderBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int builds;
+
+	@Param({ "SMALL", "LARGE", BenchmarkData.FIXTURES })
+	public String source;
+
+	private SummaryView overallView;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		ProjectSummary projectSummary = new ReportBuilder()
+				.buildProjectSummary(
+						BenchmarkData.getHistory(builds, source), "benchmark");
+		AbstractProject project = Mockito.mock(AbstractProject.class);
+		Mockito.when(project.getUrl()).thenReturn("job/benchmark/");
+		overallView = new SummaryView(projectSummary.getOverallSummary(),
+				projectSummary, project, "cucumber-perf-reports",
+				SeriesDownsampler.DEFAULT_POINTS);
+	}
+
+	@Benchmark
+	public String getGraphData() {
+		return overallView.getGraphData();
+	}
+
+	@Benchmark
+	public String getPieChartData() {
+		return overallView.getPieChartData();
+	}
+
+}
@@ -0,0 +1,261 @@
+package com.castlemon.jenkins.performance;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.SummaryQuery;
+import com.castlemon.jenkins.performance.domain.reporting.TableQuery;
+import com.castlemon.jenkins.performance.reporting.SummaryExporter;
+import com.castlemon.jenkins.performance.reporting.SummaryTable;
+
+/*
+ * The json api under the report, at cucumber-perf-reports/api/ - project,
+ * features, scenarios, steps, stepdefinitions and series. The lists take
+ *
+ *   limit, cursor     the page size and the nextCursor of the page before
+ *   fields            a comma separated selection from SummaryQuery.FIELDS
+ *   name, tag         a part of the name, and tags that must all be present
+ *   senior            the page link of a feature or scenario to list within
+ *   fromBuild, toBuild  only summaries with a build in the range, and only
+ *                     their entries in it
+ *   sort, order       name or a ranking metric, and asc or desc
+ *
+ * and series takes the type and link of one summary and pages through its
+ * entries by build number. table serves the sorted report's tables in the
+ * form DataTables asks for them, and graph the points of one summary's graph
+ * between fromBuild and toBuild.
+ */
+public class CucumberPerfApi {
+
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private final ProjectSummary projectSummary;
+
+    public CucumberPerfApi(ProjectSummary projectSummary) {
+        this.projectSummary = projectSummary;
+    }
+
+    public void doProject(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        SummaryQuery query = readQuery(request, response);
+        if (query == null) {
+            return;
+        }
+        response.setContentType(CONTENT_TYPE);
+        new SummaryExporter(projectSummary).writeProject(query,
+                response.getWriter());
+    }
+
+    public void doFeatures(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        writeSummaries(SummaryType.FEATURE, request, response);
+    }
+
+    public void doScenarios(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        writeSummaries(SummaryType.SCENARIO, request, response);
+    }
+
+    public void doSteps(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        writeSummaries(SummaryType.STEP, request, response);
+    }
+
+    public void doStepdefinitions(StaplerRequest request,
+                                  StaplerResponse response) throws IOException {
+        writeSummaries(SummaryType.STEP_DEFINITION, request, response);
+    }
+
+    public void doSeries(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        SummaryQuery query = readQuery(request, response);
+        if (query == null) {
+            return;
+        }
+        SummaryExporter exporter = new SummaryExporter(projectSummary);
+        Summary summary;
+        try {
+            summary = exporter.getSummary(parseType(request.getParameter("type")),
+                    request.getParameter("link"));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (summary == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "no summary has the link '" + request.getParameter("link") + "'");
+            return;
+        }
+        try {
+            response.setContentType(CONTENT_TYPE);
+            exporter.writeSeries(summary, query, response.getWriter());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /*
+     * every point of a graph in the zoomed range of builds, as the page only
+     * draws a sample of them - the type project is the project's own graph
+     */
+    public void doGraph(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        SummaryQuery query = readQuery(request, response);
+        if (query == null) {
+            return;
+        }
+        Summary summary;
+        try {
+            String type = request.getParameter("type");
+            if (SummaryType.PROJECT.getLink().equals(type)) {
+                summary = projectSummary.getOverallSummary();
+            } else {
+                summary = new SummaryExporter(projectSummary).getSummary(
+                        parseType(type), request.getParameter("link"));
+            }
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (summary == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "no summary has the link '" + request.getParameter("link") + "'");
+            return;
+        }
+        response.setContentType(CONTENT_TYPE);
+        response.getWriter().write(summary.getGraphData(query.getFromBuild(),
+                query.getToBuild(), 0));
+    }
+
+    /*
+     * a page of the sorted report's feature, scenario or step table, for
+     * DataTables to fetch as it is paged, sorted or searched
+     */
+    public void doTable(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        if (projectSummary == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "no performance history exists for this project");
+            return;
+        }
+        SummaryType summaryType;
+        TableQuery query;
+        try {
+            summaryType = parseType(request.getParameter("type"));
+            if (summaryType == SummaryType.STEP_DEFINITION) {
+                throw new IllegalArgumentException(
+                        "the step definition table is not paged on the server");
+            }
+            query = parseTableQuery(request);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setContentType(CONTENT_TYPE);
+        new SummaryTable(projectSummary).write(summaryType, query,
+                response.getWriter());
+    }
+
+    /*
+     * the parameters DataTables sends for server-side processing - until a
+     * column is chosen the table is ranked by the report's metric
+     */
+    static TableQuery parseTableQuery(HttpServletRequest request) {
+        TableQuery query = new TableQuery();
+        query.setDraw(request.getParameter("draw"));
+        query.setStart(request.getParameter("start"));
+        query.setLength(request.getParameter("length"));
+        query.setSearch(request.getParameter("search[value]"));
+        query.setSenior(request.getParameter("senior"));
+        String orderColumn = request.getParameter("order[0][column]");
+        if (StringUtils.isBlank(orderColumn)) {
+            query.setMetric(RankingMetric.fromLink(request.getParameter("metric")));
+        } else {
+            int column;
+            try {
+                column = Integer.parseInt(orderColumn.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        "order[0][column] must be a column number");
+            }
+            query.setOrder(request.getParameter("columns[" + column + "][data]"),
+                    request.getParameter("order[0][dir]"));
+        }
+        return query;
+    }
+
+    /*
+     * the order is read before the sort, which only picks a default order
+     */
+    static SummaryQuery parseQuery(HttpServletRequest request) {
+        SummaryQuery query = new SummaryQuery();
+        query.setLimit(request.getParameter("limit"));
+        query.setCursor(request.getParameter("cursor"));
+        query.setFields(request.getParameter("fields"));
+        query.setName(request.getParameter("name"));
+        query.setTags(request.getParameterValues("tag"));
+        query.setSenior(request.getParameter("senior"));
+        query.setFromBuild(request.getParameter("fromBuild"));
+        query.setToBuild(request.getParameter("toBuild"));
+        query.setOrder(request.getParameter("order"));
+        query.setSort(request.getParameter("sort"));
+        return query;
+    }
+
+    private void writeSummaries(SummaryType summaryType,
+                                StaplerRequest request, StaplerResponse response) throws IOException {
+        SummaryQuery query = readQuery(request, response);
+        if (query == null) {
+            return;
+        }
+        SummaryExporter exporter = new SummaryExporter(projectSummary);
+        SummaryExporter.Page page;
+        try {
+            page = exporter.select(summaryType, query);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setContentType(CONTENT_TYPE);
+        exporter.writePage(summaryType, page, query, response.getWriter());
+    }
+
+    /*
+     * the query from the request's parameters, or null once the request has
+     * been refused
+     */
+    private SummaryQuery readQuery(StaplerRequest request,
+                                   StaplerResponse response) throws IOException {
+        if (projectSummary == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "no performance history exists for this project");
+            return null;
+        }
+        try {
+            return parseQuery(request);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return null;
+        }
+    }
+
+    private static SummaryType parseType(String link) {
+        for (SummaryType type : SummaryType.values()) {
+            if (type != SummaryType.PROJECT && type.getLink().equals(link)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("unknown type '" + link + "'");
+    }
+
+}
@@ -1,8 +1,14 @@
 package com.castlemon.jenkins.performance;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import hudson.Extension;
@@ -22,17 +28,43 @@ import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Regression;
+import com.castlemon.jenkins.performance.domain.reporting.RegressionThreshold;
+import com.castlemon.jenkins.performance.domain.reporting.Shard;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.reporting.RegressionGate;
 import com.castlemon.jenkins.performance.reporting.ReportBuilder;
+import com.castlemon.jenkins.performance.reporting.ShardBalancer;
 import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+import com.castlemon.jenkins.performance.util.DigestCallable;
+import com.castlemon.jenkins.performance.util.ParallelReportParser;
+import com.castlemon.jenkins.performance.util.ReportQueue;
+import com.castlemon.jenkins.performance.util.RunDigest;
+import com.castlemon.jenkins.performance.util.SeriesDownsampler;
 
 public class CucumberPerfRecorder extends Recorder {
 
+	public static final String REPORT_LOG_FILE_NAME = "report-generation.log";
+
+	// with more builds than this to catch up on, the history is rebuilt
+	private static final int MAXIMUM_UNREPORTED_BUILDS = 20;
+
 	public final String jsonReportDirectory;
 	public final String jsonReportFileName;
 	public final int countOfSortedSummaries;
+	private String regressionThresholds;
+	private int baselineBuilds = RegressionGate.DEFAULT_BASELINE_BUILDS;
+	private int shardCount;
+	private String shardBy;
+	private boolean archiveRawReports;
+	private boolean backgroundReports;
+	private int graphPoints = SeriesDownsampler.DEFAULT_POINTS;
 	private ReportBuilder reportBuilder;
 	private File targetBuildDirectory;
 
@@ -74,42 +106,431 @@ public class CucumberPerfRecorder extends Recorder {
 				"[CucumberPerfRecorder] Reporting on performance for "
 						+ buildProjectName + " #"
 						+ Integer.toString(build.getNumber()));
-		gatherJsonResultFiles(build, listener, targetBuildDirectory);
-		return generateProjectReport(build, listener, targetBuildDirectory,
-				buildProjectName);
+		if (archiveRawReports) {
+			gatherJsonResultFiles(build, listener, targetBuildDirectory);
+			writeDigest(build, listener, targetBuildDirectory);
+		} else {
+			gatherDigest(build, listener, targetBuildDirectory);
+		}
+		if (backgroundReports) {
+			if (StringUtils.isNotBlank(regressionThresholds)) {
+				// the build's result cannot be changed once it has finished
+				listener.getLogger()
+						.println(
+								"[CucumberPerfRecorder] regression thresholds need this build's report - generating it now");
+			} else if (queueProjectReport(build, targetBuildDirectory,
+					buildProjectName)) {
+				listener.getLogger()
+						.println(
+								"[CucumberPerfRecorder] project report generation queued - the report will show the previous build until it completes");
+				return true;
+			} else {
+				listener.getLogger()
+						.println(
+								"[CucumberPerfRecorder] the report queue is full - generating the report now");
+			}
+		}
+		boolean success = generateProjectReport(build, listener.getLogger(),
+				targetBuildDirectory, buildProjectName);
+		if (success
+				&& (StringUtils.isNotBlank(regressionThresholds) || shardCount > 0)) {
+			ProjectSummary projectSummary = CucumberPerfUtils
+					.readSummaryFromDisk(targetBuildDirectory);
+			if (projectSummary != null) {
+				if (StringUtils.isNotBlank(regressionThresholds)) {
+					checkForRegressions(build, listener, projectSummary);
+				}
+				if (shardCount > 0) {
+					writeShardPlan(build, listener.getLogger(), projectSummary);
+				}
+			}
+		}
+		return success;
+	}
+
+	/*
+	 * hands the project report to the ReportQueue, which generates it on its
+	 * own thread as soon as a worker is free - usually while this build is
+	 * still finishing. Returns false if the queue is full.
+	 */
+	private boolean queueProjectReport(final AbstractBuild<?, ?> build,
+			final File targetBuildDirectory, final String buildProjectName) {
+		return ReportQueue.getInstance().submit(
+				ReportQueue.getKey(build.getProject().getRootDir()),
+				new Runnable() {
+					public void run() {
+						generateQueuedProjectReport(build,
+								targetBuildDirectory, buildProjectName);
+					}
+				});
+	}
+
+	/*
+	 * the build's console is closed by the time a queued report is
+	 * generated, so its progress is logged to a file beside the report
+	 */
+	void generateQueuedProjectReport(AbstractBuild<?, ?> build,
+			File targetBuildDirectory, String buildProjectName) {
+		PrintStream logger = null;
+		try {
+			logger = new PrintStream(new FileOutputStream(new File(
+					targetBuildDirectory, REPORT_LOG_FILE_NAME)), true, "UTF-8");
+			boolean success = generateProjectReport(build, logger,
+					targetBuildDirectory, buildProjectName);
+			if (success && shardCount > 0) {
+				ProjectSummary projectSummary = CucumberPerfUtils
+						.readSummaryFromDisk(targetBuildDirectory);
+				if (projectSummary != null) {
+					writeShardPlan(build, logger, projectSummary);
+				}
+			}
+		} catch (IOException e) {
+			logQueuedFailure(logger, e);
+		} catch (RuntimeException e) {
+			logQueuedFailure(logger, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			IOUtils.closeQuietly(logger);
+		}
+	}
+
+	/*
+	 * the log itself may be what could not be opened
+	 */
+	private void logQueuedFailure(PrintStream logger, Exception e) {
+		if (logger == null) {
+			e.printStackTrace();
+			return;
+		}
+		logger.println("[CucumberPerfRecorder] FAILED to generate the project report: "
+				+ e.getMessage());
+		e.printStackTrace(logger);
+	}
+
+	/*
+	 * publishes a split of the features or scenarios into shards of similar
+	 * expected duration, for parallel runners to pick up before the next
+	 * build
+	 */
+	private void writeShardPlan(AbstractBuild<?, ?> build,
+			PrintStream logger, ProjectSummary projectSummary) {
+		File shardFile = new File(build.getArtifactsDir(),
+				ShardBalancer.SHARD_FILE_NAME);
+		Writer writer = null;
+		try {
+			ShardBalancer balancer = new ShardBalancer(shardCount,
+					ShardBalancer.parseLevel(shardBy));
+			List<Shard> shards = balancer.balance(projectSummary);
+			FileUtils.forceMkdir(shardFile.getParentFile());
+			writer = new OutputStreamWriter(new FileOutputStream(shardFile),
+					"UTF-8");
+			balancer.writePlan(shards, build.getNumber(), writer);
+			logger.println(
+					"[CucumberPerfRecorder] wrote a plan for " + shardCount
+							+ " shards to " + ShardBalancer.SHARD_FILE_NAME);
+		} catch (IllegalArgumentException e) {
+			logger.println(
+					"[CucumberPerfRecorder] not writing a shard plan: "
+							+ e.getMessage());
+		} catch (IOException e) {
+			logger.println(
+					"[CucumberPerfRecorder] FAILED to write shard plan: "
+							+ e.getMessage());
+		} finally {
+			IOUtils.closeQuietly(writer);
+		}
+	}
+
+	/*
+	 * marks the build unstable or failed if it has slowed down by more than
+	 * the configured thresholds allow
+	 */
+	private void checkForRegressions(AbstractBuild<?, ?> build,
+			BuildListener listener, ProjectSummary projectSummary) {
+		List<RegressionThreshold> thresholds;
+		try {
+			thresholds = RegressionThreshold
+					.parseThresholds(regressionThresholds);
+		} catch (IllegalArgumentException e) {
+			listener.getLogger().println(
+					"[CucumberPerfRecorder] ignoring regression thresholds: "
+							+ e.getMessage());
+			return;
+		}
+		List<Regression> regressions = new RegressionGate(thresholds,
+				baselineBuilds).evaluate(projectSummary, build.getNumber());
+		if (regressions.isEmpty()) {
+			listener.getLogger().println(
+					"[CucumberPerfRecorder] no performance regressions found");
+			return;
+		}
+		listener.getLogger().println(
+				"[CucumberPerfRecorder] " + regressions.size()
+						+ " performance regression(s) found:");
+		for (Regression regression : regressions) {
+			Summary summary = regression.getSummary();
+			String name = "'" + summary.getName() + "'";
+			if (summary.getSummaryType().hasSeniorSummaries()) {
+				name += " in '" + summary.getSeniorName() + "'";
+			}
+			listener.getLogger().println(
+					String.format(
+							"[CucumberPerfRecorder]   %s: %s %s took %s against a baseline of %s (+%.0f%%)",
+							regression.getResult(),
+							summary.getSummaryType(),
+							name,
+							CucumberPerfUtils.formatDuration(regression
+									.getElapsedTime()),
+							CucumberPerfUtils.formatDuration(regression
+									.getBaselineDuration()),
+							regression.getPercentageIncrease()));
+		}
+		build.setResult(RegressionGate.getWorstResult(regressions));
 	}
 
 	private boolean generateProjectReport(AbstractBuild<?, ?> build,
-			BuildListener listener, File targetBuildDirectory,
+			PrintStream logger, File targetBuildDirectory,
 			String buildProjectName) throws IOException, InterruptedException {
+		List<ProjectRun> unreportedRuns = new ArrayList<ProjectRun>();
+		ProjectSummary previousSummary = findPreviousSummary(build,
+				unreportedRuns);
+		if (ReportBuilder.canUpdate(previousSummary, build.getNumber())) {
+			return updateProjectReport(build, logger, targetBuildDirectory,
+					buildProjectName, previousSummary, unreportedRuns);
+		}
+		logger.println("[CucumberPerfRecorder] no usable summary from a previous build - rebuilding from the full history");
 		List<ProjectRun> projectRuns = new ArrayList<ProjectRun>();
 		RunMap<?> runMap = build.getProject()._getRuns();
 		for (Run<?, ?> run : runMap) {
-			ProjectRun projectRun = new ProjectRun();
-			projectRun.setRunDate(run.getTime());
-			projectRun.setBuildNumber(run.getNumber());
-			File workspaceJsonReportDirectory = run.getArtifactsDir()
-					.getParentFile();
-			projectRun.setFeatures(CucumberPerfUtils.getData(CucumberPerfUtils
-					.findJsonFiles(workspaceJsonReportDirectory,
-							"**/cucumber-perf*.json"),
-					workspaceJsonReportDirectory));
-			listener.getLogger().println("found files");
+			ProjectRun projectRun = createProjectRun(run);
+			logger.println("found files");
 			// only report on runs that have been analysed
-			if (!projectRun.getFeatures().isEmpty()) {
+			if (projectRun != null) {
 				projectRuns.add(projectRun);
 			}
 		}
-		listener.getLogger().println(
+		// runs are held newest first - report on them in build order, so that
+		// later incremental updates append to the same sequence
+		Collections.reverse(projectRuns);
+		logger.println(
 				"[CucumberPerfRecorder] running project reports on "
 						+ projectRuns.size() + " builds");
 		boolean success = reportBuilder.generateProjectReports(projectRuns,
 				targetBuildDirectory, buildProjectName);
-		listener.getLogger().println(
+		logger.println(
+				"[CucumberPerfRecorder] project report generation complete");
+		return success;
+	}
+
+	private boolean updateProjectReport(AbstractBuild<?, ?> build,
+			PrintStream logger, File targetBuildDirectory,
+			String buildProjectName, ProjectSummary previousSummary,
+			List<ProjectRun> unreportedRuns) {
+		logger.println(
+				"[CucumberPerfRecorder] updating project reports from the summary of build #"
+						+ previousSummary.getLastBuildNumber());
+		List<ProjectRun> projectRuns = new ArrayList<ProjectRun>(
+				unreportedRuns);
+		if (!unreportedRuns.isEmpty()) {
+			logger.println("[CucumberPerfRecorder] also adding "
+					+ unreportedRuns.size()
+					+ " earlier build(s) whose reports were superseded");
+		}
+		ProjectRun projectRun = createProjectRun(build);
+		if (projectRun != null) {
+			projectRuns.add(projectRun);
+		}
+		boolean success;
+		if (!projectRuns.isEmpty()) {
+			success = reportBuilder.updateProjectReports(previousSummary,
+					projectRuns, targetBuildDirectory, buildProjectName);
+		} else {
+			// nothing to add, but carry the summary forward to this build
+			logger.println(
+					"[CucumberPerfRecorder] no results to add for this build");
+			success = CucumberPerfUtils.writeSummaryToDisk(previousSummary,
+					targetBuildDirectory);
+		}
+		logger.println(
 				"[CucumberPerfRecorder] project report generation complete");
 		return success;
 	}
 
+	/*
+	 * has the digest of this build's results written wherever its workspace
+	 * is, so that only the digest is copied back rather than the raw json
+	 */
+	private void gatherDigest(AbstractBuild<?, ?> build,
+			BuildListener listener, File targetBuildDirectory)
+			throws IOException, InterruptedException {
+		FilePath workspace = build.getWorkspace();
+		if (workspace == null) {
+			listener.error("Cannot get workspace for build");
+			return;
+		}
+		FilePath reportDirectory = workspace;
+		if (StringUtils.isNotBlank(jsonReportDirectory)) {
+			reportDirectory = workspace.child(jsonReportDirectory);
+		}
+		listener.getLogger().println(
+				"[CucumberPerfRecorder] digesting json results in "
+						+ reportDirectory.getRemote());
+		DigestCallable.Digest digest;
+		try {
+			digest = reportDirectory.act(new DigestCallable(
+					jsonReportFileName, build.getNumber(), build.getTime()));
+		} catch (IOException e) {
+			listener.getLogger().println(
+					"[CucumberPerfRecorder] FAILED to digest json results: "
+							+ e.getMessage());
+			return;
+		}
+		if (digest == null) {
+			listener.getLogger().println(
+					"[CucumberPerfRecorder] there were no json results found in: "
+							+ reportDirectory.getRemote());
+			return;
+		}
+		if (digest.getReportsSkipped() > 0) {
+			listener.getLogger().println(
+					"[CucumberPerfRecorder] skipped "
+							+ digest.getReportsSkipped()
+							+ " json results that could not be read");
+			if (digest.getFeatureCount() == 0) {
+				// nothing readable to record for this build
+				return;
+			}
+		}
+		File digestFile = new File(targetBuildDirectory,
+				RunDigest.DIGEST_FILE_NAME);
+		FileUtils.writeByteArrayToFile(digestFile, digest.getBytes());
+		listener.getLogger().println(
+				"[CucumberPerfRecorder] received digest of "
+						+ digest.getFeatureCount() + " features ("
+						+ digest.getBytes().length + " bytes)");
+		logBytesSkipped(listener, digest.getBytesSkipped());
+	}
+
+	/*
+	 * records the compact digest of this build's results that all later
+	 * reporting reads in place of the raw json
+	 */
+	private void writeDigest(AbstractBuild<?, ?> build, BuildListener listener,
+			File targetBuildDirectory) {
+		String[] reportFiles = CucumberPerfUtils.findJsonFiles(
+				targetBuildDirectory, "cucumber-perf*.json");
+		if (reportFiles.length == 0) {
+			return;
+		}
+		File digestFile = new File(targetBuildDirectory,
+				RunDigest.DIGEST_FILE_NAME);
+		ParallelReportParser parser = new ParallelReportParser();
+		try {
+			int featureCount = RunDigest.write(targetBuildDirectory,
+					Arrays.asList(reportFiles), build.getNumber(),
+					build.getTime(), parser, digestFile);
+			listener.getLogger().println(
+					"[CucumberPerfRecorder] wrote digest of " + featureCount
+							+ " features (" + digestFile.length() + " bytes)");
+			logBytesSkipped(listener, parser.getBytesSkipped());
+		} catch (IOException e) {
+			listener.getLogger().println(
+					"[CucumberPerfRecorder] FAILED to write digest: "
+							+ e.getMessage());
+			FileUtils.deleteQuietly(digestFile);
+		}
+	}
+
+	private void logBytesSkipped(BuildListener listener, long bytesSkipped) {
+		listener.getLogger().println(
+				"[CucumberPerfRecorder] skipped " + bytesSkipped
+						+ " bytes of embeddings, output and doc strings");
+	}
+
+	/*
+	 * returns null if the run has no archived results. Runs recorded before
+	 * digests existed have one written from their raw reports the first time
+	 * they are needed.
+	 */
+	private ProjectRun createProjectRun(Run<?, ?> run) {
+		File reportDirectory = new File(run.getRootDir(),
+				"cucumber-perf-reports");
+		File digestFile = new File(reportDirectory, RunDigest.DIGEST_FILE_NAME);
+		if (!digestFile.exists()) {
+			File workspaceJsonReportDirectory = run.getArtifactsDir()
+					.getParentFile();
+			String[] reportFiles = CucumberPerfUtils.findJsonFiles(
+					workspaceJsonReportDirectory, "**/cucumber-perf*.json");
+			if (reportFiles.length == 0) {
+				return null;
+			}
+			try {
+				reportDirectory.mkdirs();
+				RunDigest.write(workspaceJsonReportDirectory,
+						Arrays.asList(reportFiles), run.getNumber(),
+						run.getTime(), digestFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+				FileUtils.deleteQuietly(digestFile);
+				// fall back to streaming the raw reports
+				ProjectRun projectRun = new ProjectRun();
+				projectRun.setRunDate(run.getTime());
+				projectRun.setBuildNumber(run.getNumber());
+				projectRun.setReportDirectory(workspaceJsonReportDirectory);
+				projectRun.setReportFiles(Arrays.asList(reportFiles));
+				return projectRun;
+			}
+		}
+		ProjectRun projectRun = new ProjectRun();
+		projectRun.setRunDate(run.getTime());
+		projectRun.setBuildNumber(run.getNumber());
+		projectRun.setDigestFile(digestFile);
+		return projectRun;
+	}
+
+	private boolean hasResults(Run<?, ?> run) {
+		File reportDirectory = new File(run.getRootDir(),
+				"cucumber-perf-reports");
+		return new File(reportDirectory, RunDigest.DIGEST_FILE_NAME).exists()
+				|| CucumberPerfUtils.findJsonFiles(reportDirectory,
+						"cucumber-perf*.json").length > 0;
+	}
+
+	/*
+	 * walks back to the most recent earlier build that produced a summary,
+	 * adding the runs of any builds in between that have results - those
+	 * whose queued reports were superseded by a later build's - to the given
+	 * list in build order. Returns null if there is no summary, or if there
+	 * are too many such builds for an update to be worthwhile.
+	 */
+	private ProjectSummary findPreviousSummary(AbstractBuild<?, ?> build,
+			List<ProjectRun> unreportedRuns) {
+		Run<?, ?> previousRun = build.getPreviousBuild();
+		while (previousRun != null) {
+			File reportDirectory = new File(previousRun.getRootDir(),
+					"cucumber-perf-reports");
+			ProjectSummary summary = CucumberPerfUtils
+					.readSummaryFromDisk(reportDirectory);
+			if (summary != null) {
+				return summary;
+			}
+			if (hasResults(previousRun)) {
+				if (unreportedRuns.size() == MAXIMUM_UNREPORTED_BUILDS) {
+					unreportedRuns.clear();
+					return null;
+				}
+				ProjectRun projectRun = createProjectRun(previousRun);
+				if (projectRun != null) {
+					unreportedRuns.add(0, projectRun);
+				}
+			}
+			previousRun = previousRun.getPreviousBuild();
+		}
+		unreportedRuns.clear();
+		return null;
+	}
+
 	private void gatherJsonResultFiles(AbstractBuild<?, ?> build,
 			BuildListener listener, File targetBuildDirectory)
 			throws IOException, InterruptedException {
@@ -193,9 +614,92 @@ public class CucumberPerfRecorder extends Recorder {
 		return BuildStepMonitor.NONE;
 	}
 
+	public String getRegressionThresholds() {
+		return regressionThresholds;
+	}
+
+	@DataBoundSetter
+	public void setRegressionThresholds(String regressionThresholds) {
+		this.regressionThresholds = regressionThresholds;
+	}
+
+	public int getBaselineBuilds() {
+		return baselineBuilds;
+	}
+
+	@DataBoundSetter
+	public void setBaselineBuilds(int baselineBuilds) {
+		if (baselineBuilds > 0) {
+			this.baselineBuilds = baselineBuilds;
+		} else {
+			this.baselineBuilds = RegressionGate.DEFAULT_BASELINE_BUILDS;
+		}
+	}
+
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	@DataBoundSetter
+	public void setShardCount(int shardCount) {
+		this.shardCount = Math.max(shardCount, 0);
+	}
+
+	public String getShardBy() {
+		return shardBy;
+	}
+
+	@DataBoundSetter
+	public void setShardBy(String shardBy) {
+		this.shardBy = shardBy;
+	}
+
+	public boolean isArchiveRawReports() {
+		return archiveRawReports;
+	}
+
+	@DataBoundSetter
+	public void setArchiveRawReports(boolean archiveRawReports) {
+		this.archiveRawReports = archiveRawReports;
+	}
+
+	public boolean isBackgroundReports() {
+		return backgroundReports;
+	}
+
+	@DataBoundSetter
+	public void setBackgroundReports(boolean backgroundReports) {
+		this.backgroundReports = backgroundReports;
+	}
+
+	public int getGraphPoints() {
+		return graphPoints;
+	}
+
+	@DataBoundSetter
+	public void setGraphPoints(int graphPoints) {
+		if (graphPoints >= SeriesDownsampler.MINIMUM_POINTS) {
+			this.graphPoints = graphPoints;
+		} else {
+			this.graphPoints = SeriesDownsampler.DEFAULT_POINTS;
+		}
+	}
+
+	/*
+	 * XStream does not run field initializers when it loads a job's
+	 * config.xml, so jobs configured before a setting existed are given its
+	 * default here
+	 */
+	protected Object readResolve() {
+		setBaselineBuilds(baselineBuilds);
+		setGraphPoints(graphPoints);
+		return this;
+	}
+
 	@Override
 	public Action getProjectAction(AbstractProject<?, ?> project) {
-		return new CucumberProjectAction(project, countOfSortedSummaries);
+		return new CucumberProjectAction(project, countOfSortedSummaries,
+				shardCount, shardBy, graphPoints);
 	}
 
 	@Extension
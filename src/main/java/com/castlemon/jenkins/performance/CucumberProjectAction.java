@@ -1,12 +1,27 @@
 package com.castlemon.jenkins.performance;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionSummary;
 import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.reporting.ShardBalancer;
 import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+import com.castlemon.jenkins.performance.util.ReportQueue;
+import com.castlemon.jenkins.performance.util.SeriesDownsampler;
+import com.castlemon.jenkins.performance.util.SummaryCache;
 
 import hudson.model.AbstractItem;
 import hudson.model.AbstractProject;
@@ -16,29 +31,97 @@ import hudson.model.Run;
 @SuppressWarnings("rawtypes")
 public class CucumberProjectAction implements ProminentProjectAction {
 
+    // a build whose report is still being generated has no summary of its
+    // own - this many earlier builds are looked through for the last one
+    private static final int MAXIMUM_BUILDS_TO_SEARCH = 25;
+
     private final AbstractProject<?, ?> project;
-    private final ProjectSummary projectSummary;
+    private final int countOfSortedSummaries;
+    private volatile ProjectSummary projectSummary;
+    private final int shardCount;
+    private final String shardBy;
+    private final int graphPoints;
 
     public CucumberProjectAction(AbstractProject<?, ?> project,
                                  int countOfSortedSummaries) {
+        this(project, countOfSortedSummaries, 0, null);
+    }
+
+    public CucumberProjectAction(AbstractProject<?, ?> project,
+                                 int countOfSortedSummaries, int shardCount, String shardBy) {
+        this(project, countOfSortedSummaries, shardCount, shardBy,
+                SeriesDownsampler.DEFAULT_POINTS);
+    }
+
+    public CucumberProjectAction(AbstractProject<?, ?> project,
+                                 int countOfSortedSummaries, int shardCount, String shardBy,
+                                 int graphPoints) {
         super();
         this.project = project;
-        this.projectSummary = CucumberPerfUtils.readSummaryFromDisk(this.dir());
-        if (this.projectSummary != null) {
-            this.projectSummary
-                    .setNumberOfSummariesToDisplay(countOfSortedSummaries);
-        }
+        this.countOfSortedSummaries = countOfSortedSummaries;
+        this.shardCount = shardCount;
+        this.shardBy = shardBy;
+        this.graphPoints = graphPoints;
+        refreshSummary();
+    }
+
+    /*
+     * the action lives until the next build completes, so the summary is
+     * looked up again - from the cache unless it has changed - whenever the
+     * page is shown, to pick up a report generated in the background since.
+     * The summary is shared with every other request for it and is only
+     * read - anything particular to this job's pages is held here or in a
+     * SummaryView.
+     */
+    private ProjectSummary refreshSummary() {
+        ProjectSummary summary = SummaryCache.getInstance().getSummary(this.dir());
+        this.projectSummary = summary;
+        return summary;
+    }
+
+    /*
+     * whether a newer report is being generated in the background than the
+     * one shown
+     */
+    public boolean isReportUpdating() {
+        return ReportQueue.getInstance().isUpdating(
+                ReportQueue.getKey(this.project.getRootDir()));
     }
 
     public ProjectSummary getProjectSummary() {
-        if (projectSummary != null) {
-            projectSummary.getOverallSummary().setSubSummaries(
-                    new ArrayList(projectSummary.getFeatureSummaries().values()));
-            projectSummary.getOverallSummary().setProject(this.project);
-            projectSummary.getOverallSummary().setUrlName(getUrlName());
-            return projectSummary;
+        return refreshSummary();
+    }
+
+    /*
+     * the project's own page - its graph and the split of its time between
+     * its features
+     */
+    public SummaryView getOverallView() {
+        ProjectSummary projectSummary = refreshSummary();
+        if (projectSummary == null) {
+            return null;
+        }
+        return createView(projectSummary.getOverallSummary(), projectSummary);
+    }
+
+    /*
+     * these are read from the summary the page is already showing
+     */
+    public List<Summary> getRecentRegressions() {
+        ProjectSummary projectSummary = this.projectSummary;
+        if (projectSummary == null) {
+            return new ArrayList<Summary>();
         }
-        return null;
+        return projectSummary.getRecentRegressions(countOfSortedSummaries);
+    }
+
+    public List<StepDefinitionSummary> getSortedStepDefinitionSummaryList(RankingMetric metric) {
+        ProjectSummary projectSummary = this.projectSummary;
+        if (projectSummary == null) {
+            return new ArrayList<StepDefinitionSummary>();
+        }
+        return projectSummary.getSortedStepDefinitionSummaryList(metric,
+                countOfSortedSummaries);
     }
 
     public String getDisplayName() {
@@ -53,35 +136,92 @@ public class CucumberProjectAction implements ProminentProjectAction {
         return "cucumber-perf-reports";
     }
 
-    public Summary getFeature(String pageLink) {
-        return getSpecificSummaryByPageLink(pageLink, projectSummary.getFeatureSummaries(),
-                projectSummary.getScenarioSummaries());
+    public SummaryView getFeature(String pageLink) {
+        return getView(SummaryType.FEATURE, pageLink);
     }
 
-    public Summary getScenario(String pageLink) {
-        return getSpecificSummaryByPageLink(pageLink, projectSummary.getScenarioSummaries(),
-                projectSummary.getStepSummaries());
+    public SummaryView getScenario(String pageLink) {
+        return getView(SummaryType.SCENARIO, pageLink);
     }
 
-    public Summary getStep(String pageLink) {
-        return getSpecificSummaryByPageLink(pageLink, projectSummary.getStepSummaries(), null);
+    public SummaryView getStep(String pageLink) {
+        return getView(SummaryType.STEP, pageLink);
     }
 
-    public String getPieChartData() {
-        return projectSummary.getOverallSummary().getPieChartData();
+    public SummaryView getStepdefinition(String pageLink) {
+        return getView(SummaryType.STEP_DEFINITION, pageLink);
     }
 
-    private Summary getSpecificSummaryByPageLink(String pageLink,
-                                                 Map<String, Summary> inputSummaries,
-                                                 Map<String, Summary> subSummaries) {
-        Summary summary = inputSummaries.get(pageLink);
-        summary.setProject(this.project);
-        summary.setUrlName(getUrlName());
-        if (subSummaries != null) {
-            summary.setSubSummaries((CucumberPerfUtils.getRelevantSummaries(
-                    subSummaries, summary.getId())));
+    /*
+     * serves a split of the features or scenarios into shards as json -
+     * the shards and by parameters override the job's configuration
+     */
+    public void doShards(StaplerRequest request, StaplerResponse response)
+            throws IOException {
+        ProjectSummary projectSummary = refreshSummary();
+        if (projectSummary == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "no performance history exists for this project");
+            return;
         }
-        return summary;
+        ShardBalancer balancer;
+        try {
+            int count = shardCount;
+            if (StringUtils.isNotBlank(request.getParameter("shards"))) {
+                count = Integer.parseInt(request.getParameter("shards").trim());
+            }
+            String level = shardBy;
+            if (StringUtils.isNotBlank(request.getParameter("by"))) {
+                level = request.getParameter("by");
+            }
+            balancer = new ShardBalancer(count, ShardBalancer.parseLevel(level));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setContentType("application/json;charset=UTF-8");
+        balancer.writePlan(balancer.balance(projectSummary),
+                projectSummary.getLastBuildNumber(), response.getWriter());
+    }
+
+    /*
+     * the json api, at cucumber-perf-reports/api/
+     */
+    public CucumberPerfApi getApi() {
+        return new CucumberPerfApi(refreshSummary());
+    }
+
+    /*
+     * the metric the sorted report ranks by, from its metric parameter
+     */
+    public RankingMetric getRankingMetric(String link) {
+        return RankingMetric.fromLink(link);
+    }
+
+    public RankingMetric[] getRankingMetrics() {
+        return RankingMetric.values();
+    }
+
+    /*
+     * the page of the summary with the link, or null - and so not found -
+     * when there is no such summary
+     */
+    private SummaryView getView(SummaryType summaryType, String pageLink) {
+        ProjectSummary projectSummary = refreshSummary();
+        if (projectSummary == null) {
+            return null;
+        }
+        Map<String, ? extends Summary> summaries = projectSummary.getSummaries(summaryType);
+        Summary summary = summaries == null ? null : summaries.get(pageLink);
+        if (summary == null) {
+            return null;
+        }
+        return createView(summary, projectSummary);
+    }
+
+    private SummaryView createView(Summary summary, ProjectSummary projectSummary) {
+        return new SummaryView(summary, projectSummary, this.project, getUrlName(),
+                graphPoints);
     }
 
     public AbstractProject getProject() {
@@ -92,6 +232,16 @@ public class CucumberProjectAction implements ProminentProjectAction {
         Run run = this.project.getLastCompletedBuild();
         if (run != null) {
             File javadocDir = getBuildArchiveDir(run);
+            // the most recent build with a summary - a later build's may
+            // still be being generated
+            Run searched = run;
+            for (int i = 0; searched != null && i < MAXIMUM_BUILDS_TO_SEARCH; i++) {
+                File buildDir = getBuildArchiveDir(searched);
+                if (CucumberPerfUtils.getSummaryFile(buildDir).exists()) {
+                    return buildDir;
+                }
+                searched = searched.getPreviousBuild();
+            }
             if (javadocDir.exists()) {
                 return javadocDir;
             }
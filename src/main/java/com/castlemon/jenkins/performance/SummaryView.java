@@ -0,0 +1,100 @@
+package com.castlemon.jenkins.performance;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import hudson.model.AbstractProject;
+
+/*
+ * The page of one summary - the project's, or a feature, scenario, step or
+ * step definition - made for each request. It holds what the page needs from
+ * the job alongside the summary, as the summaries themselves are shared
+ * between requests through the SummaryCache and are never changed to suit one
+ * of them.
+ */
+public class SummaryView {
+
+    private static final int nanosInAMilli = 1000000;
+
+    private final Summary summary;
+    private final ProjectSummary projectSummary;
+    private final AbstractProject<?, ?> project;
+    private final String urlName;
+    private final int graphPoints;
+
+    public SummaryView(Summary summary, ProjectSummary projectSummary,
+                       AbstractProject<?, ?> project, String urlName, int graphPoints) {
+        this.summary = summary;
+        this.projectSummary = projectSummary;
+        this.project = project;
+        this.urlName = urlName;
+        this.graphPoints = graphPoints;
+    }
+
+    public Summary getSummary() {
+        return summary;
+    }
+
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    public String getUrlName() {
+        return urlName;
+    }
+
+    public String getGraphData() {
+        return summary.getGraphData(0, Integer.MAX_VALUE, graphPoints);
+    }
+
+    /*
+     * the project's features, a feature's scenarios or a scenario's steps,
+     * in order - steps and step definitions have none
+     */
+    public List<Summary> getSubSummaries() {
+        if (summary.getSummaryType() == null) {
+            return new ArrayList<Summary>();
+        }
+        switch (summary.getSummaryType()) {
+            case PROJECT:
+                return new ArrayList<Summary>(projectSummary.getFeatureSummaries().values());
+            case FEATURE:
+                return projectSummary.getScenarios(summary);
+            case SCENARIO:
+                return projectSummary.getSteps(summary);
+            default:
+                return new ArrayList<Summary>();
+        }
+    }
+
+    public String getPieChartData() {
+        StringWriter writer = new StringWriter();
+        JsonFactory jsonFactory = new JsonFactory();
+        try {
+            JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer);
+            jsonGenerator.writeStartArray();
+            for (Summary subSummary : getSubSummaries()) {
+                jsonGenerator.writeStartObject();
+                jsonGenerator.writeStringField("name", subSummary.getName());
+                jsonGenerator.writeNumberField("y", CucumberPerfUtils.getDurationInSeconds(subSummary.getAverageDuration() / nanosInAMilli));
+                String url = this.project.getUrl() + this.urlName + "/" + summary.getSummaryType().getSubLink() + "/" + subSummary.getPageLink();
+                jsonGenerator.writeStringField("url", url);
+                jsonGenerator.writeEndObject();
+            }
+            jsonGenerator.writeEndArray();
+            jsonGenerator.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return writer.toString();
+    }
+
+}
@@ -15,12 +15,14 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Generated("com.googlecode.jsonschema2pojo")
-@JsonPropertyOrder({ "id", "description", "name", "keyword", "line",
+@JsonPropertyOrder({ "id", "tags", "description", "name", "keyword", "line",
 		"elements", "uri" })
 public class Feature {
 
 	@JsonProperty("id")
 	private String id;
+	@JsonProperty("tags")
+	private List<Tag> tags = new ArrayList<Tag>();
 	@JsonProperty("description")
 	private String description;
 	@JsonProperty("name")
@@ -45,6 +47,16 @@ public class Feature {
 		this.id = id;
 	}
 
+	@JsonProperty("tags")
+	public List<Tag> getTags() {
+		return tags;
+	}
+
+	@JsonProperty("tags")
+	public void setTags(List<Tag> tags) {
+		this.tags = tags;
+	}
+
 	@JsonProperty("description")
 	public String getDescription() {
 		return description;
@@ -0,0 +1,52 @@
+package com.castlemon.jenkins.performance.domain.enums;
+
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * the measures the sorted report can rank summaries by, worst first
+ */
+public enum RankingMetric {
+    AVERAGE, P95, TOTAL, GROWTH;
+
+    public long getValue(Summary summary) {
+        switch (this) {
+            case P95:
+                return summary.getP95Duration();
+            case TOTAL:
+                return summary.getTotalDuration();
+            case GROWTH:
+                return summary.getGrowthDuration();
+            default:
+                return summary.calculateAverageDuration();
+        }
+    }
+
+    public String getLink() {
+        return name().toLowerCase();
+    }
+
+    public String getDescription() {
+        switch (this) {
+            case P95:
+                return "95th percentile duration";
+            case TOTAL:
+                return "total time across all builds";
+            case GROWTH:
+                return "growth since the earliest builds";
+            default:
+                return "average duration";
+        }
+    }
+
+    /*
+     * the metric with the given link, or the average for anything else
+     */
+    public static RankingMetric fromLink(String link) {
+        for (RankingMetric metric : values()) {
+            if (metric.getLink().equals(link)) {
+                return metric;
+            }
+        }
+        return AVERAGE;
+    }
+}
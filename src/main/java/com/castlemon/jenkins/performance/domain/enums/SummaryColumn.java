@@ -0,0 +1,106 @@
+package com.castlemon.jenkins.performance.domain.enums;
+
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * the columns the sorted report's tables can be ordered by on the server,
+ * named as the tables name their data
+ */
+public enum SummaryColumn {
+    NAME, SENIOR_NAME, SUB_ITEMS, SHORTEST, LONGEST, AVERAGE, P50, P90, P95, P99, TOTAL, GROWTH;
+
+    public boolean isText() {
+        return this == NAME || this == SENIOR_NAME;
+    }
+
+    public String getText(Summary summary) {
+        String text = this == SENIOR_NAME ? summary.getSeniorName() : summary.getName();
+        return text == null ? "" : text;
+    }
+
+    public long getValue(Summary summary) {
+        switch (this) {
+            case SUB_ITEMS:
+                return summary.getNumberOfSubItems();
+            case SHORTEST:
+                return summary.getShortestDuration();
+            case LONGEST:
+                return summary.getLongestDuration();
+            case AVERAGE:
+                return summary.calculateAverageDuration();
+            case P50:
+                return summary.getP50Duration();
+            case P90:
+                return summary.getP90Duration();
+            case P95:
+                return summary.getP95Duration();
+            case P99:
+                return summary.getP99Duration();
+            case TOTAL:
+                return summary.getTotalDuration();
+            case GROWTH:
+                return summary.getGrowthDuration();
+            default:
+                return 0l;
+        }
+    }
+
+    public String getField() {
+        switch (this) {
+            case NAME:
+                return "name";
+            case SENIOR_NAME:
+                return "seniorName";
+            case SUB_ITEMS:
+                return "numberOfSubItems";
+            case SHORTEST:
+                return "shortestDuration";
+            case LONGEST:
+                return "longestDuration";
+            case AVERAGE:
+                return "averageDuration";
+            case P50:
+                return "p50Duration";
+            case P90:
+                return "p90Duration";
+            case P95:
+                return "p95Duration";
+            case P99:
+                return "p99Duration";
+            case TOTAL:
+                return "totalDuration";
+            default:
+                return "growthDuration";
+        }
+    }
+
+    /*
+     * the column with the given field, or null for anything else
+     */
+    public static SummaryColumn fromField(String field) {
+        for (SummaryColumn column : values()) {
+            if (column.getField().equals(field)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * the column holding the metric, which the report is ranked by until
+     * another column is chosen
+     */
+    public static SummaryColumn fromMetric(RankingMetric metric) {
+        switch (metric) {
+            case P95:
+                return P95;
+            case TOTAL:
+                return TOTAL;
+            case GROWTH:
+                return GROWTH;
+            default:
+                return AVERAGE;
+        }
+    }
+
+}
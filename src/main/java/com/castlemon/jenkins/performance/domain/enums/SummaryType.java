@@ -1,7 +1,7 @@
 package com.castlemon.jenkins.performance.domain.enums;
 
 public enum SummaryType {
-    PROJECT, FEATURE, SCENARIO, STEP;
+    PROJECT, FEATURE, SCENARIO, STEP, STEP_DEFINITION;
 
 	/*
      * the default case for this enum will always be STEP
@@ -15,6 +15,8 @@ public enum SummaryType {
                 return false;
             case SCENARIO:
                 return true;
+            case STEP_DEFINITION:
+                return false;
             default:
                 return true;
         }
@@ -28,6 +30,8 @@ public enum SummaryType {
                 return true;
             case SCENARIO:
                 return true;
+            case STEP_DEFINITION:
+                return false;
             default:
                 return false;
         }
@@ -41,6 +45,8 @@ public enum SummaryType {
                 return "Project";
             case SCENARIO:
                 return "Feature";
+            case STEP_DEFINITION:
+                return "Project";
             default:
                 return "Scenario";
         }
@@ -54,6 +60,8 @@ public enum SummaryType {
                 return "Scenario";
             case SCENARIO:
                 return "Step";
+            case STEP_DEFINITION:
+                return null;
             default:
                 return null;
         }
@@ -67,6 +75,8 @@ public enum SummaryType {
                 return "Step";
             case SCENARIO:
                 return null;
+            case STEP_DEFINITION:
+                return null;
             default:
                 return null;
         }
@@ -80,11 +90,28 @@ public enum SummaryType {
                 return "project";
             case SCENARIO:
                 return "feature";
+            case STEP_DEFINITION:
+                return "project";
             default:
                 return "scenario";
         }
     }
 
+    public String getLink() {
+        switch (this) {
+            case PROJECT:
+                return "project";
+            case FEATURE:
+                return "feature";
+            case SCENARIO:
+                return "scenario";
+            case STEP_DEFINITION:
+                return "stepdefinition";
+            default:
+                return "step";
+        }
+    }
+
     public String getSubLink() {
         switch (this) {
             case PROJECT:
@@ -93,6 +120,8 @@ public enum SummaryType {
                 return "scenario";
             case SCENARIO:
                 return "step";
+            case STEP_DEFINITION:
+                return null;
             default:
                 return null;
         }
@@ -106,6 +135,8 @@ public enum SummaryType {
                 return "Feature";
             case SCENARIO:
                 return "Scenario";
+            case STEP_DEFINITION:
+                return "Step Definition";
             default:
                 return "Step";
         }
@@ -0,0 +1,44 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+/*
+ * a build at which a summary's duration shifted significantly, with the
+ * median durations of the builds either side of it
+ */
+public class ChangePoint {
+
+	private final int buildNumber;
+
+	private final long medianBefore;
+
+	private final long medianAfter;
+
+	public ChangePoint(int buildNumber, long medianBefore, long medianAfter) {
+		this.buildNumber = buildNumber;
+		this.medianBefore = medianBefore;
+		this.medianAfter = medianAfter;
+	}
+
+	public int getBuildNumber() {
+		return buildNumber;
+	}
+
+	public long getMedianBefore() {
+		return medianBefore;
+	}
+
+	public long getMedianAfter() {
+		return medianAfter;
+	}
+
+	public boolean isSlowdown() {
+		return medianAfter > medianBefore;
+	}
+
+	public double getPercentageChange() {
+		if (medianBefore == 0) {
+			return 0;
+		}
+		return (medianAfter - medianBefore) * 100.0 / medianBefore;
+	}
+
+}
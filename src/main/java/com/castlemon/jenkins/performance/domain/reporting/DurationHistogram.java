@@ -0,0 +1,166 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.Arrays;
+
+/*
+ * A log-linear histogram of durations in nanoseconds, used to answer
+ * percentile queries without going back over every build. Each power of two
+ * is split into 64 equal buckets, so a reported percentile is within about
+ * 1% of the true value, and only buckets that have been hit are held - a
+ * histogram never holds more than a few thousand buckets however many
+ * durations are recorded.
+ *
+ * Histograms can be merged, giving the same result as recording both sets of
+ * durations into one.
+ */
+public class DurationHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// the indexes of the buckets in use, in ascending order
+	private int[] buckets = new int[0];
+
+	private long[] counts = new long[0];
+
+	private int bucketCount;
+
+	private long totalCount;
+
+	private long minimum = Long.MAX_VALUE;
+
+	private long maximum;
+
+	public void recordValue(long value) {
+		recordValue(value, 1);
+	}
+
+	private void recordValue(long value, long count) {
+		if (value < 0) {
+			value = 0;
+		}
+		addToBucket(bucketIndex(value), count);
+		totalCount += count;
+		minimum = Math.min(minimum, value);
+		maximum = Math.max(maximum, value);
+	}
+
+	public void merge(DurationHistogram other) {
+		for (int i = 0; i < other.bucketCount; i++) {
+			addToBucket(other.buckets[i], other.counts[i]);
+		}
+		totalCount += other.totalCount;
+		minimum = Math.min(minimum, other.minimum);
+		maximum = Math.max(maximum, other.maximum);
+	}
+
+	/*
+	 * the duration below which the given percentage of recorded durations
+	 * fall, or 0 if nothing has been recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0l;
+		}
+		long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+		rank = Math.max(1l, Math.min(rank, totalCount));
+		long seen = 0l;
+		for (int i = 0; i < bucketCount; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				long value = bucketLowerBound(buckets[i])
+						+ bucketWidth(buckets[i]) / 2;
+				return Math.max(minimum, Math.min(maximum, value));
+			}
+		}
+		return maximum;
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getMinimum() {
+		return totalCount == 0 ? 0l : minimum;
+	}
+
+	public long getMaximum() {
+		return maximum;
+	}
+
+	/*
+	 * the used buckets and their counts, in ascending order - used to store
+	 * the histogram
+	 */
+	public int[] getBuckets() {
+		return Arrays.copyOf(buckets, bucketCount);
+	}
+
+	public long[] getCounts() {
+		return Arrays.copyOf(counts, bucketCount);
+	}
+
+	/*
+	 * restores a stored histogram
+	 */
+	public static DurationHistogram restore(int[] buckets, long[] counts,
+			long minimum, long maximum) {
+		DurationHistogram histogram = new DurationHistogram();
+		for (int i = 0; i < buckets.length; i++) {
+			histogram.addToBucket(buckets[i], counts[i]);
+			histogram.totalCount += counts[i];
+		}
+		if (histogram.totalCount > 0) {
+			histogram.minimum = minimum;
+			histogram.maximum = maximum;
+		}
+		return histogram;
+	}
+
+	private void addToBucket(int bucket, long count) {
+		int position = Arrays.binarySearch(buckets, 0, bucketCount, bucket);
+		if (position >= 0) {
+			counts[position] += count;
+			return;
+		}
+		position = -(position + 1);
+		if (bucketCount == buckets.length) {
+			int capacity = Math.max(4, bucketCount * 2);
+			buckets = Arrays.copyOf(buckets, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+		}
+		System.arraycopy(buckets, position, buckets, position + 1, bucketCount
+				- position);
+		System.arraycopy(counts, position, counts, position + 1, bucketCount
+				- position);
+		buckets[position] = bucket;
+		counts[position] = count;
+		bucketCount++;
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS
+				+ (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	static long bucketLowerBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+	}
+
+	private static long bucketWidth(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return 1l;
+		}
+		return 1l << (bucket / SUB_BUCKETS - 1);
+	}
+
+}
@@ -0,0 +1,246 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.RandomAccess;
+
+/*
+ * A summary's entries held a field at a time in primitive arrays rather than
+ * as one PerformanceEntry object each - an entry costs 32 bytes and a bit
+ * instead of an object, a Date and a list slot. It can still be used as a
+ * List<PerformanceEntry>: get() returns a copy of the entry, and add()
+ * copies the entry's values in, so changing an entry after it has been added
+ * does not change the store. Code that walks every entry should use the
+ * accessors taking an index, which read the arrays directly.
+ */
+public class EntryStore extends AbstractList<PerformanceEntry> implements
+		RandomAccess {
+
+	// the run date of an entry that has none
+	private static final long NO_DATE = Long.MIN_VALUE;
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private int size;
+
+	private int[] buildNumbers;
+
+	private long[] elapsedTimes;
+
+	private long[] runDates;
+
+	private int[] passedSteps;
+
+	private int[] failedSteps;
+
+	private int[] skippedSteps;
+
+	private final BitSet passed = new BitSet();
+
+	public EntryStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public EntryStore(int capacity) {
+		allocate(Math.max(capacity, 1));
+	}
+
+	public EntryStore(Collection<PerformanceEntry> entries) {
+		this(entries.size());
+		addAll(entries);
+	}
+
+	private void allocate(int capacity) {
+		buildNumbers = new int[capacity];
+		elapsedTimes = new long[capacity];
+		runDates = new long[capacity];
+		passedSteps = new int[capacity];
+		failedSteps = new int[capacity];
+		skippedSteps = new int[capacity];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= buildNumbers.length) {
+			return;
+		}
+		resize(Math.max(capacity, buildNumbers.length
+				+ (buildNumbers.length >> 1)));
+	}
+
+	private void resize(int capacity) {
+		buildNumbers = Arrays.copyOf(buildNumbers, capacity);
+		elapsedTimes = Arrays.copyOf(elapsedTimes, capacity);
+		runDates = Arrays.copyOf(runDates, capacity);
+		passedSteps = Arrays.copyOf(passedSteps, capacity);
+		failedSteps = Arrays.copyOf(failedSteps, capacity);
+		skippedSteps = Arrays.copyOf(skippedSteps, capacity);
+	}
+
+	/*
+	 * releases the spare capacity - used once a stored summary has been read
+	 */
+	public void trimToSize() {
+		if (size > 0 && size < buildNumbers.length) {
+			resize(size);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public PerformanceEntry get(int index) {
+		checkIndex(index);
+		PerformanceEntry entry = new PerformanceEntry();
+		entry.setBuildNumber(buildNumbers[index]);
+		entry.setElapsedTime(elapsedTimes[index]);
+		if (runDates[index] != NO_DATE) {
+			entry.setRunDate(new Date(runDates[index]));
+		}
+		entry.setPassedSteps(passedSteps[index]);
+		entry.setFailedSteps(failedSteps[index]);
+		entry.setSkippedSteps(skippedSteps[index]);
+		entry.setPassed(passed.get(index));
+		return entry;
+	}
+
+	@Override
+	public PerformanceEntry set(int index, PerformanceEntry entry) {
+		PerformanceEntry previous = get(index);
+		store(index, entry);
+		return previous;
+	}
+
+	@Override
+	public void add(int index, PerformanceEntry entry) {
+		if (index != size) {
+			// entries are only ever added in build order
+			throw new UnsupportedOperationException(
+					"entries can only be added at the end");
+		}
+		ensureCapacity(size + 1);
+		store(size, entry);
+		size++;
+		modCount++;
+	}
+
+	public void add(int buildNumber, long elapsedTime, Date runDate,
+			int passedStepCount, int failedStepCount, int skippedStepCount,
+			boolean isPassed) {
+		ensureCapacity(size + 1);
+		store(size, buildNumber, elapsedTime, runDate, passedStepCount,
+				failedStepCount, skippedStepCount, isPassed);
+		size++;
+		modCount++;
+	}
+
+	/*
+	 * appends the entries of another store without going through entry
+	 * objects
+	 */
+	public void addAll(EntryStore other) {
+		ensureCapacity(size + other.size);
+		System.arraycopy(other.buildNumbers, 0, buildNumbers, size, other.size);
+		System.arraycopy(other.elapsedTimes, 0, elapsedTimes, size, other.size);
+		System.arraycopy(other.runDates, 0, runDates, size, other.size);
+		System.arraycopy(other.passedSteps, 0, passedSteps, size, other.size);
+		System.arraycopy(other.failedSteps, 0, failedSteps, size, other.size);
+		System.arraycopy(other.skippedSteps, 0, skippedSteps, size, other.size);
+		for (int i = other.passed.nextSetBit(0); i >= 0 && i < other.size; i = other.passed
+				.nextSetBit(i + 1)) {
+			passed.set(size + i);
+		}
+		size += other.size;
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		passed.clear();
+		modCount++;
+	}
+
+	private void store(int index, PerformanceEntry entry) {
+		store(index, entry.getBuildNumber(), entry.getElapsedTime(),
+				entry.getRunDate(), entry.getPassedSteps(),
+				entry.getFailedSteps(), entry.getSkippedSteps(),
+				entry.isPassed());
+	}
+
+	private void store(int index, int buildNumber, long elapsedTime,
+			Date runDate, int passedStepCount, int failedStepCount,
+			int skippedStepCount, boolean isPassed) {
+		buildNumbers[index] = buildNumber;
+		elapsedTimes[index] = elapsedTime;
+		runDates[index] = runDate == null ? NO_DATE : runDate.getTime();
+		passedSteps[index] = passedStepCount;
+		failedSteps[index] = failedStepCount;
+		skippedSteps[index] = skippedStepCount;
+		passed.set(index, isPassed);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+	}
+
+	public int getBuildNumber(int index) {
+		checkIndex(index);
+		return buildNumbers[index];
+	}
+
+	public long getElapsedTime(int index) {
+		checkIndex(index);
+		return elapsedTimes[index];
+	}
+
+	/*
+	 * a copy of the run date, or null if the entry has none
+	 */
+	public Date getRunDate(int index) {
+		checkIndex(index);
+		return runDates[index] == NO_DATE ? null : new Date(runDates[index]);
+	}
+
+	public boolean hasRunDate(int index) {
+		checkIndex(index);
+		return runDates[index] != NO_DATE;
+	}
+
+	/*
+	 * the run date in milliseconds - only meaningful if the entry has one
+	 */
+	public long getRunTime(int index) {
+		checkIndex(index);
+		return runDates[index];
+	}
+
+	public int getPassedSteps(int index) {
+		checkIndex(index);
+		return passedSteps[index];
+	}
+
+	public int getFailedSteps(int index) {
+		checkIndex(index);
+		return failedSteps[index];
+	}
+
+	public int getSkippedSteps(int index) {
+		checkIndex(index);
+		return skippedSteps[index];
+	}
+
+	public boolean isPassed(int index) {
+		checkIndex(index);
+		return passed.get(index);
+	}
+
+}
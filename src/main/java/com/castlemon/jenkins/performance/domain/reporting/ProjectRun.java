@@ -1,5 +1,6 @@
 package com.castlemon.jenkins.performance.domain.reporting;
 
+import java.io.File;
 import java.util.Date;
 import java.util.List;
 
@@ -13,6 +14,19 @@ public class ProjectRun {
 
 	private List<Feature> features;
 
+	/*
+	 * used instead of features when the run's reports are to be streamed
+	 * rather than parsed up front
+	 */
+	private File reportDirectory;
+
+	private List<String> reportFiles;
+
+	/*
+	 * preferred over the report files when present - see RunDigest
+	 */
+	private File digestFile;
+
 	public Date getRunDate() {
 		if (runDate == null) {
 			return null;
@@ -37,6 +51,30 @@ public class ProjectRun {
 		this.features = features;
 	}
 
+	public File getReportDirectory() {
+		return reportDirectory;
+	}
+
+	public void setReportDirectory(File reportDirectory) {
+		this.reportDirectory = reportDirectory;
+	}
+
+	public List<String> getReportFiles() {
+		return reportFiles;
+	}
+
+	public void setReportFiles(List<String> reportFiles) {
+		this.reportFiles = reportFiles;
+	}
+
+	public File getDigestFile() {
+		return digestFile;
+	}
+
+	public void setDigestFile(File digestFile) {
+		this.digestFile = digestFile;
+	}
+
 	public int getBuildNumber() {
 		return buildNumber;
 	}
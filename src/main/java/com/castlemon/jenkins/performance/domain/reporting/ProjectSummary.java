@@ -1,14 +1,33 @@
 package com.castlemon.jenkins.performance.domain.reporting;
 
-import com.castlemon.jenkins.performance.domain.reporting.comparator.SummaryAverageDurationDescComparator;
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryColumn;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.comparator.SummaryRankingComparator;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 import com.thoughtworks.xstream.annotations.XStreamOmitField;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @XStreamAlias("projectsummary")
 public class ProjectSummary {
 
+    /*
+     * bump this whenever a change means that previously stored summaries can
+     * no longer be updated incrementally - they will be rebuilt from the
+     * build history instead
+     */
+    public static final int CURRENT_FORMAT_VERSION = 2;
+
+    // how far back a slowdown is still shown as a recent regression
+    private static final int RECENT_BUILDS = 10;
+
+    @XStreamAlias("formatversion")
+    private int formatVersion;
+
     @XStreamAlias("overallsummary")
     private Summary overallSummary;
 
@@ -21,8 +40,27 @@ public class ProjectSummary {
     @XStreamAlias("stepsummaries")
     private Map<String, Summary> stepSummaries;
 
+    @XStreamAlias("stepdefinitionsummaries")
+    private Map<String, StepDefinitionSummary> stepDefinitionSummaries;
+
+    // the page links of each feature's scenarios and each scenario's steps,
+    // in order and keyed by the senior's page link
+    @XStreamAlias("scenariolinks")
+    private Map<String, List<String>> scenarioLinks;
+
+    @XStreamAlias("steplinks")
+    private Map<String, List<String>> stepLinks;
+
+    // the page links of the worst summaries of each type by each metric,
+    // worst first
+    @XStreamAlias("rankings")
+    private Map<SummaryType, Map<RankingMetric, List<String>>> rankings;
+
+    // each type's summaries in the order of each column, kept for as long as
+    // this summary is - the ranking columns are sorted by precalculate, the
+    // rest on first use
     @XStreamOmitField
-    private int numberOfSummariesToDisplay;
+    private transient volatile ConcurrentMap<SummaryType, ConcurrentMap<SummaryColumn, List<Summary>>> sortedIndices;
 
     public Summary getOverallSummary() {
         return overallSummary;
@@ -38,6 +76,7 @@ public class ProjectSummary {
 
     public void setFeatureSummaries(Map<String, Summary> featureSummaries) {
         this.featureSummaries = featureSummaries;
+        clearSortedIndices();
     }
 
     public Map<String, Summary> getScenarioSummaries() {
@@ -46,6 +85,7 @@ public class ProjectSummary {
 
     public void setScenarioSummaries(Map<String, Summary> scenarioSummaries) {
         this.scenarioSummaries = scenarioSummaries;
+        clearSortedIndices();
     }
 
     public Map<String, Summary> getStepSummaries() {
@@ -54,6 +94,64 @@ public class ProjectSummary {
 
     public void setStepSummaries(Map<String, Summary> stepSummaries) {
         this.stepSummaries = stepSummaries;
+        clearSortedIndices();
+    }
+
+    public Map<String, StepDefinitionSummary> getStepDefinitionSummaries() {
+        return stepDefinitionSummaries;
+    }
+
+    public void setStepDefinitionSummaries(Map<String, StepDefinitionSummary> stepDefinitionSummaries) {
+        this.stepDefinitionSummaries = stepDefinitionSummaries;
+        clearSortedIndices();
+    }
+
+    public Map<String, List<String>> getScenarioLinks() {
+        return scenarioLinks;
+    }
+
+    public void setScenarioLinks(Map<String, List<String>> scenarioLinks) {
+        this.scenarioLinks = scenarioLinks;
+    }
+
+    public Map<String, List<String>> getStepLinks() {
+        return stepLinks;
+    }
+
+    public void setStepLinks(Map<String, List<String>> stepLinks) {
+        this.stepLinks = stepLinks;
+    }
+
+    /*
+     * the feature's scenarios, in order
+     */
+    public List<Summary> getScenarios(Summary feature) {
+        return getJuniorSummaries(feature, scenarioLinks, scenarioSummaries);
+    }
+
+    /*
+     * the scenario's steps, in order
+     */
+    public List<Summary> getSteps(Summary scenario) {
+        return getJuniorSummaries(scenario, stepLinks, stepSummaries);
+    }
+
+    private List<Summary> getJuniorSummaries(Summary senior,
+                                             Map<String, List<String>> links,
+                                             Map<String, Summary> summaries) {
+        if (links == null) {
+            // stored before the links were kept - search them out instead
+            return CucumberPerfUtils.getRelevantSummaries(summaries, senior.getId());
+        }
+        List<String> pageLinks = links.get(senior.getPageLink());
+        if (pageLinks == null) {
+            return new ArrayList<Summary>();
+        }
+        List<Summary> juniors = new ArrayList<Summary>(pageLinks.size());
+        for (String pageLink : pageLinks) {
+            juniors.add(summaries.get(pageLink));
+        }
+        return juniors;
     }
 
     public Collection<Summary> getFeatureSummaryList() {
@@ -73,41 +171,301 @@ public class ProjectSummary {
         allSummaries.putAll(this.featureSummaries);
         allSummaries.putAll(this.scenarioSummaries);
         allSummaries.putAll(this.stepSummaries);
+        if (this.stepDefinitionSummaries != null) {
+            allSummaries.putAll(this.stepDefinitionSummaries);
+        }
         return allSummaries;
     }
 
-    public Collection<Summary> getSortedFeatureSummaryList() {
-        return extractSlowestSummaries(numberOfSummariesToDisplay,
-                this.featureSummaries.values());
+    /*
+     * works out everything the summaries would otherwise work out the first
+     * time it is asked for, so that once this summary is shared between
+     * requests reading it never changes it
+     */
+    public void precalculate() {
+        if (overallSummary != null) {
+            overallSummary.precalculate();
+        }
+        precalculate(featureSummaries);
+        precalculate(scenarioSummaries);
+        precalculate(stepSummaries);
+        precalculate(stepDefinitionSummaries);
+        for (SummaryType summaryType : new SummaryType[] { SummaryType.FEATURE,
+                SummaryType.SCENARIO, SummaryType.STEP }) {
+            for (RankingMetric metric : RankingMetric.values()) {
+                getSortedIndex(summaryType, SummaryColumn.fromMetric(metric));
+            }
+        }
+    }
+
+    private static void precalculate(Map<String, ? extends Summary> summaries) {
+        if (summaries != null) {
+            for (Summary summary : summaries.values()) {
+                summary.precalculate();
+            }
+        }
+    }
+
+    public Map<SummaryType, Map<RankingMetric, List<String>>> getRankings() {
+        return rankings;
+    }
+
+    public void setRankings(Map<SummaryType, Map<RankingMetric, List<String>>> rankings) {
+        this.rankings = rankings;
+    }
+
+    /*
+     * the summaries of the given type, keyed by page link
+     */
+    public Map<String, ? extends Summary> getSummaries(SummaryType summaryType) {
+        switch (summaryType) {
+            case FEATURE:
+                return featureSummaries;
+            case SCENARIO:
+                return scenarioSummaries;
+            case STEP:
+                return stepSummaries;
+            case STEP_DEFINITION:
+                return stepDefinitionSummaries;
+            default:
+                throw new IllegalArgumentException("unknown summary type '"
+                        + summaryType.getLink() + "'");
+        }
+    }
+
+    /*
+     * the summaries of the given type in ascending order of the column, and
+     * by page link where they are level. Each order is sorted once, so that
+     * paging through it costs no more than the page. The sort holds no lock -
+     * two requests wanting the same new order may both sort it, and the first
+     * to finish is kept.
+     */
+    public List<Summary> getSortedIndex(SummaryType summaryType,
+                                        SummaryColumn column) {
+        ConcurrentMap<SummaryColumn, List<Summary>> indices = getSortedIndices(summaryType);
+        List<Summary> index = indices.get(column);
+        if (index == null) {
+            index = sortIndex(getSummaries(summaryType), column);
+            List<Summary> existing = indices.putIfAbsent(column, index);
+            if (existing != null) {
+                index = existing;
+            }
+        }
+        return index;
+    }
+
+    /*
+     * the number of summaries held across all the sorted indices, for
+     * estimating their size
+     */
+    public long getSortedIndexLength() {
+        long length = 0l;
+        ConcurrentMap<SummaryType, ConcurrentMap<SummaryColumn, List<Summary>>> current = sortedIndices;
+        if (current != null) {
+            for (Map<SummaryColumn, List<Summary>> indices : current.values()) {
+                for (List<Summary> index : indices.values()) {
+                    length += index.size();
+                }
+            }
+        }
+        return length;
+    }
+
+    private synchronized ConcurrentMap<SummaryColumn, List<Summary>> getSortedIndices(
+            SummaryType summaryType) {
+        if (sortedIndices == null) {
+            sortedIndices = new ConcurrentHashMap<SummaryType, ConcurrentMap<SummaryColumn, List<Summary>>>();
+        }
+        ConcurrentMap<SummaryColumn, List<Summary>> indices = sortedIndices.get(summaryType);
+        if (indices == null) {
+            indices = new ConcurrentHashMap<SummaryColumn, List<Summary>>();
+            sortedIndices.put(summaryType, indices);
+        }
+        return indices;
+    }
+
+    private synchronized void clearSortedIndices() {
+        sortedIndices = null;
+    }
+
+    private static List<Summary> sortIndex(Map<String, ? extends Summary> summaries,
+                                           final SummaryColumn column) {
+        if (summaries == null) {
+            return Collections.emptyList();
+        }
+        // the values are worked out once each, rather than on every comparison
+        List<IndexEntry> entries = new ArrayList<IndexEntry>(summaries.size());
+        for (Summary summary : summaries.values()) {
+            entries.add(new IndexEntry(summary, column));
+        }
+        Collections.sort(entries, new Comparator<IndexEntry>() {
+            public int compare(IndexEntry entry1, IndexEntry entry2) {
+                int result;
+                if (column.isText()) {
+                    result = entry1.text.compareToIgnoreCase(entry2.text);
+                } else {
+                    result = entry1.value < entry2.value ? -1
+                            : (entry1.value == entry2.value ? 0 : 1);
+                }
+                return result != 0 ? result : entry1.summary.getPageLink()
+                        .compareTo(entry2.summary.getPageLink());
+            }
+        });
+        Summary[] index = new Summary[entries.size()];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = entries.get(i).summary;
+        }
+        return Collections.unmodifiableList(Arrays.asList(index));
+    }
+
+    /*
+     * the count worst of each type - the count is the page's, as a summary
+     * shared between pages is never changed to suit one of them
+     */
+    public List<Summary> getSortedFeatureSummaryList(int count) {
+        return getSortedFeatureSummaryList(RankingMetric.AVERAGE, count);
+    }
+
+    public List<Summary> getSortedFeatureSummaryList(RankingMetric metric, int count) {
+        return getWorstSummaries(SummaryType.FEATURE, metric, count, this.featureSummaries);
+    }
+
+    public List<Summary> getSortedScenarioSummaryList(int count) {
+        return getSortedScenarioSummaryList(RankingMetric.AVERAGE, count);
+    }
+
+    public List<Summary> getSortedScenarioSummaryList(RankingMetric metric, int count) {
+        return getWorstSummaries(SummaryType.SCENARIO, metric, count, this.scenarioSummaries);
+    }
+
+    public List<Summary> getSortedStepSummaryList(int count) {
+        return getSortedStepSummaryList(RankingMetric.AVERAGE, count);
     }
 
-    public Collection<Summary> getSortedScenarioSummaryList() {
-        return extractSlowestSummaries(numberOfSummariesToDisplay,
-                this.scenarioSummaries.values());
+    public List<Summary> getSortedStepSummaryList(RankingMetric metric, int count) {
+        return getWorstSummaries(SummaryType.STEP, metric, count, this.stepSummaries);
     }
 
-    public Collection<Summary> getSortedStepSummaryList() {
-        return extractSlowestSummaries(numberOfSummariesToDisplay,
-                this.stepSummaries.values());
+    /*
+     * the step definitions that take the most time in an average build
+     */
+    public List<StepDefinitionSummary> getSortedStepDefinitionSummaryList(int count) {
+        return getSortedStepDefinitionSummaryList(RankingMetric.AVERAGE, count);
     }
 
-    private List<Summary> extractSlowestSummaries(int count,
-                                                  Collection<Summary> interimSummaries) {
-        List<Summary> interimList = new ArrayList<Summary>(interimSummaries);
-        Collections.sort(interimList,
-                new SummaryAverageDurationDescComparator());
+    public List<StepDefinitionSummary> getSortedStepDefinitionSummaryList(RankingMetric metric,
+                                                                          int count) {
+        if (this.stepDefinitionSummaries == null) {
+            return new ArrayList<StepDefinitionSummary>();
+        }
+        return getWorstSummaries(SummaryType.STEP_DEFINITION, metric, count,
+                this.stepDefinitionSummaries);
+    }
+
+    /*
+     * the worst summaries by the metric, from the rankings made when the
+     * report was generated as long as they run to enough of them - otherwise
+     * every summary is sorted
+     */
+    private <T extends Summary> List<T> getWorstSummaries(SummaryType type,
+                                                           RankingMetric metric,
+                                                           int maximum,
+                                                           Map<String, T> summaries) {
+        int count = Math.min(maximum, summaries.size());
+        List<String> ranking = null;
+        if (rankings != null && rankings.get(type) != null) {
+            ranking = rankings.get(type).get(metric);
+        }
+        if (ranking != null && ranking.size() >= count) {
+            List<T> worst = new ArrayList<T>(count);
+            for (String pageLink : ranking.subList(0, count)) {
+                worst.add(summaries.get(pageLink));
+            }
+            return worst;
+        }
+        return extractWorstSummaries(count, metric, summaries.values());
+    }
+
+    private <T extends Summary> List<T> extractWorstSummaries(int count,
+                                                              RankingMetric metric,
+                                                              Collection<T> interimSummaries) {
+        List<T> interimList = new ArrayList<T>(interimSummaries);
+        Collections.sort(interimList, new SummaryRankingComparator(metric));
         if (interimList.size() <= count) {
             return interimList;
         }
-        return (new ArrayList<Summary>(interimList.subList(0, count)));
+        return (new ArrayList<T>(interimList.subList(0, count)));
+    }
+
+    /*
+     * the features, scenarios and steps that began to slow down within the
+     * last few builds, most recent first and no more than count of them
+     * unless it is 0
+     */
+    public List<Summary> getRecentRegressions(int count) {
+        int firstRecentBuild = getLastBuildNumber() - RECENT_BUILDS;
+        List<Summary> regressions = new ArrayList<Summary>();
+        for (Summary summary : assembleAllSummaries().values()) {
+            ChangePoint slowdown = summary.getLatestSlowdown();
+            if (slowdown != null && slowdown.getBuildNumber() > firstRecentBuild) {
+                regressions.add(summary);
+            }
+        }
+        Collections.sort(regressions, new Comparator<Summary>() {
+            public int compare(Summary summary1, Summary summary2) {
+                ChangePoint slowdown1 = summary1.getLatestSlowdown();
+                ChangePoint slowdown2 = summary2.getLatestSlowdown();
+                if (slowdown1.getBuildNumber() != slowdown2.getBuildNumber()) {
+                    return slowdown2.getBuildNumber() - slowdown1.getBuildNumber();
+                }
+                return Double.compare(slowdown2.getPercentageChange(),
+                        slowdown1.getPercentageChange());
+            }
+        });
+        if (count > 0 && regressions.size() > count) {
+            return new ArrayList<Summary>(regressions.subList(0, count));
+        }
+        return regressions;
     }
 
-    public int getNumberOfSummariesToDisplay() {
-        return numberOfSummariesToDisplay;
+    public int getFormatVersion() {
+        return formatVersion;
     }
 
-    public void setNumberOfSummariesToDisplay(int numberOfSummariesToDisplay) {
-        this.numberOfSummariesToDisplay = numberOfSummariesToDisplay;
+    public void setFormatVersion(int formatVersion) {
+        this.formatVersion = formatVersion;
+    }
+
+    /*
+     * the highest build number held in this summary, or 0 if it is empty
+     */
+    public int getLastBuildNumber() {
+        int lastBuildNumber = 0;
+        if (overallSummary != null && overallSummary.getEntries() != null) {
+            EntryStore store = overallSummary.getEntryStore();
+            for (int i = 0; i < store.size(); i++) {
+                if (store.getBuildNumber(i) > lastBuildNumber) {
+                    lastBuildNumber = store.getBuildNumber(i);
+                }
+            }
+        }
+        return lastBuildNumber;
+    }
+
+    private static class IndexEntry {
+
+        private final Summary summary;
+
+        private final String text;
+
+        private final long value;
+
+        private IndexEntry(Summary summary, SummaryColumn column) {
+            this.summary = summary;
+            this.text = column.isText() ? column.getText(summary) : null;
+            this.value = column.isText() ? 0l : column.getValue(summary);
+        }
+
     }
 
 }
@@ -0,0 +1,47 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import hudson.model.Result;
+
+/*
+ * a summary whose duration in the current build exceeded one of its
+ * regression thresholds
+ */
+public class Regression {
+
+	private final Summary summary;
+
+	private final long elapsedTime;
+
+	private final long baselineDuration;
+
+	private final Result result;
+
+	public Regression(Summary summary, long elapsedTime,
+			long baselineDuration, Result result) {
+		this.summary = summary;
+		this.elapsedTime = elapsedTime;
+		this.baselineDuration = baselineDuration;
+		this.result = result;
+	}
+
+	public Summary getSummary() {
+		return summary;
+	}
+
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	public long getBaselineDuration() {
+		return baselineDuration;
+	}
+
+	public double getPercentageIncrease() {
+		return (elapsedTime - baselineDuration) * 100.0 / baselineDuration;
+	}
+
+	public Result getResult() {
+		return result;
+	}
+
+}
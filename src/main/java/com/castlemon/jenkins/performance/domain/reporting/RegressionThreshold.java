@@ -0,0 +1,128 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+
+/*
+ * How much slower than its baseline a project, feature, scenario or step may
+ * get before the build is marked unstable or failed. Thresholds are
+ * configured one per line, as
+ *
+ *   <level> <unstable %> <failure %> [id pattern]
+ *
+ * where level is project, feature, scenario or step, either percentage may be
+ * - to leave that result unused, and the optional pattern is a regular
+ * expression matched against the whole id of the summary. The first line that
+ * applies to a summary is used, so more specific lines should come first.
+ */
+public class RegressionThreshold {
+
+	private static final String UNUSED = "-";
+
+	private final SummaryType summaryType;
+
+	private final Pattern idPattern;
+
+	// 0 means that the threshold does not give this result
+	private final double unstablePercentage;
+
+	private final double failurePercentage;
+
+	public RegressionThreshold(SummaryType summaryType, String idPattern,
+			double unstablePercentage, double failurePercentage) {
+		this.summaryType = summaryType;
+		this.idPattern = StringUtils.isBlank(idPattern) ? null : Pattern
+				.compile(idPattern);
+		this.unstablePercentage = unstablePercentage;
+		this.failurePercentage = failurePercentage;
+	}
+
+	public boolean appliesTo(Summary summary) {
+		return summary.getSummaryType() == summaryType
+				&& (idPattern == null || (summary.getId() != null && idPattern
+						.matcher(summary.getId()).matches()));
+	}
+
+	public SummaryType getSummaryType() {
+		return summaryType;
+	}
+
+	public String getIdPattern() {
+		return idPattern == null ? null : idPattern.pattern();
+	}
+
+	public double getUnstablePercentage() {
+		return unstablePercentage;
+	}
+
+	public double getFailurePercentage() {
+		return failurePercentage;
+	}
+
+	/*
+	 * throws an IllegalArgumentException describing the first line that could
+	 * not be read
+	 */
+	public static List<RegressionThreshold> parseThresholds(String text) {
+		List<RegressionThreshold> thresholds = new ArrayList<RegressionThreshold>();
+		if (StringUtils.isBlank(text)) {
+			return thresholds;
+		}
+		for (String line : text.split("\\r?\\n")) {
+			if (StringUtils.isBlank(line)) {
+				continue;
+			}
+			String[] parts = line.trim().split("\\s+", 4);
+			if (parts.length < 3) {
+				throw new IllegalArgumentException(
+						"Expected '<level> <unstable %> <failure %> [id pattern]' but found: "
+								+ line);
+			}
+			SummaryType summaryType;
+			try {
+				summaryType = SummaryType.valueOf(parts[0]
+						.toUpperCase(Locale.ENGLISH));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown level '" + parts[0]
+						+ "' in: " + line);
+			}
+			double unstablePercentage = parsePercentage(parts[1], line);
+			double failurePercentage = parsePercentage(parts[2], line);
+			String idPattern = parts.length > 3 ? parts[3] : null;
+			try {
+				thresholds.add(new RegressionThreshold(summaryType, idPattern,
+						unstablePercentage, failurePercentage));
+			} catch (PatternSyntaxException e) {
+				throw new IllegalArgumentException("Invalid id pattern in: "
+						+ line);
+			}
+		}
+		return thresholds;
+	}
+
+	private static double parsePercentage(String value, String line) {
+		if (UNUSED.equals(value)) {
+			return 0;
+		}
+		try {
+			double percentage = Double.parseDouble(StringUtils.removeEnd(
+					value, "%"));
+			if (percentage <= 0) {
+				throw new IllegalArgumentException(
+						"Percentages must be greater than zero in: " + line);
+			}
+			return percentage;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid percentage '" + value
+					+ "' in: " + line);
+		}
+	}
+
+}
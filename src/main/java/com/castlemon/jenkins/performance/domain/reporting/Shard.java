@@ -0,0 +1,39 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * one of the groups of features or scenarios that a test run is split into,
+ * with the duration it is expected to take based on previous builds
+ */
+public class Shard {
+
+	private final int index;
+
+	private final List<Summary> summaries = new ArrayList<Summary>();
+
+	private long expectedDuration;
+
+	public Shard(int index) {
+		this.index = index;
+	}
+
+	public void addSummary(Summary summary) {
+		summaries.add(summary);
+		expectedDuration += summary.getAverageDuration();
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public List<Summary> getSummaries() {
+		return summaries;
+	}
+
+	public long getExpectedDuration() {
+		return expectedDuration;
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+
+/*
+ * a scenario that calls a step definition, with the number of passed calls
+ * it has made across all builds and the time they took
+ */
+public class StepDefinitionCaller {
+
+	private final String scenarioId;
+
+	private final String scenarioName;
+
+	private long calls;
+
+	private long totalDuration;
+
+	public StepDefinitionCaller(String scenarioId, String scenarioName) {
+		this.scenarioId = scenarioId;
+		this.scenarioName = scenarioName;
+	}
+
+	public void addCall(long duration) {
+		calls++;
+		totalDuration += duration;
+	}
+
+	public void merge(StepDefinitionCaller other) {
+		calls += other.calls;
+		totalDuration += other.totalDuration;
+	}
+
+	public String getScenarioId() {
+		return scenarioId;
+	}
+
+	public String getScenarioName() {
+		return scenarioName;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public void setCalls(long calls) {
+		this.calls = calls;
+	}
+
+	public long getTotalDuration() {
+		return totalDuration;
+	}
+
+	public void setTotalDuration(long totalDuration) {
+		this.totalDuration = totalDuration;
+	}
+
+	public String getFormattedTotalDuration() {
+		return CucumberPerfUtils.formatDuration(totalDuration);
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The calls made to a single step definition (glue method), wherever they
+ * appear. Its entries hold the total time spent in the method in each build,
+ * while the individual passed calls are gathered into their own histogram
+ * and credited to the scenarios that made them.
+ */
+public class StepDefinitionSummary extends Summary {
+
+    public static final int TOP_CALLERS = 5;
+
+    private DurationHistogram callHistogram = new DurationHistogram();
+
+    private long passedCallDuration;
+
+    private Map<String, StepDefinitionCaller> callers = new HashMap<String, StepDefinitionCaller>();
+
+    public StepDefinitionSummary() {
+        super();
+        setSummaryType(SummaryType.STEP_DEFINITION);
+    }
+
+    public StepDefinitionSummary(String pageLink) {
+        super(pageLink);
+        setSummaryType(SummaryType.STEP_DEFINITION);
+    }
+
+    public void recordPassedCall(String scenarioId, String scenarioName, long duration) {
+        callHistogram.recordValue(duration);
+        passedCallDuration += duration;
+        // scenarios without an id are told apart by name instead
+        String key = scenarioId == null ? String.valueOf(scenarioName) : scenarioId;
+        StepDefinitionCaller caller = callers.get(key);
+        if (caller == null) {
+            caller = new StepDefinitionCaller(key, scenarioName);
+            callers.put(key, caller);
+        }
+        caller.addCall(duration);
+    }
+
+    @Override
+    public void merge(Summary later) {
+        super.merge(later);
+        if (later instanceof StepDefinitionSummary) {
+            StepDefinitionSummary laterStepDefinition = (StepDefinitionSummary) later;
+            callHistogram.merge(laterStepDefinition.callHistogram);
+            passedCallDuration += laterStepDefinition.passedCallDuration;
+            for (StepDefinitionCaller laterCaller : laterStepDefinition.callers.values()) {
+                StepDefinitionCaller caller = callers.get(laterCaller.getScenarioId());
+                if (caller == null) {
+                    caller = new StepDefinitionCaller(laterCaller.getScenarioId(),
+                            laterCaller.getScenarioName());
+                    callers.put(caller.getScenarioId(), caller);
+                }
+                caller.merge(laterCaller);
+            }
+        }
+    }
+
+    public int getTotalCalls() {
+        return getPassedSteps() + getFailedSteps() + getSkippedSteps();
+    }
+
+    public long getAverageCallDuration() {
+        long passedCalls = callHistogram.getTotalCount();
+        return passedCalls == 0 ? 0l : passedCallDuration / passedCalls;
+    }
+
+    public String getFormattedAverageCallDuration() {
+        return CucumberPerfUtils.formatDuration(getAverageCallDuration());
+    }
+
+    public long getCallP50Duration() {
+        return callHistogram.getPercentile(50);
+    }
+
+    public long getCallP90Duration() {
+        return callHistogram.getPercentile(90);
+    }
+
+    public long getCallP95Duration() {
+        return callHistogram.getPercentile(95);
+    }
+
+    public long getCallP99Duration() {
+        return callHistogram.getPercentile(99);
+    }
+
+    public String getFormattedCallP50Duration() {
+        return CucumberPerfUtils.formatDuration(getCallP50Duration());
+    }
+
+    public String getFormattedCallP90Duration() {
+        return CucumberPerfUtils.formatDuration(getCallP90Duration());
+    }
+
+    public String getFormattedCallP95Duration() {
+        return CucumberPerfUtils.formatDuration(getCallP95Duration());
+    }
+
+    public String getFormattedCallP99Duration() {
+        return CucumberPerfUtils.formatDuration(getCallP99Duration());
+    }
+
+    /*
+     * the scenarios whose calls have taken the most time in total
+     */
+    public List<StepDefinitionCaller> getTopCallers() {
+        List<StepDefinitionCaller> topCallers = new ArrayList<StepDefinitionCaller>(callers.values());
+        Collections.sort(topCallers, new Comparator<StepDefinitionCaller>() {
+            public int compare(StepDefinitionCaller caller1, StepDefinitionCaller caller2) {
+                if (caller1.getTotalDuration() != caller2.getTotalDuration()) {
+                    return caller1.getTotalDuration() > caller2.getTotalDuration() ? -1 : 1;
+                }
+                return caller1.getScenarioId().compareTo(caller2.getScenarioId());
+            }
+        });
+        if (topCallers.size() > TOP_CALLERS) {
+            return new ArrayList<StepDefinitionCaller>(topCallers.subList(0, TOP_CALLERS));
+        }
+        return topCallers;
+    }
+
+    public DurationHistogram getCallHistogram() {
+        return callHistogram;
+    }
+
+    public void setCallHistogram(DurationHistogram callHistogram) {
+        this.callHistogram = callHistogram;
+    }
+
+    public long getPassedCallDuration() {
+        return passedCallDuration;
+    }
+
+    public void setPassedCallDuration(long passedCallDuration) {
+        this.passedCallDuration = passedCallDuration;
+    }
+
+    public Map<String, StepDefinitionCaller> getCallers() {
+        return callers;
+    }
+
+    public void setCallers(Map<String, StepDefinitionCaller> callers) {
+        this.callers = callers;
+    }
+
+}
@@ -2,12 +2,12 @@ package com.castlemon.jenkins.performance.domain.reporting;
 
 import com.castlemon.jenkins.performance.domain.enums.SummaryType;
 import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+import com.castlemon.jenkins.performance.util.PageLinks;
+import com.castlemon.jenkins.performance.util.SeriesDownsampler;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 import com.thoughtworks.xstream.annotations.XStreamOmitField;
-import hudson.model.AbstractProject;
-import org.apache.commons.lang.RandomStringUtils;
 
 import java.io.IOException;
 import java.io.StringWriter;
@@ -18,6 +18,9 @@ public class Summary {
 
     private static final int nanosInAMilli = 1000000;
 
+    // the builds at either end compared for the growth in duration
+    private static final int GROWTH_BUILDS = 10;
+
     private String id;
 
     private String name;
@@ -72,80 +75,177 @@ public class Summary {
     private int numberOfSubItems;
 
     @XStreamAlias("pagelink")
-    private final String pageLink;
+    private String pageLink;
+
+    // only used for features and scenarios
+    private List<String> tags;
 
     // only used for steps
     private String keyword;
 
     private List<List<String>> rows;
 
+    /*
+     * built from the entries when first needed if the summary was stored
+     * without one
+     */
+    // whether averageDuration holds the average of the current entries
+    @XStreamOmitField
+    private boolean averageCalculated;
+
     @XStreamOmitField
-    private List<Summary> subSummaries;
+    private DurationHistogram durationHistogram;
 
     /*
-     * this field is only used for display and should not be used in other
-     * circumstances
+     * null until change point detection has been run over the entries
      */
     @XStreamOmitField
-    private AbstractProject<?, ?> project;
+    private List<ChangePoint> changePoints;
+
+    public Summary() {
+    }
 
     /*
-     * this field is only used for display and should not be used in other
-     * circumstances
+     * used when restoring a stored summary, which must keep its page link
      */
-    @XStreamOmitField
-    private String urlName;
+    public Summary(String pageLink) {
+        this.pageLink = pageLink;
+    }
 
-    public String getUrlName() {
-        return urlName;
+    /*
+     * until a link is assigned the summary's derived link is used
+     */
+    public String getPageLink() {
+        if (pageLink == null) {
+            return PageLinks.getPageLink(summaryType, seniorId, id);
+        }
+        return pageLink;
     }
 
-    public void setUrlName(String urlName) {
-        this.urlName = urlName;
+    /*
+     * whether a link has been assigned, or restored along with the summary
+     */
+    public boolean hasPageLink() {
+        return pageLink != null;
     }
 
-    public AbstractProject<?, ?> getProject() {
-        return project;
+    public void setPageLink(String pageLink) {
+        this.pageLink = pageLink;
     }
 
-    public void setProject(AbstractProject<?, ?> project) {
-        this.project = project;
+    public List<String> getTags() {
+        return tags;
     }
 
-    public Summary() {
-        this.pageLink = RandomStringUtils.randomAlphabetic(10);
+    public void setTags(List<String> tags) {
+        this.tags = tags;
     }
 
-    public String getPageLink() {
-        return pageLink;
+    public boolean hasTag(String tag) {
+        return tags != null && tags.contains(tag);
     }
 
     public boolean hasRows() {
         return (rows != null);
     }
 
+    /*
+     * works out the average and the duration histogram, which are otherwise
+     * worked out the first time they are asked for
+     */
+    public void precalculate() {
+        calculateAverageDuration();
+        getDurationHistogram();
+    }
+
+    /*
+     * the average of the passed entries, cached until the entries change -
+     * an average of 0 is cached as well
+     */
     public long calculateAverageDuration() {
-        if (averageDuration != 0) {
+        if (averageCalculated) {
             return averageDuration;
         }
         long count = 0l;
         long duration = 0l;
-        for (PerformanceEntry entry : entries) {
-            if (entry.isPassed()) {
-                duration += entry.getElapsedTime();
-                count++;
+        EntryStore store = getEntryStore();
+        if (store != null) {
+            for (int i = 0; i < store.size(); i++) {
+                if (store.isPassed(i)) {
+                    duration += store.getElapsedTime(i);
+                    count++;
+                }
             }
         }
-        if (count > 0) {
-            averageDuration = duration / count;
-            return averageDuration;
+        averageDuration = count > 0 ? duration / count : 0l;
+        averageCalculated = true;
+        return averageDuration;
+    }
+
+    /*
+     * the time spent across every build
+     */
+    public long getTotalDuration() {
+        long totalDuration = 0l;
+        EntryStore store = getEntryStore();
+        if (store != null) {
+            for (int i = 0; i < store.size(); i++) {
+                totalDuration += store.getElapsedTime(i);
+            }
+        }
+        return totalDuration;
+    }
+
+    public String getFormattedTotalDuration() {
+        return CucumberPerfUtils.formatDuration(getTotalDuration());
+    }
+
+    /*
+     * how much slower the latest passed builds are than the earliest, on
+     * average - each side takes up to GROWTH_BUILDS builds, and fewer when
+     * there are not enough passed builds for both
+     */
+    public long getGrowthDuration() {
+        EntryStore store = getEntryStore();
+        if (store == null) {
+            return 0l;
         }
-        return 0l;
+        int passed = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isPassed(i)) {
+                passed++;
+            }
+        }
+        int window = Math.min(GROWTH_BUILDS, passed / 2);
+        if (window == 0) {
+            return 0l;
+        }
+        long baseline = 0l;
+        long latest = 0l;
+        int seen = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isPassed(i)) {
+                if (seen < window) {
+                    baseline += store.getElapsedTime(i);
+                } else if (seen >= passed - window) {
+                    latest += store.getElapsedTime(i);
+                }
+                seen++;
+            }
+        }
+        return (latest - baseline) / window;
+    }
+
+    public String getFormattedGrowthDuration() {
+        long growth = getGrowthDuration();
+        if (growth < 0) {
+            return "-" + CucumberPerfUtils.formatDuration(-growth);
+        }
+        return CucumberPerfUtils.formatDuration(growth);
     }
 
     public String getFormattedAverageDuration() {
-        calculateAverageDuration();
-        return CucumberPerfUtils.formatDuration(averageDuration);
+        return CucumberPerfUtils.formatDuration(calculateAverageDuration());
     }
 
     public String getFormattedShortestDuration() {
@@ -201,11 +301,206 @@ public class Summary {
     }
 
     public List<PerformanceEntry> getEntries() {
-        return entries;
+        return getEntryStore();
     }
 
+    /*
+     * the entries as held - summaries read from the legacy xml store are
+     * converted the first time they are asked for
+     */
+    public EntryStore getEntryStore() {
+        if (entries != null && !(entries instanceof EntryStore)) {
+            entries = new EntryStore(entries);
+        }
+        return (EntryStore) entries;
+    }
+
+    /*
+     * the entries are copied into an EntryStore unless they are already in
+     * one
+     */
     public void setEntries(List<PerformanceEntry> entries) {
-        this.entries = entries;
+        if (entries == null || entries instanceof EntryStore) {
+            this.entries = entries;
+        } else {
+            this.entries = new EntryStore(entries);
+        }
+        this.averageCalculated = false;
+        this.durationHistogram = null;
+        this.changePoints = null;
+    }
+
+    /*
+     * adds a new entry and discards the cached average, which no longer
+     * reflects the entries
+     */
+    public void addEntry(PerformanceEntry entry) {
+        if (this.entries == null) {
+            this.entries = new EntryStore();
+        }
+        getEntryStore().add(entry);
+        this.averageCalculated = false;
+        if (durationHistogram != null && entry.isPassed()) {
+            durationHistogram.recordValue(entry.getElapsedTime());
+        }
+    }
+
+    /*
+     * folds in a summary of the same feature, scenario or step built from
+     * later builds, giving the same result as if those builds had been
+     * processed into this summary. Anything set when a summary is first
+     * created (names, order, page link) is kept from this one.
+     */
+    public void merge(Summary later) {
+        passedBuilds += later.passedBuilds;
+        failedBuilds += later.failedBuilds;
+        totalBuilds = passedBuilds + failedBuilds;
+        passedSteps += later.passedSteps;
+        failedSteps += later.failedSteps;
+        skippedSteps += later.skippedSteps;
+        shortestDuration = Math.min(shortestDuration, later.shortestDuration);
+        longestDuration = Math.max(longestDuration, later.longestDuration);
+        if (keyword == null || keyword.length() == 0) {
+            keyword = later.keyword;
+        }
+        if (rows == null) {
+            rows = later.rows;
+        }
+        if (later.totalBuilds > 0) {
+            // the later builds' tags are the current ones
+            tags = later.tags;
+        }
+        if (later.entries != null) {
+            if (entries == null) {
+                entries = new EntryStore(later.entries.size());
+            }
+            getEntryStore().addAll(later.getEntryStore());
+        }
+        averageCalculated = false;
+        if (durationHistogram != null && later.durationHistogram != null) {
+            durationHistogram.merge(later.durationHistogram);
+        } else {
+            durationHistogram = null;
+        }
+        changePoints = null;
+    }
+
+    /*
+     * the durations of the passed entries
+     */
+    public DurationHistogram getDurationHistogram() {
+        if (durationHistogram == null) {
+            DurationHistogram histogram = new DurationHistogram();
+            if (entries != null) {
+                EntryStore store = getEntryStore();
+                for (int i = 0; i < store.size(); i++) {
+                    if (store.isPassed(i)) {
+                        histogram.recordValue(store.getElapsedTime(i));
+                    }
+                }
+            }
+            durationHistogram = histogram;
+        }
+        return durationHistogram;
+    }
+
+    public void setDurationHistogram(DurationHistogram durationHistogram) {
+        this.durationHistogram = durationHistogram;
+    }
+
+    public List<ChangePoint> getChangePoints() {
+        return changePoints;
+    }
+
+    public void setChangePoints(List<ChangePoint> changePoints) {
+        this.changePoints = changePoints;
+    }
+
+    /*
+     * the most recent change point at which this summary got slower, or null
+     */
+    public ChangePoint getLatestSlowdown() {
+        if (changePoints != null) {
+            for (int i = changePoints.size() - 1; i >= 0; i--) {
+                if (changePoints.get(i).isSlowdown()) {
+                    return changePoints.get(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    public String getFormattedSlowdownMedianBefore() {
+        ChangePoint slowdown = getLatestSlowdown();
+        return slowdown == null ? null : CucumberPerfUtils.formatDuration(slowdown.getMedianBefore());
+    }
+
+    public String getFormattedSlowdownMedianAfter() {
+        ChangePoint slowdown = getLatestSlowdown();
+        return slowdown == null ? null : CucumberPerfUtils.formatDuration(slowdown.getMedianAfter());
+    }
+
+    public long getSlowdownPercentage() {
+        ChangePoint slowdown = getLatestSlowdown();
+        return slowdown == null ? 0l : Math.round(slowdown.getPercentageChange());
+    }
+
+    /*
+     * the build numbers of the change points and the percentage change at
+     * each, for annotating the graph
+     */
+    public String getChangePointData() {
+        StringWriter writer = new StringWriter();
+        JsonFactory jsonFactory = new JsonFactory();
+        try {
+            JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer);
+            jsonGenerator.writeStartArray();
+            if (this.changePoints != null) {
+                for (ChangePoint changePoint : this.changePoints) {
+                    jsonGenerator.writeStartArray();
+                    jsonGenerator.writeNumber(changePoint.getBuildNumber());
+                    jsonGenerator.writeNumber(Math.round(changePoint.getPercentageChange()));
+                    jsonGenerator.writeEndArray();
+                }
+            }
+            jsonGenerator.writeEndArray();
+            jsonGenerator.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return writer.toString();
+    }
+
+    public long getP50Duration() {
+        return getDurationHistogram().getPercentile(50);
+    }
+
+    public long getP90Duration() {
+        return getDurationHistogram().getPercentile(90);
+    }
+
+    public long getP95Duration() {
+        return getDurationHistogram().getPercentile(95);
+    }
+
+    public long getP99Duration() {
+        return getDurationHistogram().getPercentile(99);
+    }
+
+    public String getFormattedP50Duration() {
+        return CucumberPerfUtils.formatDuration(getP50Duration());
+    }
+
+    public String getFormattedP90Duration() {
+        return CucumberPerfUtils.formatDuration(getP90Duration());
+    }
+
+    public String getFormattedP95Duration() {
+        return CucumberPerfUtils.formatDuration(getP95Duration());
+    }
+
+    public String getFormattedP99Duration() {
+        return CucumberPerfUtils.formatDuration(getP99Duration());
     }
 
     public long getShortestDuration() {
@@ -229,12 +524,12 @@ public class Summary {
     }
 
     public long getAverageDuration() {
-        calculateAverageDuration();
-        return averageDuration;
+        return calculateAverageDuration();
     }
 
     public void setAverageDuration(long averageDuration) {
         this.averageDuration = averageDuration;
+        this.averageCalculated = true;
     }
 
     public int getTotalBuilds() {
@@ -350,19 +645,45 @@ public class Summary {
     }
 
     public String getGraphData() {
+        return getGraphData(0, Integer.MAX_VALUE, SeriesDownsampler.DEFAULT_POINTS);
+    }
+
+    /*
+     * the passed builds in the range as [build number, seconds] - where there
+     * are more than the given number of points only those that keep the shape
+     * of the line are written, and none are left out when it is 0
+     */
+    public String getGraphData(int fromBuild, int toBuild, int points) {
+        EntryStore store = getEntryStore();
+        int count = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (isGraphed(store, i, fromBuild, toBuild)) {
+                count++;
+            }
+        }
+        int[] buildNumbers = new int[count];
+        long[] elapsedTimes = new long[count];
+        int next = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (isGraphed(store, i, fromBuild, toBuild)) {
+                buildNumbers[next] = store.getBuildNumber(i);
+                elapsedTimes[next] = store.getElapsedTime(i);
+                next++;
+            }
+        }
+        int[] selected = SeriesDownsampler.select(buildNumbers, elapsedTimes,
+                points > 0 ? points : count);
         StringWriter writer = new StringWriter();
         JsonFactory jsonFactory = new JsonFactory();
         try {
             JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer);
             jsonGenerator.writeStartArray();
-            for (PerformanceEntry run : this.entries) {
-                if (run.isPassed()) {
-                    jsonGenerator.writeStartArray();
-                    jsonGenerator.writeNumber(run.getBuildNumber());
-                    jsonGenerator.writeNumber(CucumberPerfUtils.getDurationInSeconds(run
-                            .getElapsedTime() / nanosInAMilli));
-                    jsonGenerator.writeEndArray();
-                }
+            for (int index : selected) {
+                jsonGenerator.writeStartArray();
+                jsonGenerator.writeNumber(buildNumbers[index]);
+                jsonGenerator.writeNumber(CucumberPerfUtils.getDurationInSeconds(elapsedTimes[index]
+                        / nanosInAMilli));
+                jsonGenerator.writeEndArray();
             }
             jsonGenerator.writeEndArray();
             jsonGenerator.close();
@@ -372,29 +693,48 @@ public class Summary {
         return writer.toString();
     }
 
+    private static boolean isGraphed(EntryStore store, int index, int fromBuild,
+                                     int toBuild) {
+        return store.isPassed(index) && store.getBuildNumber(index) >= fromBuild
+                && store.getBuildNumber(index) <= toBuild;
+    }
+
+    /*
+     * the average is the same for every build, so only the first and last
+     * passed builds are needed to draw it across the graph
+     */
     public String getAverageData() {
         long totalDuration = 0l;
         long executionCount = 0l;
-        for (PerformanceEntry run : this.entries) {
-            if (run.isPassed()) {
-                totalDuration += run.getElapsedTime();
+        int firstBuild = 0;
+        int lastBuild = 0;
+        EntryStore store = getEntryStore();
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isPassed(i)) {
+                totalDuration += store.getElapsedTime(i);
+                if (executionCount == 0) {
+                    firstBuild = store.getBuildNumber(i);
+                }
+                lastBuild = store.getBuildNumber(i);
                 executionCount++;
             }
         }
-        long average = 0l;
-        if (executionCount > 0) {
-            average = totalDuration / executionCount;
-        }
         StringWriter writer = new StringWriter();
         JsonFactory jsonFactory = new JsonFactory();
         try {
             JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer);
             jsonGenerator.writeStartArray();
-            for (PerformanceEntry run : this.entries) {
-                if (run.isPassed()) {
+            if (executionCount > 0) {
+                long average = CucumberPerfUtils.getDurationInSeconds(totalDuration
+                        / executionCount / nanosInAMilli);
+                jsonGenerator.writeStartArray();
+                jsonGenerator.writeNumber(firstBuild);
+                jsonGenerator.writeNumber(average);
+                jsonGenerator.writeEndArray();
+                if (executionCount > 1) {
                     jsonGenerator.writeStartArray();
-                    jsonGenerator.writeNumber(run.getBuildNumber());
-                    jsonGenerator.writeNumber(CucumberPerfUtils.getDurationInSeconds(average / nanosInAMilli));
+                    jsonGenerator.writeNumber(lastBuild);
+                    jsonGenerator.writeNumber(average);
                     jsonGenerator.writeEndArray();
                 }
             }
@@ -406,14 +746,6 @@ public class Summary {
         return writer.toString();
     }
 
-    public List<Summary> getSubSummaries() {
-        return subSummaries;
-    }
-
-    public void setSubSummaries(List<Summary> subSummaries) {
-        this.subSummaries = subSummaries;
-    }
-
     public String getSeniorPageLink() {
         return seniorPageLink;
     }
@@ -422,28 +754,4 @@ public class Summary {
         this.seniorPageLink = seniorPageLink;
     }
 
-    public String getPieChartData() {
-        StringWriter writer = new StringWriter();
-        JsonFactory jsonFactory = new JsonFactory();
-        try {
-            JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer);
-            jsonGenerator.writeStartArray();
-            if (this.subSummaries != null) {
-                for (Summary subSummary : this.subSummaries) {
-                    jsonGenerator.writeStartObject();
-                    jsonGenerator.writeStringField("name", subSummary.getName());
-                    jsonGenerator.writeNumberField("y", CucumberPerfUtils.getDurationInSeconds(subSummary.getAverageDuration() / nanosInAMilli));
-                    String url = this.project.getUrl() + this.urlName + "/" + this.summaryType.getSubLink() + "/" + subSummary.getPageLink();
-                    jsonGenerator.writeStringField("url", url);
-                    jsonGenerator.writeEndObject();
-                }
-            }
-            jsonGenerator.writeEndArray();
-            jsonGenerator.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return writer.toString();
-    }
-
 }
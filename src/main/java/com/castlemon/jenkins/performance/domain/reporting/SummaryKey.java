@@ -0,0 +1,62 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+/*
+ * identifies a feature, scenario or step summary by its own id and the id of
+ * the feature or scenario it belongs to, without building a new string for
+ * every lookup
+ */
+public final class SummaryKey {
+
+	private final String seniorId;
+
+	private final String id;
+
+	private final int hash;
+
+	public SummaryKey(String seniorId, String id) {
+		this.seniorId = seniorId;
+		this.id = id;
+		this.hash = 31 * (seniorId == null ? 0 : seniorId.hashCode())
+				+ (id == null ? 0 : id.hashCode());
+	}
+
+	public static SummaryKey of(Summary summary) {
+		return new SummaryKey(summary.getSeniorId(), summary.getId());
+	}
+
+	public String getSeniorId() {
+		return seniorId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof SummaryKey)) {
+			return false;
+		}
+		SummaryKey other = (SummaryKey) obj;
+		return hash == other.hash && equal(seniorId, other.seniorId)
+				&& equal(id, other.id);
+	}
+
+	private static boolean equal(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+
+	@Override
+	public String toString() {
+		return seniorId + "/" + id;
+	}
+
+}
@@ -0,0 +1,252 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+
+/*
+ * What a caller of the json api asked for - which summaries, in which order,
+ * how many of them, from where, and which of their fields. Each setter checks
+ * its value and throws an IllegalArgumentException naming the parameter when
+ * it is not usable, so that the api can refuse the request before anything is
+ * written.
+ */
+public class SummaryQuery {
+
+	public static final int DEFAULT_LIMIT = 100;
+
+	public static final int MAXIMUM_LIMIT = 1000;
+
+	public static final String SORT_BY_NAME = "name";
+
+	public static final List<String> FIELDS = Collections
+			.unmodifiableList(Arrays.asList("pageLink", "id", "name", "type",
+					"seniorPageLink", "seniorName", "keyword", "order", "tags",
+					"numberOfSubItems", "totalBuilds", "passedBuilds",
+					"failedBuilds", "passedSteps", "failedSteps",
+					"skippedSteps", "shortestDuration", "longestDuration",
+					"averageDuration", "p50Duration", "p90Duration",
+					"p95Duration", "p99Duration", "totalDuration",
+					"growthDuration", "url", "entries"));
+
+	public static final List<String> DEFAULT_FIELDS = Collections
+			.unmodifiableList(Arrays.asList("pageLink", "id", "name", "type",
+					"seniorPageLink", "tags", "totalBuilds", "passedBuilds",
+					"failedBuilds", "averageDuration", "p95Duration", "url"));
+
+	private int limit = DEFAULT_LIMIT;
+
+	private String cursor;
+
+	private Set<String> fields = new LinkedHashSet<String>(DEFAULT_FIELDS);
+
+	private String name;
+
+	private List<String> tags = new ArrayList<String>();
+
+	private String senior;
+
+	private int fromBuild = 0;
+
+	private int toBuild = Integer.MAX_VALUE;
+
+	// null sorts by name
+	private RankingMetric metric;
+
+	private boolean descending;
+
+	private boolean orderGiven;
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(String limit) {
+		if (StringUtils.isBlank(limit)) {
+			return;
+		}
+		this.limit = parseNumber("limit", limit);
+		if (this.limit < 1 || this.limit > MAXIMUM_LIMIT) {
+			throw new IllegalArgumentException(
+					"limit must be between 1 and " + MAXIMUM_LIMIT);
+		}
+	}
+
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = StringUtils.isBlank(cursor) ? null : cursor.trim();
+	}
+
+	public Set<String> getFields() {
+		return fields;
+	}
+
+	/*
+	 * a comma separated list of the names in FIELDS
+	 */
+	public void setFields(String fields) {
+		if (StringUtils.isBlank(fields)) {
+			return;
+		}
+		Set<String> selected = new LinkedHashSet<String>();
+		for (String field : fields.split(",")) {
+			field = field.trim();
+			if (field.length() == 0) {
+				continue;
+			}
+			if (!FIELDS.contains(field)) {
+				throw new IllegalArgumentException("unknown field '" + field
+						+ "'");
+			}
+			selected.add(field);
+		}
+		this.fields = selected;
+	}
+
+	public boolean hasField(String field) {
+		return fields.contains(field);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = StringUtils.isBlank(name) ? null : name.trim().toLowerCase(
+				Locale.ENGLISH);
+	}
+
+	/*
+	 * whether the name contains the requested text, ignoring case
+	 */
+	public boolean matchesName(String summaryName) {
+		return name == null
+				|| (summaryName != null && summaryName.toLowerCase(
+						Locale.ENGLISH).contains(name));
+	}
+
+	public List<String> getTags() {
+		return tags;
+	}
+
+	/*
+	 * the tags a summary must all have, with or without their @
+	 */
+	public void setTags(String[] tags) {
+		this.tags = new ArrayList<String>();
+		if (tags == null) {
+			return;
+		}
+		for (String tag : tags) {
+			if (StringUtils.isBlank(tag)) {
+				continue;
+			}
+			tag = tag.trim();
+			this.tags.add(tag.startsWith("@") ? tag : "@" + tag);
+		}
+	}
+
+	public String getSenior() {
+		return senior;
+	}
+
+	public void setSenior(String senior) {
+		this.senior = StringUtils.isBlank(senior) ? null : senior.trim();
+	}
+
+	public int getFromBuild() {
+		return fromBuild;
+	}
+
+	public void setFromBuild(String fromBuild) {
+		if (StringUtils.isNotBlank(fromBuild)) {
+			this.fromBuild = parseNumber("fromBuild", fromBuild);
+		}
+	}
+
+	public int getToBuild() {
+		return toBuild;
+	}
+
+	public void setToBuild(String toBuild) {
+		if (StringUtils.isNotBlank(toBuild)) {
+			this.toBuild = parseNumber("toBuild", toBuild);
+		}
+	}
+
+	public boolean hasBuildRange() {
+		return fromBuild > 0 || toBuild < Integer.MAX_VALUE;
+	}
+
+	public boolean isInBuildRange(int buildNumber) {
+		return buildNumber >= fromBuild && buildNumber <= toBuild;
+	}
+
+	public RankingMetric getMetric() {
+		return metric;
+	}
+
+	/*
+	 * name, or the link of a RankingMetric. Metrics sort worst first unless an
+	 * order is given, names alphabetically.
+	 */
+	public void setSort(String sort) {
+		if (StringUtils.isBlank(sort)
+				|| SORT_BY_NAME.equalsIgnoreCase(sort.trim())) {
+			metric = null;
+		} else {
+			metric = null;
+			for (RankingMetric candidate : RankingMetric.values()) {
+				if (candidate.getLink().equalsIgnoreCase(sort.trim())) {
+					metric = candidate;
+				}
+			}
+			if (metric == null) {
+				throw new IllegalArgumentException("unknown sort '" + sort
+						+ "'");
+			}
+		}
+		if (!orderGiven) {
+			descending = metric != null;
+		}
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	public void setOrder(String order) {
+		if (StringUtils.isBlank(order)) {
+			return;
+		}
+		if ("asc".equalsIgnoreCase(order.trim())) {
+			descending = false;
+		} else if ("desc".equalsIgnoreCase(order.trim())) {
+			descending = true;
+		} else {
+			throw new IllegalArgumentException("order must be asc or desc");
+		}
+		orderGiven = true;
+	}
+
+	static int parseNumber(String parameter, String value) {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(parameter
+					+ " must be a whole number");
+		}
+	}
+
+}
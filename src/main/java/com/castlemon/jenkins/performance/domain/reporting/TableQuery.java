@@ -0,0 +1,157 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.Locale;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryColumn;
+
+/*
+ * A page of one of the sorted report's tables, as DataTables asks for it
+ * when processing is left to the server - the rows to start from and how
+ * many, the column to order by and the text to search for. A table on a
+ * feature's page asks only for that feature's scenarios, by naming the
+ * feature's page link as the senior. As with
+ * SummaryQuery, each setter throws an IllegalArgumentException naming the
+ * parameter when its value is not usable.
+ */
+public class TableQuery {
+
+	public static final int DEFAULT_LENGTH = 10;
+
+	public static final int MAXIMUM_LENGTH = SummaryQuery.MAXIMUM_LIMIT;
+
+	// echoed back, so that DataTables can discard replies that arrive late
+	private int draw;
+
+	private int start;
+
+	private int length = DEFAULT_LENGTH;
+
+	private String search;
+
+	private String senior;
+
+	private SummaryColumn column = SummaryColumn.AVERAGE;
+
+	private boolean descending = true;
+
+	public int getDraw() {
+		return draw;
+	}
+
+	public void setDraw(String draw) {
+		if (StringUtils.isNotBlank(draw)) {
+			this.draw = SummaryQuery.parseNumber("draw", draw);
+		}
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public void setStart(String start) {
+		if (StringUtils.isBlank(start)) {
+			return;
+		}
+		this.start = SummaryQuery.parseNumber("start", start);
+		if (this.start < 0) {
+			throw new IllegalArgumentException("start must not be negative");
+		}
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/*
+	 * DataTables asks for -1 rows to have them all, which is held to the
+	 * most a page may have
+	 */
+	public void setLength(String length) {
+		if (StringUtils.isBlank(length)) {
+			return;
+		}
+		int parsed = SummaryQuery.parseNumber("length", length);
+		if (parsed == -1 || parsed > MAXIMUM_LENGTH) {
+			this.length = MAXIMUM_LENGTH;
+		} else if (parsed < 1) {
+			throw new IllegalArgumentException("length must be at least 1");
+		} else {
+			this.length = parsed;
+		}
+	}
+
+	public String getSearch() {
+		return search;
+	}
+
+	public void setSearch(String search) {
+		this.search = StringUtils.isBlank(search) ? null : search.trim()
+				.toLowerCase(Locale.ENGLISH);
+	}
+
+	public String getSenior() {
+		return senior;
+	}
+
+	public void setSenior(String senior) {
+		this.senior = StringUtils.isBlank(senior) ? null : senior.trim();
+	}
+
+	/*
+	 * whether the summary belongs to the senior asked for, if any - the
+	 * table's rows before any search
+	 */
+	public boolean isWithinSenior(Summary summary) {
+		return senior == null || senior.equals(summary.getSeniorPageLink());
+	}
+
+	/*
+	 * whether the name or the senior's name contains the searched for text,
+	 * ignoring case
+	 */
+	public boolean matches(Summary summary) {
+		return search == null || contains(summary.getName())
+				|| contains(summary.getSeniorName());
+	}
+
+	private boolean contains(String text) {
+		return text != null
+				&& text.toLowerCase(Locale.ENGLISH).contains(search);
+	}
+
+	public SummaryColumn getColumn() {
+		return column;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/*
+	 * orders by the column holding the given field, ascending unless the
+	 * direction is desc
+	 */
+	public void setOrder(String field, String direction) {
+		SummaryColumn chosen = SummaryColumn.fromField(field);
+		if (chosen == null) {
+			throw new IllegalArgumentException("cannot order by '" + field
+					+ "'");
+		}
+		column = chosen;
+		descending = direction != null
+				&& "desc".equalsIgnoreCase(direction.trim());
+	}
+
+	/*
+	 * orders worst first by the metric, as the report is ranked before
+	 * another column is chosen
+	 */
+	public void setMetric(RankingMetric metric) {
+		column = SummaryColumn.fromMetric(metric);
+		descending = true;
+	}
+
+}
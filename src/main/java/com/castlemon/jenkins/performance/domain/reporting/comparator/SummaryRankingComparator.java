@@ -0,0 +1,36 @@
+package com.castlemon.jenkins.performance.domain.reporting.comparator;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * worst first by the given metric, and by page link where they are level
+ */
+public class SummaryRankingComparator implements Comparator<Summary>, Serializable {
+
+	private final static long serialVersionUID = 1L;
+
+	private final RankingMetric metric;
+
+	public SummaryRankingComparator(RankingMetric metric) {
+		this.metric = metric;
+	}
+
+	public int compare(Summary summary1, Summary summary2) {
+		return compare(metric.getValue(summary1), summary1.getPageLink(),
+				metric.getValue(summary2), summary2.getPageLink());
+	}
+
+	public static int compare(long value1, String pageLink1, long value2,
+			String pageLink2) {
+		if (value1 != value2) {
+			// descending order
+			return value1 > value2 ? -1 : 1;
+		}
+		return pageLink1.compareTo(pageLink2);
+	}
+
+}
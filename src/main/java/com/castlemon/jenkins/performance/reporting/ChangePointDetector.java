@@ -0,0 +1,142 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.castlemon.jenkins.performance.domain.reporting.ChangePoint;
+import com.castlemon.jenkins.performance.domain.reporting.EntryStore;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * Finds the builds at which a summary's duration shifted. Every passed build
+ * is compared with a window of passed builds before it using a Mann-Whitney
+ * rank test, and a shift is recorded where the test is significant and the
+ * medians differ by enough to matter. Where neighbouring builds all show the
+ * same shift the most significant of them is taken as the one where it began.
+ *
+ * A summary that already has its change points only has the most recent
+ * builds re-examined, as those are the only ones a new build can affect.
+ */
+public class ChangePointDetector {
+
+	// the number of passed builds compared either side of a candidate
+	static final int WINDOW = 8;
+
+	// two-sided 1% significance
+	private static final double CRITICAL_Z = 2.576;
+
+	// smaller shifts than this are noise as far as reporting is concerned
+	private static final double MINIMUM_SHIFT = 0.1;
+
+	// the passed builds re-examined when updating
+	private static final int TAIL = 4 * WINDOW;
+
+	public void update(Summary summary) {
+		EntryStore entries = summary.getEntryStore();
+		if (entries == null) {
+			return;
+		}
+		List<ChangePoint> existing = summary.getChangePoints();
+		int limit = existing == null ? Integer.MAX_VALUE : TAIL;
+		// find the oldest of the passed entries needed
+		int first = entries.size();
+		int n = 0;
+		while (first > 0 && n < limit) {
+			first--;
+			if (entries.isPassed(first)) {
+				n++;
+			}
+		}
+		long[] durations = new long[n];
+		int[] buildNumbers = new int[n];
+		int next = 0;
+		for (int i = first; i < entries.size(); i++) {
+			if (entries.isPassed(i)) {
+				durations[next] = entries.getElapsedTime(i);
+				buildNumbers[next] = entries.getBuildNumber(i);
+				next++;
+			}
+		}
+		List<ChangePoint> changePoints = new ArrayList<ChangePoint>();
+		int start = WINDOW;
+		if (existing != null) {
+			start = Math.max(WINDOW, n - 2 * WINDOW - 1);
+			// never start part way through a shift
+			while (start > WINDOW && isSignificant(durations, start - 1)) {
+				start--;
+			}
+			for (ChangePoint changePoint : existing) {
+				if (start >= n
+						|| changePoint.getBuildNumber() < buildNumbers[start]) {
+					changePoints.add(changePoint);
+				}
+			}
+		}
+		int i = start;
+		while (i <= n - WINDOW) {
+			if (!isSignificant(durations, i)) {
+				i++;
+				continue;
+			}
+			int best = i;
+			double bestZ = Math.abs(zScore(durations, i));
+			i++;
+			while (i <= n - WINDOW && isSignificant(durations, i)) {
+				double z = Math.abs(zScore(durations, i));
+				if (z > bestZ) {
+					best = i;
+					bestZ = z;
+				}
+				i++;
+			}
+			changePoints.add(new ChangePoint(buildNumbers[best], median(
+					durations, best - WINDOW, best), median(durations, best,
+					best + WINDOW)));
+		}
+		summary.setChangePoints(changePoints);
+	}
+
+	private boolean isSignificant(long[] durations, int index) {
+		if (Math.abs(zScore(durations, index)) < CRITICAL_Z) {
+			return false;
+		}
+		long before = median(durations, index - WINDOW, index);
+		long after = median(durations, index, index + WINDOW);
+		return before > 0
+				&& Math.abs(after - before) >= before * MINIMUM_SHIFT;
+	}
+
+	/*
+	 * the normal approximation of the Mann-Whitney U statistic comparing the
+	 * window before the index with the window starting at it - negative when
+	 * the later builds are slower
+	 */
+	static double zScore(long[] durations, int index) {
+		double u = 0;
+		for (int i = index - WINDOW; i < index; i++) {
+			for (int j = index; j < index + WINDOW; j++) {
+				if (durations[i] > durations[j]) {
+					u += 1;
+				} else if (durations[i] == durations[j]) {
+					u += 0.5;
+				}
+			}
+		}
+		double mean = WINDOW * WINDOW / 2.0;
+		double deviation = Math.sqrt(WINDOW * WINDOW * (2.0 * WINDOW + 1)
+				/ 12.0);
+		return (u - mean) / deviation;
+	}
+
+	private static long median(long[] durations, int from, int to) {
+		long[] window = Arrays.copyOfRange(durations, from, to);
+		Arrays.sort(window);
+		int middle = window.length / 2;
+		if (window.length % 2 == 0) {
+			return (window[middle - 1] + window[middle]) / 2;
+		}
+		return window[middle];
+	}
+
+}
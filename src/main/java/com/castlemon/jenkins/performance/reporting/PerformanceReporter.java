@@ -1,5 +1,6 @@
 package com.castlemon.jenkins.performance.reporting;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -12,10 +13,19 @@ import com.castlemon.jenkins.performance.domain.Elements;
 import com.castlemon.jenkins.performance.domain.Feature;
 import com.castlemon.jenkins.performance.domain.Result;
 import com.castlemon.jenkins.performance.domain.Step;
+import com.castlemon.jenkins.performance.domain.Tag;
 import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.EntryStore;
 import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionSummary;
 import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.SummaryKey;
+import com.castlemon.jenkins.performance.util.FeatureHandler;
+import com.castlemon.jenkins.performance.util.ParallelReportParser;
+import com.castlemon.jenkins.performance.util.RunDigest;
+import com.castlemon.jenkins.performance.util.StringPool;
 
 public class PerformanceReporter {
 
@@ -25,86 +35,178 @@ public class PerformanceReporter {
 
 	private static final String ROWS = "rows";
 
-	Map<String, Summary> featureSummaries;
-	Map<String, Summary> scenarioSummaries;
-	Map<String, Summary> stepSummaries;
+	Map<SummaryKey, Summary> featureSummaries;
+	Map<SummaryKey, Summary> scenarioSummaries;
+	Map<SummaryKey, Summary> stepSummaries;
+	Map<String, StepDefinitionSummary> stepDefinitionSummaries;
+
+	// names and ids are shared between the summaries that repeat them
+	private StringPool stringPool;
+
+	// the time spent in each step definition during the run being processed
+	private Map<String, PerformanceEntry> stepDefinitionRunEntries;
 
 	public Summary getPerformanceData(List<ProjectRun> runs) {
 		Summary projectSummary = new Summary();
 		projectSummary.setSummaryType(SummaryType.PROJECT);
-		List<PerformanceEntry> entries = new ArrayList<PerformanceEntry>();
-		int passedSteps = 0;
-		int failedSteps = 0;
-		int skippedSteps = 0;
-		int passedBuilds = 0;
-		int failedBuilds = 0;
+		projectSummary.setEntries(new EntryStore());
 		for (ProjectRun run : runs) {
-			PerformanceEntry runPerformanceEntry = processRun(run);
-			passedSteps += runPerformanceEntry.getPassedSteps();
-			failedSteps += runPerformanceEntry.getFailedSteps();
-			skippedSteps += runPerformanceEntry.getSkippedSteps();
-			if (runPerformanceEntry.isPassed()) {
-				passedBuilds++;
-				if (runPerformanceEntry.getElapsedTime() < projectSummary
-						.getShortestDuration()) {
-					projectSummary.setShortestDuration(runPerformanceEntry
-							.getElapsedTime());
-				}
-				if (runPerformanceEntry.getElapsedTime() > projectSummary
-						.getLongestDuration()) {
-					projectSummary.setLongestDuration(runPerformanceEntry
-							.getElapsedTime());
-				}
-			} else {
-				failedBuilds++;
-			}
-			entries.add(runPerformanceEntry);
+			addRunToProjectSummary(projectSummary, run);
 		}
-		projectSummary.setPassedBuilds(passedBuilds);
-		projectSummary.setFailedBuilds(failedBuilds);
-		projectSummary.setTotalBuilds(passedBuilds + failedBuilds);
-		projectSummary.setPassedSteps(passedSteps);
-		projectSummary.setFailedSteps(failedSteps);
-		projectSummary.setSkippedSteps(skippedSteps);
-		projectSummary.setEntries(entries);
 		return projectSummary;
 	}
 
+	/*
+	 * folds a single run into an existing project-level summary - the entry
+	 * maps must already hold the feature, scenario and step summaries that
+	 * were produced alongside it
+	 */
+	public boolean addRunToProjectSummary(Summary projectSummary,
+			ProjectRun run) {
+		PerformanceEntry runPerformanceEntry = processRun(run);
+		if (runPerformanceEntry == null) {
+			// nothing was reported for this run
+			return false;
+		}
+		projectSummary.addToPassedSteps(runPerformanceEntry.getPassedSteps());
+		projectSummary.addToFailedSteps(runPerformanceEntry.getFailedSteps());
+		projectSummary.addToSkippedSteps(runPerformanceEntry
+				.getSkippedSteps());
+		if (runPerformanceEntry.isPassed()) {
+			projectSummary.incrementPassedBuilds();
+			if (runPerformanceEntry.getElapsedTime() < projectSummary
+					.getShortestDuration()) {
+				projectSummary.setShortestDuration(runPerformanceEntry
+						.getElapsedTime());
+			}
+			if (runPerformanceEntry.getElapsedTime() > projectSummary
+					.getLongestDuration()) {
+				projectSummary.setLongestDuration(runPerformanceEntry
+						.getElapsedTime());
+			}
+		} else {
+			projectSummary.incrementFailedBuilds();
+		}
+		projectSummary.setTotalBuilds(projectSummary.getPassedBuilds()
+				+ projectSummary.getFailedBuilds());
+		projectSummary.addEntry(runPerformanceEntry);
+		return true;
+	}
+
+	/*
+	 * returns null if the run did not contain any features
+	 */
 	protected PerformanceEntry processRun(ProjectRun projectRun) {
 		PerformanceEntry runEntry = new PerformanceEntry();
 		runEntry.setRunDate(projectRun.getRunDate());
 		runEntry.setBuildNumber(projectRun.getBuildNumber());
-		int passedSteps = 0;
-		int failedSteps = 0;
-		int skippedSteps = 0;
-		long elapsedTime = 0l;
-		int orderParam = 0;
-		for (Feature feature : projectRun.getFeatures()) {
-			PerformanceEntry featureEntry = processFeature(feature,
-					projectRun.getRunDate(), projectRun.getBuildNumber(),
-					orderParam);
-			passedSteps += featureEntry.getPassedSteps();
-			failedSteps += featureEntry.getFailedSteps();
-			skippedSteps += featureEntry.getSkippedSteps();
-			elapsedTime += featureEntry.getElapsedTime();
-			orderParam++;
+		int featureCount = 0;
+		if (projectRun.getFeatures() != null) {
+			Date runDate = projectRun.getRunDate();
+			for (Feature feature : projectRun.getFeatures()) {
+				addToRunEntry(runEntry, processFeature(feature, runDate,
+						projectRun.getBuildNumber(), featureCount));
+				featureCount++;
+			}
+		} else {
+			featureCount = streamRun(projectRun, runEntry);
 		}
-		runEntry.setElapsedTime(elapsedTime);
-		runEntry.setPassedSteps(passedSteps);
-		runEntry.setFailedSteps(failedSteps);
-		runEntry.setSkippedSteps(skippedSteps);
-		if (failedSteps == 0 && skippedSteps == 0) {
+		addStepDefinitionEntries();
+		if (featureCount == 0) {
+			return null;
+		}
+		if (runEntry.getFailedSteps() == 0 && runEntry.getSkippedSteps() == 0) {
 			runEntry.setPassed(true);
 		}
 		return runEntry;
 	}
 
+	/*
+	 * gives each step definition called during the run a single entry for
+	 * the run, holding the total time spent in it
+	 */
+	private void addStepDefinitionEntries() {
+		for (Map.Entry<String, PerformanceEntry> runEntry : stepDefinitionRunEntries
+				.entrySet()) {
+			StepDefinitionSummary stepDefinitionSummary = stepDefinitionSummaries
+					.get(runEntry.getKey());
+			PerformanceEntry entry = runEntry.getValue();
+			if (entry.getFailedSteps() == 0 && entry.getSkippedSteps() == 0) {
+				entry.setPassed(true);
+				stepDefinitionSummary.incrementPassedBuilds();
+				if (entry.getElapsedTime() > 0
+						&& entry.getElapsedTime() < stepDefinitionSummary
+								.getShortestDuration()) {
+					stepDefinitionSummary.setShortestDuration(entry
+							.getElapsedTime());
+				}
+				if (entry.getElapsedTime() > stepDefinitionSummary
+						.getLongestDuration()) {
+					stepDefinitionSummary.setLongestDuration(entry
+							.getElapsedTime());
+				}
+			} else {
+				stepDefinitionSummary.incrementFailedBuilds();
+			}
+			stepDefinitionSummary.setTotalBuilds(stepDefinitionSummary
+					.getPassedBuilds() + stepDefinitionSummary.getFailedBuilds());
+			stepDefinitionSummary.addEntry(entry);
+		}
+		stepDefinitionRunEntries.clear();
+	}
+
+	/*
+	 * reads the run's digest, or failing that its report files. A digest or
+	 * a single report is read one feature at a time, so that only that
+	 * feature is held in memory; several reports are parsed in parallel, and
+	 * hold the features of no more reports at once than the WorkerPool has
+	 * workers.
+	 */
+	private int streamRun(ProjectRun projectRun,
+			final PerformanceEntry runEntry) {
+		final Date runDate = projectRun.getRunDate();
+		final int buildNumber = projectRun.getBuildNumber();
+		final int[] featureCount = new int[1];
+		FeatureHandler handler = new FeatureHandler() {
+			public void handleFeature(Feature feature) {
+				addToRunEntry(runEntry, processFeature(feature, runDate,
+						buildNumber, featureCount[0]));
+				featureCount[0]++;
+			}
+		};
+		if (projectRun.getDigestFile() != null) {
+			try {
+				RunDigest.read(projectRun.getDigestFile(), handler);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		} else if (projectRun.getReportFiles() != null) {
+			try {
+				new ParallelReportParser().parse(
+						projectRun.getReportDirectory(),
+						projectRun.getReportFiles(), handler);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return featureCount[0];
+	}
+
+	private void addToRunEntry(PerformanceEntry runEntry,
+			PerformanceEntry featureEntry) {
+		runEntry.addToPassedSteps(featureEntry.getPassedSteps());
+		runEntry.addToFailedSteps(featureEntry.getFailedSteps());
+		runEntry.addToSkippedSteps(featureEntry.getSkippedSteps());
+		runEntry.addToElapsedTime(featureEntry.getElapsedTime());
+	}
+
 	protected PerformanceEntry processFeature(Feature feature, Date runDate,
 			int buildNumber, int higherOrderParam) {
 		Summary featureSummary = getRelevantSummary(feature.getId(),
 				feature.getId(), feature.getName(), featureSummaries,
 				higherOrderParam, feature.getElements().size(),
 				feature.getName(), SummaryType.FEATURE);
+		updateTags(featureSummary, feature.getTags(), null);
 		PerformanceEntry featureEntry = new PerformanceEntry();
 		featureEntry.setRunDate(runDate);
 		featureEntry.setBuildNumber(buildNumber);
@@ -115,7 +217,8 @@ public class PerformanceReporter {
 		int orderParam = 0;
 		for (Elements scenario : feature.getElements()) {
 			PerformanceEntry scenarioEntry = processScenario(scenario, runDate,
-					buildNumber, feature.getId(), orderParam, feature.getName());
+					buildNumber, feature.getId(), orderParam, feature.getName(),
+					feature.getTags());
 			passedSteps += scenarioEntry.getPassedSteps();
 			failedSteps += scenarioEntry.getFailedSteps();
 			skippedSteps += scenarioEntry.getSkippedSteps();
@@ -147,17 +250,18 @@ public class PerformanceReporter {
 		}
 		featureSummary.setTotalBuilds(featureSummary.getPassedBuilds()
 				+ featureSummary.getFailedBuilds());
-		featureSummary.getEntries().add(featureEntry);
+		featureSummary.addEntry(featureEntry);
 		return featureEntry;
 	}
 
 	protected PerformanceEntry processScenario(Elements scenario, Date runDate,
 			int buildNumber, String featureId, int higherOrderParam,
-			String featureName) {
+			String featureName, List<Tag> featureTags) {
 		Summary scenarioSummary = getRelevantSummary(scenario.getId(),
 				featureId, scenario.getName(), scenarioSummaries,
 				higherOrderParam, scenario.getSteps().size(), featureName,
 				SummaryType.SCENARIO);
+		updateTags(scenarioSummary, scenario.getTags(), featureTags);
 		PerformanceEntry scenarioEntry = new PerformanceEntry();
 		scenarioEntry.setRunDate(runDate);
 		scenarioEntry.setBuildNumber(buildNumber);
@@ -201,7 +305,7 @@ public class PerformanceReporter {
 		}
 		scenarioSummary.setTotalBuilds(scenarioSummary.getPassedBuilds()
 				+ scenarioSummary.getFailedBuilds());
-		scenarioSummary.getEntries().add(scenarioEntry);
+		scenarioSummary.addEntry(scenarioEntry);
 		return scenarioEntry;
 	}
 
@@ -213,7 +317,7 @@ public class PerformanceReporter {
 				step.getName(), stepSummaries, orderParam, 1, scenarioName,
 				SummaryType.STEP);
 		if (StringUtils.isEmpty(stepSummary.getKeyword())) {
-			stepSummary.setKeyword(step.getKeyword());
+			stepSummary.setKeyword(stringPool.intern(step.getKeyword()));
 		}
 		if (step.getAdditionalProperties().size() > 0
 				&& stepSummary.getRows() == null) {
@@ -269,30 +373,157 @@ public class PerformanceReporter {
 				stepSummary.setLongestDuration(stepEntry.getElapsedTime());
 			}
 		}
-		stepSummary.getEntries().add(stepEntry);
+		stepSummary.addEntry(stepEntry);
 		stepSummary.setTotalBuilds(stepSummary.getPassedBuilds()
 				+ stepSummary.getFailedBuilds());
+		recordStepDefinitionCall(step, stepEntry, scenarioId, scenarioName);
 		return stepEntry;
 	}
 
+	/*
+	 * credits the step to the step definition that it matched - undefined
+	 * steps have no location and are left out
+	 */
+	private void recordStepDefinitionCall(Step step,
+			PerformanceEntry stepEntry, String scenarioId, String scenarioName) {
+		if (step.getMatch() == null
+				|| StringUtils.isEmpty(step.getMatch().getLocation())) {
+			return;
+		}
+		String location = step.getMatch().getLocation();
+		StepDefinitionSummary stepDefinitionSummary = stepDefinitionSummaries
+				.get(location);
+		if (stepDefinitionSummary == null) {
+			location = stringPool.intern(location);
+			stepDefinitionSummary = new StepDefinitionSummary();
+			stepDefinitionSummary.setId(location);
+			stepDefinitionSummary.setName(location);
+			stepDefinitionSummary
+					.setEntries(new EntryStore());
+			stepDefinitionSummaries.put(location, stepDefinitionSummary);
+		}
+		updateSummaryDataFromEntry(stepDefinitionSummary, stepEntry);
+		if (stepEntry.isPassed()) {
+			stepDefinitionSummary.recordPassedCall(scenarioId, scenarioName,
+					stepEntry.getElapsedTime());
+		}
+		PerformanceEntry runEntry = stepDefinitionRunEntries.get(location);
+		if (runEntry == null) {
+			runEntry = new PerformanceEntry();
+			runEntry.setRunDate(stepEntry.getRunDate());
+			runEntry.setBuildNumber(stepEntry.getBuildNumber());
+			stepDefinitionRunEntries.put(location, runEntry);
+		}
+		addToRunEntry(runEntry, stepEntry);
+	}
+
 	public void initialiseEntryMaps() {
-		featureSummaries = new HashMap<String, Summary>();
-		scenarioSummaries = new HashMap<String, Summary>();
-		stepSummaries = new HashMap<String, Summary>();
+		featureSummaries = new HashMap<SummaryKey, Summary>();
+		scenarioSummaries = new HashMap<SummaryKey, Summary>();
+		stepSummaries = new HashMap<SummaryKey, Summary>();
+		stepDefinitionSummaries = new HashMap<String, StepDefinitionSummary>();
+		stepDefinitionRunEntries = new HashMap<String, PerformanceEntry>();
+		stringPool = new StringPool();
+	}
+
+	/*
+	 * seeds the entry maps from a previously generated project summary so
+	 * that further runs can be folded into it
+	 */
+	public void initialiseEntryMaps(ProjectSummary previousSummary) {
+		initialiseEntryMaps();
+		addToEntryMap(featureSummaries, previousSummary.getFeatureSummaries());
+		addToEntryMap(scenarioSummaries,
+				previousSummary.getScenarioSummaries());
+		addToEntryMap(stepSummaries, previousSummary.getStepSummaries());
+		if (previousSummary.getStepDefinitionSummaries() != null) {
+			for (StepDefinitionSummary summary : previousSummary
+					.getStepDefinitionSummaries().values()) {
+				stepDefinitionSummaries.put(summary.getId(), summary);
+			}
+		}
+	}
+
+	private void addToEntryMap(Map<SummaryKey, Summary> entryMap,
+			Map<String, Summary> summariesByPageLink) {
+		for (Summary summary : summariesByPageLink.values()) {
+			entryMap.put(SummaryKey.of(summary), summary);
+		}
 	}
 
-	public Map<String, Summary> getFeatureSummaries() {
+	/*
+	 * folds in a reporter that processed later builds, as if this reporter
+	 * had processed them itself - used to rebuild a long history a range of
+	 * builds per worker
+	 */
+	public void merge(PerformanceReporter later) {
+		mergeSummaries(featureSummaries, later.featureSummaries);
+		mergeSummaries(scenarioSummaries, later.scenarioSummaries);
+		mergeSummaries(stepSummaries, later.stepSummaries);
+		mergeSummaries(stepDefinitionSummaries, later.stepDefinitionSummaries);
+	}
+
+	private <K, T extends Summary> void mergeSummaries(Map<K, T> summaries,
+			Map<K, T> laterSummaries) {
+		for (Map.Entry<K, T> laterSummary : laterSummaries.entrySet()) {
+			T summary = summaries.get(laterSummary.getKey());
+			if (summary == null) {
+				summaries.put(laterSummary.getKey(), laterSummary.getValue());
+			} else {
+				summary.merge(laterSummary.getValue());
+			}
+		}
+	}
+
+	public Map<SummaryKey, Summary> getFeatureSummaries() {
 		return featureSummaries;
 	}
 
-	public Map<String, Summary> getScenarioSummaries() {
+	public Map<SummaryKey, Summary> getScenarioSummaries() {
 		return scenarioSummaries;
 	}
 
-	public Map<String, Summary> getStepSummaries() {
+	public Map<SummaryKey, Summary> getStepSummaries() {
 		return stepSummaries;
 	}
 
+	public Map<String, StepDefinitionSummary> getStepDefinitionSummaries() {
+		return stepDefinitionSummaries;
+	}
+
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+	/*
+	 * gives the summary the names of its own and any inherited tags, as of
+	 * the latest build - a scenario keeps its feature's tags as well
+	 */
+	private void updateTags(Summary summary, List<Tag> tags,
+			List<Tag> inheritedTags) {
+		List<String> tagNames = new ArrayList<String>();
+		addTagNames(tagNames, tags);
+		addTagNames(tagNames, inheritedTags);
+		if (tagNames.isEmpty()) {
+			if (summary.getTags() != null) {
+				summary.setTags(null);
+			}
+		} else if (!tagNames.equals(summary.getTags())) {
+			summary.setTags(tagNames);
+		}
+	}
+
+	private void addTagNames(List<String> tagNames, List<Tag> tags) {
+		if (tags == null) {
+			return;
+		}
+		for (Tag tag : tags) {
+			if (tag.getName() != null && !tagNames.contains(tag.getName())) {
+				tagNames.add(stringPool.intern(tag.getName()));
+			}
+		}
+	}
+
 	private void updateSummaryDataFromEntry(Summary summary,
 			PerformanceEntry entry) {
 		// update the count fields
@@ -302,29 +533,24 @@ public class PerformanceReporter {
 	}
 
 	private Summary getRelevantSummary(String id, String seniorId, String name,
-			Map<String, Summary> summaries, int orderParam, int subItemCount,
-			String seniorName, SummaryType type) {
-		// generate the key for the map
-		String complexKey = seniorId + id;
+			Map<SummaryKey, Summary> summaries, int orderParam,
+			int subItemCount, String seniorName, SummaryType type) {
+		SummaryKey key = new SummaryKey(seniorId, id);
 		// find the right summary to use
-		Summary summary = null;
-		if (summaries.containsKey(complexKey)) {
-			// exists - use it
-			summary = summaries.get(complexKey);
-		} else {
+		Summary summary = summaries.get(key);
+		if (summary == null) {
 			// doesn't exist - create it
 			summary = new Summary();
-			summary.setId(id);
-			summary.setSeniorId(seniorId);
-			summary.setSeniorName(seniorName);
-			summary.setName(name);
+			summary.setId(stringPool.intern(id));
+			summary.setSeniorId(stringPool.intern(seniorId));
+			summary.setSeniorName(stringPool.intern(seniorName));
+			summary.setName(stringPool.intern(name));
 			summary.setSummaryType(type);
 			summary.setOrder(orderParam);
 			summary.setNumberOfSubItems(subItemCount);
-			List<PerformanceEntry> entries = new ArrayList<PerformanceEntry>();
-			summary.setEntries(entries);
+			summary.setEntries(new EntryStore());
 			// add the new entry to the list
-			summaries.put(complexKey, summary);
+			summaries.put(SummaryKey.of(summary), summary);
 		}
 		return summary;
 	}
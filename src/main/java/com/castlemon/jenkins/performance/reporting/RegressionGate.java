@@ -0,0 +1,147 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import hudson.model.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.castlemon.jenkins.performance.domain.reporting.EntryStore;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Regression;
+import com.castlemon.jenkins.performance.domain.reporting.RegressionThreshold;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * Compares each summary's entry for a build against a baseline - the average
+ * of its passed entries in the preceding builds - and reports those that have
+ * slowed down by more than their threshold allows. Only the last few entries
+ * of each summary are looked at, so the cost depends on the number of
+ * summaries rather than the length of the build history.
+ */
+public class RegressionGate {
+
+	public static final int DEFAULT_BASELINE_BUILDS = 10;
+
+	// fewer passed builds than this are not a reliable baseline
+	private static final int MINIMUM_BASELINE_BUILDS = 3;
+
+	private final List<RegressionThreshold> thresholds;
+
+	private final int baselineBuilds;
+
+	public RegressionGate(List<RegressionThreshold> thresholds,
+			int baselineBuilds) {
+		this.thresholds = thresholds;
+		this.baselineBuilds = baselineBuilds > 0 ? baselineBuilds
+				: DEFAULT_BASELINE_BUILDS;
+	}
+
+	/*
+	 * returns the regressions found in the given build, the worst first
+	 */
+	public List<Regression> evaluate(ProjectSummary projectSummary,
+			int buildNumber) {
+		List<Regression> regressions = new ArrayList<Regression>();
+		if (thresholds.isEmpty()) {
+			return regressions;
+		}
+		evaluate(projectSummary.getOverallSummary(), buildNumber, regressions);
+		evaluate(projectSummary.getFeatureSummaries(), buildNumber,
+				regressions);
+		evaluate(projectSummary.getScenarioSummaries(), buildNumber,
+				regressions);
+		evaluate(projectSummary.getStepSummaries(), buildNumber, regressions);
+		evaluate(projectSummary.getStepDefinitionSummaries(), buildNumber,
+				regressions);
+		Collections.sort(regressions, new Comparator<Regression>() {
+			public int compare(Regression r1, Regression r2) {
+				return Double.compare(r2.getPercentageIncrease(),
+						r1.getPercentageIncrease());
+			}
+		});
+		return regressions;
+	}
+
+	/*
+	 * the result the build should be given, or null if there is nothing to
+	 * report
+	 */
+	public static Result getWorstResult(List<Regression> regressions) {
+		Result worst = null;
+		for (Regression regression : regressions) {
+			if (worst == null || regression.getResult().isWorseThan(worst)) {
+				worst = regression.getResult();
+			}
+		}
+		return worst;
+	}
+
+	private void evaluate(Map<String, ? extends Summary> summaries,
+			int buildNumber, List<Regression> regressions) {
+		if (summaries != null) {
+			for (Summary summary : summaries.values()) {
+				evaluate(summary, buildNumber, regressions);
+			}
+		}
+	}
+
+	private void evaluate(Summary summary, int buildNumber,
+			List<Regression> regressions) {
+		if (summary == null) {
+			return;
+		}
+		RegressionThreshold threshold = findThreshold(summary);
+		if (threshold == null) {
+			return;
+		}
+		EntryStore entries = summary.getEntryStore();
+		if (entries == null || entries.isEmpty()) {
+			return;
+		}
+		// entries are held in build order, so this build's is the last
+		int last = entries.size() - 1;
+		if (entries.getBuildNumber(last) != buildNumber
+				|| !entries.isPassed(last)) {
+			// failed runs are not timed reliably
+			return;
+		}
+		long current = entries.getElapsedTime(last);
+		long baselineTotal = 0l;
+		int baselineCount = 0;
+		for (int i = last - 1; i >= 0 && i >= last - baselineBuilds; i--) {
+			if (entries.isPassed(i)) {
+				baselineTotal += entries.getElapsedTime(i);
+				baselineCount++;
+			}
+		}
+		if (baselineCount < MINIMUM_BASELINE_BUILDS || baselineTotal == 0) {
+			return;
+		}
+		long baseline = baselineTotal / baselineCount;
+		double increase = (current - baseline) * 100.0 / baseline;
+		Result result = null;
+		if (threshold.getFailurePercentage() > 0
+				&& increase > threshold.getFailurePercentage()) {
+			result = Result.FAILURE;
+		} else if (threshold.getUnstablePercentage() > 0
+				&& increase > threshold.getUnstablePercentage()) {
+			result = Result.UNSTABLE;
+		}
+		if (result != null) {
+			regressions.add(new Regression(summary, current, baseline, result));
+		}
+	}
+
+	private RegressionThreshold findThreshold(Summary summary) {
+		for (RegressionThreshold threshold : thresholds) {
+			if (threshold.appliesTo(summary)) {
+				return threshold;
+			}
+		}
+		return null;
+	}
+
+}
@@ -3,49 +3,216 @@ package com.castlemon.jenkins.performance.reporting;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
 import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.SummaryKey;
 import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+import com.castlemon.jenkins.performance.util.PageLinks;
+import com.castlemon.jenkins.performance.util.WorkerPool;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RecursiveTask;
 
 public class ReportBuilder {
 
+	// fewer runs than this are not worth handing to a worker of their own
+	static final int MINIMUM_RUNS_PER_PARTITION = 50;
+
 	public boolean generateProjectReports(List<ProjectRun> projectRuns,
 			File reportDirectory, String buildProjectName) {
+		ProjectSummary projectSummary = buildProjectSummary(projectRuns,
+				buildProjectName);
+		CucumberPerfUtils.writeSummaryToDisk(projectSummary, reportDirectory);
+		return true;
+	}
+
+	/*
+	 * folds a single new run into the summary produced by an earlier build,
+	 * rather than re-processing the whole build history
+	 */
+	public boolean updateProjectReports(ProjectSummary previousSummary,
+			ProjectRun projectRun, File reportDirectory,
+			String buildProjectName) {
+		return updateProjectReports(previousSummary,
+				Collections.singletonList(projectRun), reportDirectory,
+				buildProjectName);
+	}
+
+	/*
+	 * as above, for the runs made since the earlier build - in build order
+	 */
+	public boolean updateProjectReports(ProjectSummary previousSummary,
+			List<ProjectRun> projectRuns, File reportDirectory,
+			String buildProjectName) {
+		ProjectSummary projectSummary = updateProjectSummary(previousSummary,
+				projectRuns, buildProjectName);
+		CucumberPerfUtils.writeSummaryToDisk(projectSummary, reportDirectory);
+		return true;
+	}
+
+	public ProjectSummary buildProjectSummary(List<ProjectRun> projectRuns,
+			String buildProjectName) {
+		return buildProjectSummary(projectRuns, buildProjectName, Math.min(
+				WorkerPool.get().getParallelism(), projectRuns.size()
+						/ MINIMUM_RUNS_PER_PARTITION));
+	}
+
+	/*
+	 * a long history is split into consecutive ranges of builds, each
+	 * processed by its own reporter on the WorkerPool, and the reporters are
+	 * then merged in build order
+	 */
+	ProjectSummary buildProjectSummary(List<ProjectRun> projectRuns,
+			String buildProjectName, int partitions) {
+		if (partitions < 2) {
+			PerformanceReporter reporter = new PerformanceReporter();
+			reporter.initialiseEntryMaps();
+			Summary overallSummary = reporter.getPerformanceData(projectRuns);
+			return assembleProjectSummary(reporter, overallSummary,
+					buildProjectName);
+		}
+		List<PartitionTask> tasks = new ArrayList<PartitionTask>();
+		for (int i = 0; i < partitions; i++) {
+			PartitionTask task = new PartitionTask(projectRuns.subList(i
+					* projectRuns.size() / partitions, (i + 1)
+					* projectRuns.size() / partitions));
+			WorkerPool.get().execute(task);
+			tasks.add(task);
+		}
+		PerformanceReporter reporter = null;
+		Summary overallSummary = null;
+		for (PartitionTask task : tasks) {
+			Summary partitionSummary = task.join();
+			if (reporter == null) {
+				reporter = task.reporter;
+				overallSummary = partitionSummary;
+			} else {
+				reporter.merge(task.reporter);
+				overallSummary.merge(partitionSummary);
+			}
+		}
+		return assembleProjectSummary(reporter, overallSummary,
+				buildProjectName);
+	}
+
+	public ProjectSummary updateProjectSummary(ProjectSummary previousSummary,
+			ProjectRun projectRun, String buildProjectName) {
+		return updateProjectSummary(previousSummary,
+				Collections.singletonList(projectRun), buildProjectName);
+	}
+
+	public ProjectSummary updateProjectSummary(ProjectSummary previousSummary,
+			List<ProjectRun> projectRuns, String buildProjectName) {
 		PerformanceReporter reporter = new PerformanceReporter();
-		reporter.initialiseEntryMaps();
+		reporter.initialiseEntryMaps(previousSummary);
+		Summary overallSummary = previousSummary.getOverallSummary();
+		for (ProjectRun projectRun : projectRuns) {
+			reporter.addRunToProjectSummary(overallSummary, projectRun);
+		}
+		return assembleProjectSummary(reporter, overallSummary,
+				buildProjectName);
+	}
+
+	/*
+	 * a previous summary can only be updated if it was written in the current
+	 * format and does not already contain this build (or a later one)
+	 */
+	public static boolean canUpdate(ProjectSummary previousSummary,
+			int buildNumber) {
+		return previousSummary != null
+				&& previousSummary.getFormatVersion() == ProjectSummary.CURRENT_FORMAT_VERSION
+				&& previousSummary.getOverallSummary() != null
+				&& previousSummary.getOverallSummary().getEntries() != null
+				&& previousSummary.getFeatureSummaries() != null
+				&& previousSummary.getScenarioSummaries() != null
+				&& previousSummary.getStepSummaries() != null
+				&& previousSummary.getStepDefinitionSummaries() != null
+				&& previousSummary.getLastBuildNumber() < buildNumber;
+	}
+
+	private ProjectSummary assembleProjectSummary(PerformanceReporter reporter,
+			Summary overallSummary, String buildProjectName) {
 		ProjectSummary projectSummary = new ProjectSummary();
-		projectSummary.setOverallSummary(reporter
-				.getPerformanceData(projectRuns));
+		projectSummary.setFormatVersion(ProjectSummary.CURRENT_FORMAT_VERSION);
+		projectSummary.setOverallSummary(overallSummary);
 		projectSummary.getOverallSummary().setName(buildProjectName);
-		// feature reports - re-do the map to have the pageLink as the key
-		projectSummary.setFeatureSummaries(getMapByPageLink(reporter.getFeatureSummaries()));
+		// feature reports - assign the derived pageLinks and re-do the map to have them as the key
+		projectSummary.setFeatureSummaries(PageLinks.assignPageLinks(reporter.getFeatureSummaries().values()));
 		// scenario reports - update senior links and re-do the map to have the pageLink as the key
-        updateSeniorPageLinks(reporter.getScenarioSummaries(),reporter.getFeatureSummaries());
-		projectSummary.setScenarioSummaries(getMapByPageLink(reporter.getScenarioSummaries()));
+		updateSeniorPageLinks(reporter.getScenarioSummaries(),reporter.getFeatureSummaries());
+		projectSummary.setScenarioSummaries(PageLinks.assignPageLinks(reporter.getScenarioSummaries().values()));
 		// step reports - update senior links and re-do the map to have the pageLink as the key
-        updateSeniorPageLinks(reporter.getStepSummaries(),reporter.getScenarioSummaries());
-		projectSummary.setStepSummaries(getMapByPageLink(reporter.getStepSummaries()));
-		// project reports
-		List<Summary> summaryList = new ArrayList<Summary>(reporter
-				.getFeatureSummaries().values());
-		CucumberPerfUtils.sortSummaryList(summaryList);
-		CucumberPerfUtils.writeSummaryToDisk(projectSummary, reportDirectory);
-		return true;
+		updateSeniorPageLinks(reporter.getStepSummaries(),reporter.getScenarioSummaries());
+		projectSummary.setStepSummaries(PageLinks.assignPageLinks(reporter.getStepSummaries().values()));
+		// step definition reports - keyed by pageLink in the same way
+		projectSummary.setStepDefinitionSummaries(PageLinks.assignPageLinks(reporter.getStepDefinitionSummaries().values()));
+		// index the scenarios and steps by their senior, for the drill-down pages
+		projectSummary.setScenarioLinks(getJuniorPageLinks(projectSummary.getScenarioSummaries()));
+		projectSummary.setStepLinks(getJuniorPageLinks(projectSummary.getStepSummaries()));
+		detectChangePoints(projectSummary);
+		// the worst of each by each metric, for the sorted report
+		projectSummary.setRankings(new SummaryRanker().rank(projectSummary));
+		return projectSummary;
 	}
 
-    private Map<String,Summary> getMapByPageLink(Map<String,Summary> inputSummaries) {
-        Map<String,Summary> pageLinkSummaries = new HashMap<String,Summary>();
-        for(Summary summary : inputSummaries.values()) {
-            pageLinkSummaries.put(summary.getPageLink(),summary);
+    private void detectChangePoints(ProjectSummary projectSummary) {
+        ChangePointDetector detector = new ChangePointDetector();
+        detector.update(projectSummary.getOverallSummary());
+        for (Summary summary : projectSummary.assembleAllSummaries().values()) {
+            detector.update(summary);
+        }
+    }
+
+    private static class PartitionTask extends RecursiveTask<Summary> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<ProjectRun> projectRuns;
+
+        private final PerformanceReporter reporter = new PerformanceReporter();
+
+        private PartitionTask(List<ProjectRun> projectRuns) {
+            this.projectRuns = projectRuns;
+        }
+
+        @Override
+        protected Summary compute() {
+            reporter.initialiseEntryMaps();
+            return reporter.getPerformanceData(projectRuns);
+        }
+
+    }
+
+    /*
+     * the page links of the summaries, in order and grouped by the page link
+     * of their senior
+     */
+    static Map<String, List<String>> getJuniorPageLinks(Map<String, Summary> summaries) {
+        Map<String, List<Summary>> juniors = new HashMap<String, List<Summary>>();
+        for (Summary summary : summaries.values()) {
+            List<Summary> seniorJuniors = juniors.get(summary.getSeniorPageLink());
+            if (seniorJuniors == null) {
+                seniorJuniors = new ArrayList<Summary>();
+                juniors.put(summary.getSeniorPageLink(), seniorJuniors);
+            }
+            seniorJuniors.add(summary);
+        }
+        Map<String, List<String>> juniorPageLinks = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<Summary>> entry : juniors.entrySet()) {
+            CucumberPerfUtils.sortSummaryList(entry.getValue());
+            List<String> pageLinks = new ArrayList<String>(entry.getValue().size());
+            for (Summary summary : entry.getValue()) {
+                pageLinks.add(summary.getPageLink());
+            }
+            juniorPageLinks.put(entry.getKey(), pageLinks);
         }
-        return pageLinkSummaries;
+        return juniorPageLinks;
     }
 
-    private void updateSeniorPageLinks(Map<String, Summary> summaries, Map<String, Summary> seniorSummaries) {
+    private void updateSeniorPageLinks(Map<SummaryKey, Summary> summaries, Map<SummaryKey, Summary> seniorSummaries) {
         //create new map of senior summaries
         Map<String, Summary> seniors = new HashMap<String, Summary>();
         for (Summary seniorSummary : seniorSummaries.values()) {
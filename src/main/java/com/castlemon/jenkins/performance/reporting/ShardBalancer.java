@@ -0,0 +1,158 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Shard;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/*
+ * Splits the features or scenarios of a project into a number of shards of
+ * roughly equal expected duration, so that parallel test runners all finish
+ * at about the same time. Each item is weighted by its average passed
+ * duration and the longest are placed first, each into the shard with the
+ * least work so far - the longest processing time first rule, which is never
+ * more than a third worse than the best possible split.
+ *
+ * Ties are broken by id, so the same history always gives the same shards.
+ */
+public class ShardBalancer {
+
+	public static final String SHARD_FILE_NAME = "cukeperf-shards.json";
+
+	private final int shardCount;
+
+	private final SummaryType level;
+
+	public ShardBalancer(int shardCount, SummaryType level) {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException(
+					"the number of shards must be at least 1");
+		}
+		if (level != SummaryType.FEATURE && level != SummaryType.SCENARIO) {
+			throw new IllegalArgumentException(
+					"only features or scenarios can be sharded");
+		}
+		this.shardCount = shardCount;
+		this.level = level;
+	}
+
+	/*
+	 * the level named by the given link - feature or scenario - defaulting to
+	 * feature when blank
+	 */
+	public static SummaryType parseLevel(String link) {
+		if (link == null || link.trim().length() == 0) {
+			return SummaryType.FEATURE;
+		}
+		for (SummaryType type : SummaryType.values()) {
+			if (type.getLink().equalsIgnoreCase(link.trim())) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("unknown level '" + link + "'");
+	}
+
+	public List<Shard> balance(ProjectSummary projectSummary) {
+		Map<String, Summary> summaries = level == SummaryType.FEATURE ? projectSummary
+				.getFeatureSummaries() : projectSummary.getScenarioSummaries();
+		return balance(summaries == null ? Collections.<Summary> emptyList()
+				: summaries.values());
+	}
+
+	public List<Shard> balance(Collection<Summary> summaries) {
+		List<Summary> items = new ArrayList<Summary>(summaries);
+		Collections.sort(items, new Comparator<Summary>() {
+			public int compare(Summary summary1, Summary summary2) {
+				if (summary1.getAverageDuration() != summary2
+						.getAverageDuration()) {
+					return summary1.getAverageDuration() > summary2
+							.getAverageDuration() ? -1 : 1;
+				}
+				return compareIds(summary1, summary2);
+			}
+		});
+		List<Shard> shards = new ArrayList<Shard>();
+		PriorityQueue<Shard> leastLoaded = new PriorityQueue<Shard>(
+				shardCount, new Comparator<Shard>() {
+					public int compare(Shard shard1, Shard shard2) {
+						if (shard1.getExpectedDuration() != shard2
+								.getExpectedDuration()) {
+							return shard1.getExpectedDuration() < shard2
+									.getExpectedDuration() ? -1 : 1;
+						}
+						return shard1.getIndex() - shard2.getIndex();
+					}
+				});
+		for (int i = 0; i < shardCount; i++) {
+			Shard shard = new Shard(i);
+			shards.add(shard);
+			leastLoaded.add(shard);
+		}
+		for (Summary summary : items) {
+			Shard shard = leastLoaded.poll();
+			shard.addSummary(summary);
+			leastLoaded.add(shard);
+		}
+		return shards;
+	}
+
+	/*
+	 * writes the shards as json for test runners to read, naming each
+	 * scenario's feature alongside it
+	 */
+	public void writePlan(List<Shard> shards, int buildNumber, Writer writer)
+			throws IOException {
+		JsonGenerator generator = new JsonFactory().createGenerator(writer);
+		generator.writeStartObject();
+		generator.writeStringField("shardBy", level.getLink());
+		generator.writeNumberField("shardCount", shardCount);
+		generator.writeNumberField("basedOnBuild", buildNumber);
+		generator.writeArrayFieldStart("shards");
+		for (Shard shard : shards) {
+			generator.writeStartObject();
+			generator.writeNumberField("index", shard.getIndex());
+			generator.writeNumberField("expectedDuration",
+					shard.getExpectedDuration());
+			generator.writeArrayFieldStart("items");
+			for (Summary summary : shard.getSummaries()) {
+				generator.writeStartObject();
+				generator.writeStringField("id", summary.getId());
+				generator.writeStringField("name", summary.getName());
+				if (level == SummaryType.SCENARIO) {
+					generator.writeStringField("feature",
+							summary.getSeniorName());
+				}
+				generator.writeNumberField("expectedDuration",
+						summary.getAverageDuration());
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+	private static int compareIds(Summary summary1, Summary summary2) {
+		String id1 = summary1.getId() == null ? "" : summary1.getId();
+		String id2 = summary2.getId() == null ? "" : summary2.getId();
+		if (!id1.equals(id2)) {
+			return id1.compareTo(id2);
+		}
+		return summary1.getPageLink().compareTo(summary2.getPageLink());
+	}
+
+}
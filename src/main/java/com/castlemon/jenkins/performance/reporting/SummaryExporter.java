@@ -0,0 +1,472 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.EntryStore;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.SummaryQuery;
+import com.castlemon.jenkins.performance.domain.reporting.comparator.SummaryRankingComparator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/*
+ * Writes a project's summaries as json for the api, a page at a time. The
+ * summaries matching a query are picked in the order asked for, after the
+ * page link given as the cursor, by keeping the first of them in a heap no
+ * larger than the page - so a page costs one pass over the summaries and no
+ * sort, however many there are. Each page names the cursor for the next.
+ *
+ * Nothing is written until the page has been picked, so a query that cannot
+ * be answered throws an IllegalArgumentException with the response still
+ * untouched.
+ */
+public class SummaryExporter {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final ProjectSummary projectSummary;
+
+	public SummaryExporter(ProjectSummary projectSummary) {
+		this.projectSummary = projectSummary;
+	}
+
+	/*
+	 * the summaries of the given type, keyed by page link
+	 */
+	public Map<String, ? extends Summary> getSummaries(SummaryType summaryType) {
+		Map<String, ? extends Summary> summaries = projectSummary
+				.getSummaries(summaryType);
+		return summaries == null ? Collections.<String, Summary> emptyMap()
+				: summaries;
+	}
+
+	public Summary getSummary(SummaryType summaryType, String pageLink) {
+		return getSummaries(summaryType).get(pageLink);
+	}
+
+	public void writeProject(SummaryQuery query, Writer writer)
+			throws IOException {
+		JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+		generator.writeStartObject();
+		generator.writeNumberField("lastBuildNumber",
+				projectSummary.getLastBuildNumber());
+		generator.writeNumberField("features",
+				getSummaries(SummaryType.FEATURE).size());
+		generator.writeNumberField("scenarios",
+				getSummaries(SummaryType.SCENARIO).size());
+		generator.writeNumberField("steps", getSummaries(SummaryType.STEP)
+				.size());
+		generator.writeNumberField("stepDefinitions",
+				getSummaries(SummaryType.STEP_DEFINITION).size());
+		generator.writeFieldName("overall");
+		writeSummary(generator, projectSummary.getOverallSummary(), query);
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+	public void writeSummaries(SummaryType summaryType, SummaryQuery query,
+			Writer writer) throws IOException {
+		writePage(summaryType, select(summaryType, query), query, writer);
+	}
+
+	public void writePage(SummaryType summaryType, Page page,
+			SummaryQuery query, Writer writer) throws IOException {
+		JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+		generator.writeStartObject();
+		generator.writeStringField("type", summaryType.getLink());
+		generator.writeNumberField("total", page.total);
+		generator.writeNumberField("count", page.summaries.size());
+		generator.writeStringField("nextCursor", page.nextCursor);
+		generator.writeArrayFieldStart("items");
+		for (Summary summary : page.summaries) {
+			writeSummary(generator, summary, query);
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+	/*
+	 * the summary's entries within the build range, oldest first, a page at
+	 * a time - the cursor here is the last build number already returned
+	 */
+	public void writeSeries(Summary summary, SummaryQuery query, Writer writer)
+			throws IOException {
+		int after = Integer.MIN_VALUE;
+		if (query.getCursor() != null) {
+			try {
+				after = Integer.parseInt(query.getCursor());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"the cursor of a series must be a build number");
+			}
+		}
+		EntryStore entries = summary.getEntryStore();
+		List<Integer> indexes = new ArrayList<Integer>();
+		boolean more = false;
+		if (entries != null) {
+			for (int i = 0; i < entries.size(); i++) {
+				int buildNumber = entries.getBuildNumber(i);
+				if (buildNumber <= after || !query.isInBuildRange(buildNumber)) {
+					continue;
+				}
+				if (indexes.size() == query.getLimit()) {
+					more = true;
+					break;
+				}
+				indexes.add(i);
+			}
+		}
+		JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+		generator.writeStartObject();
+		generator.writeStringField("type", summary.getSummaryType() == null ? null
+				: summary.getSummaryType().getLink());
+		generator.writeStringField("pageLink", summary.getPageLink());
+		generator.writeStringField("name", summary.getName());
+		generator.writeNumberField("count", indexes.size());
+		generator.writeStringField(
+				"nextCursor",
+				more ? String.valueOf(entries.getBuildNumber(indexes
+						.get(indexes.size() - 1))) : null);
+		generator.writeArrayFieldStart("entries");
+		for (int index : indexes) {
+			writeEntry(generator, entries, index);
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+	/*
+	 * the page of summaries matching the query, in its order
+	 */
+	public Page select(SummaryType summaryType, SummaryQuery query) {
+		Collection<? extends Summary> candidates = getCandidates(summaryType,
+				query);
+		if (!query.getTags().isEmpty()
+				&& summaryType == SummaryType.STEP_DEFINITION) {
+			throw new IllegalArgumentException(
+					"step definitions cannot be filtered by tag");
+		}
+		Comparator<Sorted> order = getOrder(query);
+		Sorted after = null;
+		if (query.getCursor() != null) {
+			Summary summary = getSummary(summaryType, query.getCursor());
+			if (summary == null) {
+				throw new IllegalArgumentException("unknown cursor '"
+						+ query.getCursor() + "'");
+			}
+			after = new Sorted(summary, query.getMetric());
+		}
+		// one more than the page is kept, to tell whether another follows
+		int kept = query.getLimit() + 1;
+		// the last of those kept is at the head, ready to be displaced
+		PriorityQueue<Sorted> heap = new PriorityQueue<Sorted>(kept + 1,
+				Collections.reverseOrder(order));
+		int total = 0;
+		for (Summary summary : candidates) {
+			if (!matches(summaryType, summary, query)) {
+				continue;
+			}
+			total++;
+			Sorted sorted = new Sorted(summary, query.getMetric());
+			if (after != null && order.compare(sorted, after) <= 0) {
+				continue;
+			}
+			if (heap.size() < kept) {
+				heap.add(sorted);
+			} else if (order.compare(sorted, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(sorted);
+			}
+		}
+		List<Summary> summaries = new ArrayList<Summary>(heap.size());
+		while (!heap.isEmpty()) {
+			summaries.add(heap.poll().summary);
+		}
+		Collections.reverse(summaries);
+		String nextCursor = null;
+		if (summaries.size() > query.getLimit()) {
+			summaries.remove(summaries.size() - 1);
+			nextCursor = summaries.get(summaries.size() - 1).getPageLink();
+		}
+		return new Page(summaries, total, nextCursor);
+	}
+
+	private Collection<? extends Summary> getCandidates(
+			SummaryType summaryType, SummaryQuery query) {
+		if (query.getSenior() == null) {
+			return getSummaries(summaryType).values();
+		}
+		if (!summaryType.hasSeniorSummaries()) {
+			throw new IllegalArgumentException(summaryType.getLink()
+					+ " summaries have no senior");
+		}
+		SummaryType seniorType = summaryType == SummaryType.SCENARIO ? SummaryType.FEATURE
+				: SummaryType.SCENARIO;
+		Summary senior = getSummary(seniorType, query.getSenior());
+		if (senior == null) {
+			throw new IllegalArgumentException("unknown senior '"
+					+ query.getSenior() + "'");
+		}
+		return seniorType == SummaryType.FEATURE ? projectSummary
+				.getScenarios(senior) : projectSummary.getSteps(senior);
+	}
+
+	private boolean matches(SummaryType summaryType, Summary summary,
+			SummaryQuery query) {
+		if (!query.matchesName(summary.getName())) {
+			return false;
+		}
+		for (String tag : query.getTags()) {
+			if (!hasTag(summaryType, summary, tag)) {
+				return false;
+			}
+		}
+		return !query.hasBuildRange() || hasEntryInRange(summary, query);
+	}
+
+	/*
+	 * scenarios hold their feature's tags as well as their own, so a feature
+	 * has a tag if any of its scenarios do and a step if its scenario does
+	 */
+	private boolean hasTag(SummaryType summaryType, Summary summary,
+			String tag) {
+		switch (summaryType) {
+		case FEATURE:
+			if (summary.hasTag(tag)) {
+				return true;
+			}
+			for (Summary scenario : projectSummary.getScenarios(summary)) {
+				if (scenario.hasTag(tag)) {
+					return true;
+				}
+			}
+			return false;
+		case STEP:
+			Summary scenario = projectSummary.getScenarioSummaries().get(
+					summary.getSeniorPageLink());
+			return scenario != null && scenario.hasTag(tag);
+		default:
+			return summary.hasTag(tag);
+		}
+	}
+
+	private static boolean hasEntryInRange(Summary summary, SummaryQuery query) {
+		EntryStore entries = summary.getEntryStore();
+		if (entries == null) {
+			return false;
+		}
+		for (int i = 0; i < entries.size(); i++) {
+			if (query.isInBuildRange(entries.getBuildNumber(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * only the names or values are reversed for a descending order - those
+	 * level are always in page link order, as in the sorted report
+	 */
+	private static Comparator<Sorted> getOrder(SummaryQuery query) {
+		final int direction = query.isDescending() ? -1 : 1;
+		if (query.getMetric() == null) {
+			return new Comparator<Sorted>() {
+				public int compare(Sorted sorted1, Sorted sorted2) {
+					String name1 = sorted1.summary.getName() == null ? ""
+							: sorted1.summary.getName();
+					String name2 = sorted2.summary.getName() == null ? ""
+							: sorted2.summary.getName();
+					int result = name1.compareToIgnoreCase(name2);
+					return result != 0 ? result * direction : sorted1.summary
+							.getPageLink().compareTo(
+									sorted2.summary.getPageLink());
+				}
+			};
+		}
+		return new Comparator<Sorted>() {
+			public int compare(Sorted sorted1, Sorted sorted2) {
+				return SummaryRankingComparator.compare(-direction
+						* sorted1.value, sorted1.summary.getPageLink(),
+						-direction * sorted2.value,
+						sorted2.summary.getPageLink());
+			}
+		};
+	}
+
+	private void writeSummary(JsonGenerator generator, Summary summary,
+			SummaryQuery query) throws IOException {
+		generator.writeStartObject();
+		for (String field : query.getFields()) {
+			writeField(generator, summary, field, query);
+		}
+		generator.writeEndObject();
+	}
+
+	private void writeField(JsonGenerator generator, Summary summary,
+			String field, SummaryQuery query) throws IOException {
+		if ("pageLink".equals(field)) {
+			generator.writeStringField(field, summary.getPageLink());
+		} else if ("id".equals(field)) {
+			generator.writeStringField(field, summary.getId());
+		} else if ("name".equals(field)) {
+			generator.writeStringField(field, summary.getName());
+		} else if ("type".equals(field)) {
+			generator.writeStringField(field,
+					summary.getSummaryType() == null ? null : summary
+							.getSummaryType().getLink());
+		} else if ("seniorPageLink".equals(field)) {
+			generator.writeStringField(field, summary.getSeniorPageLink());
+		} else if ("seniorName".equals(field)) {
+			generator.writeStringField(field, summary.getSeniorName());
+		} else if ("keyword".equals(field)) {
+			generator.writeStringField(field, summary.getKeyword());
+		} else if ("order".equals(field)) {
+			generator.writeNumberField(field, summary.getOrder());
+		} else if ("tags".equals(field)) {
+			generator.writeArrayFieldStart(field);
+			if (summary.getTags() != null) {
+				for (String tag : summary.getTags()) {
+					generator.writeString(tag);
+				}
+			}
+			generator.writeEndArray();
+		} else if ("numberOfSubItems".equals(field)) {
+			generator.writeNumberField(field, summary.getNumberOfSubItems());
+		} else if ("totalBuilds".equals(field)) {
+			generator.writeNumberField(field, summary.getTotalBuilds());
+		} else if ("passedBuilds".equals(field)) {
+			generator.writeNumberField(field, summary.getPassedBuilds());
+		} else if ("failedBuilds".equals(field)) {
+			generator.writeNumberField(field, summary.getFailedBuilds());
+		} else if ("passedSteps".equals(field)) {
+			generator.writeNumberField(field, summary.getPassedSteps());
+		} else if ("failedSteps".equals(field)) {
+			generator.writeNumberField(field, summary.getFailedSteps());
+		} else if ("skippedSteps".equals(field)) {
+			generator.writeNumberField(field, summary.getSkippedSteps());
+		} else if ("shortestDuration".equals(field)) {
+			generator.writeNumberField(field, summary.getShortestDuration());
+		} else if ("longestDuration".equals(field)) {
+			generator.writeNumberField(field, summary.getLongestDuration());
+		} else if ("averageDuration".equals(field)) {
+			generator.writeNumberField(field,
+					summary.calculateAverageDuration());
+		} else if ("p50Duration".equals(field)) {
+			generator.writeNumberField(field, summary.getP50Duration());
+		} else if ("p90Duration".equals(field)) {
+			generator.writeNumberField(field, summary.getP90Duration());
+		} else if ("p95Duration".equals(field)) {
+			generator.writeNumberField(field, summary.getP95Duration());
+		} else if ("p99Duration".equals(field)) {
+			generator.writeNumberField(field, summary.getP99Duration());
+		} else if ("totalDuration".equals(field)) {
+			generator.writeNumberField(field, summary.getTotalDuration());
+		} else if ("growthDuration".equals(field)) {
+			generator.writeNumberField(field, summary.getGrowthDuration());
+		} else if ("url".equals(field)) {
+			// relative to the report, as the report's own pages link
+			if (summary.getSummaryType() == null
+					|| summary.getSummaryType() == SummaryType.PROJECT) {
+				generator.writeNullField(field);
+			} else {
+				generator.writeStringField(field, summary.getSummaryType()
+						.getLink() + "/" + summary.getPageLink());
+			}
+		} else if ("entries".equals(field)) {
+			generator.writeArrayFieldStart(field);
+			EntryStore entries = summary.getEntryStore();
+			if (entries != null) {
+				for (int i = 0; i < entries.size(); i++) {
+					if (query.isInBuildRange(entries.getBuildNumber(i))) {
+						writeEntry(generator, entries, i);
+					}
+				}
+			}
+			generator.writeEndArray();
+		}
+	}
+
+	private static void writeEntry(JsonGenerator generator,
+			EntryStore entries, int index) throws IOException {
+		generator.writeStartObject();
+		generator.writeNumberField("buildNumber",
+				entries.getBuildNumber(index));
+		generator.writeNumberField("elapsedTime",
+				entries.getElapsedTime(index));
+		if (entries.hasRunDate(index)) {
+			generator.writeNumberField("runDate", entries.getRunTime(index));
+		}
+		generator.writeBooleanField("passed", entries.isPassed(index));
+		generator.writeNumberField("passedSteps",
+				entries.getPassedSteps(index));
+		generator.writeNumberField("failedSteps",
+				entries.getFailedSteps(index));
+		generator.writeNumberField("skippedSteps",
+				entries.getSkippedSteps(index));
+		generator.writeEndObject();
+	}
+
+	/*
+	 * a summary with the value it is sorted by, worked out once
+	 */
+	private static class Sorted {
+
+		private final Summary summary;
+
+		private final long value;
+
+		private Sorted(Summary summary, RankingMetric metric) {
+			this.summary = summary;
+			this.value = metric == null ? 0 : metric.getValue(summary);
+		}
+
+	}
+
+	public static class Page {
+
+		private final List<Summary> summaries;
+
+		private final int total;
+
+		private final String nextCursor;
+
+		private Page(List<Summary> summaries, int total, String nextCursor) {
+			this.summaries = summaries;
+			this.total = total;
+			this.nextCursor = nextCursor;
+		}
+
+		public List<Summary> getSummaries() {
+			return summaries;
+		}
+
+		/*
+		 * the number of summaries matching the query, across all pages
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/*
+		 * the cursor for the page after this one, or null if it is the last
+		 */
+		public String getNextCursor() {
+			return nextCursor;
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.comparator.SummaryRankingComparator;
+
+/*
+ * Picks out the worst features, scenarios, steps and step definitions by
+ * each RankingMetric when the report is generated, so that the sorted report
+ * does not have to sort every summary on each request. Each ranking is kept
+ * to a bounded heap of the worst so far, and holds page links worst first.
+ *
+ * The number kept is read from the
+ * com.castlemon.jenkins.performance.rankingSize system property.
+ */
+public class SummaryRanker {
+
+	public static final String SIZE_PROPERTY = "com.castlemon.jenkins.performance.rankingSize";
+
+	private static final int DEFAULT_SIZE = 100;
+
+	// the best of those kept is at the head, ready to be displaced
+	private static final Comparator<Ranked> BEST_FIRST = new Comparator<Ranked>() {
+		public int compare(Ranked ranked1, Ranked ranked2) {
+			return SummaryRankingComparator.compare(ranked2.value,
+					ranked2.pageLink, ranked1.value, ranked1.pageLink);
+		}
+	};
+
+	private final int size;
+
+	public SummaryRanker() {
+		this(Math.max(1, Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE)));
+	}
+
+	public SummaryRanker(int size) {
+		this.size = size;
+	}
+
+	public Map<SummaryType, Map<RankingMetric, List<String>>> rank(
+			ProjectSummary projectSummary) {
+		Map<SummaryType, Map<RankingMetric, List<String>>> rankings = new EnumMap<SummaryType, Map<RankingMetric, List<String>>>(
+				SummaryType.class);
+		rankings.put(SummaryType.FEATURE,
+				rank(projectSummary.getFeatureSummaries().values()));
+		rankings.put(SummaryType.SCENARIO,
+				rank(projectSummary.getScenarioSummaries().values()));
+		rankings.put(SummaryType.STEP,
+				rank(projectSummary.getStepSummaries().values()));
+		if (projectSummary.getStepDefinitionSummaries() != null) {
+			rankings.put(SummaryType.STEP_DEFINITION, rank(projectSummary
+					.getStepDefinitionSummaries().values()));
+		}
+		return rankings;
+	}
+
+	public Map<RankingMetric, List<String>> rank(
+			Collection<? extends Summary> summaries) {
+		RankingMetric[] metrics = RankingMetric.values();
+		List<PriorityQueue<Ranked>> heaps = new ArrayList<PriorityQueue<Ranked>>(
+				metrics.length);
+		for (int i = 0; i < metrics.length; i++) {
+			heaps.add(new PriorityQueue<Ranked>(size + 1, BEST_FIRST));
+		}
+		for (Summary summary : summaries) {
+			for (int i = 0; i < metrics.length; i++) {
+				PriorityQueue<Ranked> heap = heaps.get(i);
+				Ranked ranked = new Ranked(metrics[i].getValue(summary),
+						summary.getPageLink());
+				if (heap.size() < size) {
+					heap.add(ranked);
+				} else if (BEST_FIRST.compare(ranked, heap.peek()) > 0) {
+					heap.poll();
+					heap.add(ranked);
+				}
+			}
+		}
+		Map<RankingMetric, List<String>> rankings = new EnumMap<RankingMetric, List<String>>(
+				RankingMetric.class);
+		for (int i = 0; i < metrics.length; i++) {
+			PriorityQueue<Ranked> heap = heaps.get(i);
+			List<String> pageLinks = new ArrayList<String>(heap.size());
+			while (!heap.isEmpty()) {
+				pageLinks.add(heap.poll().pageLink);
+			}
+			Collections.reverse(pageLinks);
+			rankings.put(metrics[i], pageLinks);
+		}
+		return rankings;
+	}
+
+	private static class Ranked {
+
+		private final long value;
+
+		private final String pageLink;
+
+		private Ranked(long value, String pageLink) {
+			this.value = value;
+			this.pageLink = pageLink;
+		}
+
+	}
+
+}
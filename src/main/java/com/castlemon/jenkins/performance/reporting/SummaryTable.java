@@ -0,0 +1,122 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.TableQuery;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/*
+ * Serves the rows of the sorted report's feature, scenario and step tables,
+ * and of a feature page's scenario table, a page at a time, as DataTables
+ * expects when it leaves sorting, searching and paging to the server. Rows
+ * are read from the project summary's sorted index for the chosen column, so
+ * a page without a search costs only its own rows; a search, or a senior
+ * whose juniors alone are wanted, is matched against the index in order
+ * until the page is full, and counted to the end for the number of rows it
+ * leaves.
+ */
+public class SummaryTable {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final ProjectSummary projectSummary;
+
+	public SummaryTable(ProjectSummary projectSummary) {
+		this.projectSummary = projectSummary;
+	}
+
+	public void write(SummaryType summaryType, TableQuery query, Writer writer)
+			throws IOException {
+		List<Summary> index = projectSummary.getSortedIndex(summaryType,
+				query.getColumn());
+		int end = query.getStart() + query.getLength();
+		List<Summary> rows = new ArrayList<Summary>(query.getLength());
+		int total;
+		int filtered;
+		if (query.getSearch() == null && query.getSenior() == null) {
+			total = index.size();
+			filtered = total;
+			for (int position = query.getStart(); position < Math.min(end,
+					total); position++) {
+				rows.add(getRow(index, position, query.isDescending()));
+			}
+		} else {
+			total = 0;
+			filtered = 0;
+			for (int position = 0; position < index.size(); position++) {
+				Summary summary = getRow(index, position, query.isDescending());
+				if (!query.isWithinSenior(summary)) {
+					continue;
+				}
+				total++;
+				if (query.matches(summary)) {
+					if (filtered >= query.getStart() && filtered < end) {
+						rows.add(summary);
+					}
+					filtered++;
+				}
+			}
+		}
+		JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+		generator.writeStartObject();
+		generator.writeNumberField("draw", query.getDraw());
+		generator.writeNumberField("recordsTotal", total);
+		generator.writeNumberField("recordsFiltered", filtered);
+		generator.writeArrayFieldStart("data");
+		for (Summary summary : rows) {
+			writeRow(generator, summary);
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.flush();
+	}
+
+	private static Summary getRow(List<Summary> index, int position,
+			boolean descending) {
+		return index.get(descending ? index.size() - 1 - position : position);
+	}
+
+	/*
+	 * the text of each cell - the tables build the links themselves
+	 */
+	private static void writeRow(JsonGenerator generator, Summary summary)
+			throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("pageLink", summary.getPageLink());
+		generator.writeStringField("url", summary.getSummaryType() == null ? null
+				: summary.getSummaryType().getLink() + "/"
+						+ summary.getPageLink());
+		generator.writeStringField("name", summary.getName());
+		generator.writeStringField("keyword", summary.getKeyword());
+		generator.writeStringField("seniorName", summary.getSeniorName());
+		generator.writeNumberField("numberOfSubItems",
+				summary.getNumberOfSubItems());
+		generator.writeStringField("shortestDuration",
+				summary.getFormattedShortestDuration());
+		generator.writeStringField("longestDuration",
+				summary.getFormattedLongestDuration());
+		generator.writeStringField("averageDuration",
+				summary.getFormattedAverageDuration());
+		generator.writeStringField("p50Duration",
+				summary.getFormattedP50Duration());
+		generator.writeStringField("p90Duration",
+				summary.getFormattedP90Duration());
+		generator.writeStringField("p95Duration",
+				summary.getFormattedP95Duration());
+		generator.writeStringField("p99Duration",
+				summary.getFormattedP99Duration());
+		generator.writeStringField("totalDuration",
+				summary.getFormattedTotalDuration());
+		generator.writeStringField("growthDuration",
+				summary.getFormattedGrowthDuration());
+		generator.writeEndObject();
+	}
+
+}
@@ -1,20 +1,17 @@
 package com.castlemon.jenkins.performance.util;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.DirectoryScanner;
 import org.joda.time.Duration;
 import org.joda.time.Period;
@@ -34,13 +31,15 @@ public class CucumberPerfUtils {
 
 	private static int nanosInAMilli = 1000000;
 
+	private static final String LEGACY_STORE_FILE_NAME = "cukeperf.xml";
+
 	public static boolean writeSummaryToDisk(ProjectSummary projectSummary,
 			File outputDirectory) {
 		try {
-			XStream xstream = prepareXStream();
-			File outputFile = new File(outputDirectory, "cukeperf.xml");
-			Writer writer = new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8");
-			xstream.toXML(projectSummary, writer);
+			SummaryStore.write(projectSummary, new File(outputDirectory,
+					SummaryStore.STORE_FILE_NAME));
+			// the legacy xml store has now been superseded
+			FileUtils.deleteQuietly(new File(outputDirectory, LEGACY_STORE_FILE_NAME));
 			return true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -50,12 +49,12 @@ public class CucumberPerfUtils {
 	}
 
 	public static ProjectSummary readSummaryFromDisk(File outputDirectory) {
-		XStream xstream = prepareXStream();
-		String str;
 		try {
-			File inputFile = new File(outputDirectory, "cukeperf.xml");
-			str = FileUtils.readFileToString(inputFile);
-			return ((ProjectSummary) xstream.fromXML(str));
+			File storeFile = getSummaryFile(outputDirectory);
+			if (storeFile.getName().equals(SummaryStore.STORE_FILE_NAME)) {
+				return SummaryStore.read(storeFile);
+			}
+			return readLegacySummaryFromDisk(storeFile);
 		} catch (Exception e) {
 			// returning null indicates that this file does not exist - either
 			// the job hasn't run or is currently running
@@ -64,6 +63,34 @@ public class CucumberPerfUtils {
 
 	}
 
+	/*
+	 * the file holding the summary in this directory - the binary store if
+	 * there is one, otherwise the legacy xml
+	 */
+	public static File getSummaryFile(File outputDirectory) {
+		File storeFile = new File(outputDirectory, SummaryStore.STORE_FILE_NAME);
+		if (storeFile.exists()) {
+			return storeFile;
+		}
+		return new File(outputDirectory, LEGACY_STORE_FILE_NAME);
+	}
+
+	/*
+	 * summaries written by earlier versions of the plugin are xml - they are
+	 * replaced by the binary store the next time the job's reports are written
+	 */
+	private static ProjectSummary readLegacySummaryFromDisk(File inputFile)
+			throws IOException {
+		XStream xstream = prepareXStream();
+		Reader reader = new InputStreamReader(new FileInputStream(inputFile),
+				"UTF-8");
+		try {
+			return ((ProjectSummary) xstream.fromXML(reader));
+		} finally {
+			reader.close();
+		}
+	}
+
 	public static List<Summary> getRelevantSummaries(
 			Map<String, Summary> summaries, String seniorId) {
 		List<Summary> summaryList = new ArrayList<Summary>();
@@ -107,12 +134,17 @@ public class CucumberPerfUtils {
 
 	public static List<Feature> getData(String[] jsonReportFiles,
 			File targetBuildDirectory) {
-		List<Feature> overallFeatures = new ArrayList<Feature>();
-		for (String fileName : jsonReportFiles) {
-			String jsonInput = loadJsonFile(targetBuildDirectory, fileName);
-			if (StringUtils.isNotEmpty(jsonInput)) {
-				overallFeatures.addAll(getData(jsonInput));
+		final List<Feature> overallFeatures = new ArrayList<Feature>();
+		FeatureHandler handler = new FeatureHandler() {
+			public void handleFeature(Feature feature) {
+				overallFeatures.add(feature);
 			}
+		};
+		try {
+			new ParallelReportParser().parse(targetBuildDirectory,
+					Arrays.asList(jsonReportFiles), handler);
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 		return overallFeatures;
 	}
@@ -150,30 +182,4 @@ public class CucumberPerfUtils {
 		return formatter.print(new Period(0, durationInNanos / nanosInAMilli));
 	}
 
-	private static String loadJsonFile(File targetBuildDirectory,
-			String fileName) {
-		String content = null;
-
-		File file = new File(targetBuildDirectory, fileName);
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
-			char[] chars = new char[(int) file.length()];
-			reader.read(chars);
-			content = new String(chars);
-			reader.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} finally {
-			if(reader != null){
-				try {
-					reader.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-		return content;
-	}
-
 }
@@ -0,0 +1,117 @@
+package com.castlemon.jenkins.performance.util;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/*
+ * Reads a build's json reports where they were written and returns their
+ * digest, so that when the build ran on an agent only the digest crosses
+ * the channel to the controller - not the reports themselves, with whatever
+ * embedded screenshots they carry. Returns null if there are no reports.
+ * Reports that cannot be read are left out of the digest and counted, so
+ * that one cut short does not lose the build the others.
+ *
+ * The retained step properties are those configured on the controller, as
+ * the agent's own system properties are not set for the plugin.
+ */
+public class DigestCallable implements
+		FilePath.FileCallable<DigestCallable.Digest> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String jsonReportFileName;
+
+	private final int buildNumber;
+
+	private final long runDate;
+
+	private final ArrayList<String> retainedStepProperties;
+
+	public DigestCallable(String jsonReportFileName, int buildNumber,
+			Date runDate) {
+		this(jsonReportFileName, buildNumber, runDate, StreamingReportParser
+				.getDefaultRetainedProperties());
+	}
+
+	public DigestCallable(String jsonReportFileName, int buildNumber,
+			Date runDate, List<String> retainedStepProperties) {
+		this.jsonReportFileName = jsonReportFileName;
+		this.buildNumber = buildNumber;
+		this.runDate = runDate == null ? Long.MIN_VALUE : runDate.getTime();
+		this.retainedStepProperties = new ArrayList<String>(
+				retainedStepProperties);
+	}
+
+	public Digest invoke(File reportDirectory, VirtualChannel channel)
+			throws IOException, InterruptedException {
+		if (!reportDirectory.isDirectory()) {
+			return null;
+		}
+		String[] reportFiles = CucumberPerfUtils.findJsonFiles(
+				reportDirectory, jsonReportFileName);
+		if (reportFiles.length == 0) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ParallelReportParser parser = new ParallelReportParser(
+				retainedStepProperties);
+		parser.setSkipUnreadable(true);
+		int featureCount = RunDigest.write(reportDirectory,
+				Arrays.asList(reportFiles), buildNumber,
+				runDate == Long.MIN_VALUE ? null : new Date(runDate), parser,
+				out);
+		return new Digest(out.toByteArray(), featureCount,
+				parser.getBytesSkipped(), parser.getReportsSkipped());
+	}
+
+	/*
+	 * the digest as sent back over the channel
+	 */
+	public static class Digest implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] bytes;
+
+		private final int featureCount;
+
+		private final long bytesSkipped;
+
+		private final int reportsSkipped;
+
+		public Digest(byte[] bytes, int featureCount, long bytesSkipped,
+				int reportsSkipped) {
+			this.bytes = bytes;
+			this.featureCount = featureCount;
+			this.bytesSkipped = bytesSkipped;
+			this.reportsSkipped = reportsSkipped;
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		public int getFeatureCount() {
+			return featureCount;
+		}
+
+		public long getBytesSkipped() {
+			return bytesSkipped;
+		}
+
+		public int getReportsSkipped() {
+			return reportsSkipped;
+		}
+
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.IOException;
+
+import com.castlemon.jenkins.performance.domain.Feature;
+
+/*
+ * receives features one at a time as they are read from a report, so that
+ * callers never need to hold the whole report in memory
+ */
+public interface FeatureHandler {
+
+	void handleFeature(Feature feature) throws IOException;
+
+}
@@ -0,0 +1,158 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * Derives the page link of a summary from its type, senior id and id, so
+ * that the same feature, scenario, step or step definition keeps the same
+ * URL from one build's report to the next. A link is the first 65 bits of a
+ * SHA-1 of the three, written as 13 characters of lower case base 32.
+ *
+ * Should two summaries of a type ever derive the same link, the one sorting
+ * first by senior id and id keeps it and the other is rehashed with an
+ * attempt number until its link is free. A summary keeps a link it was given
+ * before as long as it is one of its own derivations, so a summary added
+ * later cannot take the link of one already published.
+ */
+public final class PageLinks {
+
+	public static final int LINK_LENGTH = 13;
+
+	// deeper collisions than this are not looked for among existing links
+	private static final int RETAINED_ATTEMPTS = 8;
+
+	private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyz234567"
+			.toCharArray();
+
+	private static final Comparator<Summary> BY_KEY = new Comparator<Summary>() {
+		public int compare(Summary summary1, Summary summary2) {
+			int result = compareIds(summary1.getSeniorId(),
+					summary2.getSeniorId());
+			return result != 0 ? result : compareIds(summary1.getId(),
+					summary2.getId());
+		}
+	};
+
+	private PageLinks() {
+	}
+
+	public static String getPageLink(SummaryType summaryType,
+			String seniorId, String id) {
+		return getPageLink(summaryType, seniorId, id, 0);
+	}
+
+	/*
+	 * the link for the given attempt - attempts after the first are only
+	 * used to settle a collision
+	 */
+	public static String getPageLink(SummaryType summaryType,
+			String seniorId, String id, int attempt) {
+		StringBuilder key = new StringBuilder();
+		key.append(summaryType == null ? "" : summaryType.name());
+		appendPart(key, seniorId);
+		appendPart(key, id);
+		if (attempt > 0) {
+			key.append('\u0000').append(attempt);
+		}
+		byte[] hash;
+		try {
+			hash = MessageDigest.getInstance("SHA-1").digest(
+					key.toString().getBytes("UTF-8"));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		char[] link = new char[LINK_LENGTH];
+		for (int i = 0; i < LINK_LENGTH; i++) {
+			// five bits at a time, most significant first
+			int bit = i * 5;
+			int value = ((hash[bit / 8] & 0xff) << 8
+					| (hash[bit / 8 + 1] & 0xff)) >> (11 - bit % 8);
+			link[i] = ALPHABET[value & 0x1f];
+		}
+		return new String(link);
+	}
+
+	/*
+	 * gives each summary a link no other of them holds, and returns them
+	 * keyed by it
+	 */
+	public static <T extends Summary> Map<String, T> assignPageLinks(
+			Collection<T> summaries) {
+		List<T> sorted = new ArrayList<T>(summaries);
+		Collections.sort(sorted, BY_KEY);
+		Map<String, T> summariesByPageLink = new HashMap<String, T>(
+				sorted.size() * 4 / 3 + 1);
+		List<T> unassigned = new ArrayList<T>();
+		for (T summary : sorted) {
+			if (isOwnLink(summary)
+					&& !summariesByPageLink.containsKey(summary.getPageLink())) {
+				summariesByPageLink.put(summary.getPageLink(), summary);
+			} else {
+				unassigned.add(summary);
+			}
+		}
+		for (T summary : unassigned) {
+			String pageLink;
+			int attempt = 0;
+			do {
+				pageLink = getPageLink(summary.getSummaryType(),
+						summary.getSeniorId(), summary.getId(), attempt++);
+			} while (summariesByPageLink.containsKey(pageLink));
+			summary.setPageLink(pageLink);
+			summariesByPageLink.put(pageLink, summary);
+		}
+		return summariesByPageLink;
+	}
+
+	/*
+	 * whether the summary was already given one of its derived links - those
+	 * written with random links by earlier versions are given new ones
+	 */
+	private static boolean isOwnLink(Summary summary) {
+		if (!summary.hasPageLink()) {
+			return false;
+		}
+		String pageLink = summary.getPageLink();
+		if (pageLink.length() != LINK_LENGTH) {
+			return false;
+		}
+		for (int attempt = 0; attempt < RETAINED_ATTEMPTS; attempt++) {
+			if (pageLink.equals(getPageLink(summary.getSummaryType(),
+					summary.getSeniorId(), summary.getId(), attempt))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void appendPart(StringBuilder key, String part) {
+		// a null is told apart from an empty string
+		if (part == null) {
+			key.append('\u0001');
+		} else {
+			key.append('\u0000').append(part);
+		}
+	}
+
+	private static int compareIds(String id1, String id2) {
+		if (id1 == null) {
+			return id2 == null ? 0 : -1;
+		}
+		return id2 == null ? 1 : id1.compareTo(id2);
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import com.castlemon.jenkins.performance.domain.Feature;
+
+/*
+ * Parses a build's json reports - one per fork when the tests are run in
+ * parallel - on the shared WorkerPool. Each report is read into its own list
+ * of projected features, and the lists are handed on in the order the
+ * reports were given, so features reach the handler in exactly the order a
+ * sequential parse would produce and Summary.order is unchanged. Reports are
+ * only read as far ahead as the pool has workers, so however many forks
+ * there were, no more than that many reports' features are held at once.
+ *
+ * Set to skip unreadable reports, a report that cannot be read to the end -
+ * truncated, say, or not json at all - is left out entirely and counted,
+ * and the others are handed on as usual.
+ */
+public class ParallelReportParser {
+
+	private final Collection<String> retainedStepProperties;
+
+	private long bytesSkipped;
+
+	private boolean skipUnreadable;
+
+	private int reportsSkipped;
+
+	public ParallelReportParser() {
+		this(StreamingReportParser.getDefaultRetainedProperties());
+	}
+
+	public ParallelReportParser(Collection<String> retainedStepProperties) {
+		this.retainedStepProperties = retainedStepProperties;
+	}
+
+	/*
+	 * the total skipped by all the parsers used so far
+	 */
+	public long getBytesSkipped() {
+		return bytesSkipped;
+	}
+
+	public void setSkipUnreadable(boolean skipUnreadable) {
+		this.skipUnreadable = skipUnreadable;
+	}
+
+	/*
+	 * the number of unreadable reports left out so far
+	 */
+	public int getReportsSkipped() {
+		return reportsSkipped;
+	}
+
+	/*
+	 * hands the features of each report to the handler in report order,
+	 * returning the number of features read. A report that cannot be read
+	 * does not stop the others being handed on, but unless unreadable reports
+	 * are skipped the first such failure is thrown once they have been.
+	 */
+	public int parse(File reportDirectory, List<String> reportFiles,
+			FeatureHandler handler) throws IOException {
+		// a report streamed to the handler cannot be taken back if it is
+		// cut short, so one that may be skipped is read in full first
+		if (reportFiles.size() == 1 && !skipUnreadable) {
+			// nothing to gain - stream it without collecting the features
+			StreamingReportParser parser = new StreamingReportParser(
+					retainedStepProperties);
+			try {
+				return parser.parse(
+						new File(reportDirectory, reportFiles.get(0)), handler);
+			} finally {
+				bytesSkipped += parser.getBytesSkipped();
+			}
+		}
+		// a report is started each time an earlier one has been handed on
+		int inFlight = WorkerPool.get().getParallelism();
+		ReportTask[] tasks = new ReportTask[reportFiles.size()];
+		for (int i = 0; i < Math.min(inFlight, tasks.length); i++) {
+			tasks[i] = startTask(reportDirectory, reportFiles.get(i));
+		}
+		int featureCount = 0;
+		IOException failure = null;
+		for (int i = 0; i < tasks.length; i++) {
+			PartialResult partial = tasks[i].join();
+			// let the features already handed on be collected
+			tasks[i] = null;
+			bytesSkipped += partial.bytesSkipped;
+			if (partial.exception != null && skipUnreadable) {
+				reportsSkipped++;
+			} else {
+				if (partial.exception != null && failure == null) {
+					failure = partial.exception;
+				}
+				for (Feature feature : partial.features) {
+					handler.handleFeature(feature);
+				}
+				featureCount += partial.features.size();
+			}
+			if (i + inFlight < tasks.length) {
+				tasks[i + inFlight] = startTask(reportDirectory,
+						reportFiles.get(i + inFlight));
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return featureCount;
+	}
+
+	private ReportTask startTask(File reportDirectory, String fileName) {
+		ReportTask task = new ReportTask(new File(reportDirectory, fileName));
+		WorkerPool.get().execute(task);
+		return task;
+	}
+
+	/*
+	 * the features read from a single report
+	 */
+	private static class PartialResult {
+
+		private final List<Feature> features = new ArrayList<Feature>();
+
+		private long bytesSkipped;
+
+		private IOException exception;
+
+	}
+
+	private class ReportTask extends RecursiveTask<PartialResult> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File reportFile;
+
+		private ReportTask(File reportFile) {
+			this.reportFile = reportFile;
+		}
+
+		@Override
+		protected PartialResult compute() {
+			final PartialResult partial = new PartialResult();
+			StreamingReportParser parser = new StreamingReportParser(
+					retainedStepProperties);
+			try {
+				parser.parse(reportFile, new FeatureHandler() {
+					public void handleFeature(Feature feature) {
+						partial.features.add(feature);
+					}
+				});
+			} catch (IOException e) {
+				partial.exception = e;
+			}
+			partial.bytesSkipped = parser.getBytesSkipped();
+			return partial;
+		}
+
+	}
+
+}
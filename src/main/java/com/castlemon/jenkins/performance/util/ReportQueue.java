@@ -0,0 +1,166 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Regenerates project reports in the background, so that a build does not
+ * hold its executor while the history is aggregated and written. The reports
+ * are generated on a small pool of their own, apart from the WorkerPool that
+ * the generation itself uses, and at most one regeneration per job waits in
+ * the queue - one submitted while another for the same job is waiting
+ * replaces it, since the later build's report covers the earlier one.
+ *
+ * The number of threads and of jobs that may be waiting are read from the
+ * com.castlemon.jenkins.performance.reportThreads and
+ * com.castlemon.jenkins.performance.reportQueueCapacity system properties.
+ */
+public class ReportQueue {
+
+	public static final String THREADS_PROPERTY = "com.castlemon.jenkins.performance.reportThreads";
+
+	public static final String CAPACITY_PROPERTY = "com.castlemon.jenkins.performance.reportQueueCapacity";
+
+	private static final int DEFAULT_THREADS = 1;
+
+	private static final int DEFAULT_CAPACITY = 100;
+
+	private static ReportQueue instance;
+
+	private final ThreadPoolExecutor executor;
+
+	// the jobs waiting for or running a regeneration, by key
+	private final Map<String, JobState> jobs = new HashMap<String, JobState>();
+
+	private int coalesced;
+
+	public ReportQueue(int threads, int capacity) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 60l,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(capacity),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"cucumber-perf-reports-"
+										+ threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/*
+	 * the queue is only created once a report is generated in the background
+	 */
+	public static synchronized ReportQueue getInstance() {
+		if (instance == null) {
+			instance = new ReportQueue(Math.max(1, Integer.getInteger(
+					THREADS_PROPERTY, DEFAULT_THREADS)), Math.max(1,
+					Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY)));
+		}
+		return instance;
+	}
+
+	/*
+	 * the key a job's regenerations are queued under
+	 */
+	public static String getKey(File projectDirectory) {
+		return projectDirectory.getAbsolutePath();
+	}
+
+	/*
+	 * queues the regeneration, replacing any still waiting for the same job.
+	 * Returns false if the queue is full, in which case the caller should
+	 * generate the report itself.
+	 */
+	public synchronized boolean submit(String key, Runnable regeneration) {
+		JobState state = jobs.get(key);
+		if (state != null) {
+			if (state.pending != null) {
+				coalesced++;
+			}
+			// the worker already serving this job picks it up next
+			state.pending = regeneration;
+			return true;
+		}
+		state = new JobState();
+		state.pending = regeneration;
+		jobs.put(key, state);
+		try {
+			executor.execute(new Worker(key, state));
+		} catch (RejectedExecutionException e) {
+			jobs.remove(key);
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * whether a regeneration for the job is waiting or running
+	 */
+	public synchronized boolean isUpdating(String key) {
+		return jobs.containsKey(key);
+	}
+
+	/*
+	 * the number of regenerations replaced by a later one before they ran
+	 */
+	public synchronized int getCoalescedCount() {
+		return coalesced;
+	}
+
+	/*
+	 * the job's next regeneration, or null once there is none - at which
+	 * point the job is no longer updating
+	 */
+	private synchronized Runnable take(String key, JobState state) {
+		Runnable regeneration = state.pending;
+		state.pending = null;
+		if (regeneration == null) {
+			jobs.remove(key);
+		}
+		return regeneration;
+	}
+
+	private static class JobState {
+
+		// the regeneration still to run, if any
+		private Runnable pending;
+
+	}
+
+	private class Worker implements Runnable {
+
+		private final String key;
+
+		private final JobState state;
+
+		private Worker(String key, JobState state) {
+			this.key = key;
+			this.state = state;
+		}
+
+		public void run() {
+			Runnable regeneration = take(key, state);
+			while (regeneration != null) {
+				try {
+					regeneration.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+				// anything submitted meanwhile runs straight after
+				regeneration = take(key, state);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,425 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+import com.castlemon.jenkins.performance.domain.Elements;
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.domain.Match;
+import com.castlemon.jenkins.performance.domain.Result;
+import com.castlemon.jenkins.performance.domain.Step;
+import com.castlemon.jenkins.performance.domain.Tag;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+
+/*
+ * A compact binary record of a single build's results, written alongside the
+ * raw json reports when they are ingested. It holds the build number and run
+ * date, then for every feature, scenario and step only what the
+ * PerformanceReporter needs: ids, names, tags, keywords, statuses, durations
+ * in nanoseconds, match locations and data table rows. Strings are written
+ * once and referred to by index afterwards, and numbers are variable-length
+ * encoded.
+ *
+ * Reading a digest hands the features back one at a time, in the same
+ * projected form produced by the StreamingReportParser.
+ */
+public class RunDigest {
+
+	public static final String DIGEST_FILE_NAME = "cucumber-perf.digest";
+
+	private static final int MAGIC = 0x43504447; // "CPDG"
+
+	private static final int VERSION = 2;
+
+	// digests written before tags were kept are still read, without them
+	private static final int MINIMUM_VERSION = 1;
+
+	private static final int MORE_FEATURES = 1;
+
+	private static final int END_OF_FEATURES = 0;
+
+	// step status codes
+	private static final int NO_RESULT = 0;
+	private static final int PASSED = 1;
+	private static final int FAILED = 2;
+	private static final int SKIPPED = 3;
+	private static final int OTHER = 4;
+
+	private static final String ROWS = "rows";
+
+	private static final String CELLS = "cells";
+
+	private RunDigest() {
+	}
+
+	/*
+	 * streams the given json reports into a digest file, returning the number
+	 * of features written
+	 */
+	public static int write(File reportDirectory, List<String> reportFiles,
+			int buildNumber, Date runDate, File digestFile) throws IOException {
+		return write(reportDirectory, reportFiles, buildNumber, runDate,
+				new ParallelReportParser(), digestFile);
+	}
+
+	public static int write(File reportDirectory, List<String> reportFiles,
+			int buildNumber, Date runDate, ParallelReportParser parser,
+			File digestFile) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				digestFile));
+		try {
+			return write(reportDirectory, reportFiles, buildNumber, runDate,
+					parser, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public static int write(File reportDirectory, List<String> reportFiles,
+			int buildNumber, Date runDate, OutputStream out) throws IOException {
+		return write(reportDirectory, reportFiles, buildNumber, runDate,
+				new ParallelReportParser(), out);
+	}
+
+	/*
+	 * as above, but with the given parser so that the caller can see how much
+	 * of the reports it skipped
+	 */
+	public static int write(File reportDirectory, List<String> reportFiles,
+			int buildNumber, Date runDate, ParallelReportParser parser,
+			OutputStream out) throws IOException {
+		Writer writer = new Writer(out, buildNumber, runDate);
+		parser.parse(reportDirectory, reportFiles, writer);
+		writer.finish();
+		return writer.featureCount;
+	}
+
+	/*
+	 * reads the header of a digest file into a ProjectRun that will read its
+	 * features from the digest
+	 */
+	public static ProjectRun openRun(File digestFile) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(digestFile)));
+		try {
+			ProjectRun projectRun = new ProjectRun();
+			readHeader(in, projectRun);
+			projectRun.setDigestFile(digestFile);
+			return projectRun;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/*
+	 * hands each feature in the digest to the handler, returning the number
+	 * of features read
+	 */
+	public static int read(File digestFile, FeatureHandler handler)
+			throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(
+				digestFile));
+		try {
+			return read(in, handler);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	public static int read(InputStream input, FeatureHandler handler)
+			throws IOException {
+		DataInputStream in = new DataInputStream(input);
+		int version = readHeader(in, new ProjectRun());
+		List<String> strings = new ArrayList<String>();
+		int featureCount = 0;
+		while (in.readByte() == MORE_FEATURES) {
+			handler.handleFeature(readFeature(in, strings, version));
+			featureCount++;
+		}
+		return featureCount;
+	}
+
+	private static int readHeader(DataInputStream in, ProjectRun projectRun)
+			throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a cucumber performance digest");
+		}
+		int version = in.readInt();
+		if (version < MINIMUM_VERSION || version > VERSION) {
+			throw new IOException("Unsupported digest version " + version);
+		}
+		projectRun.setBuildNumber(in.readInt());
+		long runDate = in.readLong();
+		if (runDate != Long.MIN_VALUE) {
+			projectRun.setRunDate(new Date(runDate));
+		}
+		return version;
+	}
+
+	private static Feature readFeature(DataInputStream in,
+			List<String> strings, int version) throws IOException {
+		Feature feature = new Feature();
+		feature.setId(readString(in, strings));
+		feature.setName(readString(in, strings));
+		if (version >= 2) {
+			feature.setTags(readTags(in, strings));
+		}
+		int scenarioCount = (int) readVarLong(in);
+		for (int i = 0; i < scenarioCount; i++) {
+			Elements scenario = new Elements();
+			scenario.setId(readString(in, strings));
+			scenario.setName(readString(in, strings));
+			if (version >= 2) {
+				scenario.setTags(readTags(in, strings));
+			}
+			int stepCount = (int) readVarLong(in);
+			for (int j = 0; j < stepCount; j++) {
+				scenario.getSteps().add(readStep(in, strings));
+			}
+			feature.getElements().add(scenario);
+		}
+		return feature;
+	}
+
+	private static List<Tag> readTags(DataInputStream in, List<String> strings)
+			throws IOException {
+		int tagCount = (int) readVarLong(in);
+		List<Tag> tags = new ArrayList<Tag>(tagCount);
+		for (int i = 0; i < tagCount; i++) {
+			Tag tag = new Tag();
+			tag.setName(readString(in, strings));
+			tags.add(tag);
+		}
+		return tags;
+	}
+
+	private static Step readStep(DataInputStream in, List<String> strings)
+			throws IOException {
+		Step step = new Step();
+		step.setName(readString(in, strings));
+		step.setKeyword(readString(in, strings));
+		int statusCode = in.readByte();
+		if (statusCode != NO_RESULT) {
+			Result result = new Result();
+			result.setStatus(decodeStatus(statusCode, in, strings));
+			long duration = readVarLong(in);
+			if (duration > 0) {
+				result.setDuration(duration - 1);
+			}
+			step.setResult(result);
+		}
+		String location = readString(in, strings);
+		if (location != null) {
+			Match match = new Match();
+			match.setLocation(location);
+			step.setMatch(match);
+		}
+		int rowCount = (int) readVarLong(in);
+		if (rowCount > 0) {
+			List<Map<String, List<String>>> rows = new ArrayList<Map<String, List<String>>>();
+			// row counts are written one higher, so that 0 means no rows
+			for (int i = 1; i < rowCount; i++) {
+				int cellCount = (int) readVarLong(in);
+				List<String> cells = new ArrayList<String>(cellCount);
+				for (int j = 0; j < cellCount; j++) {
+					cells.add(readString(in, strings));
+				}
+				Map<String, List<String>> row = new HashMap<String, List<String>>();
+				row.put(CELLS, cells);
+				rows.add(row);
+			}
+			step.setAdditionalProperties(ROWS, rows);
+		}
+		return step;
+	}
+
+	private static String decodeStatus(int statusCode, DataInputStream in,
+			List<String> strings) throws IOException {
+		switch (statusCode) {
+		case PASSED:
+			return "passed";
+		case FAILED:
+			return "failed";
+		case SKIPPED:
+			return "skipped";
+		default:
+			return readString(in, strings);
+		}
+	}
+
+	private static String readString(DataInputStream in, List<String> strings)
+			throws IOException {
+		int reference = (int) readVarLong(in);
+		if (reference == 0) {
+			return null;
+		}
+		if (reference == 1) {
+			byte[] bytes = new byte[(int) readVarLong(in)];
+			in.readFully(bytes);
+			String value = new String(bytes, "UTF-8");
+			strings.add(value);
+			return value;
+		}
+		return strings.get(reference - 2);
+	}
+
+	static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0l;
+		int shift = 0;
+		while (shift < 64) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+			shift += 7;
+		}
+		throw new IOException("Malformed variable length number");
+	}
+
+	static void writeVarLong(DataOutputStream out, long value)
+			throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static class Writer implements FeatureHandler {
+
+		private final DataOutputStream out;
+
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		private int featureCount;
+
+		Writer(OutputStream output, int buildNumber, Date runDate)
+				throws IOException {
+			this.out = new DataOutputStream(output);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(buildNumber);
+			out.writeLong(runDate == null ? Long.MIN_VALUE : runDate.getTime());
+		}
+
+		public void handleFeature(Feature feature) throws IOException {
+			out.writeByte(MORE_FEATURES);
+			writeString(feature.getId());
+			writeString(feature.getName());
+			writeTags(feature.getTags());
+			writeVarLong(out, feature.getElements().size());
+			for (Elements scenario : feature.getElements()) {
+				writeString(scenario.getId());
+				writeString(scenario.getName());
+				writeTags(scenario.getTags());
+				writeVarLong(out, scenario.getSteps().size());
+				for (Step step : scenario.getSteps()) {
+					writeStep(step);
+				}
+			}
+			featureCount++;
+		}
+
+		private void writeTags(List<Tag> tags) throws IOException {
+			if (tags == null) {
+				writeVarLong(out, 0);
+				return;
+			}
+			writeVarLong(out, tags.size());
+			for (Tag tag : tags) {
+				writeString(tag.getName());
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private void writeStep(Step step) throws IOException {
+			writeString(step.getName());
+			writeString(step.getKeyword());
+			Result result = step.getResult();
+			if (result == null) {
+				out.writeByte(NO_RESULT);
+			} else {
+				writeStatus(result.getStatus());
+				Long duration = result.getDuration();
+				writeVarLong(out, duration == null ? 0l : duration + 1);
+			}
+			writeString(step.getMatch() == null ? null : step.getMatch()
+					.getLocation());
+			List<Map<String, List<String>>> rows = (List<Map<String, List<String>>>) step
+					.getAdditionalProperties().get(ROWS);
+			if (rows == null) {
+				writeVarLong(out, 0);
+			} else {
+				writeVarLong(out, rows.size() + 1);
+				for (Map<String, List<String>> row : rows) {
+					List<String> cells = row.get(CELLS);
+					if (cells == null) {
+						writeVarLong(out, 0);
+					} else {
+						writeVarLong(out, cells.size());
+						for (String cell : cells) {
+							writeString(cell);
+						}
+					}
+				}
+			}
+		}
+
+		private void writeStatus(String status) throws IOException {
+			if ("passed".equals(status)) {
+				out.writeByte(PASSED);
+			} else if ("failed".equals(status)) {
+				out.writeByte(FAILED);
+			} else if ("skipped".equals(status)) {
+				out.writeByte(SKIPPED);
+			} else {
+				out.writeByte(OTHER);
+				writeString(status);
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				writeVarLong(out, 0);
+				return;
+			}
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeVarLong(out, index + 2);
+				return;
+			}
+			strings.put(value, strings.size());
+			byte[] bytes = value.getBytes("UTF-8");
+			writeVarLong(out, 1);
+			writeVarLong(out, bytes.length);
+			out.write(bytes);
+		}
+
+		void finish() throws IOException {
+			out.writeByte(END_OF_FEATURES);
+			out.flush();
+		}
+
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.castlemon.jenkins.performance.util;
+
+/*
+ * Picks the points of a long series worth drawing, using Largest-Triangle-
+ * Three-Buckets. The first and last points are always kept, and the rest are
+ * split into equal buckets with one point taken from each - the one making
+ * the largest triangle with the point taken from the bucket before and the
+ * average of the bucket after. Spikes and steps survive, where taking every
+ * nth point would lose them.
+ */
+public final class SeriesDownsampler {
+
+	public static final int DEFAULT_POINTS = 500;
+
+	// fewer than this leaves no bucket between the first and last points
+	public static final int MINIMUM_POINTS = 3;
+
+	private SeriesDownsampler() {
+	}
+
+	/*
+	 * the indices of the points to keep, in order - all of them when there
+	 * are no more than the target, or the target is too small to sample with
+	 */
+	public static int[] select(int[] x, long[] y, int points) {
+		int length = x.length;
+		if (points >= length || points < MINIMUM_POINTS) {
+			int[] all = new int[length];
+			for (int i = 0; i < length; i++) {
+				all[i] = i;
+			}
+			return all;
+		}
+		int[] selected = new int[points];
+		double bucketSize = (double) (length - 2) / (points - 2);
+		int previous = 0;
+		for (int bucket = 0; bucket < points - 2; bucket++) {
+			// the average of the following bucket, or the last point
+			int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+			int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1,
+					length);
+			double averageX = 0d;
+			double averageY = 0d;
+			for (int i = nextStart; i < nextEnd; i++) {
+				averageX += x[i];
+				averageY += y[i];
+			}
+			averageX /= nextEnd - nextStart;
+			averageY /= nextEnd - nextStart;
+			int start = (int) (bucket * bucketSize) + 1;
+			int end = (int) ((bucket + 1) * bucketSize) + 1;
+			double largestArea = -1d;
+			int chosen = start;
+			for (int i = start; i < end; i++) {
+				// twice the area, which picks the same point
+				double area = Math.abs((x[previous] - averageX)
+						* ((double) y[i] - y[previous])
+						- ((double) x[previous] - x[i])
+						* (averageY - y[previous]));
+				if (area > largestArea) {
+					largestArea = area;
+					chosen = i;
+				}
+			}
+			selected[bucket + 1] = chosen;
+			previous = chosen;
+		}
+		selected[points - 1] = length - 1;
+		return selected;
+	}
+
+}
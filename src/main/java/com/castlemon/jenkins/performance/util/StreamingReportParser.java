@@ -0,0 +1,353 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.castlemon.jenkins.performance.domain.Elements;
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.domain.Match;
+import com.castlemon.jenkins.performance.domain.Result;
+import com.castlemon.jenkins.performance.domain.Step;
+import com.castlemon.jenkins.performance.domain.Tag;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Reads a cucumber-jvm json report token by token. Each feature is projected
+ * down to the fields used by the PerformanceReporter (ids, names, keywords,
+ * tags, results, match locations and data table rows) and handed on as soon
+ * as it has been read, so neither the report text nor the full feature graph
+ * is ever held in memory. Everything else (embeddings, output, doc strings,
+ * hooks...) is skipped without being materialised, and the size of
+ * what was skipped is totalled so it can be reported.
+ *
+ * Which of a step's optional properties are kept is set by the
+ * com.castlemon.jenkins.performance.retainedStepProperties system property -
+ * a comma separated list that defaults to just the data table rows. Kept
+ * properties other than rows are bound into the step's additional
+ * properties, but are not carried into run digests.
+ */
+public class StreamingReportParser {
+
+	public static final String RETAINED_PROPERTIES_PROPERTY = "com.castlemon.jenkins.performance.retainedStepProperties";
+
+	private static final String ROWS = "rows";
+
+	private static final String CELLS = "cells";
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Set<String> retainedStepProperties;
+
+	// the same step text and names recur throughout a report
+	private final StringPool stringPool = new StringPool();
+
+	private long bytesSkipped;
+
+	public StreamingReportParser() {
+		this(getDefaultRetainedProperties());
+	}
+
+	public StreamingReportParser(Collection<String> retainedStepProperties) {
+		this.retainedStepProperties = new HashSet<String>(
+				retainedStepProperties);
+	}
+
+	/*
+	 * the step properties named by the system property, or just the rows if
+	 * it is not set
+	 */
+	public static List<String> getDefaultRetainedProperties() {
+		String property = System.getProperty(RETAINED_PROPERTIES_PROPERTY);
+		if (property == null) {
+			return Collections.singletonList(ROWS);
+		}
+		List<String> retained = new ArrayList<String>();
+		for (String name : property.split(",")) {
+			if (name.trim().length() > 0) {
+				retained.add(name.trim());
+			}
+		}
+		return retained;
+	}
+
+	/*
+	 * the total size of the objects and arrays skipped so far, in bytes for
+	 * files and streams or characters for text
+	 */
+	public long getBytesSkipped() {
+		return bytesSkipped;
+	}
+
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+	public int parse(File reportFile, FeatureHandler handler)
+			throws IOException {
+		JsonParser parser = jsonFactory.createParser(reportFile);
+		try {
+			return parse(parser, handler);
+		} finally {
+			parser.close();
+		}
+	}
+
+	public int parse(InputStream reportStream, FeatureHandler handler)
+			throws IOException {
+		JsonParser parser = jsonFactory.createParser(reportStream);
+		try {
+			return parse(parser, handler);
+		} finally {
+			parser.close();
+		}
+	}
+
+	public int parse(JsonParser parser, FeatureHandler handler)
+			throws IOException {
+		JsonToken token = parser.nextToken();
+		if (token == null) {
+			// empty file - nothing to report on
+			return 0;
+		}
+		if (token != JsonToken.START_ARRAY) {
+			throw new JsonParseException(
+					"Expected a json array of features but found " + token,
+					parser.getCurrentLocation());
+		}
+		int featureCount = 0;
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			handler.handleFeature(readFeature(parser));
+			featureCount++;
+		}
+		return featureCount;
+	}
+
+	private Feature readFeature(JsonParser parser) throws IOException {
+		Feature feature = new Feature();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("id".equals(fieldName)) {
+				feature.setId(readPooledString(parser));
+			} else if ("name".equals(fieldName)) {
+				feature.setName(readPooledString(parser));
+			} else if ("keyword".equals(fieldName)) {
+				feature.setKeyword(readPooledString(parser));
+			} else if ("uri".equals(fieldName)) {
+				feature.setUri(parser.getValueAsString());
+			} else if ("tags".equals(fieldName)
+					&& token == JsonToken.START_ARRAY) {
+				feature.setTags(readTags(parser));
+			} else if ("line".equals(fieldName)) {
+				feature.setLine(readInteger(parser));
+			} else if ("elements".equals(fieldName)
+					&& token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					feature.getElements().add(readElement(parser));
+				}
+			} else {
+				skip(parser);
+			}
+		}
+		return feature;
+	}
+
+	private Elements readElement(JsonParser parser) throws IOException {
+		Elements element = new Elements();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("id".equals(fieldName)) {
+				element.setId(readPooledString(parser));
+			} else if ("name".equals(fieldName)) {
+				element.setName(readPooledString(parser));
+			} else if ("keyword".equals(fieldName)) {
+				element.setKeyword(readPooledString(parser));
+			} else if ("type".equals(fieldName)) {
+				element.setType(parser.getValueAsString());
+			} else if ("tags".equals(fieldName)
+					&& token == JsonToken.START_ARRAY) {
+				element.setTags(readTags(parser));
+			} else if ("line".equals(fieldName)) {
+				element.setLine(readInteger(parser));
+			} else if ("steps".equals(fieldName)
+					&& token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					element.getSteps().add(readStep(parser));
+				}
+			} else {
+				skip(parser);
+			}
+		}
+		return element;
+	}
+
+	private Step readStep(JsonParser parser) throws IOException {
+		Step step = new Step();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("name".equals(fieldName)) {
+				step.setName(readPooledString(parser));
+			} else if ("keyword".equals(fieldName)) {
+				step.setKeyword(readPooledString(parser));
+			} else if ("line".equals(fieldName)) {
+				step.setLine(readInteger(parser));
+			} else if ("result".equals(fieldName)
+					&& token == JsonToken.START_OBJECT) {
+				step.setResult(readResult(parser));
+			} else if ("match".equals(fieldName)
+					&& token == JsonToken.START_OBJECT) {
+				step.setMatch(readMatch(parser));
+			} else if (ROWS.equals(fieldName)
+					&& token == JsonToken.START_ARRAY
+					&& retainedStepProperties.contains(ROWS)) {
+				step.setAdditionalProperties(ROWS, readRows(parser));
+			} else if (retainedStepProperties.contains(fieldName)
+					&& !ROWS.equals(fieldName)) {
+				step.setAdditionalProperties(fieldName,
+						objectMapper.readValue(parser, Object.class));
+			} else {
+				skip(parser);
+			}
+		}
+		return step;
+	}
+
+	/*
+	 * only the names of the tags are kept
+	 */
+	private List<Tag> readTags(JsonParser parser) throws IOException {
+		List<Tag> tags = new ArrayList<Tag>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+				skip(parser);
+				continue;
+			}
+			Tag tag = new Tag();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				if ("name".equals(fieldName)) {
+					tag.setName(readPooledString(parser));
+				} else {
+					skip(parser);
+				}
+			}
+			tags.add(tag);
+		}
+		return tags;
+	}
+
+	private Result readResult(JsonParser parser) throws IOException {
+		Result result = new Result();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("status".equals(fieldName)) {
+				result.setStatus(parser.getValueAsString());
+			} else if ("duration".equals(fieldName)
+					&& token != JsonToken.VALUE_NULL) {
+				result.setDuration(parser.getValueAsLong());
+			} else {
+				// error messages can be very large - skip them
+				skip(parser);
+			}
+		}
+		return result;
+	}
+
+	private Match readMatch(JsonParser parser) throws IOException {
+		Match match = new Match();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			parser.nextToken();
+			if ("location".equals(fieldName)) {
+				match.setLocation(readPooledString(parser));
+			} else {
+				skip(parser);
+			}
+		}
+		return match;
+	}
+
+	/*
+	 * rows are kept in the same shape that data binding produces, as the
+	 * PerformanceReporter reads them from the step's additional properties
+	 */
+	private List<Map<String, List<String>>> readRows(JsonParser parser)
+			throws IOException {
+		List<Map<String, List<String>>> rows = new ArrayList<Map<String, List<String>>>();
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			Map<String, List<String>> row = new HashMap<String, List<String>>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (CELLS.equals(fieldName) && token == JsonToken.START_ARRAY) {
+					List<String> cells = new ArrayList<String>();
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						cells.add(parser.getValueAsString());
+					}
+					row.put(CELLS, cells);
+				} else {
+					skip(parser);
+				}
+			}
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	private String readPooledString(JsonParser parser) throws IOException {
+		return stringPool.intern(parser.getValueAsString());
+	}
+
+	private Integer readInteger(JsonParser parser) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+			return parser.getIntValue();
+		}
+		skip(parser);
+		return null;
+	}
+
+	/*
+	 * skips the current value - scalars are simply never read, so only
+	 * objects and arrays are counted
+	 */
+	private void skip(JsonParser parser) throws IOException {
+		JsonToken token = parser.getCurrentToken();
+		if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+			return;
+		}
+		long start = getOffset(parser.getTokenLocation());
+		parser.skipChildren();
+		long end = getOffset(parser.getCurrentLocation());
+		if (start >= 0 && end > start) {
+			bytesSkipped += end - start;
+		}
+	}
+
+	private static long getOffset(JsonLocation location) {
+		if (location.getByteOffset() >= 0) {
+			return location.getByteOffset();
+		}
+		return location.getCharOffset();
+	}
+
+}
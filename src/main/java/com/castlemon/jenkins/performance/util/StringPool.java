@@ -0,0 +1,61 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Hands back a single copy of each distinct string, so that the names and
+ * ids repeated across features, scenarios, steps and builds are only held
+ * once. Unlike String.intern the pool is dropped along with whatever was
+ * reading or aggregating with it. Not thread safe - each parser and reporter
+ * has its own.
+ */
+public class StringPool {
+
+	// rough heap cost of a string beyond its characters
+	private static final long STRING_BYTES = 40;
+
+	private final Map<String, String> strings = new HashMap<String, String>();
+
+	private long duplicates;
+
+	private long bytesSaved;
+
+	public String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		String pooled = strings.get(value);
+		if (pooled == null) {
+			strings.put(value, value);
+			return value;
+		}
+		if (pooled != value) {
+			duplicates++;
+			bytesSaved += STRING_BYTES + 2l * value.length();
+		}
+		return pooled;
+	}
+
+	/*
+	 * the number of distinct strings held
+	 */
+	public int size() {
+		return strings.size();
+	}
+
+	/*
+	 * the number of copies that were replaced by the pooled string
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/*
+	 * an estimate of the heap those copies would have taken
+	 */
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * Controller-wide cache of the project summaries shown on job pages, so that
+ * repeated page views do not re-read the summary from disk. Entries are keyed
+ * by the summary file and are only used while that file's modification time
+ * and size are unchanged.
+ *
+ * The cache holds summaries up to an estimated memory budget, evicting the
+ * least recently used first, and holds them softly so that the garbage
+ * collector can reclaim them under memory pressure. The budget in bytes is
+ * read from the com.castlemon.jenkins.performance.summaryCacheBytes system
+ * property.
+ *
+ * Cached summaries are shared between requests and must not be modified -
+ * anything that updates a summary should read its own copy with
+ * CucumberPerfUtils.readSummaryFromDisk. Whatever a summary would work out
+ * on first use is worked out before it is cached, so that reading it from
+ * several requests at once never changes it either.
+ */
+public class SummaryCache {
+
+	public static final String BUDGET_PROPERTY = "com.castlemon.jenkins.performance.summaryCacheBytes";
+
+	private static final long DEFAULT_BUDGET = 64l * 1024 * 1024;
+
+	// rough heap costs used to estimate the size of a summary
+	private static final long SUMMARY_BYTES = 512;
+	private static final long ENTRY_BYTES = 33;
+	private static final long CALLER_BYTES = 64;
+	private static final long CELL_BYTES = 64;
+	private static final long INDEX_BYTES = 8;
+
+	private static final SummaryCache INSTANCE = new SummaryCache(Long.getLong(
+			BUDGET_PROPERTY, DEFAULT_BUDGET));
+
+	private final long budget;
+
+	private final LinkedHashMap<String, CachedSummary> summaries = new LinkedHashMap<String, CachedSummary>(
+			16, 0.75f, true);
+
+	private long totalSize;
+
+	public SummaryCache(long budget) {
+		this.budget = budget;
+	}
+
+	public static SummaryCache getInstance() {
+		return INSTANCE;
+	}
+
+	/*
+	 * returns the summary held in the given report directory, or null if there
+	 * is none
+	 */
+	public ProjectSummary getSummary(File reportDirectory) {
+		File summaryFile = CucumberPerfUtils.getSummaryFile(reportDirectory);
+		String key = summaryFile.getAbsolutePath();
+		long lastModified = summaryFile.lastModified();
+		long length = summaryFile.length();
+		synchronized (this) {
+			CachedSummary cached = summaries.get(key);
+			if (cached != null) {
+				ProjectSummary summary = cached.reference.get();
+				if (summary != null && cached.lastModified == lastModified
+						&& cached.length == length) {
+					return summary;
+				}
+				remove(key);
+			}
+		}
+		// read outside the lock so that a large summary does not hold up
+		// page views for other jobs
+		ProjectSummary summary = CucumberPerfUtils
+				.readSummaryFromDisk(reportDirectory);
+		if (summary != null) {
+			summary.precalculate();
+			put(key, new CachedSummary(summary, lastModified, length,
+					estimateSize(summary)));
+		}
+		return summary;
+	}
+
+	public synchronized void clear() {
+		summaries.clear();
+		totalSize = 0l;
+	}
+
+	synchronized int size() {
+		return summaries.size();
+	}
+
+	synchronized long getTotalSize() {
+		return totalSize;
+	}
+
+	private synchronized void put(String key, CachedSummary cached) {
+		remove(key);
+		if (cached.size > budget) {
+			// would evict everything else and still not fit
+			return;
+		}
+		summaries.put(key, cached);
+		totalSize += cached.size;
+		Iterator<Map.Entry<String, CachedSummary>> iterator = summaries
+				.entrySet().iterator();
+		while (iterator.hasNext()) {
+			CachedSummary eldest = iterator.next().getValue();
+			// drop anything the collector has already reclaimed, then the
+			// least recently used until the cache is within budget
+			if (eldest.reference.get() == null || totalSize > budget) {
+				totalSize -= eldest.size;
+				iterator.remove();
+			}
+		}
+	}
+
+	private void remove(String key) {
+		CachedSummary removed = summaries.remove(key);
+		if (removed != null) {
+			totalSize -= removed.size;
+		}
+	}
+
+	static long estimateSize(ProjectSummary projectSummary) {
+		long size = estimateSize(projectSummary.getOverallSummary());
+		size += estimateSize(projectSummary.getFeatureSummaries());
+		size += estimateSize(projectSummary.getScenarioSummaries());
+		size += estimateSize(projectSummary.getStepSummaries());
+		size += estimateSize(projectSummary.getStepDefinitionSummaries());
+		// the sorted indices built before caching - those sorted later for
+		// other columns are left out
+		size += projectSummary.getSortedIndexLength() * INDEX_BYTES;
+		return size;
+	}
+
+	private static long estimateSize(Map<String, ? extends Summary> summaries) {
+		long size = 0l;
+		if (summaries != null) {
+			for (Summary summary : summaries.values()) {
+				size += estimateSize(summary);
+			}
+		}
+		return size;
+	}
+
+	private static long estimateSize(Summary summary) {
+		if (summary == null) {
+			return 0l;
+		}
+		long size = SUMMARY_BYTES;
+		if (summary.getEntries() != null) {
+			size += summary.getEntries().size() * ENTRY_BYTES;
+		}
+		if (summary.getRows() != null) {
+			for (List<String> row : summary.getRows()) {
+				size += row.size() * CELL_BYTES;
+			}
+		}
+		if (summary instanceof StepDefinitionSummary) {
+			size += ((StepDefinitionSummary) summary).getCallers().size()
+					* CALLER_BYTES;
+		}
+		return size;
+	}
+
+	private static class CachedSummary {
+
+		private final SoftReference<ProjectSummary> reference;
+
+		private final long lastModified;
+
+		private final long length;
+
+		private final long size;
+
+		CachedSummary(ProjectSummary summary, long lastModified, long length,
+				long size) {
+			this.reference = new SoftReference<ProjectSummary>(summary);
+			this.lastModified = lastModified;
+			this.length = length;
+			this.size = size;
+		}
+
+	}
+
+}
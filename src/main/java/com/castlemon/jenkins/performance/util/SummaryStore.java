@@ -0,0 +1,712 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ChangePoint;
+import com.castlemon.jenkins.performance.domain.reporting.DurationHistogram;
+import com.castlemon.jenkins.performance.domain.reporting.EntryStore;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionCaller;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+/*
+ * Binary store for a ProjectSummary. Each summary's scalar fields are written
+ * once, followed by its performance entries laid out column by column: build
+ * numbers and run dates delta encoded, elapsed times and step counts as
+ * variable-length numbers and the passed flags as a bitset, and then its
+ * duration histogram and change points. Step definition summaries follow the
+ * others, each with its call histogram and callers, and then the page links
+ * of each feature's scenarios and of each scenario's steps, and the rankings
+ * of the worst of each by each metric. Strings are written once and referred
+ * to by index afterwards.
+ *
+ * The store is read onto the heap in one read and decoded from there.
+ */
+public class SummaryStore {
+
+	public static final String STORE_FILE_NAME = "cukeperf.dat";
+
+	private static final int MAGIC = 0x43505353; // "CPSS"
+
+	private static final int VERSION = 7;
+
+	// the earliest version that can still be read - summaries stored before
+	// duration histograms and change points were added rebuild them from
+	// their entries, and those without step definitions are rebuilt in full
+	private static final int MINIMUM_VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private SummaryStore() {
+	}
+
+	/*
+	 * writes to a temporary file of its own first and then moves it over the
+	 * store in one step, so that readers never see a partly written or
+	 * missing store, and two reports written for the same build at once do
+	 * not share a temporary file
+	 */
+	public static void write(ProjectSummary projectSummary, File storeFile)
+			throws IOException {
+		File tempFile = File.createTempFile(storeFile.getName(), ".tmp",
+				storeFile.getParentFile());
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				new Writer(out).writeProjectSummary(projectSummary);
+			} finally {
+				out.close();
+			}
+			Files.move(tempFile.toPath(), storeFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			FileUtils.deleteQuietly(tempFile);
+		}
+	}
+
+	/*
+	 * the whole store is decoded, so it is read onto the heap in one go and
+	 * the file is closed before decoding starts
+	 */
+	public static ProjectSummary read(File storeFile) throws IOException {
+		ByteBuffer buffer;
+		FileInputStream in = new FileInputStream(storeFile);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(storeFile + " is too large to read");
+			}
+			buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("Unexpected end of " + storeFile);
+				}
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		buffer.flip();
+		return new Reader(buffer).readProjectSummary();
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static class Writer {
+
+		private final DataOutputStream out;
+
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		Writer(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void writeProjectSummary(ProjectSummary projectSummary)
+				throws IOException {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeSigned(projectSummary.getFormatVersion());
+			writeSummary(projectSummary.getOverallSummary());
+			writeSummaries(projectSummary.getFeatureSummaries());
+			writeSummaries(projectSummary.getScenarioSummaries());
+			writeSummaries(projectSummary.getStepSummaries());
+			writeStepDefinitionSummaries(projectSummary
+					.getStepDefinitionSummaries());
+			writeJuniorPageLinks(projectSummary.getScenarioLinks());
+			writeJuniorPageLinks(projectSummary.getStepLinks());
+			writeRankings(projectSummary.getRankings());
+			out.flush();
+		}
+
+		private void writeStepDefinitionSummaries(
+				Map<String, StepDefinitionSummary> summaries)
+				throws IOException {
+			if (summaries == null) {
+				writeUnsigned(0);
+				return;
+			}
+			writeUnsigned(summaries.size() + 1);
+			for (Map.Entry<String, StepDefinitionSummary> entry : summaries
+					.entrySet()) {
+				StepDefinitionSummary summary = entry.getValue();
+				writeString(entry.getKey());
+				writeSummary(summary);
+				writeHistogram(summary.getCallHistogram());
+				writeSigned(summary.getPassedCallDuration());
+				writeUnsigned(summary.getCallers().size());
+				for (StepDefinitionCaller caller : summary.getCallers()
+						.values()) {
+					writeString(caller.getScenarioId());
+					writeString(caller.getScenarioName());
+					writeUnsigned(caller.getCalls());
+					writeSigned(caller.getTotalDuration());
+				}
+			}
+		}
+
+		private void writeJuniorPageLinks(Map<String, List<String>> pageLinks)
+				throws IOException {
+			if (pageLinks == null) {
+				writeUnsigned(0);
+				return;
+			}
+			writeUnsigned(pageLinks.size() + 1);
+			for (Map.Entry<String, List<String>> entry : pageLinks.entrySet()) {
+				writeString(entry.getKey());
+				writeUnsigned(entry.getValue().size());
+				for (String pageLink : entry.getValue()) {
+					writeString(pageLink);
+				}
+			}
+		}
+
+		private void writeRankings(
+				Map<SummaryType, Map<RankingMetric, List<String>>> rankings)
+				throws IOException {
+			if (rankings == null) {
+				writeUnsigned(0);
+				return;
+			}
+			writeUnsigned(rankings.size() + 1);
+			for (Map.Entry<SummaryType, Map<RankingMetric, List<String>>> entry : rankings
+					.entrySet()) {
+				writeUnsigned(entry.getKey().ordinal());
+				writeUnsigned(entry.getValue().size());
+				for (Map.Entry<RankingMetric, List<String>> ranking : entry
+						.getValue().entrySet()) {
+					writeUnsigned(ranking.getKey().ordinal());
+					writeUnsigned(ranking.getValue().size());
+					for (String pageLink : ranking.getValue()) {
+						writeString(pageLink);
+					}
+				}
+			}
+		}
+
+		private void writeSummaries(Map<String, Summary> summaries)
+				throws IOException {
+			// sizes are written one higher, so that 0 means null
+			if (summaries == null) {
+				writeUnsigned(0);
+				return;
+			}
+			writeUnsigned(summaries.size() + 1);
+			for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+				writeString(entry.getKey());
+				writeSummary(entry.getValue());
+			}
+		}
+
+		private void writeSummary(Summary summary) throws IOException {
+			if (summary == null) {
+				out.writeByte(0);
+				return;
+			}
+			out.writeByte(1);
+			writeString(summary.getPageLink());
+			writeString(summary.getId());
+			writeString(summary.getName());
+			SummaryType summaryType = summary.getSummaryType();
+			writeUnsigned(summaryType == null ? 0 : summaryType.ordinal() + 1);
+			writeSigned(summary.getShortestDuration());
+			writeSigned(summary.getLongestDuration());
+			// the cached average is not written - it is cheap to recalculate
+			writeSigned(summary.getTotalBuilds());
+			writeSigned(summary.getPassedBuilds());
+			writeSigned(summary.getFailedBuilds());
+			writeSigned(summary.getReportedBuilds());
+			writeSigned(summary.getPassedSteps());
+			writeSigned(summary.getFailedSteps());
+			writeSigned(summary.getSkippedSteps());
+			writeString(summary.getSeniorId());
+			writeString(summary.getSeniorName());
+			writeString(summary.getSeniorPageLink());
+			writeSigned(summary.getOrder());
+			writeSigned(summary.getNumberOfSubItems());
+			writeString(summary.getKeyword());
+			writeTags(summary.getTags());
+			writeRows(summary.getRows());
+			writeEntries(summary.getEntryStore());
+			writeHistogram(summary.getDurationHistogram());
+			writeChangePoints(summary.getChangePoints());
+		}
+
+		private void writeChangePoints(List<ChangePoint> changePoints)
+				throws IOException {
+			if (changePoints == null) {
+				writeUnsigned(0);
+				return;
+			}
+			writeUnsigned(changePoints.size() + 1);
+			for (ChangePoint changePoint : changePoints) {
+				writeSigned(changePoint.getBuildNumber());
+				writeSigned(changePoint.getMedianBefore());
+				writeSigned(changePoint.getMedianAfter());
+			}
+		}
+
+		private void writeHistogram(DurationHistogram histogram)
+				throws IOException {
+			int[] buckets = histogram.getBuckets();
+			long[] counts = histogram.getCounts();
+			writeSigned(histogram.getMinimum());
+			writeSigned(histogram.getMaximum());
+			writeUnsigned(buckets.length);
+			int previous = 0;
+			for (int bucket : buckets) {
+				writeUnsigned(bucket - previous);
+				previous = bucket;
+			}
+			for (long count : counts) {
+				writeUnsigned(count);
+			}
+		}
+
+		private void writeTags(List<String> tags) throws IOException {
+			if (tags == null) {
+				writeUnsigned(0);
+				return;
+			}
+			writeUnsigned(tags.size() + 1);
+			for (String tag : tags) {
+				writeString(tag);
+			}
+		}
+
+		private void writeRows(List<List<String>> rows) throws IOException {
+			if (rows == null) {
+				writeUnsigned(0);
+				return;
+			}
+			writeUnsigned(rows.size() + 1);
+			for (List<String> row : rows) {
+				writeUnsigned(row.size());
+				for (String cell : row) {
+					writeString(cell);
+				}
+			}
+		}
+
+		private void writeEntries(EntryStore entries) throws IOException {
+			if (entries == null) {
+				writeUnsigned(0);
+				return;
+			}
+			int count = entries.size();
+			writeUnsigned(count + 1);
+			long previous = 0l;
+			for (int i = 0; i < count; i++) {
+				writeSigned(entries.getBuildNumber(i) - previous);
+				previous = entries.getBuildNumber(i);
+			}
+			for (int i = 0; i < count; i++) {
+				writeSigned(entries.getElapsedTime(i));
+			}
+			byte[] passed = new byte[(count + 7) / 8];
+			byte[] dated = new byte[(count + 7) / 8];
+			for (int i = 0; i < count; i++) {
+				if (entries.isPassed(i)) {
+					passed[i / 8] |= 1 << (i % 8);
+				}
+				if (entries.hasRunDate(i)) {
+					dated[i / 8] |= 1 << (i % 8);
+				}
+			}
+			out.write(passed);
+			out.write(dated);
+			previous = 0l;
+			for (int i = 0; i < count; i++) {
+				if (entries.hasRunDate(i)) {
+					writeSigned(entries.getRunTime(i) - previous);
+					previous = entries.getRunTime(i);
+				}
+			}
+			for (int i = 0; i < count; i++) {
+				writeSigned(entries.getPassedSteps(i));
+			}
+			for (int i = 0; i < count; i++) {
+				writeSigned(entries.getFailedSteps(i));
+			}
+			for (int i = 0; i < count; i++) {
+				writeSigned(entries.getSkippedSteps(i));
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				writeUnsigned(0);
+				return;
+			}
+			Integer index = strings.get(value);
+			if (index != null) {
+				writeUnsigned(index + 2);
+				return;
+			}
+			strings.put(value, strings.size());
+			byte[] bytes = value.getBytes(UTF8);
+			writeUnsigned(1);
+			writeUnsigned(bytes.length);
+			out.write(bytes);
+		}
+
+		private void writeSigned(long value) throws IOException {
+			RunDigest.writeVarLong(out, zigZag(value));
+		}
+
+		private void writeUnsigned(long value) throws IOException {
+			RunDigest.writeVarLong(out, value);
+		}
+
+	}
+
+	private static class Reader {
+
+		private final ByteBuffer buffer;
+
+		private final List<String> strings = new ArrayList<String>();
+
+		private int version;
+
+		Reader(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		ProjectSummary readProjectSummary() throws IOException {
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+				throw new IOException("Not a cucumber performance summary store");
+			}
+			version = buffer.getInt();
+			if (version < MINIMUM_VERSION || version > VERSION) {
+				throw new IOException("Unsupported summary store version "
+						+ version);
+			}
+			ProjectSummary projectSummary = new ProjectSummary();
+			projectSummary.setFormatVersion((int) readSigned());
+			projectSummary.setOverallSummary(readSummary());
+			projectSummary.setFeatureSummaries(readSummaries());
+			projectSummary.setScenarioSummaries(readSummaries());
+			projectSummary.setStepSummaries(readSummaries());
+			if (version >= 4) {
+				projectSummary
+						.setStepDefinitionSummaries(readStepDefinitionSummaries());
+			}
+			if (version >= 5) {
+				projectSummary.setScenarioLinks(readJuniorPageLinks());
+				projectSummary.setStepLinks(readJuniorPageLinks());
+			}
+			if (version >= 6) {
+				projectSummary.setRankings(readRankings());
+			}
+			return projectSummary;
+		}
+
+		private Map<SummaryType, Map<RankingMetric, List<String>>> readRankings()
+				throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			Map<SummaryType, Map<RankingMetric, List<String>>> rankings = new EnumMap<SummaryType, Map<RankingMetric, List<String>>>(
+					SummaryType.class);
+			for (int i = 1; i < size; i++) {
+				SummaryType summaryType = SummaryType.values()[(int) readUnsigned()];
+				int metricCount = (int) readUnsigned();
+				Map<RankingMetric, List<String>> typeRankings = new EnumMap<RankingMetric, List<String>>(
+						RankingMetric.class);
+				for (int j = 0; j < metricCount; j++) {
+					RankingMetric metric = RankingMetric.values()[(int) readUnsigned()];
+					int count = (int) readUnsigned();
+					List<String> pageLinks = new ArrayList<String>(count);
+					for (int k = 0; k < count; k++) {
+						pageLinks.add(readString());
+					}
+					typeRankings.put(metric, pageLinks);
+				}
+				rankings.put(summaryType, typeRankings);
+			}
+			return rankings;
+		}
+
+		private Map<String, List<String>> readJuniorPageLinks()
+				throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			Map<String, List<String>> pageLinks = new HashMap<String, List<String>>();
+			for (int i = 1; i < size; i++) {
+				String key = readString();
+				int count = (int) readUnsigned();
+				List<String> juniors = new ArrayList<String>(count);
+				for (int j = 0; j < count; j++) {
+					juniors.add(readString());
+				}
+				pageLinks.put(key, juniors);
+			}
+			return pageLinks;
+		}
+
+		private Map<String, StepDefinitionSummary> readStepDefinitionSummaries()
+				throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			Map<String, StepDefinitionSummary> summaries = new HashMap<String, StepDefinitionSummary>();
+			for (int i = 1; i < size; i++) {
+				String key = readString();
+				// skip the presence flag, as these are never null
+				buffer.get();
+				StepDefinitionSummary summary = new StepDefinitionSummary(
+						readString());
+				readSummaryFields(summary);
+				summary.setCallHistogram(readHistogram());
+				summary.setPassedCallDuration(readSigned());
+				int callerCount = (int) readUnsigned();
+				Map<String, StepDefinitionCaller> callers = new HashMap<String, StepDefinitionCaller>();
+				for (int j = 0; j < callerCount; j++) {
+					StepDefinitionCaller caller = new StepDefinitionCaller(
+							readString(), readString());
+					caller.setCalls(readUnsigned());
+					caller.setTotalDuration(readSigned());
+					callers.put(caller.getScenarioId(), caller);
+				}
+				summary.setCallers(callers);
+				summaries.put(key, summary);
+			}
+			return summaries;
+		}
+
+		private Map<String, Summary> readSummaries() throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			Map<String, Summary> summaries = new HashMap<String, Summary>();
+			for (int i = 1; i < size; i++) {
+				String key = readString();
+				summaries.put(key, readSummary());
+			}
+			return summaries;
+		}
+
+		private Summary readSummary() throws IOException {
+			if (buffer.get() == 0) {
+				return null;
+			}
+			Summary summary = new Summary(readString());
+			readSummaryFields(summary);
+			return summary;
+		}
+
+		private void readSummaryFields(Summary summary) throws IOException {
+			summary.setId(readString());
+			summary.setName(readString());
+			int summaryType = (int) readUnsigned();
+			if (summaryType > 0) {
+				summary.setSummaryType(SummaryType.values()[summaryType - 1]);
+			}
+			summary.setShortestDuration(readSigned());
+			summary.setLongestDuration(readSigned());
+			summary.setTotalBuilds((int) readSigned());
+			summary.setPassedBuilds((int) readSigned());
+			summary.setFailedBuilds((int) readSigned());
+			summary.setReportedBuilds((int) readSigned());
+			summary.setPassedSteps((int) readSigned());
+			summary.setFailedSteps((int) readSigned());
+			summary.setSkippedSteps((int) readSigned());
+			summary.setSeniorId(readString());
+			summary.setSeniorName(readString());
+			summary.setSeniorPageLink(readString());
+			summary.setOrder((int) readSigned());
+			summary.setNumberOfSubItems((int) readSigned());
+			summary.setKeyword(readString());
+			if (version >= 7) {
+				summary.setTags(readTags());
+			}
+			summary.setRows(readRows());
+			summary.setEntries(readEntries());
+			if (version >= 2) {
+				summary.setDurationHistogram(readHistogram());
+			}
+			if (version >= 3) {
+				summary.setChangePoints(readChangePoints());
+			}
+		}
+
+		private List<ChangePoint> readChangePoints() throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			List<ChangePoint> changePoints = new ArrayList<ChangePoint>(
+					size - 1);
+			for (int i = 1; i < size; i++) {
+				changePoints.add(new ChangePoint((int) readSigned(),
+						readSigned(), readSigned()));
+			}
+			return changePoints;
+		}
+
+		private DurationHistogram readHistogram() throws IOException {
+			long minimum = readSigned();
+			long maximum = readSigned();
+			int size = (int) readUnsigned();
+			int[] buckets = new int[size];
+			long[] counts = new long[size];
+			int previous = 0;
+			for (int i = 0; i < size; i++) {
+				previous += (int) readUnsigned();
+				buckets[i] = previous;
+			}
+			for (int i = 0; i < size; i++) {
+				counts[i] = readUnsigned();
+			}
+			return DurationHistogram.restore(buckets, counts, minimum, maximum);
+		}
+
+		private List<String> readTags() throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			List<String> tags = new ArrayList<String>(size - 1);
+			for (int i = 1; i < size; i++) {
+				tags.add(readString());
+			}
+			return tags;
+		}
+
+		private List<List<String>> readRows() throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			List<List<String>> rows = new ArrayList<List<String>>(size - 1);
+			for (int i = 1; i < size; i++) {
+				int cellCount = (int) readUnsigned();
+				List<String> row = new ArrayList<String>(cellCount);
+				for (int j = 0; j < cellCount; j++) {
+					row.add(readString());
+				}
+				rows.add(row);
+			}
+			return rows;
+		}
+
+		private EntryStore readEntries() throws IOException {
+			int size = (int) readUnsigned();
+			if (size == 0) {
+				return null;
+			}
+			int count = size - 1;
+			int[] buildNumbers = new int[count];
+			long previous = 0l;
+			for (int i = 0; i < count; i++) {
+				previous += readSigned();
+				buildNumbers[i] = (int) previous;
+			}
+			long[] elapsedTimes = new long[count];
+			for (int i = 0; i < count; i++) {
+				elapsedTimes[i] = readSigned();
+			}
+			byte[] passed = new byte[(count + 7) / 8];
+			byte[] dated = new byte[(count + 7) / 8];
+			buffer.get(passed);
+			buffer.get(dated);
+			Date[] runDates = new Date[count];
+			previous = 0l;
+			for (int i = 0; i < count; i++) {
+				if ((dated[i / 8] & (1 << (i % 8))) != 0) {
+					previous += readSigned();
+					runDates[i] = new Date(previous);
+				}
+			}
+			int[] passedSteps = readSignedInts(count);
+			int[] failedSteps = readSignedInts(count);
+			int[] skippedSteps = readSignedInts(count);
+			EntryStore entries = new EntryStore(count);
+			for (int i = 0; i < count; i++) {
+				entries.add(buildNumbers[i], elapsedTimes[i], runDates[i],
+						passedSteps[i], failedSteps[i], skippedSteps[i],
+						(passed[i / 8] & (1 << (i % 8))) != 0);
+			}
+			return entries;
+		}
+
+		private int[] readSignedInts(int count) throws IOException {
+			int[] values = new int[count];
+			for (int i = 0; i < count; i++) {
+				values[i] = (int) readSigned();
+			}
+			return values;
+		}
+
+		private String readString() throws IOException {
+			int reference = (int) readUnsigned();
+			if (reference == 0) {
+				return null;
+			}
+			if (reference == 1) {
+				byte[] bytes = new byte[(int) readUnsigned()];
+				buffer.get(bytes);
+				String value = new String(bytes, UTF8);
+				strings.add(value);
+				return value;
+			}
+			return strings.get(reference - 2);
+		}
+
+		private long readSigned() throws IOException {
+			return unZigZag(readUnsigned());
+		}
+
+		private long readUnsigned() throws IOException {
+			long value = 0l;
+			int shift = 0;
+			while (shift < 64) {
+				int b = buffer.get();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+				shift += 7;
+			}
+			throw new IOException("Malformed variable length number");
+		}
+
+	}
+
+}
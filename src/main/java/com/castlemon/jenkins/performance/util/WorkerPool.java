@@ -0,0 +1,35 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * The fork/join pool shared by every job for parsing reports and rebuilding
+ * summaries, so that however many builds are being recorded at once the
+ * controller never runs more than the configured number of workers. Its
+ * size is set by the com.castlemon.jenkins.performance.workerThreads system
+ * property, and defaults to the number of processors up to four.
+ */
+public class WorkerPool {
+
+	public static final String THREADS_PROPERTY = "com.castlemon.jenkins.performance.workerThreads";
+
+	private static final int DEFAULT_THREADS = Math.min(4, Runtime
+			.getRuntime().availableProcessors());
+
+	private static ForkJoinPool pool;
+
+	private WorkerPool() {
+	}
+
+	/*
+	 * the pool is only created once something needs doing in parallel
+	 */
+	public static synchronized ForkJoinPool get() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Math.max(1,
+					Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS)));
+		}
+		return pool;
+	}
+
+}
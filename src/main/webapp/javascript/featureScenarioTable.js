@@ -0,0 +1,9 @@
+$(document).ready(function() {
+	/* A feature's scenarios, served a page at a time like the sorted report's */
+	serverSideTable('#featureScenarioTable', [ {
+		"data" : "name",
+		"render" : summaryLink('#featureScenarioTable')
+	}, {
+		"data" : "numberOfSubItems"
+	} ].concat(durationColumns()));
+});
@@ -1,28 +1,9 @@
 $(document).ready(function() {
 	/* Feature-level table */
-	$('#sortedFeatureTable').dataTable({
-		"aoColumns" : [ {
-			"sType" : "string"
-		}, 
-		null, 
-		{
-			"iDataSort" : 5
-		}, {
-			"iDataSort" : 6
-		}, {
-			"iDataSort" : 7
-		}, {
-			"bVisible" : false
-		}, {
-			"bVisible" : false
-		}, {
-			"bVisible" : false
-		} ],
-		aaSorting : [ [ 7, 'desc' ] ],
-		"bPaginate" : true,
-		"bFilter" : false,
-		"bSort" : true,
-		"bInfo" : true,
-		"pagingType": "full_numbers"
-	});
-});
\ No newline at end of file
+	serverSideTable('#sortedFeatureTable', [ {
+		"data" : "name",
+		"render" : summaryLink('#sortedFeatureTable')
+	}, {
+		"data" : "numberOfSubItems"
+	} ].concat(durationColumns()));
+});
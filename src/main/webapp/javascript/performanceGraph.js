@@ -1,9 +1,56 @@
 /* performance graph */
 $(document).ready(function() {
 
+	/* mark the builds where the duration shifted */
+	var changePointLines = [];
+	if (typeof changePointData !== 'undefined') {
+		$.each(changePointData, function(index, changePoint) {
+			var slower = changePoint[1] > 0;
+			changePointLines.push({
+				value : changePoint[0],
+				color : slower ? '#AD0000' : '#2F7ED8',
+				dashStyle : 'Dash',
+				width : 1,
+				label : {
+					text : (slower ? '+' : '') + changePoint[1] + '%',
+					style : {
+						color : slower ? '#AD0000' : '#2F7ED8'
+					}
+				}
+			});
+		});
+	}
+
+	/*
+	 * long histories are drawn from a sample of their builds, so every build
+	 * in a zoomed range is fetched, and the sample restored on reset
+	 */
+	function zoom(event) {
+		var series = this.series[0];
+		if (typeof graphUrl === 'undefined') {
+			return;
+		}
+		if (event.resetSelection) {
+			series.setData(perfData);
+			return;
+		}
+		$.getJSON(graphUrl, {
+			type : graphType,
+			link : graphLink,
+			fromBuild : Math.floor(event.xAxis[0].min),
+			toBuild : Math.ceil(event.xAxis[0].max)
+		}, function(data) {
+			series.setData(data);
+		});
+	}
+
 	$('#graphArea').highcharts({
 		chart : {
-			type : 'line'
+			type : 'line',
+			zoomType : 'x',
+			events : {
+				selection : zoom
+			}
 		},
 		tooltip : {
 			enabled : false
@@ -15,7 +62,8 @@ $(document).ready(function() {
 			title : {
 				text : 'Build Number'
 			},
-			tickInterval : 1
+			allowDecimals : false,
+			plotLines : changePointLines
 		},
 		yAxis : {
 			title : {
@@ -1,26 +1,11 @@
 $(document).ready(function() {
 	/* Scenario-level table */
-	$('#sortedScenarioTable').dataTable({
-		"aoColumns" : [ {
-			"sType" : "string"
-		}, null, null, {
-			"iDataSort" : 6
-		}, {
-			"iDataSort" : 7
-		}, {
-			"iDataSort" : 8
-		}, {
-			"bVisible" : false
-		}, {
-			"bVisible" : false
-		}, {
-			"bVisible" : false
-		} ],
-		aaSorting : [ [ 8, 'desc' ] ],
-		"bPaginate" : true,
-		"bFilter" : false,
-		"bSort" : true,
-		"bInfo" : true,
-		"pagingType": "full_numbers"
-	});
-});
\ No newline at end of file
+	serverSideTable('#sortedScenarioTable', [ {
+		"data" : "name",
+		"render" : summaryLink('#sortedScenarioTable')
+	}, {
+		"data" : "seniorName"
+	}, {
+		"data" : "numberOfSubItems"
+	} ].concat(durationColumns()));
+});
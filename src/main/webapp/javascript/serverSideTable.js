@@ -0,0 +1,55 @@
+/*
+ * The sorted report's tables are paged, sorted and searched on the server.
+ * Each table names where its rows come from in data-source, and the report
+ * page its links are relative to in data-link.
+ */
+function escapeCell(data) {
+	return $('<div/>').text(data == null ? '' : data).html().replace(/"/g,
+			'&quot;');
+}
+
+function summaryLink(selector) {
+	return function(data, type, row) {
+		return '<a href="' + escapeCell($(selector).data('link') + row.url)
+				+ '">' + escapeCell(data) + '</a>';
+	};
+}
+
+function serverSideTable(selector, columns) {
+	var table = $(selector);
+	$.each(columns, function(index, column) {
+		if (!column.render) {
+			column.render = escapeCell;
+		}
+	});
+	table.dataTable({
+		"columns" : columns,
+		/* ranked by the report's metric until a column is chosen */
+		aaSorting : [],
+		"serverSide" : true,
+		"ajax" : table.data('source'),
+		"bPaginate" : true,
+		"bFilter" : true,
+		"bSort" : true,
+		"bInfo" : true,
+		"pagingType" : "full_numbers"
+	});
+}
+
+function durationColumns() {
+	return [ {
+		"data" : "shortestDuration"
+	}, {
+		"data" : "longestDuration"
+	}, {
+		"data" : "averageDuration"
+	}, {
+		"data" : "p50Duration"
+	}, {
+		"data" : "p90Duration"
+	}, {
+		"data" : "p95Duration"
+	}, {
+		"data" : "p99Duration"
+	} ];
+}
@@ -0,0 +1,46 @@
+$(document).ready(function() {
+	/* Step definition table */
+	$('#sortedStepDefinitionTable').dataTable({
+		"aoColumns" : [ {
+			"sType" : "string"
+		}, {
+			"sType" : "numeric"
+		}, {
+			"iDataSort" : 10
+		}, {
+			"iDataSort" : 11
+		}, {
+			"iDataSort" : 12
+		}, {
+			"iDataSort" : 13
+		}, {
+			"iDataSort" : 14
+		}, {
+			"iDataSort" : 15
+		}, {
+			"iDataSort" : 16
+		}, {
+			"bSortable" : false
+		}, {
+			"bVisible" : false
+		}, {
+			"bVisible" : false
+		}, {
+			"bVisible" : false
+		}, {
+			"bVisible" : false
+		}, {
+			"bVisible" : false
+		}, {
+			"bVisible" : false
+		}, {
+			"bVisible" : false
+		} ],
+		aaSorting : [],
+		"bPaginate" : true,
+		"bFilter" : false,
+		"bSort" : true,
+		"bInfo" : true,
+		"pagingType": "full_numbers"
+	});
+});
\ No newline at end of file
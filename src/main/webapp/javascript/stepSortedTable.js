@@ -1,28 +1,13 @@
 $(document).ready(function() {
 	/* Step-level table */
-	$('#sortedStepTable').dataTable({
-		"aoColumns" : [ {
-			"sType" : "string"
-		}, {
-			"sType" : "string"
-		}, {
-			"iDataSort" : 5
-		}, {
-			"iDataSort" : 6
-		}, {
-			"iDataSort" : 7
-		}, {
-			"bVisible" : false
-		}, {
-			"bVisible" : false
-		}, {
-			"bVisible" : false
-		} ],
-		aaSorting : [ [ 7, 'desc' ] ],
-		"bPaginate" : true,
-		"bFilter" : false,
-		"bSort" : true,
-		"bInfo" : true,
-		"pagingType": "full_numbers"
-	});
-});
\ No newline at end of file
+	var link = summaryLink('#sortedStepTable');
+	serverSideTable('#sortedStepTable', [ {
+		"data" : "name",
+		"render" : function(data, type, row) {
+			return '<span class="bolded">' + escapeCell(row.keyword)
+					+ '</span> ' + link(data, type, row);
+		}
+	}, {
+		"data" : "seniorName"
+	} ].concat(durationColumns()));
+});
@@ -0,0 +1,286 @@
+package com.castlemon.jenkins.performance;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.mockito.Mockito;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hudson.model.AbstractProject;
+
+@SuppressWarnings("rawtypes")
+public class CucumberPerfApiTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private CucumberProjectAction action;
+
+	private Map<String, String[]> parameters = new HashMap<String, String[]>();
+
+	private StringWriter output = new StringWriter();
+
+	private int status;
+
+	@Before
+	public void setup() throws IOException {
+		testFolder.newFolder("cucumber-perf-reports");
+		FileUtils.copyFile(
+				FileUtils.toFile(this.getClass().getResource("/cukeperf.xml")),
+				testFolder.newFile("cucumber-perf-reports/cukeperf.xml"));
+		AbstractProject project = Mockito.mock(AbstractProject.class);
+		Mockito.when(project.getLastCompletedBuild()).thenReturn(null);
+		Mockito.when(project.getRootDir()).thenReturn(testFolder.getRoot());
+		action = new CucumberProjectAction(project, 20);
+	}
+
+	private StaplerRequest createRequest() {
+		return (StaplerRequest) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { StaplerRequest.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						String[] values = args == null ? null : parameters
+								.get(args[0]);
+						if ("getParameter".equals(method.getName())) {
+							return values == null ? null : values[0];
+						}
+						if ("getParameterValues".equals(method.getName())) {
+							return values;
+						}
+						return null;
+					}
+				});
+	}
+
+	private StaplerResponse createResponse() {
+		return (StaplerResponse) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { StaplerResponse.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if ("getWriter".equals(method.getName())) {
+							return new PrintWriter(output);
+						}
+						if ("sendError".equals(method.getName())) {
+							status = (Integer) args[0];
+						}
+						return null;
+					}
+				});
+	}
+
+	private JsonNode readOutput() throws IOException {
+		Assert.assertEquals(0, status);
+		return new ObjectMapper().readTree(output.toString());
+	}
+
+	@Test
+	public void testProject() throws IOException {
+		action.getApi().doProject(createRequest(), createResponse());
+		JsonNode project = readOutput();
+		Assert.assertEquals(2, project.get("features").asInt());
+		Assert.assertEquals(11, project.get("overall").get("totalBuilds")
+				.asInt());
+	}
+
+	@Test
+	public void testFeaturesArePaged() throws IOException {
+		parameters.put("limit", new String[] { "1" });
+		parameters.put("fields", new String[] { "pageLink,name" });
+		action.getApi().doFeatures(createRequest(), createResponse());
+		JsonNode page = readOutput();
+		Assert.assertEquals(2, page.get("total").asInt());
+		Assert.assertEquals(1, page.get("items").size());
+		Assert.assertEquals(2, page.get("items").get(0).size());
+		String cursor = page.get("nextCursor").asText();
+		Assert.assertEquals(page.get("items").get(0).get("pageLink").asText(),
+				cursor);
+		parameters.put("cursor", new String[] { cursor });
+		output = new StringWriter();
+		action.getApi().doFeatures(createRequest(), createResponse());
+		page = readOutput();
+		Assert.assertEquals(1, page.get("items").size());
+		Assert.assertFalse(cursor.equals(page.get("items").get(0)
+				.get("pageLink").asText()));
+		Assert.assertTrue(page.get("nextCursor").isNull());
+	}
+
+	@Test
+	public void testScenariosOfAFeature() throws IOException {
+		ProjectSummary projectSummary = action.getProjectSummary();
+		Summary feature = projectSummary.getFeatureSummaries().values()
+				.iterator().next();
+		parameters.put("senior", new String[] { feature.getPageLink() });
+		parameters.put("sort", new String[] { "total" });
+		action.getApi().doScenarios(createRequest(), createResponse());
+		JsonNode page = readOutput();
+		Assert.assertEquals(projectSummary.getScenarios(feature).size(), page
+				.get("count").asInt());
+		for (JsonNode item : page.get("items")) {
+			Assert.assertEquals(feature.getPageLink(),
+					item.get("seniorPageLink").asText());
+		}
+	}
+
+	@Test
+	public void testSeries() throws IOException {
+		Summary step = action.getProjectSummary().getStepSummaries().values()
+				.iterator().next();
+		parameters.put("type", new String[] { "step" });
+		parameters.put("link", new String[] { step.getPageLink() });
+		parameters.put("limit", new String[] { "3" });
+		action.getApi().doSeries(createRequest(), createResponse());
+		JsonNode series = readOutput();
+		Assert.assertEquals(3, series.get("entries").size());
+		Assert.assertEquals(step.getEntries().get(0).getBuildNumber(), series
+				.get("entries").get(0).get("buildNumber").asInt());
+	}
+
+	@Test
+	public void testBadRequests() throws IOException {
+		parameters.put("limit", new String[] { "none" });
+		action.getApi().doSteps(createRequest(), createResponse());
+		Assert.assertEquals(400, status);
+		parameters.clear();
+		parameters.put("cursor", new String[] { "gone" });
+		status = 0;
+		action.getApi().doSteps(createRequest(), createResponse());
+		Assert.assertEquals(400, status);
+		parameters.clear();
+		parameters.put("type", new String[] { "step" });
+		parameters.put("link", new String[] { "gone" });
+		status = 0;
+		action.getApi().doSeries(createRequest(), createResponse());
+		Assert.assertEquals(404, status);
+		Assert.assertEquals("", output.toString());
+	}
+
+	@Test
+	public void testGraph() throws IOException {
+		Summary step = action.getProjectSummary().getStepSummaries().values()
+				.iterator().next();
+		int build = step.getEntries().get(1).getBuildNumber();
+		parameters.put("type", new String[] { "step" });
+		parameters.put("link", new String[] { step.getPageLink() });
+		parameters.put("fromBuild", new String[] { String.valueOf(build) });
+		parameters.put("toBuild", new String[] { String.valueOf(build) });
+		action.getApi().doGraph(createRequest(), createResponse());
+		Assert.assertEquals(step.getGraphData(build, build, 0),
+				output.toString());
+		Assert.assertEquals(0, status);
+	}
+
+	@Test
+	public void testProjectGraph() throws IOException {
+		parameters.put("type", new String[] { "project" });
+		action.getApi().doGraph(createRequest(), createResponse());
+		JsonNode points = readOutput();
+		Assert.assertEquals(action.getProjectSummary().getOverallSummary()
+				.getPassedBuilds(), points.size());
+		parameters.put("type", new String[] { "feature" });
+		parameters.put("link", new String[] { "gone" });
+		action.getApi().doGraph(createRequest(), createResponse());
+		Assert.assertEquals(404, status);
+	}
+
+	@Test
+	public void testTable() throws IOException {
+		parameters.put("type", new String[] { "step" });
+		parameters.put("draw", new String[] { "3" });
+		parameters.put("length", new String[] { "5" });
+		parameters.put("order[0][column]", new String[] { "0" });
+		parameters.put("order[0][dir]", new String[] { "asc" });
+		parameters.put("columns[0][data]", new String[] { "name" });
+		action.getApi().doTable(createRequest(), createResponse());
+		JsonNode page = readOutput();
+		Assert.assertEquals(3, page.get("draw").asInt());
+		Assert.assertEquals(action.getProjectSummary().getStepSummaries()
+				.size(), page.get("recordsTotal").asInt());
+		Assert.assertEquals(5, page.get("data").size());
+		String previous = "";
+		for (JsonNode row : page.get("data")) {
+			String name = row.get("name").asText();
+			Assert.assertTrue(previous.compareToIgnoreCase(name) <= 0);
+			previous = name;
+		}
+	}
+
+	@Test
+	public void testTableIsRankedByTheMetric() throws IOException {
+		parameters.put("type", new String[] { "scenario" });
+		parameters.put("metric", new String[] { "total" });
+		action.getApi().doTable(createRequest(), createResponse());
+		JsonNode page = readOutput();
+		Summary worst = action.getProjectSummary()
+				.getSortedScenarioSummaryList(RankingMetric.TOTAL, 1).get(0);
+		Assert.assertEquals(worst.getTotalDuration(), action
+				.getProjectSummary().getScenarioSummaries()
+				.get(page.get("data").get(0).get("pageLink").asText())
+				.getTotalDuration());
+	}
+
+	@Test
+	public void testTableOfAFeaturesScenarios() throws IOException {
+		Summary feature = action.getProjectSummary().getFeatureSummaries()
+				.values().iterator().next();
+		parameters.put("type", new String[] { "scenario" });
+		parameters.put("senior", new String[] { feature.getPageLink() });
+		parameters.put("length", new String[] { "-1" });
+		action.getApi().doTable(createRequest(), createResponse());
+		JsonNode page = readOutput();
+		List<Summary> scenarios = action.getProjectSummary().getScenarios(
+				feature);
+		Assert.assertEquals(scenarios.size(), page.get("recordsTotal").asInt());
+		Assert.assertEquals(scenarios.size(), page.get("data").size());
+		for (JsonNode row : page.get("data")) {
+			Assert.assertTrue(scenarios.contains(action.getProjectSummary()
+					.getScenarioSummaries().get(row.get("pageLink").asText())));
+		}
+	}
+
+	@Test
+	public void testBadTableRequests() throws IOException {
+		parameters.put("type", new String[] { "stepdefinition" });
+		action.getApi().doTable(createRequest(), createResponse());
+		Assert.assertEquals(400, status);
+		parameters.put("type", new String[] { "feature" });
+		parameters.put("order[0][column]", new String[] { "first" });
+		status = 0;
+		action.getApi().doTable(createRequest(), createResponse());
+		Assert.assertEquals(400, status);
+		parameters.put("order[0][column]", new String[] { "1" });
+		parameters.put("columns[1][data]", new String[] { "keyword" });
+		status = 0;
+		action.getApi().doTable(createRequest(), createResponse());
+		Assert.assertEquals(400, status);
+		Assert.assertEquals("", output.toString());
+	}
+
+	@Test
+	public void testNoHistory() throws IOException {
+		new CucumberPerfApi(null).doFeatures(createRequest(), createResponse());
+		Assert.assertEquals(404, status);
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.castlemon.jenkins.performance;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.apache.commons.io.FileUtils;
@@ -10,6 +11,10 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
+import com.castlemon.jenkins.performance.reporting.RegressionGate;
+import com.thoughtworks.xstream.XStream;
+
+import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.BuildListener;
@@ -50,6 +55,18 @@ public class CucumberPerfRecorderTest {
 		testFolder.delete();
 	}
 
+	/*
+	 * a job's settings as saved before the later settings were added
+	 */
+	private CucumberPerfRecorder readOlderConfig() {
+		return (CucumberPerfRecorder) new XStream()
+				.fromXML("<com.castlemon.jenkins.performance.CucumberPerfRecorder>"
+						+ "<jsonReportDirectory>target</jsonReportDirectory>"
+						+ "<jsonReportFileName>cucumber.json</jsonReportFileName>"
+						+ "<countOfSortedSummaries>20</countOfSortedSummaries>"
+						+ "</com.castlemon.jenkins.performance.CucumberPerfRecorder>");
+	}
+
 	@Test
 	public void testConstructor() {
 		Assert.assertEquals(10, cucumberPerfRecorder.countOfSortedSummaries);
@@ -76,4 +93,79 @@ public class CucumberPerfRecorderTest {
 		Assert.assertTrue(cucumberPerfRecorder.getProjectAction(project) instanceof Action);
 	}
 
+	@Test
+	public void testRegressionSettings() {
+		Assert.assertNull(cucumberPerfRecorder.getRegressionThresholds());
+		Assert.assertEquals(10, cucumberPerfRecorder.getBaselineBuilds());
+		cucumberPerfRecorder.setRegressionThresholds("step 20 50");
+		cucumberPerfRecorder.setBaselineBuilds(5);
+		Assert.assertEquals("step 20 50",
+				cucumberPerfRecorder.getRegressionThresholds());
+		Assert.assertEquals(5, cucumberPerfRecorder.getBaselineBuilds());
+		cucumberPerfRecorder.setBaselineBuilds(0);
+		Assert.assertEquals(10, cucumberPerfRecorder.getBaselineBuilds());
+	}
+
+	@Test
+	public void testBaselineBuildsDefaultForOlderConfig() {
+		CucumberPerfRecorder recorder = readOlderConfig();
+		Assert.assertEquals(RegressionGate.DEFAULT_BASELINE_BUILDS,
+				recorder.getBaselineBuilds());
+	}
+
+	@Test
+	public void testShardSettings() {
+		Assert.assertEquals(0, cucumberPerfRecorder.getShardCount());
+		Assert.assertNull(cucumberPerfRecorder.getShardBy());
+		cucumberPerfRecorder.setShardCount(4);
+		cucumberPerfRecorder.setShardBy("scenario");
+		Assert.assertEquals(4, cucumberPerfRecorder.getShardCount());
+		Assert.assertEquals("scenario", cucumberPerfRecorder.getShardBy());
+		cucumberPerfRecorder.setShardCount(-1);
+		Assert.assertEquals(0, cucumberPerfRecorder.getShardCount());
+	}
+
+	@Test
+	public void testGraphPoints() {
+		Assert.assertEquals(500, cucumberPerfRecorder.getGraphPoints());
+		cucumberPerfRecorder.setGraphPoints(200);
+		Assert.assertEquals(200, cucumberPerfRecorder.getGraphPoints());
+		cucumberPerfRecorder.setGraphPoints(2);
+		Assert.assertEquals(500, cucumberPerfRecorder.getGraphPoints());
+	}
+
+	@Test
+	public void testGraphPointsDefaultForOlderConfig() {
+		CucumberPerfRecorder recorder = readOlderConfig();
+		Assert.assertEquals("target", recorder.jsonReportDirectory);
+		Assert.assertEquals(500, recorder.getGraphPoints());
+	}
+
+	@Test
+	public void testArchiveRawReports() {
+		Assert.assertFalse(cucumberPerfRecorder.isArchiveRawReports());
+		cucumberPerfRecorder.setArchiveRawReports(true);
+		Assert.assertTrue(cucumberPerfRecorder.isArchiveRawReports());
+	}
+
+	@Test
+	public void testQueuedReportFailureIsLogged() throws IOException {
+		File targetBuildDirectory = testFolder.newFolder("queued");
+		// a build without a project fails as soon as the report starts
+		AbstractBuild build = Mockito.mock(AbstractBuild.class);
+		cucumberPerfRecorder.generateQueuedProjectReport(build,
+				targetBuildDirectory, "TestP");
+		String log = FileUtils.readFileToString(new File(targetBuildDirectory,
+				CucumberPerfRecorder.REPORT_LOG_FILE_NAME));
+		Assert.assertTrue(log.contains(
+				"[CucumberPerfRecorder] FAILED to generate the project report"));
+	}
+
+	@Test
+	public void testBackgroundReports() {
+		Assert.assertFalse(cucumberPerfRecorder.isBackgroundReports());
+		cucumberPerfRecorder.setBackgroundReports(true);
+		Assert.assertTrue(cucumberPerfRecorder.isBackgroundReports());
+	}
+
 }
@@ -1,8 +1,14 @@
 package com.castlemon.jenkins.performance;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.util.ReportQueue;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Assert;
@@ -10,9 +16,15 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 import org.mockito.Mockito;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import hudson.model.AbstractProject;
+import hudson.model.Run;
 
 @SuppressWarnings("rawtypes")
 public class CucumberProjectActionTest {
@@ -75,9 +87,89 @@ public class CucumberProjectActionTest {
 		Assert.assertEquals(11, summary.getOverallSummary().getEntries().size());
 	}
 
+	@Test
+	public void testGetFeature() throws IOException {
+		Mockito.when(project.getLastCompletedBuild()).thenReturn(null);
+		Mockito.when(project.getRootDir()).thenReturn(testFolder.getRoot());
+		CucumberProjectAction action = new CucumberProjectAction(project, 20);
+		ProjectSummary projectSummary = action.getProjectSummary();
+		Summary feature = projectSummary.getFeatureSummaries().values()
+				.iterator().next();
+		SummaryView view = action.getFeature(feature.getPageLink());
+		Assert.assertSame(feature, view.getSummary());
+		Assert.assertSame(project, view.getProject());
+		Assert.assertEquals(projectSummary.getScenarios(feature),
+				view.getSubSummaries());
+		Assert.assertNull(action.getFeature("gone"));
+		Assert.assertNull(action.getStepdefinition("gone"));
+		Assert.assertSame(projectSummary.getOverallSummary(), action
+				.getOverallView().getSummary());
+	}
+
+	@Test
+	public void testShowsLastCompletedSnapshot() throws IOException {
+		// build 2 has finished, but its report has not been generated yet
+		Run build1 = Mockito.mock(Run.class);
+		Mockito.when(build1.getRootDir()).thenReturn(testFolder.getRoot());
+		Run build2 = Mockito.mock(Run.class);
+		Mockito.when(build2.getRootDir()).thenReturn(
+				testFolder.newFolder("build2"));
+		testFolder.newFolder("build2", "cucumber-perf-reports");
+		Mockito.when(build2.getPreviousBuild()).thenReturn(build1);
+		Mockito.when(project.getLastCompletedBuild()).thenReturn(build2);
+		CucumberProjectAction snapshotAction = new CucumberProjectAction(
+				project, 20);
+		ProjectSummary summary = snapshotAction.getProjectSummary();
+		Assert.assertNotNull(summary);
+		Assert.assertEquals(11, summary.getOverallSummary().getEntries().size());
+	}
+
+	@Test
+	public void testReportUpdating() throws IOException, InterruptedException {
+		Mockito.when(project.getRootDir()).thenReturn(testFolder.getRoot());
+		Assert.assertFalse(cucumberProjectAction.isReportUpdating());
+		final CountDownLatch release = new CountDownLatch(1);
+		ReportQueue.getInstance().submit(
+				ReportQueue.getKey(testFolder.getRoot()), new Runnable() {
+					public void run() {
+						try {
+							release.await(10, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+		Assert.assertTrue(cucumberProjectAction.isReportUpdating());
+		release.countDown();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (cucumberProjectAction.isReportUpdating()
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assert.assertFalse(cucumberProjectAction.isReportUpdating());
+	}
+
 	@Test
 	public void testGetProject() throws IOException {
 		Assert.assertEquals(project, cucumberProjectAction.getProject());
 	}
 
+	@Test
+	public void testDoShards() throws IOException {
+		Mockito.when(project.getLastCompletedBuild()).thenReturn(null);
+		Mockito.when(project.getRootDir()).thenReturn(testFolder.getRoot());
+		CucumberProjectAction shardingAction = new CucumberProjectAction(
+				project, 20, 2, "feature");
+		StaplerRequest request = Mockito.mock(StaplerRequest.class);
+		StaplerResponse response = Mockito.mock(StaplerResponse.class);
+		StringWriter output = new StringWriter();
+		Mockito.when(response.getWriter()).thenReturn(new PrintWriter(output));
+		shardingAction.doShards(request, response);
+		JsonNode plan = new ObjectMapper().readTree(output.toString());
+		Assert.assertEquals("feature", plan.get("shardBy").asText());
+		Assert.assertEquals(2, plan.get("shards").size());
+		Assert.assertEquals(1, plan.get("shards").get(0).get("items").size());
+		Assert.assertEquals(1, plan.get("shards").get(1).get("items").size());
+	}
+
 }
@@ -0,0 +1,137 @@
+package com.castlemon.jenkins.performance;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.reporting.ReportBuilder;
+import com.castlemon.jenkins.performance.util.RunDigest;
+
+/*
+ * Lays out a job's build history the way CucumberPerfRecorder leaves it -
+ * builds/<number>/cucumber-perf-reports under the job directory, holding
+ * the build's digest, its raw reports as cucumber-perf<fork>.json when they
+ * are archived, and for the last build the project summary - with the
+ * reports made up by a ReportGenerator.
+ */
+public class HistoryGenerator {
+
+	public static final String REPORT_DIRECTORY = "cucumber-perf-reports";
+
+	// an hour between builds
+	private static final long BUILD_INTERVAL = 3600000l;
+
+	private final ReportGenerator reportGenerator;
+
+	private int forks = 1;
+
+	private boolean archiveRawReports = false;
+
+	private boolean writeSummary = true;
+
+	// when the first build ran
+	private long startTime = 1451606400000l;
+
+	public HistoryGenerator(ReportGenerator reportGenerator) {
+		this.reportGenerator = reportGenerator;
+	}
+
+	public File getReportDirectory(File jobDirectory, int buildNumber) {
+		return new File(new File(new File(jobDirectory, "builds"),
+				Integer.toString(buildNumber)), REPORT_DIRECTORY);
+	}
+
+	/*
+	 * writes builds 1 to the given number, returning the runs in build order
+	 * as the recorder would find them for a full rebuild
+	 */
+	public List<ProjectRun> generate(File jobDirectory, int builds)
+			throws IOException {
+		List<ProjectRun> runs = new ArrayList<ProjectRun>(builds);
+		for (int buildNumber = 1; buildNumber <= builds; buildNumber++) {
+			runs.add(generateBuild(jobDirectory, buildNumber));
+		}
+		if (writeSummary && builds > 0) {
+			new ReportBuilder().generateProjectReports(runs,
+					getReportDirectory(jobDirectory, builds), "generated");
+		}
+		return runs;
+	}
+
+	/*
+	 * writes a single build's reports and digest
+	 */
+	public ProjectRun generateBuild(File jobDirectory, int buildNumber)
+			throws IOException {
+		File reportDirectory = getReportDirectory(jobDirectory, buildNumber);
+		FileUtils.forceMkdir(reportDirectory);
+		List<String> reportFiles = new ArrayList<String>(forks);
+		for (int fork = 0; fork < forks; fork++) {
+			String fileName = "cucumber-perf" + fork + ".json";
+			reportGenerator.write(new File(reportDirectory, fileName),
+					buildNumber, fork, forks);
+			reportFiles.add(fileName);
+		}
+		Date runDate = getRunDate(buildNumber);
+		File digestFile = new File(reportDirectory, RunDigest.DIGEST_FILE_NAME);
+		RunDigest.write(reportDirectory, reportFiles, buildNumber, runDate,
+				digestFile);
+		if (!archiveRawReports) {
+			// only the digest is brought back from the workspace
+			for (String fileName : reportFiles) {
+				FileUtils.forceDelete(new File(reportDirectory, fileName));
+			}
+		}
+		ProjectRun run = new ProjectRun();
+		run.setBuildNumber(buildNumber);
+		run.setRunDate(runDate);
+		run.setDigestFile(digestFile);
+		return run;
+	}
+
+	public Date getRunDate(int buildNumber) {
+		return new Date(startTime + (buildNumber - 1) * BUILD_INTERVAL);
+	}
+
+	public ReportGenerator getReportGenerator() {
+		return reportGenerator;
+	}
+
+	public int getForks() {
+		return forks;
+	}
+
+	public void setForks(int forks) {
+		this.forks = forks;
+	}
+
+	public boolean isArchiveRawReports() {
+		return archiveRawReports;
+	}
+
+	public void setArchiveRawReports(boolean archiveRawReports) {
+		this.archiveRawReports = archiveRawReports;
+	}
+
+	public boolean isWriteSummary() {
+		return writeSummary;
+	}
+
+	public void setWriteSummary(boolean writeSummary) {
+		this.writeSummary = writeSummary;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public void setStartTime(long startTime) {
+		this.startTime = startTime;
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.castlemon.jenkins.performance;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Regression;
+import com.castlemon.jenkins.performance.domain.reporting.RegressionThreshold;
+import com.castlemon.jenkins.performance.reporting.RegressionGate;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+import com.castlemon.jenkins.performance.util.RunDigest;
+
+public class HistoryGeneratorTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private ReportGenerator createGenerator() {
+		ReportGenerator generator = new ReportGenerator();
+		generator.setSeed(7l);
+		generator.setFeatures(3);
+		generator.setScenariosPerFeature(2);
+		generator.setStepsPerScenario(4);
+		generator.setStepDefinitions(6);
+		generator.setDurationSpread(0.05);
+		return generator;
+	}
+
+	@Test
+	public void testLayout() throws IOException {
+		HistoryGenerator historyGenerator = new HistoryGenerator(
+				createGenerator());
+		historyGenerator.setForks(2);
+		historyGenerator.setArchiveRawReports(true);
+		File jobDirectory = testFolder.getRoot();
+		List<ProjectRun> runs = historyGenerator.generate(jobDirectory, 5);
+		Assert.assertEquals(5, runs.size());
+		for (int buildNumber = 1; buildNumber <= 5; buildNumber++) {
+			File reportDirectory = new File(jobDirectory, "builds/"
+					+ buildNumber + "/cucumber-perf-reports");
+			Assert.assertTrue(new File(reportDirectory,
+					RunDigest.DIGEST_FILE_NAME).exists());
+			Assert.assertTrue(new File(reportDirectory, "cucumber-perf0.json")
+					.exists());
+			Assert.assertTrue(new File(reportDirectory, "cucumber-perf1.json")
+					.exists());
+			ProjectRun run = runs.get(buildNumber - 1);
+			Assert.assertEquals(buildNumber, run.getBuildNumber());
+			Assert.assertEquals(historyGenerator.getRunDate(buildNumber),
+					run.getRunDate());
+			ProjectRun digested = RunDigest.openRun(run.getDigestFile());
+			Assert.assertEquals(buildNumber, digested.getBuildNumber());
+		}
+		// only the last build carries the project summary
+		Assert.assertNull(CucumberPerfUtils.readSummaryFromDisk(historyGenerator
+				.getReportDirectory(jobDirectory, 4)));
+		ProjectSummary summary = CucumberPerfUtils
+				.readSummaryFromDisk(historyGenerator.getReportDirectory(
+						jobDirectory, 5));
+		Assert.assertNotNull(summary);
+		Assert.assertEquals(5, summary.getLastBuildNumber());
+		Assert.assertEquals(3, summary.getFeatureSummaries().size());
+		Assert.assertEquals(5, summary.getOverallSummary().getEntries().size());
+	}
+
+	@Test
+	public void testDigestOnlyLayout() throws IOException {
+		HistoryGenerator historyGenerator = new HistoryGenerator(
+				createGenerator());
+		historyGenerator.setWriteSummary(false);
+		historyGenerator.generate(testFolder.getRoot(), 2);
+		File reportDirectory = historyGenerator.getReportDirectory(
+				testFolder.getRoot(), 2);
+		Assert.assertArrayEquals(new String[] { RunDigest.DIGEST_FILE_NAME },
+				reportDirectory.list());
+	}
+
+	private List<Regression> evaluate(ReportGenerator generator)
+			throws IOException {
+		File jobDirectory = testFolder.newFolder();
+		HistoryGenerator historyGenerator = new HistoryGenerator(generator);
+		historyGenerator.generate(jobDirectory, 12);
+		ProjectSummary summary = CucumberPerfUtils
+				.readSummaryFromDisk(historyGenerator.getReportDirectory(
+						jobDirectory, 12));
+		return new RegressionGate(
+				RegressionThreshold.parseThresholds("step 50 100"), 10)
+				.evaluate(summary, 12);
+	}
+
+	@Test
+	public void testInjectedRegressionIsDetected() throws IOException {
+		Assert.assertTrue(evaluate(createGenerator()).isEmpty());
+		ReportGenerator generator = createGenerator();
+		generator.addRegression(generator.getStepDefinitionLocation(1), 12,
+				3.0);
+		List<Regression> regressions = evaluate(generator);
+		Assert.assertFalse(regressions.isEmpty());
+		for (Regression regression : regressions) {
+			Assert.assertTrue(regression.getPercentageIncrease() > 150);
+		}
+	}
+
+}
@@ -0,0 +1,577 @@
+package com.castlemon.jenkins.performance;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/*
+ * Writes made-up cucumber json reports of any size, for testing how the
+ * plugin copes with large suites and long histories. Everything is derived
+ * from the seed, the build number and the position in the report, so the
+ * same settings always produce the same report, and a feature comes out the
+ * same whichever of a build's report files it is written to.
+ *
+ * Step durations are drawn around a base duration for each step definition,
+ * and a regression multiplies the durations of a step definition from a
+ * given build onwards. Reports are streamed out, so they can be far larger
+ * than the heap.
+ */
+public class ReportGenerator {
+
+	public enum DurationDistribution {
+		// always the step definition's base duration
+		FIXED,
+		// within spread either side of the base duration
+		UNIFORM,
+		// normally distributed around the base duration
+		NORMAL,
+		// the long tail real suites have - the mean is still the base duration
+		LOG_NORMAL
+	}
+
+	private static final String[] KEYWORDS = { "Given ", "When ", "Then ",
+			"And " };
+
+	// the base64 alphabet, for embeddings
+	private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+			.toCharArray();
+
+	private long seed = 1l;
+
+	private int features = 10;
+
+	private int scenariosPerFeature = 5;
+
+	private int stepsPerScenario = 5;
+
+	private int stepDefinitions = 50;
+
+	private int backgroundSteps = 0;
+
+	// the proportion of scenarios that are outlines, and their example rows
+	private double outlineRatio = 0.0;
+
+	private int examplesPerOutline = 3;
+
+	// the proportion of steps with a data table, and its size
+	private double dataTableRatio = 0.0;
+
+	private int dataTableRows = 3;
+
+	private int dataTableColumns = 3;
+
+	private boolean hooks = false;
+
+	// the proportion of scenarios with a screenshot embedded, and its size
+	private double embeddingRatio = 0.0;
+
+	private int embeddingBytes = 1024;
+
+	// the chance that a step fails, skipping the rest of its scenario
+	private double failureRatio = 0.0;
+
+	// the chance that a scenario is skipped altogether
+	private double skipRatio = 0.0;
+
+	private long meanStepDuration = 50000000l;
+
+	private DurationDistribution durationDistribution = DurationDistribution.LOG_NORMAL;
+
+	// the relative spread of the durations around the base duration
+	private double durationSpread = 0.2;
+
+	private final List<InjectedRegression> regressions = new ArrayList<InjectedRegression>();
+
+	/*
+	 * makes the given step definition, or every step definition if the
+	 * location is null, slower by the factor from the given build onwards
+	 */
+	public void addRegression(String location, int fromBuild, double factor) {
+		addRegression(location, fromBuild, Integer.MAX_VALUE, factor);
+	}
+
+	public void addRegression(String location, int fromBuild, int toBuild,
+			double factor) {
+		regressions.add(new InjectedRegression(location, fromBuild, toBuild,
+				factor));
+	}
+
+	public String getStepDefinitionLocation(int index) {
+		return "GeneratedSteps.step" + index + "(String)";
+	}
+
+	/*
+	 * the whole report for a build - only sensible for small reports
+	 */
+	public String generate(int buildNumber) {
+		StringWriter writer = new StringWriter();
+		try {
+			JsonGenerator generator = new JsonFactory().createGenerator(writer);
+			writeReport(generator, buildNumber, 0, 1);
+			generator.close();
+		} catch (IOException e) {
+			// a StringWriter does not throw
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
+
+	public void write(File reportFile, int buildNumber) throws IOException {
+		write(reportFile, buildNumber, 0, 1);
+	}
+
+	/*
+	 * writes the features that the given fork of the test run would have
+	 * reported - every forks-th feature, starting at fork
+	 */
+	public void write(File reportFile, int buildNumber, int fork, int forks)
+			throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				reportFile));
+		try {
+			JsonGenerator generator = new JsonFactory().createGenerator(out,
+					JsonEncoding.UTF8);
+			writeReport(generator, buildNumber, fork, forks);
+			generator.close();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeReport(JsonGenerator generator, int buildNumber,
+			int fork, int forks) throws IOException {
+		generator.useDefaultPrettyPrinter();
+		generator.writeStartArray();
+		for (int feature = fork; feature < features; feature += forks) {
+			writeFeature(generator, buildNumber, feature);
+		}
+		generator.writeEndArray();
+	}
+
+	private void writeFeature(JsonGenerator generator, int buildNumber,
+			int feature) throws IOException {
+		Random random = new Random(mix(seed, buildNumber, feature));
+		String featureId = "generated-feature-" + feature;
+		generator.writeStartObject();
+		generator.writeStringField("uri", "features/generated/feature" + feature
+				+ ".feature");
+		generator.writeStringField("id", featureId);
+		generator.writeStringField("keyword", "Feature");
+		generator.writeStringField("name", "Generated feature " + feature);
+		generator.writeStringField("description", "");
+		generator.writeNumberField("line", 1);
+		generator.writeArrayFieldStart("tags");
+		generator.writeStartObject();
+		generator.writeStringField("name", "@generated");
+		generator.writeNumberField("line", 1);
+		generator.writeEndObject();
+		generator.writeEndArray();
+		generator.writeArrayFieldStart("elements");
+		int line = 3;
+		for (int scenario = 0; scenario < scenariosPerFeature; scenario++) {
+			// drawn the same way each build, so outlines stay outlines
+			boolean outline = new Random(mix(seed, feature, scenario))
+					.nextDouble() < outlineRatio;
+			int examples = outline ? examplesPerOutline : 1;
+			for (int example = 0; example < examples; example++) {
+				if (backgroundSteps > 0) {
+					writeBackground(generator, buildNumber, feature, random);
+				}
+				writeScenario(generator, buildNumber, featureId, feature,
+						scenario, outline ? example + 1 : 0, line, random);
+			}
+			line += stepsPerScenario + (outline ? examples + 4 : 2);
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+	}
+
+	private void writeBackground(JsonGenerator generator, int buildNumber,
+			int feature, Random random) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("keyword", "Background");
+		generator.writeStringField("name", "");
+		generator.writeStringField("description", "");
+		generator.writeNumberField("line", 2);
+		generator.writeStringField("type", "background");
+		generator.writeArrayFieldStart("steps");
+		for (int step = 0; step < backgroundSteps; step++) {
+			writeStep(generator, buildNumber, "background step " + step
+					+ " of feature " + feature, step, 2 + step, "passed",
+					random);
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+	}
+
+	/*
+	 * example is the row of an outline's examples, from 1, or 0 for a plain
+	 * scenario
+	 */
+	private void writeScenario(JsonGenerator generator, int buildNumber,
+			String featureId, int feature, int scenario, int example,
+			int line, Random random) throws IOException {
+		generator.writeStartObject();
+		if (example > 0) {
+			generator.writeStringField("id", featureId + ";generated-outline-"
+					+ scenario + ";;" + (example + 1));
+			generator.writeStringField("keyword", "Scenario Outline");
+			generator.writeStringField("name", "Generated outline " + scenario
+					+ " of feature " + feature);
+		} else {
+			generator.writeStringField("id", featureId + ";generated-scenario-"
+					+ scenario);
+			generator.writeStringField("keyword", "Scenario");
+			generator.writeStringField("name", "Generated scenario "
+					+ scenario + " of feature " + feature);
+		}
+		generator.writeStringField("description", "");
+		generator.writeNumberField("line", line);
+		generator.writeStringField("type", "scenario");
+		boolean skipped = random.nextDouble() < skipRatio;
+		if (hooks) {
+			writeHooks(generator, "before", random, false);
+		}
+		generator.writeArrayFieldStart("steps");
+		String status = skipped ? "skipped" : "passed";
+		for (int step = 0; step < stepsPerScenario; step++) {
+			if ("passed".equals(status) && random.nextDouble() < failureRatio) {
+				status = "failed";
+			}
+			String name = "generated step " + step + " of scenario "
+					+ scenario + " in feature " + feature;
+			if (example > 0) {
+				name += " with example " + example;
+			}
+			writeStep(generator, buildNumber, name,
+					stepDefinitionIndex(feature, scenario, step), line + step
+							+ 1, status, random);
+			if ("failed".equals(status)) {
+				// the rest of the scenario is skipped
+				status = "skipped";
+			}
+		}
+		generator.writeEndArray();
+		if (hooks) {
+			writeHooks(generator, "after", random,
+					random.nextDouble() < embeddingRatio);
+		}
+		generator.writeEndObject();
+	}
+
+	private void writeHooks(JsonGenerator generator, String fieldName,
+			Random random, boolean embed) throws IOException {
+		generator.writeArrayFieldStart(fieldName);
+		generator.writeStartObject();
+		generator.writeObjectFieldStart("result");
+		generator.writeNumberField("duration",
+				Math.max(1l, meanStepDuration / 10 + random.nextInt(1000)));
+		generator.writeStringField("status", "passed");
+		generator.writeEndObject();
+		generator.writeObjectFieldStart("match");
+		generator.writeStringField("location", "GeneratedHooks." + fieldName
+				+ "()");
+		generator.writeEndObject();
+		if (embed) {
+			generator.writeArrayFieldStart("embeddings");
+			generator.writeStartObject();
+			generator.writeStringField("mime_type", "image/png");
+			generator.writeStringField("data", embedding(random));
+			generator.writeEndObject();
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+		generator.writeEndArray();
+	}
+
+	private void writeStep(JsonGenerator generator, int buildNumber,
+			String name, int stepDefinition, int line, String status,
+			Random random) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("keyword", KEYWORDS[line % KEYWORDS.length]);
+		generator.writeStringField("name", name);
+		generator.writeNumberField("line", line);
+		String location = getStepDefinitionLocation(stepDefinition);
+		generator.writeObjectFieldStart("match");
+		generator.writeArrayFieldStart("arguments");
+		generator.writeStartObject();
+		generator.writeStringField("val", Integer.toString(stepDefinition));
+		generator.writeNumberField("offset", 10);
+		generator.writeEndObject();
+		generator.writeEndArray();
+		generator.writeStringField("location", location);
+		generator.writeEndObject();
+		// drawn whether or not it is used, so the steps after a failure get
+		// the same durations as they would have had
+		long duration = duration(stepDefinition, location, buildNumber, random);
+		boolean dataTable = random.nextDouble() < dataTableRatio;
+		if (dataTable) {
+			generator.writeArrayFieldStart("rows");
+			for (int row = 0; row < dataTableRows; row++) {
+				generator.writeStartObject();
+				generator.writeArrayFieldStart("cells");
+				for (int column = 0; column < dataTableColumns; column++) {
+					generator.writeString(row == 0 ? "column " + column
+							: "value " + row + "." + column);
+				}
+				generator.writeEndArray();
+				generator.writeNumberField("line", line + row + 1);
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+		}
+		generator.writeObjectFieldStart("result");
+		if (!"skipped".equals(status)) {
+			generator.writeNumberField("duration", duration);
+		}
+		generator.writeStringField("status", status);
+		if ("failed".equals(status)) {
+			generator.writeStringField("error_message",
+					"java.lang.AssertionError: generated failure\n\tat "
+							+ location);
+		}
+		generator.writeEndObject();
+		generator.writeEndObject();
+	}
+
+	private int stepDefinitionIndex(int feature, int scenario, int step) {
+		return (int) (Math.abs(mix(seed, feature * 1000 + scenario, step)) % stepDefinitions);
+	}
+
+	private long duration(int stepDefinition, String location,
+			int buildNumber, Random random) {
+		// each step definition has its own base duration, from half to one
+		// and a half times the mean
+		double base = meanStepDuration
+				* (0.5 + new Random(mix(seed, -1, stepDefinition)).nextDouble());
+		for (InjectedRegression regression : regressions) {
+			if (regression.appliesTo(location, buildNumber)) {
+				base *= regression.factor;
+			}
+		}
+		double gaussian = random.nextGaussian();
+		double uniform = random.nextDouble();
+		double duration;
+		switch (durationDistribution) {
+		case FIXED:
+			duration = base;
+			break;
+		case UNIFORM:
+			duration = base * (1 + durationSpread * (2 * uniform - 1));
+			break;
+		case NORMAL:
+			duration = base * (1 + durationSpread * gaussian);
+			break;
+		default:
+			duration = base
+					* Math.exp(durationSpread * gaussian - durationSpread
+							* durationSpread / 2);
+			break;
+		}
+		return Math.max(1l, (long) duration);
+	}
+
+	private String embedding(Random random) {
+		char[] data = new char[(embeddingBytes + 2) / 3 * 4];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = BASE64[random.nextInt(BASE64.length)];
+		}
+		return new String(data);
+	}
+
+	private static long mix(long seed, long a, long b) {
+		long hash = seed * 0x9E3779B97F4A7C15l + a;
+		hash = (hash ^ (hash >>> 31)) * 0xBF58476D1CE4E5B9l + b;
+		return hash ^ (hash >>> 29);
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getFeatures() {
+		return features;
+	}
+
+	public void setFeatures(int features) {
+		this.features = features;
+	}
+
+	public int getScenariosPerFeature() {
+		return scenariosPerFeature;
+	}
+
+	public void setScenariosPerFeature(int scenariosPerFeature) {
+		this.scenariosPerFeature = scenariosPerFeature;
+	}
+
+	public int getStepsPerScenario() {
+		return stepsPerScenario;
+	}
+
+	public void setStepsPerScenario(int stepsPerScenario) {
+		this.stepsPerScenario = stepsPerScenario;
+	}
+
+	public int getStepDefinitions() {
+		return stepDefinitions;
+	}
+
+	public void setStepDefinitions(int stepDefinitions) {
+		this.stepDefinitions = stepDefinitions;
+	}
+
+	public int getBackgroundSteps() {
+		return backgroundSteps;
+	}
+
+	public void setBackgroundSteps(int backgroundSteps) {
+		this.backgroundSteps = backgroundSteps;
+	}
+
+	public double getOutlineRatio() {
+		return outlineRatio;
+	}
+
+	public void setOutlineRatio(double outlineRatio) {
+		this.outlineRatio = outlineRatio;
+	}
+
+	public int getExamplesPerOutline() {
+		return examplesPerOutline;
+	}
+
+	public void setExamplesPerOutline(int examplesPerOutline) {
+		this.examplesPerOutline = examplesPerOutline;
+	}
+
+	public double getDataTableRatio() {
+		return dataTableRatio;
+	}
+
+	public void setDataTableRatio(double dataTableRatio) {
+		this.dataTableRatio = dataTableRatio;
+	}
+
+	public int getDataTableRows() {
+		return dataTableRows;
+	}
+
+	public void setDataTableRows(int dataTableRows) {
+		this.dataTableRows = dataTableRows;
+	}
+
+	public int getDataTableColumns() {
+		return dataTableColumns;
+	}
+
+	public void setDataTableColumns(int dataTableColumns) {
+		this.dataTableColumns = dataTableColumns;
+	}
+
+	public boolean isHooks() {
+		return hooks;
+	}
+
+	public void setHooks(boolean hooks) {
+		this.hooks = hooks;
+	}
+
+	public double getEmbeddingRatio() {
+		return embeddingRatio;
+	}
+
+	public void setEmbeddingRatio(double embeddingRatio) {
+		this.embeddingRatio = embeddingRatio;
+	}
+
+	public int getEmbeddingBytes() {
+		return embeddingBytes;
+	}
+
+	public void setEmbeddingBytes(int embeddingBytes) {
+		this.embeddingBytes = embeddingBytes;
+	}
+
+	public double getFailureRatio() {
+		return failureRatio;
+	}
+
+	public void setFailureRatio(double failureRatio) {
+		this.failureRatio = failureRatio;
+	}
+
+	public double getSkipRatio() {
+		return skipRatio;
+	}
+
+	public void setSkipRatio(double skipRatio) {
+		this.skipRatio = skipRatio;
+	}
+
+	public long getMeanStepDuration() {
+		return meanStepDuration;
+	}
+
+	public void setMeanStepDuration(long meanStepDuration) {
+		this.meanStepDuration = meanStepDuration;
+	}
+
+	public DurationDistribution getDurationDistribution() {
+		return durationDistribution;
+	}
+
+	public void setDurationDistribution(
+			DurationDistribution durationDistribution) {
+		this.durationDistribution = durationDistribution;
+	}
+
+	public double getDurationSpread() {
+		return durationSpread;
+	}
+
+	public void setDurationSpread(double durationSpread) {
+		this.durationSpread = durationSpread;
+	}
+
+	private static class InjectedRegression {
+
+		// null for every step definition
+		private final String location;
+
+		private final int fromBuild;
+
+		private final int toBuild;
+
+		private final double factor;
+
+		private InjectedRegression(String location, int fromBuild,
+				int toBuild, double factor) {
+			this.location = location;
+			this.fromBuild = fromBuild;
+			this.toBuild = toBuild;
+			this.factor = factor;
+		}
+
+		private boolean appliesTo(String stepLocation, int buildNumber) {
+			return buildNumber >= fromBuild && buildNumber <= toBuild
+					&& (location == null || location.equals(stepLocation));
+		}
+
+	}
+
+}
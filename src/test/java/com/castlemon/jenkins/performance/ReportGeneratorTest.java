@@ -0,0 +1,227 @@
+package com.castlemon.jenkins.performance;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.castlemon.jenkins.performance.domain.Elements;
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.domain.Step;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
+import com.castlemon.jenkins.performance.util.FeatureHandler;
+import com.castlemon.jenkins.performance.util.ParallelReportParser;
+import com.castlemon.jenkins.performance.util.StreamingReportParser;
+
+public class ReportGeneratorTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private ReportGenerator createGenerator() {
+		ReportGenerator generator = new ReportGenerator();
+		generator.setSeed(42l);
+		generator.setFeatures(4);
+		generator.setScenariosPerFeature(3);
+		generator.setStepsPerScenario(5);
+		return generator;
+	}
+
+	private List<Step> getSteps(List<Feature> features, String location) {
+		List<Step> steps = new ArrayList<Step>();
+		for (Feature feature : features) {
+			for (Elements element : feature.getElements()) {
+				for (Step step : element.getSteps()) {
+					if (location.equals(step.getMatch().getLocation())) {
+						steps.add(step);
+					}
+				}
+			}
+		}
+		return steps;
+	}
+
+	@Test
+	public void testReportsAreRepeatable() {
+		ReportGenerator generator = createGenerator();
+		Assert.assertEquals(generator.generate(1), generator.generate(1));
+		Assert.assertEquals(generator.generate(1), createGenerator()
+				.generate(1));
+		Assert.assertFalse(generator.generate(1).equals(generator.generate(2)));
+		ReportGenerator reseeded = createGenerator();
+		reseeded.setSeed(43l);
+		Assert.assertFalse(generator.generate(1).equals(reseeded.generate(1)));
+	}
+
+	@Test
+	public void testReportShape() {
+		ReportGenerator generator = createGenerator();
+		generator.setOutlineRatio(1.0);
+		generator.setExamplesPerOutline(2);
+		generator.setBackgroundSteps(2);
+		List<Feature> features = CucumberPerfUtils.getData(generator
+				.generate(1));
+		Assert.assertEquals(4, features.size());
+		for (Feature feature : features) {
+			// a background before each of the examples of each outline
+			Assert.assertEquals(12, feature.getElements().size());
+			Elements background = feature.getElements().get(0);
+			Assert.assertEquals("background", background.getType());
+			Assert.assertEquals(2, background.getSteps().size());
+			Elements example = feature.getElements().get(1);
+			Assert.assertEquals("Scenario Outline", example.getKeyword());
+			Assert.assertEquals(5, example.getSteps().size());
+			Assert.assertFalse(example.getId().equals(
+					feature.getElements().get(3).getId()));
+		}
+	}
+
+	@Test
+	public void testFailureSkipsRestOfScenario() {
+		ReportGenerator generator = createGenerator();
+		generator.setFailureRatio(1.0);
+		List<Feature> features = CucumberPerfUtils.getData(generator
+				.generate(1));
+		for (Feature feature : features) {
+			for (Elements scenario : feature.getElements()) {
+				List<Step> steps = scenario.getSteps();
+				Assert.assertEquals("failed", steps.get(0).getResult()
+						.getStatus());
+				Assert.assertNotNull(steps.get(0).getResult().getDuration());
+				for (Step step : steps.subList(1, steps.size())) {
+					Assert.assertEquals("skipped", step.getResult()
+							.getStatus());
+					Assert.assertNull(step.getResult().getDuration());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSkippedScenarios() {
+		ReportGenerator generator = createGenerator();
+		generator.setSkipRatio(1.0);
+		generator.setFailureRatio(1.0);
+		for (Feature feature : CucumberPerfUtils.getData(generator
+				.generate(1))) {
+			for (Elements scenario : feature.getElements()) {
+				for (Step step : scenario.getSteps()) {
+					Assert.assertEquals("skipped", step.getResult()
+							.getStatus());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testInjectedRegression() {
+		ReportGenerator generator = createGenerator();
+		generator.setStepDefinitions(5);
+		generator
+				.setDurationDistribution(ReportGenerator.DurationDistribution.FIXED);
+		String location = generator.getStepDefinitionLocation(2);
+		generator.addRegression(location, 3, 2.5);
+		List<Step> before = getSteps(
+				CucumberPerfUtils.getData(generator.generate(2)), location);
+		List<Step> after = getSteps(
+				CucumberPerfUtils.getData(generator.generate(3)), location);
+		Assert.assertFalse(before.isEmpty());
+		Assert.assertEquals(before.size(), after.size());
+		for (int i = 0; i < before.size(); i++) {
+			Assert.assertEquals(
+					before.get(i).getResult().getDuration() * 2.5, after
+							.get(i).getResult().getDuration(), 3.0);
+		}
+		String unaffected = generator.getStepDefinitionLocation(3);
+		Assert.assertEquals(
+				getSteps(CucumberPerfUtils.getData(generator.generate(2)),
+						unaffected).get(0).getResult().getDuration(),
+				getSteps(CucumberPerfUtils.getData(generator.generate(3)),
+						unaffected).get(0).getResult().getDuration());
+	}
+
+	@Test
+	public void testDurationDistributions() {
+		for (ReportGenerator.DurationDistribution distribution : ReportGenerator.DurationDistribution
+				.values()) {
+			ReportGenerator generator = createGenerator();
+			generator.setDurationDistribution(distribution);
+			generator.setMeanStepDuration(1000000l);
+			for (Feature feature : CucumberPerfUtils.getData(generator
+					.generate(1))) {
+				for (Elements scenario : feature.getElements()) {
+					for (Step step : scenario.getSteps()) {
+						long duration = step.getResult().getDuration();
+						Assert.assertTrue(duration > 0);
+						// the base durations are within half the mean
+						// either side, and the spread is 20%
+						Assert.assertTrue(distribution + " " + duration,
+								duration < 5000000l);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEmbeddingsHooksAndDataTables() throws IOException {
+		ReportGenerator generator = createGenerator();
+		generator.setHooks(true);
+		generator.setEmbeddingRatio(1.0);
+		generator.setEmbeddingBytes(3000);
+		generator.setDataTableRatio(1.0);
+		final List<Feature> features = new ArrayList<Feature>();
+		StreamingReportParser parser = new StreamingReportParser();
+		parser.parse(
+				new ByteArrayInputStream(generator.generate(1)
+						.getBytes("UTF-8")), new FeatureHandler() {
+					public void handleFeature(Feature feature) {
+						features.add(feature);
+					}
+				});
+		// 4000 characters of base64 for each of the 12 scenarios
+		Assert.assertTrue(parser.getBytesSkipped() > 12 * 4000);
+		Step step = features.get(0).getElements().get(0).getSteps().get(0);
+		Assert.assertEquals(3, ((List<?>) step.getAdditionalProperties().get(
+				"rows")).size());
+	}
+
+	@Test
+	public void testForksSplitFeatures() throws IOException {
+		ReportGenerator generator = createGenerator();
+		List<String> fileNames = Arrays.asList("cucumber-perf0.json",
+				"cucumber-perf1.json", "cucumber-perf2.json");
+		for (int fork = 0; fork < fileNames.size(); fork++) {
+			generator.write(new File(testFolder.getRoot(), fileNames.get(fork)),
+					7, fork, fileNames.size());
+		}
+		List<Feature> whole = CucumberPerfUtils.getData(generator.generate(7));
+		List<Feature> split = CucumberPerfUtils.getData(
+				fileNames.toArray(new String[0]), testFolder.getRoot());
+		Assert.assertEquals(whole.size(), split.size());
+		// fork 0 has features 0 and 3, fork 1 feature 1 and fork 2 feature 2
+		int[] order = { 0, 3, 1, 2 };
+		for (int i = 0; i < order.length; i++) {
+			Feature expected = whole.get(order[i]);
+			Feature actual = split.get(i);
+			Assert.assertEquals(expected.getId(), actual.getId());
+			Assert.assertEquals(expected.getElements().get(1).getSteps()
+					.get(2).getResult().getDuration(), actual.getElements()
+					.get(1).getSteps().get(2).getResult().getDuration());
+		}
+		new ParallelReportParser().parse(testFolder.getRoot(), fileNames,
+				new FeatureHandler() {
+					public void handleFeature(Feature feature) {
+						Assert.assertEquals(3, feature.getElements().size());
+					}
+				});
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.castlemon.jenkins.performance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hudson.model.AbstractProject;
+
+@SuppressWarnings("rawtypes")
+public class SummaryViewTest {
+
+	private AbstractProject project = Mockito.mock(AbstractProject.class);
+
+	private ProjectSummary projectSummary = new ProjectSummary();
+
+	private Summary overall;
+
+	private Summary feature;
+
+	private Summary scenario;
+
+	private Summary createSummary(SummaryType summaryType, String pageLink,
+			long elapsedTime) {
+		Summary summary = new Summary(pageLink);
+		summary.setSummaryType(summaryType);
+		summary.setName(pageLink);
+		for (int build = 1; build <= 10; build++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(build);
+			entry.setElapsedTime(elapsedTime);
+			entry.setPassed(true);
+			summary.addEntry(entry);
+		}
+		return summary;
+	}
+
+	@Before
+	public void setUp() {
+		Mockito.when(project.getUrl()).thenReturn("job/test/");
+		overall = createSummary(SummaryType.PROJECT, "project", 9000000000l);
+		feature = createSummary(SummaryType.FEATURE, "feature", 9000000000l);
+		scenario = createSummary(SummaryType.SCENARIO, "scenario",
+				3000000000l);
+		Map<String, Summary> features = new HashMap<String, Summary>();
+		features.put(feature.getPageLink(), feature);
+		Map<String, Summary> scenarios = new HashMap<String, Summary>();
+		scenarios.put(scenario.getPageLink(), scenario);
+		Map<String, List<String>> scenarioLinks = new HashMap<String, List<String>>();
+		scenarioLinks.put(feature.getPageLink(), Arrays.asList(scenario
+				.getPageLink()));
+		projectSummary.setOverallSummary(overall);
+		projectSummary.setFeatureSummaries(features);
+		projectSummary.setScenarioSummaries(scenarios);
+		projectSummary.setStepSummaries(new HashMap<String, Summary>());
+		projectSummary.setScenarioLinks(scenarioLinks);
+		projectSummary.setStepLinks(new HashMap<String, List<String>>());
+	}
+
+	private SummaryView createView(Summary summary, int graphPoints) {
+		return new SummaryView(summary, projectSummary, project,
+				"cucumber-perf-reports", graphPoints);
+	}
+
+	@Test
+	public void testSubSummaries() {
+		Assert.assertEquals(Arrays.asList(feature), createView(overall, 500)
+				.getSubSummaries());
+		Assert.assertEquals(Arrays.asList(scenario), createView(feature, 500)
+				.getSubSummaries());
+		Assert.assertTrue(createView(scenario, 500).getSubSummaries()
+				.isEmpty());
+	}
+
+	@Test
+	public void testPieChartData() throws Exception {
+		JsonNode slices = new ObjectMapper().readTree(createView(feature, 500)
+				.getPieChartData());
+		Assert.assertEquals(1, slices.size());
+		Assert.assertEquals("scenario", slices.get(0).get("name").asText());
+		Assert.assertEquals(3, slices.get(0).get("y").asInt());
+		Assert.assertEquals("job/test/cucumber-perf-reports/scenario/scenario",
+				slices.get(0).get("url").asText());
+	}
+
+	@Test
+	public void testGraphDataIsHeldToTheViewsPoints() throws Exception {
+		JsonNode points = new ObjectMapper().readTree(createView(overall, 4)
+				.getGraphData());
+		Assert.assertEquals(4, points.size());
+		Assert.assertEquals(10, new ObjectMapper().readTree(
+				createView(overall, 500).getGraphData()).size());
+	}
+
+}
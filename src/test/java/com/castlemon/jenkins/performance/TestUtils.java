@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.castlemon.jenkins.performance.domain.Elements;
+import com.castlemon.jenkins.performance.domain.Match;
 import com.castlemon.jenkins.performance.domain.Result;
 import com.castlemon.jenkins.performance.domain.Feature;
 import com.castlemon.jenkins.performance.domain.Step;
@@ -55,9 +56,12 @@ public class TestUtils {
 		Result result = new Result();
 		result.setStatus(outcome);
 		result.setDuration(3456l);
+		Match match = new Match();
+		match.setLocation("TestSteps.testStep()");
 		Step step = new Step();
 		step.setName("test step");
 		step.setResult(result);
+		step.setMatch(match);
 		return step;
 	}
 
@@ -0,0 +1,30 @@
+package com.castlemon.jenkins.performance.domain.enums;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+public class RankingMetricTest {
+
+	@Test
+	public void testFromLink() {
+		for (RankingMetric metric : RankingMetric.values()) {
+			Assert.assertEquals(metric, RankingMetric.fromLink(metric.getLink()));
+		}
+		Assert.assertEquals(RankingMetric.P95, RankingMetric.fromLink("p95"));
+		Assert.assertEquals(RankingMetric.AVERAGE, RankingMetric.fromLink(null));
+		Assert.assertEquals(RankingMetric.AVERAGE,
+				RankingMetric.fromLink("unknown"));
+	}
+
+	@Test
+	public void testGetValue() {
+		Summary summary = new Summary();
+		summary.setAverageDuration(250l);
+		Assert.assertEquals(250l, RankingMetric.AVERAGE.getValue(summary));
+		Assert.assertEquals(0l, RankingMetric.TOTAL.getValue(summary));
+		Assert.assertEquals(0l, RankingMetric.GROWTH.getValue(summary));
+	}
+
+}
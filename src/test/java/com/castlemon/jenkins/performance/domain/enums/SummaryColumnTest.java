@@ -0,0 +1,47 @@
+package com.castlemon.jenkins.performance.domain.enums;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+public class SummaryColumnTest {
+
+	@Test
+	public void testFromField() {
+		for (SummaryColumn column : SummaryColumn.values()) {
+			Assert.assertEquals(column,
+					SummaryColumn.fromField(column.getField()));
+		}
+		Assert.assertNull(SummaryColumn.fromField("keyword"));
+		Assert.assertNull(SummaryColumn.fromField(null));
+	}
+
+	@Test
+	public void testFromMetric() {
+		Summary summary = new Summary();
+		for (int build = 1; build <= 10; build++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(build);
+			entry.setElapsedTime(build * 100l);
+			entry.setPassed(true);
+			summary.addEntry(entry);
+		}
+		for (RankingMetric metric : RankingMetric.values()) {
+			Assert.assertEquals(metric.getValue(summary), SummaryColumn
+					.fromMetric(metric).getValue(summary));
+		}
+	}
+
+	@Test
+	public void testGetText() {
+		Summary summary = new Summary();
+		summary.setName("a step");
+		Assert.assertEquals("a step", SummaryColumn.NAME.getText(summary));
+		Assert.assertEquals("", SummaryColumn.SENIOR_NAME.getText(summary));
+		Assert.assertTrue(SummaryColumn.SENIOR_NAME.isText());
+		Assert.assertFalse(SummaryColumn.P99.isText());
+	}
+
+}
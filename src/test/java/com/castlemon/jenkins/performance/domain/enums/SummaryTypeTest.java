@@ -12,6 +12,7 @@ public class SummaryTypeTest {
 		Assert.assertFalse(SummaryType.FEATURE.hasSeniorSummaries());
 		Assert.assertTrue(SummaryType.SCENARIO.hasSeniorSummaries());
 		Assert.assertTrue(SummaryType.STEP.hasSeniorSummaries());
+		Assert.assertFalse(SummaryType.STEP_DEFINITION.hasSeniorSummaries());
 	}
 
 	@Test
@@ -20,6 +21,7 @@ public class SummaryTypeTest {
 		Assert.assertTrue(SummaryType.FEATURE.hasSubSummaries());
 		Assert.assertTrue(SummaryType.SCENARIO.hasSubSummaries());
 		Assert.assertFalse(SummaryType.STEP.hasSubSummaries());
+		Assert.assertFalse(SummaryType.STEP_DEFINITION.hasSubSummaries());
 	}
 
     @Test
@@ -28,6 +30,7 @@ public class SummaryTypeTest {
         Assert.assertEquals("Project", SummaryType.FEATURE.getSuperType());
         Assert.assertEquals("Feature", SummaryType.SCENARIO.getSuperType());
         Assert.assertEquals("Scenario", SummaryType.STEP.getSuperType());
+        Assert.assertEquals("Project", SummaryType.STEP_DEFINITION.getSuperType());
     }
 
     @Test
@@ -36,6 +39,7 @@ public class SummaryTypeTest {
         Assert.assertEquals("project", SummaryType.FEATURE.getSuperLink());
         Assert.assertEquals("feature", SummaryType.SCENARIO.getSuperLink());
         Assert.assertEquals("scenario", SummaryType.STEP.getSuperLink());
+        Assert.assertEquals("project", SummaryType.STEP_DEFINITION.getSuperLink());
     }
 
 	@Test
@@ -44,6 +48,7 @@ public class SummaryTypeTest {
         Assert.assertEquals("Scenario", SummaryType.FEATURE.getSubType());
         Assert.assertEquals("Step", SummaryType.SCENARIO.getSubType());
         Assert.assertEquals(null, SummaryType.STEP.getSubType());
+        Assert.assertEquals(null, SummaryType.STEP_DEFINITION.getSubType());
     }
 
 	@Test
@@ -52,6 +57,7 @@ public class SummaryTypeTest {
 		Assert.assertEquals("Step", SummaryType.FEATURE.getSubSubType());
 		Assert.assertEquals(null, SummaryType.SCENARIO.getSubSubType());
 		Assert.assertEquals(null, SummaryType.STEP.getSubSubType());
+		Assert.assertEquals(null, SummaryType.STEP_DEFINITION.getSubSubType());
 	}
 
 	@Test
@@ -60,6 +66,16 @@ public class SummaryTypeTest {
 		Assert.assertEquals("scenario", SummaryType.FEATURE.getSubLink());
 		Assert.assertEquals("step", SummaryType.SCENARIO.getSubLink());
 		Assert.assertEquals(null, SummaryType.STEP.getSubLink());
+		Assert.assertEquals(null, SummaryType.STEP_DEFINITION.getSubLink());
+	}
+
+	@Test
+	public void testGetLink() {
+		Assert.assertEquals("project", SummaryType.PROJECT.getLink());
+		Assert.assertEquals("feature", SummaryType.FEATURE.getLink());
+		Assert.assertEquals("scenario", SummaryType.SCENARIO.getLink());
+		Assert.assertEquals("step", SummaryType.STEP.getLink());
+		Assert.assertEquals("stepdefinition", SummaryType.STEP_DEFINITION.getLink());
 	}
 
 	@Test
@@ -68,6 +84,7 @@ public class SummaryTypeTest {
 		Assert.assertEquals("Feature", SummaryType.FEATURE.toString());
 		Assert.assertEquals("Scenario", SummaryType.SCENARIO.toString());
 		Assert.assertEquals("Step", SummaryType.STEP.toString());
+		Assert.assertEquals("Step Definition", SummaryType.STEP_DEFINITION.toString());
 	}
 
 }
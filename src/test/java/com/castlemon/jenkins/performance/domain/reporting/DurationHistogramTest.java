@@ -0,0 +1,98 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DurationHistogramTest {
+
+	@Test
+	public void testEmptyHistogram() {
+		DurationHistogram histogram = new DurationHistogram();
+		Assert.assertEquals(0l, histogram.getPercentile(50));
+		Assert.assertEquals(0l, histogram.getMinimum());
+		Assert.assertEquals(0l, histogram.getTotalCount());
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		DurationHistogram histogram = new DurationHistogram();
+		for (long i = 1; i <= 10; i++) {
+			histogram.recordValue(i);
+		}
+		Assert.assertEquals(5l, histogram.getPercentile(50));
+		Assert.assertEquals(9l, histogram.getPercentile(90));
+		Assert.assertEquals(10l, histogram.getPercentile(99));
+		Assert.assertEquals(1l, histogram.getPercentile(0));
+	}
+
+	@Test
+	public void testPercentilesWithinOnePercent() {
+		DurationHistogram histogram = new DurationHistogram();
+		// one to a thousand seconds, in nanoseconds
+		for (long i = 1; i <= 1000; i++) {
+			histogram.recordValue(i * 1000000000l);
+		}
+		assertWithinOnePercent(500000000000l, histogram.getPercentile(50));
+		assertWithinOnePercent(900000000000l, histogram.getPercentile(90));
+		assertWithinOnePercent(950000000000l, histogram.getPercentile(95));
+		assertWithinOnePercent(990000000000l, histogram.getPercentile(99));
+		Assert.assertEquals(1000000000000l, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testMergeMatchesSingleHistogram() {
+		Random random = new Random(42);
+		DurationHistogram all = new DurationHistogram();
+		DurationHistogram first = new DurationHistogram();
+		DurationHistogram second = new DurationHistogram();
+		for (int i = 0; i < 500; i++) {
+			long value = (long) (random.nextDouble() * 50000000000l);
+			all.recordValue(value);
+			if (i % 2 == 0) {
+				first.recordValue(value);
+			} else {
+				second.recordValue(value);
+			}
+		}
+		first.merge(second);
+		Assert.assertEquals(all.getTotalCount(), first.getTotalCount());
+		Assert.assertArrayEquals(all.getBuckets(), first.getBuckets());
+		Assert.assertArrayEquals(all.getCounts(), first.getCounts());
+		Assert.assertEquals(all.getPercentile(95), first.getPercentile(95));
+	}
+
+	@Test
+	public void testRestore() {
+		DurationHistogram histogram = new DurationHistogram();
+		histogram.recordValue(120l);
+		histogram.recordValue(7000000l);
+		histogram.recordValue(7000001l);
+		DurationHistogram restored = DurationHistogram.restore(
+				histogram.getBuckets(), histogram.getCounts(),
+				histogram.getMinimum(), histogram.getMaximum());
+		Assert.assertEquals(3l, restored.getTotalCount());
+		Assert.assertEquals(120l, restored.getMinimum());
+		Assert.assertEquals(histogram.getPercentile(50),
+				restored.getPercentile(50));
+	}
+
+	@Test
+	public void testBucketBoundaries() {
+		for (long value : new long[] { 0l, 63l, 64l, 65l, 127l, 128l,
+				1000000l, Long.MAX_VALUE }) {
+			int bucket = DurationHistogram.bucketIndex(value);
+			Assert.assertTrue(DurationHistogram.bucketLowerBound(bucket) <= value);
+			Assert.assertTrue(bucket == 0
+					|| DurationHistogram.bucketLowerBound(bucket) > DurationHistogram
+							.bucketLowerBound(bucket - 1));
+		}
+	}
+
+	private void assertWithinOnePercent(long expected, long actual) {
+		Assert.assertTrue(actual + " is not near " + expected,
+				Math.abs(actual - expected) <= expected / 100);
+	}
+
+}
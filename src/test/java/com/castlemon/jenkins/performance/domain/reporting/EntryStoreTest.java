@@ -0,0 +1,108 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntryStoreTest {
+
+	private PerformanceEntry generateEntry(int buildNumber, boolean passed) {
+		PerformanceEntry entry = new PerformanceEntry();
+		entry.setBuildNumber(buildNumber);
+		entry.setElapsedTime(buildNumber * 1000l);
+		entry.setRunDate(buildNumber % 2 == 0 ? new Date(buildNumber * 60000l)
+				: null);
+		entry.setPassedSteps(buildNumber);
+		entry.setFailedSteps(passed ? 0 : 1);
+		entry.setSkippedSteps(2);
+		entry.setPassed(passed);
+		return entry;
+	}
+
+	@Test
+	public void testAddAndGet() {
+		EntryStore store = new EntryStore(1);
+		for (int i = 1; i <= 20; i++) {
+			store.add(generateEntry(i, i % 3 != 0));
+		}
+		Assert.assertEquals(20, store.size());
+		PerformanceEntry entry = store.get(3);
+		Assert.assertEquals(4, entry.getBuildNumber());
+		Assert.assertEquals(4000l, entry.getElapsedTime());
+		Assert.assertEquals(new Date(240000l), entry.getRunDate());
+		Assert.assertEquals(4, entry.getPassedSteps());
+		Assert.assertEquals(0, entry.getFailedSteps());
+		Assert.assertEquals(2, entry.getSkippedSteps());
+		Assert.assertTrue(entry.isPassed());
+		Assert.assertNull(store.get(4).getRunDate());
+		Assert.assertFalse(store.hasRunDate(4));
+		Assert.assertFalse(store.isPassed(2));
+		Assert.assertEquals(1, store.getFailedSteps(2));
+		Assert.assertEquals(20, store.getBuildNumber(19));
+	}
+
+	@Test
+	public void testEntriesAreCopied() {
+		EntryStore store = new EntryStore();
+		PerformanceEntry entry = generateEntry(1, true);
+		store.add(entry);
+		entry.setElapsedTime(5l);
+		Assert.assertEquals(1000l, store.getElapsedTime(0));
+		store.get(0).setElapsedTime(5l);
+		Assert.assertEquals(1000l, store.getElapsedTime(0));
+		store.set(0, entry);
+		Assert.assertEquals(5l, store.getElapsedTime(0));
+	}
+
+	@Test
+	public void testFromList() {
+		List<PerformanceEntry> entries = new ArrayList<PerformanceEntry>();
+		entries.add(generateEntry(1, true));
+		entries.add(generateEntry(2, false));
+		EntryStore store = new EntryStore(entries);
+		Assert.assertEquals(2, store.size());
+		Assert.assertTrue(store.isPassed(0));
+		Assert.assertFalse(store.isPassed(1));
+		int count = 0;
+		for (PerformanceEntry entry : store) {
+			count++;
+			Assert.assertEquals(count, entry.getBuildNumber());
+		}
+		Assert.assertEquals(2, count);
+	}
+
+	@Test
+	public void testAddAll() {
+		EntryStore earlier = new EntryStore();
+		earlier.add(generateEntry(1, false));
+		earlier.add(generateEntry(2, true));
+		EntryStore later = new EntryStore();
+		later.add(generateEntry(3, true));
+		later.add(generateEntry(4, false));
+		earlier.addAll(later);
+		Assert.assertEquals(4, earlier.size());
+		Assert.assertFalse(earlier.isPassed(0));
+		Assert.assertTrue(earlier.isPassed(1));
+		Assert.assertTrue(earlier.isPassed(2));
+		Assert.assertFalse(earlier.isPassed(3));
+		Assert.assertEquals(4000l, earlier.getElapsedTime(3));
+		earlier.trimToSize();
+		Assert.assertEquals(4, earlier.size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAddOutOfOrder() {
+		EntryStore store = new EntryStore();
+		store.add(generateEntry(1, true));
+		store.add(0, generateEntry(2, true));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfRange() {
+		new EntryStore().getElapsedTime(0);
+	}
+
+}
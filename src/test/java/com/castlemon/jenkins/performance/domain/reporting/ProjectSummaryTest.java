@@ -6,6 +6,10 @@ import org.junit.Test;
 
 import java.util.*;
 
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryColumn;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+
 public class ProjectSummaryTest {
 
 	@Test
@@ -112,10 +116,9 @@ public class ProjectSummaryTest {
 		featureSummaries.put("summary1", summary1);
 		featureSummaries.put("summary2", summary2);
 		ProjectSummary projectSummary = new ProjectSummary();
-        projectSummary.setNumberOfSummariesToDisplay(5);
 		projectSummary.setFeatureSummaries(featureSummaries);
 		Collection<Summary> features = projectSummary
-				.getSortedFeatureSummaryList();
+				.getSortedFeatureSummaryList(5);
 		Assert.assertEquals(2, features.size());
 		Assert.assertTrue(features.contains(summary1));
 		Assert.assertTrue(features.contains(summary2));
@@ -152,10 +155,9 @@ public class ProjectSummaryTest {
         scenarioSummaries.put("summary1", summary1);
         scenarioSummaries.put("summary2", summary2);
         ProjectSummary projectSummary = new ProjectSummary();
-        projectSummary.setNumberOfSummariesToDisplay(1);
         projectSummary.setScenarioSummaries(scenarioSummaries);
         Collection<Summary> scenarios = projectSummary
-                .getSortedScenarioSummaryList();
+                .getSortedScenarioSummaryList(1);
         Assert.assertEquals(1, scenarios.size());
         Assert.assertTrue(scenarios.contains(summary2));
     }
@@ -191,13 +193,211 @@ public class ProjectSummaryTest {
         stepSummaries.put("summary1", summary1);
         stepSummaries.put("summary2", summary2);
         ProjectSummary projectSummary = new ProjectSummary();
-        projectSummary.setNumberOfSummariesToDisplay(5);
         projectSummary.setStepSummaries(stepSummaries);
         Collection<Summary> steps = projectSummary
-                .getSortedStepSummaryList();
+                .getSortedStepSummaryList(5);
         Assert.assertEquals(2, steps.size());
         Assert.assertTrue(steps.contains(summary1));
         Assert.assertTrue(steps.contains(summary2));
     }
 
+	@Test
+	public void testGetRecentRegressions() {
+		Summary overall = new Summary();
+		PerformanceEntry entry = new PerformanceEntry();
+		entry.setBuildNumber(40);
+		overall.addEntry(entry);
+		Summary old = new Summary();
+		old.setChangePoints(Arrays.asList(new ChangePoint(25, 100l, 200l)));
+		Summary recent = new Summary();
+		recent.setChangePoints(Arrays.asList(new ChangePoint(35, 100l, 120l)));
+		Summary worse = new Summary();
+		worse.setChangePoints(Arrays.asList(new ChangePoint(35, 100l, 300l)));
+		Summary latest = new Summary();
+		latest.setChangePoints(Arrays.asList(new ChangePoint(38, 100l, 150l)));
+		Summary faster = new Summary();
+		faster.setChangePoints(Arrays.asList(new ChangePoint(39, 200l, 100l)));
+		Map<String, Summary> featureSummaries = new HashMap<String, Summary>();
+		featureSummaries.put("old", old);
+		featureSummaries.put("recent", recent);
+		featureSummaries.put("faster", faster);
+		Map<String, Summary> stepSummaries = new HashMap<String, Summary>();
+		stepSummaries.put("worse", worse);
+		stepSummaries.put("latest", latest);
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setOverallSummary(overall);
+		projectSummary.setFeatureSummaries(featureSummaries);
+		projectSummary.setScenarioSummaries(new HashMap<String, Summary>());
+		projectSummary.setStepSummaries(stepSummaries);
+		List<Summary> regressions = projectSummary.getRecentRegressions(0);
+		Assert.assertEquals(3, regressions.size());
+		Assert.assertSame(latest, regressions.get(0));
+		Assert.assertSame(worse, regressions.get(1));
+		Assert.assertSame(recent, regressions.get(2));
+		Assert.assertEquals(1, projectSummary.getRecentRegressions(1).size());
+	}
+
+	private Summary createStep(String pageLink, String scenarioId, int order) {
+		Summary step = new Summary(pageLink);
+		step.setSeniorId(scenarioId);
+		step.setOrder(order);
+		return step;
+	}
+
+	@Test
+	public void testGetSteps() {
+		Summary scenario = new Summary("scenario");
+		scenario.setId("feature;scenario");
+		Map<String, Summary> stepSummaries = new HashMap<String, Summary>();
+		stepSummaries.put("step1", createStep("step1", "feature;scenario", 1));
+		stepSummaries.put("step2", createStep("step2", "feature;scenario", 2));
+		stepSummaries.put("other", createStep("other", "feature;other", 1));
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setStepSummaries(stepSummaries);
+		// without the links the steps are searched for
+		List<Summary> steps = projectSummary.getSteps(scenario);
+		Assert.assertEquals(2, steps.size());
+		Assert.assertEquals("step1", steps.get(0).getPageLink());
+		Assert.assertEquals("step2", steps.get(1).getPageLink());
+		Map<String, List<String>> stepLinks = new HashMap<String, List<String>>();
+		stepLinks.put("scenario", Arrays.asList("step2", "step1"));
+		projectSummary.setStepLinks(stepLinks);
+		steps = projectSummary.getSteps(scenario);
+		Assert.assertEquals(2, steps.size());
+		Assert.assertEquals("step2", steps.get(0).getPageLink());
+		Assert.assertEquals("step1", steps.get(1).getPageLink());
+		Assert.assertTrue(projectSummary.getSteps(new Summary("unknown"))
+				.isEmpty());
+	}
+
+	@Test
+	public void testGetScenarios() {
+		Summary feature = new Summary("feature");
+		Map<String, Summary> scenarioSummaries = new HashMap<String, Summary>();
+		scenarioSummaries.put("scenario", createStep("scenario", "f", 1));
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setScenarioSummaries(scenarioSummaries);
+		Map<String, List<String>> scenarioLinks = new HashMap<String, List<String>>();
+		scenarioLinks.put("feature", Arrays.asList("scenario"));
+		projectSummary.setScenarioLinks(scenarioLinks);
+		Assert.assertSame(scenarioSummaries.get("scenario"), projectSummary
+				.getScenarios(feature).get(0));
+	}
+
+	@Test
+	public void testSortedListsComeFromTheRankings() {
+		Map<String, Summary> stepSummaries = new HashMap<String, Summary>();
+		for (long duration = 1; duration <= 3; duration++) {
+			Summary step = new Summary("step" + duration);
+			step.setAverageDuration(duration * 100);
+			stepSummaries.put(step.getPageLink(), step);
+		}
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setStepSummaries(stepSummaries);
+		List<Summary> sorted = projectSummary
+				.getSortedStepSummaryList(RankingMetric.AVERAGE, 2);
+		Assert.assertEquals("step3", sorted.get(0).getPageLink());
+		Assert.assertEquals("step2", sorted.get(1).getPageLink());
+		// a ranking made when the report was generated is used as it stands
+		Map<RankingMetric, List<String>> stepRankings = new EnumMap<RankingMetric, List<String>>(
+				RankingMetric.class);
+		stepRankings.put(RankingMetric.AVERAGE, Arrays.asList("step1", "step3"));
+		stepRankings.put(RankingMetric.TOTAL, Arrays.asList("step2"));
+		Map<SummaryType, Map<RankingMetric, List<String>>> rankings = new EnumMap<SummaryType, Map<RankingMetric, List<String>>>(
+				SummaryType.class);
+		rankings.put(SummaryType.STEP, stepRankings);
+		projectSummary.setRankings(rankings);
+		sorted = projectSummary.getSortedStepSummaryList(RankingMetric.AVERAGE, 2);
+		Assert.assertEquals("step1", sorted.get(0).getPageLink());
+		Assert.assertEquals("step3", sorted.get(1).getPageLink());
+		// but not one too short for the number to display
+		sorted = projectSummary.getSortedStepSummaryList(RankingMetric.TOTAL, 2);
+		Assert.assertEquals(2, sorted.size());
+		Assert.assertEquals("step1", sorted.get(0).getPageLink());
+		Assert.assertEquals("step2", sorted.get(1).getPageLink());
+	}
+
+	@Test
+	public void testGetSortedIndex() {
+		Map<String, Summary> stepSummaries = new HashMap<String, Summary>();
+		String[] names = { "b step", "A step", "c step", "a step" };
+		for (int i = 0; i < names.length; i++) {
+			Summary step = new Summary("step" + i);
+			step.setName(names[i]);
+			step.setAverageDuration(i % 2 * 100l);
+			stepSummaries.put(step.getPageLink(), step);
+		}
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setStepSummaries(stepSummaries);
+		List<Summary> byName = projectSummary.getSortedIndex(SummaryType.STEP,
+				SummaryColumn.NAME);
+		// names are compared ignoring case, and then by page link
+		Assert.assertEquals("step1", byName.get(0).getPageLink());
+		Assert.assertEquals("step3", byName.get(1).getPageLink());
+		Assert.assertEquals("step0", byName.get(2).getPageLink());
+		Assert.assertEquals("step2", byName.get(3).getPageLink());
+		Assert.assertSame(byName, projectSummary.getSortedIndex(
+				SummaryType.STEP, SummaryColumn.NAME));
+		List<Summary> byAverage = projectSummary.getSortedIndex(
+				SummaryType.STEP, SummaryColumn.AVERAGE);
+		Assert.assertEquals("step0", byAverage.get(0).getPageLink());
+		Assert.assertEquals("step2", byAverage.get(1).getPageLink());
+		Assert.assertEquals("step1", byAverage.get(2).getPageLink());
+		Assert.assertEquals("step3", byAverage.get(3).getPageLink());
+		// new summaries are sorted afresh
+		projectSummary.setStepSummaries(new HashMap<String, Summary>());
+		Assert.assertTrue(projectSummary.getSortedIndex(SummaryType.STEP,
+				SummaryColumn.NAME).isEmpty());
+		Assert.assertTrue(projectSummary.getSortedIndex(
+				SummaryType.STEP_DEFINITION, SummaryColumn.NAME).isEmpty());
+	}
+
+	@Test
+	public void testPrecalculateSortsTheRankingColumns() {
+		Map<String, Summary> stepSummaries = new HashMap<String, Summary>();
+		for (int i = 0; i < 3; i++) {
+			Summary step = new Summary("step" + i);
+			step.setName("step " + i);
+			stepSummaries.put(step.getPageLink(), step);
+		}
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setStepSummaries(stepSummaries);
+		Assert.assertEquals(0l, projectSummary.getSortedIndexLength());
+		projectSummary.precalculate();
+		// one index for each ranking metric's column
+		Assert.assertEquals(3l * RankingMetric.values().length,
+				projectSummary.getSortedIndexLength());
+		List<Summary> byTotal = projectSummary.getSortedIndex(
+				SummaryType.STEP, SummaryColumn.TOTAL);
+		projectSummary.getSortedIndex(SummaryType.STEP, SummaryColumn.NAME);
+		Assert.assertEquals(3l * (RankingMetric.values().length + 1),
+				projectSummary.getSortedIndexLength());
+		Assert.assertSame(byTotal, projectSummary.getSortedIndex(
+				SummaryType.STEP, SummaryColumn.TOTAL));
+	}
+
+	@Test
+	public void testGetSortedStepDefinitionSummaryList() {
+		ProjectSummary projectSummary = new ProjectSummary();
+		Assert.assertTrue(projectSummary.getSortedStepDefinitionSummaryList(2)
+				.isEmpty());
+		Map<String, StepDefinitionSummary> stepDefinitions = new HashMap<String, StepDefinitionSummary>();
+		for (long duration = 1; duration <= 3; duration++) {
+			StepDefinitionSummary stepDefinition = new StepDefinitionSummary();
+			stepDefinition.setId("Steps.step" + duration + "()");
+			stepDefinition.setAverageDuration(duration * 100);
+			stepDefinitions.put(stepDefinition.getPageLink(), stepDefinition);
+		}
+		projectSummary.setStepDefinitionSummaries(stepDefinitions);
+		List<StepDefinitionSummary> sorted = new ArrayList<StepDefinitionSummary>(
+				projectSummary.getSortedStepDefinitionSummaryList(2));
+		Assert.assertEquals(2, sorted.size());
+		Assert.assertEquals(300, sorted.get(0).getAverageDuration());
+		Assert.assertEquals(200, sorted.get(1).getAverageDuration());
+		projectSummary.setFeatureSummaries(new HashMap<String, Summary>());
+		projectSummary.setScenarioSummaries(new HashMap<String, Summary>());
+		projectSummary.setStepSummaries(new HashMap<String, Summary>());
+		Assert.assertEquals(3, projectSummary.assembleAllSummaries().size());
+	}
+
 }
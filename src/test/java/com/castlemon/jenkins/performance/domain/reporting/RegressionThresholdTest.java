@@ -0,0 +1,69 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+
+public class RegressionThresholdTest {
+
+	@Test
+	public void testParseThresholds() {
+		List<RegressionThreshold> thresholds = RegressionThreshold
+				.parseThresholds("step 50 100% I log in as .*\n\n  Project 20 -  \r\n");
+		Assert.assertEquals(2, thresholds.size());
+		RegressionThreshold step = thresholds.get(0);
+		Assert.assertEquals(SummaryType.STEP, step.getSummaryType());
+		Assert.assertEquals(50.0, step.getUnstablePercentage(), 0);
+		Assert.assertEquals(100.0, step.getFailurePercentage(), 0);
+		Assert.assertEquals("I log in as .*", step.getIdPattern());
+		RegressionThreshold project = thresholds.get(1);
+		Assert.assertEquals(SummaryType.PROJECT, project.getSummaryType());
+		Assert.assertEquals(0.0, project.getFailurePercentage(), 0);
+		Assert.assertNull(project.getIdPattern());
+	}
+
+	@Test
+	public void testParseBlank() {
+		Assert.assertTrue(RegressionThreshold.parseThresholds(null).isEmpty());
+		Assert.assertTrue(RegressionThreshold.parseThresholds(" \n").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseUnknownLevel() {
+		RegressionThreshold.parseThresholds("build 10 20");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseTooFewParts() {
+		RegressionThreshold.parseThresholds("step 10");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseBadPercentage() {
+		RegressionThreshold.parseThresholds("step ten 20");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseBadPattern() {
+		RegressionThreshold.parseThresholds("step 10 20 (unclosed");
+	}
+
+	@Test
+	public void testAppliesTo() {
+		RegressionThreshold threshold = new RegressionThreshold(
+				SummaryType.SCENARIO, "login;.*", 10, 0);
+		Summary summary = new Summary();
+		summary.setSummaryType(SummaryType.SCENARIO);
+		summary.setId("login;valid-user");
+		Assert.assertTrue(threshold.appliesTo(summary));
+		summary.setId("logout;valid-user");
+		Assert.assertFalse(threshold.appliesTo(summary));
+		summary.setId("login;valid-user");
+		summary.setSummaryType(SummaryType.FEATURE);
+		Assert.assertFalse(threshold.appliesTo(summary));
+	}
+
+}
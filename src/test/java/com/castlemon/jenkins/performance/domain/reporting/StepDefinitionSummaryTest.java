@@ -0,0 +1,70 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+
+public class StepDefinitionSummaryTest {
+
+	@Test
+	public void testConstructors() {
+		Assert.assertEquals(SummaryType.STEP_DEFINITION,
+				new StepDefinitionSummary().getSummaryType());
+		StepDefinitionSummary restored = new StepDefinitionSummary("link");
+		Assert.assertEquals("link", restored.getPageLink());
+		Assert.assertEquals(SummaryType.STEP_DEFINITION,
+				restored.getSummaryType());
+	}
+
+	@Test
+	public void testCallStatistics() {
+		StepDefinitionSummary summary = new StepDefinitionSummary();
+		Assert.assertEquals(0l, summary.getAverageCallDuration());
+		for (int i = 1; i <= 100; i++) {
+			summary.recordPassedCall("scenario" + (i % 4), "Scenario", i);
+		}
+		Assert.assertEquals(50l, summary.getAverageCallDuration());
+		Assert.assertEquals(50l, summary.getCallP50Duration());
+		Assert.assertEquals(90l, summary.getCallP90Duration());
+		Assert.assertEquals(99l, summary.getCallP99Duration());
+		Assert.assertEquals("50 ns", summary.getFormattedAverageCallDuration());
+	}
+
+	@Test
+	public void testTopCallers() {
+		StepDefinitionSummary summary = new StepDefinitionSummary();
+		for (int i = 0; i < 8; i++) {
+			summary.recordPassedCall("scenario" + i, "Scenario " + i, i * 10);
+		}
+		summary.recordPassedCall("scenario1", "Scenario 1", 1000);
+		summary.recordPassedCall(null, "Unnamed", 500);
+		List<StepDefinitionCaller> topCallers = summary.getTopCallers();
+		Assert.assertEquals(StepDefinitionSummary.TOP_CALLERS,
+				topCallers.size());
+		Assert.assertEquals("Scenario 1", topCallers.get(0).getScenarioName());
+		Assert.assertEquals(2, topCallers.get(0).getCalls());
+		Assert.assertEquals(1010l, topCallers.get(0).getTotalDuration());
+		Assert.assertEquals("Unnamed", topCallers.get(1).getScenarioName());
+		Assert.assertEquals("Scenario 7", topCallers.get(2).getScenarioName());
+	}
+
+	@Test
+	public void testTotalDuration() {
+		StepDefinitionSummary summary = new StepDefinitionSummary();
+		Assert.assertEquals(0l, summary.getTotalDuration());
+		for (int i = 1; i <= 3; i++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(i);
+			entry.setElapsedTime(i * 1000l);
+			summary.addEntry(entry);
+		}
+		summary.addToPassedSteps(4);
+		summary.addToFailedSteps(1);
+		Assert.assertEquals(6000l, summary.getTotalDuration());
+		Assert.assertEquals(5, summary.getTotalCalls());
+	}
+
+}
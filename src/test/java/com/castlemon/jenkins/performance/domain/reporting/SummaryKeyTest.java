@@ -0,0 +1,39 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SummaryKeyTest {
+
+	@Test
+	public void testEquals() {
+		SummaryKey key = new SummaryKey("feature", "scenario");
+		Assert.assertEquals(key, new SummaryKey(new String("feature"),
+				new String("scenario")));
+		Assert.assertEquals(key.hashCode(), new SummaryKey("feature",
+				"scenario").hashCode());
+		Assert.assertFalse(key.equals(new SummaryKey("scenario", "feature")));
+		Assert.assertFalse(key.equals("featurescenario"));
+		Assert.assertEquals(new SummaryKey(null, "step"), new SummaryKey(null,
+				"step"));
+	}
+
+	@Test
+	public void testNoAmbiguousConcatenation() {
+		// these were the same key when the ids were simply joined
+		Assert.assertFalse(new SummaryKey("ab", "c").equals(new SummaryKey(
+				"a", "bc")));
+	}
+
+	@Test
+	public void testOf() {
+		Summary summary = new Summary();
+		summary.setSeniorId("feature");
+		summary.setId("scenario");
+		SummaryKey key = SummaryKey.of(summary);
+		Assert.assertEquals("feature", key.getSeniorId());
+		Assert.assertEquals("scenario", key.getId());
+		Assert.assertEquals("feature/scenario", key.toString());
+	}
+
+}
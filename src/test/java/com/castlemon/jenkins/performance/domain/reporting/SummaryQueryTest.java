@@ -0,0 +1,109 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+
+public class SummaryQueryTest {
+
+	private SummaryQuery query = new SummaryQuery();
+
+	@Test
+	public void testDefaults() {
+		query.setLimit(null);
+		query.setFields(" ");
+		query.setSort(null);
+		Assert.assertEquals(SummaryQuery.DEFAULT_LIMIT, query.getLimit());
+		Assert.assertEquals(new LinkedHashSet<String>(
+				SummaryQuery.DEFAULT_FIELDS), query.getFields());
+		Assert.assertNull(query.getMetric());
+		Assert.assertFalse(query.isDescending());
+		Assert.assertFalse(query.hasBuildRange());
+		Assert.assertTrue(query.matchesName("anything"));
+		Assert.assertTrue(SummaryQuery.FIELDS
+				.containsAll(SummaryQuery.DEFAULT_FIELDS));
+	}
+
+	@Test
+	public void testLimit() {
+		query.setLimit(" 25 ");
+		Assert.assertEquals(25, query.getLimit());
+		for (String limit : Arrays.asList("0", "1001", "ten")) {
+			try {
+				query.setLimit(limit);
+				Assert.fail(limit + " should be refused");
+			} catch (IllegalArgumentException e) {
+				Assert.assertTrue(e.getMessage().startsWith("limit"));
+			}
+		}
+	}
+
+	@Test
+	public void testFields() {
+		query.setFields("name, entries,,name");
+		Assert.assertEquals(new LinkedHashSet<String>(Arrays.asList("name",
+				"entries")), query.getFields());
+		Assert.assertTrue(query.hasField("entries"));
+		Assert.assertFalse(query.hasField("id"));
+		try {
+			query.setFields("name,colour");
+			Assert.fail("an unknown field should be refused");
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("unknown field 'colour'", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSortAndOrder() {
+		query.setSort("P95");
+		Assert.assertEquals(RankingMetric.P95, query.getMetric());
+		Assert.assertTrue(query.isDescending());
+		query.setSort("name");
+		Assert.assertNull(query.getMetric());
+		Assert.assertFalse(query.isDescending());
+		query = new SummaryQuery();
+		query.setOrder("asc");
+		query.setSort("growth");
+		Assert.assertFalse(query.isDescending());
+		try {
+			query.setSort("colour");
+			Assert.fail("an unknown sort should be refused");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			query.setOrder("up");
+			Assert.fail("an unknown order should be refused");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testFilters() {
+		query.setName(" Log On ");
+		Assert.assertTrue(query.matchesName("User can log on twice"));
+		Assert.assertFalse(query.matchesName("User logs on"));
+		Assert.assertFalse(query.matchesName(null));
+		query.setTags(new String[] { "smoke", " @slow", "" });
+		Assert.assertEquals(Arrays.asList("@smoke", "@slow"), query.getTags());
+		query.setFromBuild("3");
+		query.setToBuild("5");
+		Assert.assertTrue(query.hasBuildRange());
+		Assert.assertFalse(query.isInBuildRange(2));
+		Assert.assertTrue(query.isInBuildRange(3));
+		Assert.assertTrue(query.isInBuildRange(5));
+		Assert.assertFalse(query.isInBuildRange(6));
+		try {
+			query.setToBuild("last");
+			Assert.fail("a build number should be a number");
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("toBuild"));
+		}
+	}
+
+}
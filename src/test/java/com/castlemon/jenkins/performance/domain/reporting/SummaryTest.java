@@ -8,6 +8,10 @@ import junit.framework.Assert;
 import org.agileware.test.PropertiesTester;
 import org.junit.Test;
 
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.util.PageLinks;
+import com.castlemon.jenkins.performance.util.SeriesDownsampler;
+
 public class SummaryTest {
 
 	Summary projectSummary = new Summary();
@@ -67,8 +71,70 @@ public class SummaryTest {
 	@Test
 	public void testGetPageLink() {
 		Summary summary = new Summary();
+		summary.setSummaryType(SummaryType.SCENARIO);
+		summary.setSeniorId("feature");
+		summary.setId("feature;scenario");
 		String pageLink = summary.getPageLink();
-		Assert.assertEquals(10, pageLink.length());
+		Assert.assertEquals(PageLinks.LINK_LENGTH, pageLink.length());
+		Assert.assertEquals(PageLinks.getPageLink(SummaryType.SCENARIO,
+				"feature", "feature;scenario"), pageLink);
+		summary.setPageLink("assigned");
+		Assert.assertEquals("assigned", summary.getPageLink());
+	}
+
+	private Summary createSummary(long... elapsedTimes) {
+		Summary summary = new Summary();
+		List<PerformanceEntry> entries = new ArrayList<PerformanceEntry>();
+		for (int i = 0; i < elapsedTimes.length; i++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(i + 1);
+			entry.setElapsedTime(elapsedTimes[i]);
+			entry.setPassed(true);
+			entries.add(entry);
+		}
+		summary.setEntries(entries);
+		return summary;
+	}
+
+	@Test
+	public void testZeroAverageIsCached() {
+		Summary summary = createSummary(400l, 400l);
+		summary.setAverageDuration(0l);
+		Assert.assertEquals(0l, summary.calculateAverageDuration());
+		// a change to the entries discards it
+		PerformanceEntry entry = new PerformanceEntry();
+		entry.setBuildNumber(3);
+		entry.setElapsedTime(200l);
+		entry.setPassed(true);
+		summary.addEntry(entry);
+		Assert.assertEquals(333l, summary.calculateAverageDuration());
+	}
+
+	@Test
+	public void testGetTotalDuration() {
+		Assert.assertEquals(0l, new Summary().getTotalDuration());
+		Assert.assertEquals(600l, createSummary(100l, 200l, 300l)
+				.getTotalDuration());
+	}
+
+	@Test
+	public void testGetGrowthDuration() {
+		Assert.assertEquals(0l, new Summary().getGrowthDuration());
+		Assert.assertEquals(0l, createSummary(100l).getGrowthDuration());
+		// the first and last of three
+		Assert.assertEquals(200l, createSummary(100l, 900l, 300l)
+				.getGrowthDuration());
+		Assert.assertEquals(-150l, createSummary(300l, 200l, 100l, 100l)
+				.getGrowthDuration());
+		Assert.assertEquals("-150 ns", createSummary(300l, 200l, 100l, 100l)
+				.getFormattedGrowthDuration());
+		long[] elapsedTimes = new long[30];
+		for (int i = 0; i < elapsedTimes.length; i++) {
+			elapsedTimes[i] = i < 20 ? 100l : 400l;
+		}
+		// ten builds at either end
+		Assert.assertEquals(300l, createSummary(elapsedTimes)
+				.getGrowthDuration());
 	}
 
 	@Test
@@ -216,4 +282,161 @@ public class SummaryTest {
 				projectSummary.getAverageData());
 	}
 
+	@Test
+	public void testBuildGraphDataIsDownsampled() {
+		Summary summary = new Summary();
+		for (int build = 1; build <= 5000; build++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(build);
+			// one slow build in the middle of a steady history
+			entry.setElapsedTime(build == 2500 ? 90000000000l : 5000000000l);
+			entry.setPassed(true);
+			summary.addEntry(entry);
+		}
+		String graphData = summary.getGraphData(0, Integer.MAX_VALUE, 100);
+		Assert.assertEquals(100, graphData.split("\\],\\[").length);
+		Assert.assertTrue(graphData.startsWith("[[1,5],"));
+		Assert.assertTrue(graphData.contains("[2500,90]"));
+		Assert.assertTrue(graphData.endsWith(",[5000,5]]"));
+		// a zoomed range at full resolution
+		Assert.assertEquals("[[2499,5],[2500,90],[2501,5]]",
+				summary.getGraphData(2499, 2501, 0));
+		Assert.assertEquals("[[1,5],[5000,5]]", summary.getAverageData());
+	}
+
+	@Test
+	public void testGraphDataIsDownsampledByDefault() {
+		Summary summary = new Summary();
+		for (int build = 1; build <= SeriesDownsampler.DEFAULT_POINTS * 2; build++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(build);
+			entry.setElapsedTime(build * 1000000000l);
+			entry.setPassed(true);
+			summary.addEntry(entry);
+		}
+		Assert.assertEquals(SeriesDownsampler.DEFAULT_POINTS, summary
+				.getGraphData().split("\\],\\[").length);
+	}
+
+	@Test
+	public void testPrecalculate() {
+		Summary summary = new Summary();
+		PerformanceEntry entry = new PerformanceEntry();
+		entry.setElapsedTime(2000000000l);
+		entry.setPassed(true);
+		summary.addEntry(entry);
+		summary.precalculate();
+		DurationHistogram histogram = summary.getDurationHistogram();
+		Assert.assertEquals(1, histogram.getTotalCount());
+		Assert.assertEquals(2000000000l, summary.getAverageDuration());
+		// nothing is worked out again once it has been
+		Assert.assertSame(histogram, summary.getDurationHistogram());
+	}
+
+	@Test
+	public void testAddEntryResetsAverage() {
+		Summary summary = new Summary();
+		PerformanceEntry entry1 = new PerformanceEntry();
+		entry1.setPassed(true);
+		entry1.setElapsedTime(1000000000l);
+		summary.addEntry(entry1);
+		Assert.assertEquals(1000000000l, summary.calculateAverageDuration());
+		PerformanceEntry entry2 = new PerformanceEntry();
+		entry2.setPassed(true);
+		entry2.setElapsedTime(3000000000l);
+		summary.addEntry(entry2);
+		Assert.assertEquals(2, summary.getEntries().size());
+		Assert.assertEquals(2000000000l, summary.calculateAverageDuration());
+	}
+
+	@Test
+	public void testPercentilesFromEntries() {
+		Summary summary = new Summary();
+		List<PerformanceEntry> entries = new ArrayList<PerformanceEntry>();
+		for (int i = 1; i <= 100; i++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setPassed(i != 100);
+			entry.setElapsedTime(i * 1000l);
+			entries.add(entry);
+		}
+		summary.setEntries(entries);
+		// the failed entry is not included
+		Assert.assertEquals(99, summary.getDurationHistogram().getTotalCount());
+		Assert.assertTrue(Math.abs(summary.getP50Duration() - 50000l) <= 500l);
+		Assert.assertTrue(Math.abs(summary.getP99Duration() - 99000l) <= 990l);
+	}
+
+	@Test
+	public void testAddEntryUpdatesPercentiles() {
+		Summary summary = new Summary();
+		PerformanceEntry entry1 = new PerformanceEntry();
+		entry1.setPassed(true);
+		entry1.setElapsedTime(10l);
+		summary.addEntry(entry1);
+		Assert.assertEquals(10l, summary.getP90Duration());
+		PerformanceEntry entry2 = new PerformanceEntry();
+		entry2.setPassed(true);
+		entry2.setElapsedTime(20l);
+		summary.addEntry(entry2);
+		Assert.assertEquals(20l, summary.getP90Duration());
+		Assert.assertEquals("20 ns", summary.getFormattedP95Duration());
+	}
+
+	@Test
+	public void testChangePointData() {
+		Summary summary = new Summary();
+		Assert.assertEquals("[]", summary.getChangePointData());
+		Assert.assertNull(summary.getLatestSlowdown());
+		List<ChangePoint> changePoints = new ArrayList<ChangePoint>();
+		changePoints.add(new ChangePoint(12, 1000l, 1500l));
+		changePoints.add(new ChangePoint(30, 1500l, 1200l));
+		summary.setChangePoints(changePoints);
+		Assert.assertEquals("[[12,50],[30,-20]]", summary.getChangePointData());
+		Assert.assertEquals(12, summary.getLatestSlowdown().getBuildNumber());
+		Assert.assertEquals(50l, summary.getSlowdownPercentage());
+		Assert.assertEquals("1000 ns", summary.getFormattedSlowdownMedianBefore());
+		Assert.assertEquals("1500 ns", summary.getFormattedSlowdownMedianAfter());
+		summary.setEntries(new ArrayList<PerformanceEntry>());
+		Assert.assertNull(summary.getChangePoints());
+	}
+
+	@Test
+	public void testMerge() {
+		Summary earlier = new Summary();
+		earlier.setName("earlier");
+		earlier.setOrder(2);
+		Summary later = new Summary();
+		later.setName("later");
+		later.setKeyword("Given ");
+		long[] durations = { 3000l, 1000l, 5000l };
+		for (int i = 0; i < durations.length; i++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(i + 1);
+			entry.setPassed(true);
+			entry.setElapsedTime(durations[i]);
+			Summary summary = i == 0 ? earlier : later;
+			summary.addEntry(entry);
+			summary.incrementPassedBuilds();
+			summary.addToPassedSteps(1);
+			summary.setShortestDuration(Math.min(
+					summary.getShortestDuration(), durations[i]));
+			summary.setLongestDuration(Math.max(summary.getLongestDuration(),
+					durations[i]));
+		}
+		Assert.assertEquals(3000l, earlier.getP90Duration());
+		earlier.merge(later);
+		Assert.assertEquals("earlier", earlier.getName());
+		Assert.assertEquals(2, earlier.getOrder());
+		Assert.assertEquals("Given ", earlier.getKeyword());
+		Assert.assertEquals(3, earlier.getPassedBuilds());
+		Assert.assertEquals(3, earlier.getTotalBuilds());
+		Assert.assertEquals(3, earlier.getPassedSteps());
+		Assert.assertEquals(1000l, earlier.getShortestDuration());
+		Assert.assertEquals(5000l, earlier.getLongestDuration());
+		Assert.assertEquals(3000l, earlier.calculateAverageDuration());
+		Assert.assertEquals(3, earlier.getEntries().size());
+		Assert.assertEquals(3, earlier.getEntries().get(2).getBuildNumber());
+		Assert.assertEquals(5000l, earlier.getP90Duration());
+	}
+
 }
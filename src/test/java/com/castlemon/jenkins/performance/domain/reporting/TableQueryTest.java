@@ -0,0 +1,103 @@
+package com.castlemon.jenkins.performance.domain.reporting;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryColumn;
+
+public class TableQueryTest {
+
+	private TableQuery query = new TableQuery();
+
+	@Test
+	public void testDefaults() {
+		query.setDraw(null);
+		query.setStart(" ");
+		query.setLength(null);
+		query.setSearch(" ");
+		Assert.assertEquals(0, query.getDraw());
+		Assert.assertEquals(0, query.getStart());
+		Assert.assertEquals(TableQuery.DEFAULT_LENGTH, query.getLength());
+		Assert.assertNull(query.getSearch());
+		Assert.assertEquals(SummaryColumn.AVERAGE, query.getColumn());
+		Assert.assertTrue(query.isDescending());
+	}
+
+	@Test
+	public void testLength() {
+		query.setLength("25");
+		Assert.assertEquals(25, query.getLength());
+		query.setLength("-1");
+		Assert.assertEquals(TableQuery.MAXIMUM_LENGTH, query.getLength());
+		query.setLength("5000");
+		Assert.assertEquals(TableQuery.MAXIMUM_LENGTH, query.getLength());
+		for (String length : Arrays.asList("0", "-2", "all")) {
+			try {
+				query.setLength(length);
+				Assert.fail(length + " should be refused");
+			} catch (IllegalArgumentException e) {
+				Assert.assertTrue(e.getMessage().startsWith("length"));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeStart() {
+		query.setStart("-10");
+	}
+
+	@Test
+	public void testOrder() {
+		query.setOrder("name", "asc");
+		Assert.assertEquals(SummaryColumn.NAME, query.getColumn());
+		Assert.assertFalse(query.isDescending());
+		query.setOrder("p99Duration", " DESC ");
+		Assert.assertEquals(SummaryColumn.P99, query.getColumn());
+		Assert.assertTrue(query.isDescending());
+		query.setOrder("totalDuration", null);
+		Assert.assertFalse(query.isDescending());
+		try {
+			query.setOrder("keyword", "asc");
+			Assert.fail("keyword should be refused");
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("cannot order by 'keyword'", e.getMessage());
+		}
+		query.setMetric(RankingMetric.GROWTH);
+		Assert.assertEquals(SummaryColumn.GROWTH, query.getColumn());
+		Assert.assertTrue(query.isDescending());
+	}
+
+	@Test
+	public void testMatches() {
+		Summary summary = new Summary();
+		summary.setName("Log in as admin");
+		summary.setSeniorName("Accounts");
+		Assert.assertTrue(query.matches(summary));
+		query.setSearch(" ADMIN");
+		Assert.assertTrue(query.matches(summary));
+		query.setSearch("account");
+		Assert.assertTrue(query.matches(summary));
+		query.setSearch("logout");
+		Assert.assertFalse(query.matches(summary));
+		Assert.assertFalse(query.matches(new Summary()));
+	}
+
+	@Test
+	public void testSenior() {
+		Summary summary = new Summary();
+		summary.setSeniorPageLink("feature1");
+		Assert.assertTrue(query.isWithinSenior(summary));
+		query.setSenior(" feature1 ");
+		Assert.assertEquals("feature1", query.getSenior());
+		Assert.assertTrue(query.isWithinSenior(summary));
+		query.setSenior("feature2");
+		Assert.assertFalse(query.isWithinSenior(summary));
+		Assert.assertFalse(query.isWithinSenior(new Summary()));
+		query.setSenior("");
+		Assert.assertNull(query.getSenior());
+	}
+
+}
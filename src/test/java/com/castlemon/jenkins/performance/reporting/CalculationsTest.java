@@ -15,6 +15,7 @@ import com.castlemon.jenkins.performance.domain.Feature;
 import com.castlemon.jenkins.performance.domain.Step;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
 import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.SummaryKey;
 import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
 
 public class CalculationsTest {
@@ -92,21 +93,22 @@ public class CalculationsTest {
 				jobOutput.getFormattedAverageDuration());
 		Assert.assertEquals(313, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
-		String complexKey = features.get(0).getId() + features.get(0).getId();
+		SummaryKey complexKey = new SummaryKey(features.get(0).getId(),
+				features.get(0).getId());
 		Summary mainSummary = featureSummaries.get(complexKey);
 		Assert.assertEquals(1, mainSummary.getPassedBuilds());
 		Assert.assertEquals(0, mainSummary.getFailedBuilds());
 		Assert.assertEquals(9, mainSummary.getNumberOfSubItems()); // scenarios
 		Assert.assertEquals(1, mainSummary.getEntries().size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(17, scenarioSummaries.size());
 		// test first scenario summary
-		String complexId = features.get(0).getId()
-				+ features.get(0).getElements().get(0).getId();
+		SummaryKey complexId = new SummaryKey(features.get(0).getId(),
+				features.get(0).getElements().get(0).getId());
 		Summary firstScenarioSummary = scenarioSummaries.get(complexId);
 		Assert.assertEquals(23251577640l,
 				firstScenarioSummary.getShortestDuration());
@@ -155,21 +157,22 @@ public class CalculationsTest {
 				jobOutput.getFormattedAverageDuration());
 		Assert.assertEquals(313, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
-		String complexKey = features.get(0).getId() + features.get(0).getId();
+		SummaryKey complexKey = new SummaryKey(features.get(0).getId(),
+				features.get(0).getId());
 		Summary mainSummary = featureSummaries.get(complexKey);
 		Assert.assertEquals(1, mainSummary.getPassedBuilds());
 		Assert.assertEquals(0, mainSummary.getFailedBuilds());
 		Assert.assertEquals(9, mainSummary.getNumberOfSubItems()); // scenarios
 		Assert.assertEquals(1, mainSummary.getEntries().size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(17, scenarioSummaries.size());
 		// test first scenario summary
-		String complexId = features.get(0).getId()
-				+ features.get(0).getElements().get(0).getId();
+		SummaryKey complexId = new SummaryKey(features.get(0).getId(),
+				features.get(0).getElements().get(0).getId());
 		Summary firstScenarioSummary = scenarioSummaries.get(complexId);
 		Assert.assertEquals(20518023874l,
 				firstScenarioSummary.getShortestDuration());
@@ -218,21 +221,22 @@ public class CalculationsTest {
 				jobOutput.getFormattedAverageDuration());
 		Assert.assertEquals(313, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
-		String complexKey = features.get(0).getId() + features.get(0).getId();
+		SummaryKey complexKey = new SummaryKey(features.get(0).getId(),
+				features.get(0).getId());
 		Summary mainSummary = featureSummaries.get(complexKey);
 		Assert.assertEquals(1, mainSummary.getPassedBuilds());
 		Assert.assertEquals(0, mainSummary.getFailedBuilds());
 		Assert.assertEquals(9, mainSummary.getNumberOfSubItems()); // scenarios
 		Assert.assertEquals(1, mainSummary.getEntries().size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(17, scenarioSummaries.size());
 		// test first scenario summary
-		String complexId = features.get(0).getId()
-				+ features.get(0).getElements().get(0).getId();
+		SummaryKey complexId = new SummaryKey(features.get(0).getId(),
+				features.get(0).getElements().get(0).getId());
 		Summary firstScenarioSummary = scenarioSummaries.get(complexId);
 		Assert.assertEquals(9704227551l,
 				firstScenarioSummary.getShortestDuration());
@@ -286,12 +290,12 @@ public class CalculationsTest {
 		Assert.assertEquals(626, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
 		// feature testing
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
 		// test first feature summary
-		String firstComplexKey = features1.get(0).getId()
-				+ features1.get(0).getId();
+		SummaryKey firstComplexKey = new SummaryKey(features1.get(0).getId(),
+				features1.get(0).getId());
 		Summary firstFeatureSummary = featureSummaries.get(firstComplexKey);
 		Assert.assertEquals(2, firstFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, firstFeatureSummary.getFailedBuilds());
@@ -304,8 +308,8 @@ public class CalculationsTest {
 		Assert.assertEquals(220906072983l,
 				firstFeatureSummary.calculateAverageDuration());
 		// test second feature summary
-		String secondComplexKey = features1.get(1).getId()
-				+ features1.get(1).getId();
+		SummaryKey secondComplexKey = new SummaryKey(features1.get(1).getId(),
+				features1.get(1).getId());
 		Summary secondFeatureSummary = featureSummaries.get(secondComplexKey);
 		Assert.assertEquals(2, secondFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, secondFeatureSummary.getFailedBuilds());
@@ -318,8 +322,8 @@ public class CalculationsTest {
 		Assert.assertEquals(162731563453l,
 				secondFeatureSummary.calculateAverageDuration());
 		// test third feature summary
-		String thirdComplexKey = features1.get(2).getId()
-				+ features1.get(2).getId();
+		SummaryKey thirdComplexKey = new SummaryKey(features1.get(2).getId(),
+				features1.get(2).getId());
 		Summary thirdFeatureSummary = featureSummaries.get(thirdComplexKey);
 		Assert.assertEquals(2, thirdFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, thirdFeatureSummary.getFailedBuilds());
@@ -394,12 +398,12 @@ public class CalculationsTest {
 		Assert.assertEquals(939, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
 		// feature testing
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
 		// test first feature summary
-		String firstComplexKey = features1.get(0).getId()
-				+ features1.get(0).getId();
+		SummaryKey firstComplexKey = new SummaryKey(features1.get(0).getId(),
+				features1.get(0).getId());
 		Summary firstFeatureSummary = featureSummaries.get(firstComplexKey);
 		Assert.assertEquals(3, firstFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, firstFeatureSummary.getFailedBuilds());
@@ -412,8 +416,8 @@ public class CalculationsTest {
 		Assert.assertEquals(170518408487l,
 				firstFeatureSummary.calculateAverageDuration());
 		// test second feature summary
-		String secondComplexKey = features1.get(1).getId()
-				+ features1.get(1).getId();
+		SummaryKey secondComplexKey = new SummaryKey(features1.get(1).getId(),
+				features1.get(1).getId());
 		Summary secondFeatureSummary = featureSummaries.get(secondComplexKey);
 		Assert.assertEquals(3, secondFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, secondFeatureSummary.getFailedBuilds());
@@ -426,8 +430,8 @@ public class CalculationsTest {
 		Assert.assertEquals(123101636258l,
 				secondFeatureSummary.calculateAverageDuration());
 		// test third feature summary
-		String thirdComplexKey = features1.get(2).getId()
-				+ features1.get(2).getId();
+		SummaryKey thirdComplexKey = new SummaryKey(features1.get(2).getId(),
+				features1.get(2).getId());
 		Summary thirdFeatureSummary = featureSummaries.get(thirdComplexKey);
 		Assert.assertEquals(3, thirdFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, thirdFeatureSummary.getFailedBuilds());
@@ -451,9 +455,9 @@ public class CalculationsTest {
 		Assert.assertEquals("[[112," + durationOneInSeconds + "],[113,"
 				+ durationTwoInSeconds + "],[114," + durationThreeInSeconds
 				+ "]]", jobOutput.getGraphData());
-		Assert.assertEquals("[[112," + averageInSeconds + "],[113,"
-				+ averageInSeconds + "],[114," + averageInSeconds + "]]",
-				jobOutput.getAverageData());
+		// the average only needs the first and last builds
+		Assert.assertEquals("[[112," + averageInSeconds + "],[114,"
+				+ averageInSeconds + "]]", jobOutput.getAverageData());
 	}
 
 	@Test
@@ -485,21 +489,22 @@ public class CalculationsTest {
 		Assert.assertEquals(0, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
 		Assert.assertEquals(313, jobOutput.getSkippedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
-		String complexKey = features.get(0).getId() + features.get(0).getId();
+		SummaryKey complexKey = new SummaryKey(features.get(0).getId(),
+				features.get(0).getId());
 		Summary mainSummary = featureSummaries.get(complexKey);
 		Assert.assertEquals(0, mainSummary.getPassedBuilds());
 		Assert.assertEquals(1, mainSummary.getFailedBuilds());
 		Assert.assertEquals(9, mainSummary.getNumberOfSubItems()); // scenarios
 		Assert.assertEquals(1, mainSummary.getEntries().size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(17, scenarioSummaries.size());
 		// test first scenario summary
-		String complexId = features.get(0).getId()
-				+ features.get(0).getElements().get(0).getId();
+		SummaryKey complexId = new SummaryKey(features.get(0).getId(),
+				features.get(0).getElements().get(0).getId());
 		Summary firstScenarioSummary = scenarioSummaries.get(complexId);
 		Assert.assertEquals(Long.MAX_VALUE,
 				firstScenarioSummary.getShortestDuration());
@@ -552,21 +557,22 @@ public class CalculationsTest {
 				jobOutput.getFormattedAverageDuration());
 		Assert.assertEquals(313, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
-		String complexKey = features1.get(0).getId() + features1.get(0).getId();
+		SummaryKey complexKey = new SummaryKey(features1.get(0).getId(),
+				features1.get(0).getId());
 		Summary mainSummary = featureSummaries.get(complexKey);
 		Assert.assertEquals(1, mainSummary.getPassedBuilds());
 		Assert.assertEquals(1, mainSummary.getFailedBuilds());
 		Assert.assertEquals(9, mainSummary.getNumberOfSubItems()); // scenarios
 		Assert.assertEquals(2, mainSummary.getEntries().size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(17, scenarioSummaries.size());
 		// test first scenario summary
-		String complexId = features1.get(0).getId()
-				+ features1.get(0).getElements().get(0).getId();
+		SummaryKey complexId = new SummaryKey(features1.get(0).getId(),
+				features1.get(0).getElements().get(0).getId());
 		Summary firstScenarioSummary = scenarioSummaries.get(complexId);
 		Assert.assertEquals(23251577640l,
 				firstScenarioSummary.getShortestDuration());
@@ -606,16 +612,17 @@ public class CalculationsTest {
 		Assert.assertEquals(312, jobOutput.getPassedSteps());
 		Assert.assertEquals(1, jobOutput.getFailedSteps());
 		Assert.assertEquals(0, jobOutput.getSkippedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
-		String complexKey = features.get(0).getId() + features.get(0).getId();
+		SummaryKey complexKey = new SummaryKey(features.get(0).getId(),
+				features.get(0).getId());
 		Summary mainSummary = featureSummaries.get(complexKey);
 		Assert.assertEquals(0, mainSummary.getPassedBuilds());
 		Assert.assertEquals(1, mainSummary.getFailedBuilds());
 		Assert.assertEquals(9, mainSummary.getNumberOfSubItems()); // scenarios
 		Assert.assertEquals(1, mainSummary.getEntries().size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(17, scenarioSummaries.size());
 	}
@@ -657,12 +664,12 @@ public class CalculationsTest {
 		Assert.assertEquals(625, jobOutput.getPassedSteps());
 		Assert.assertEquals(1, jobOutput.getFailedSteps());
 		// feature testing
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(3, featureSummaries.size());
 		// test first feature summary
-		String firstComplexKey = features1.get(0).getId()
-				+ features1.get(0).getId();
+		SummaryKey firstComplexKey = new SummaryKey(features1.get(0).getId(),
+				features1.get(0).getId());
 		Summary firstFeatureSummary = featureSummaries.get(firstComplexKey);
 		Assert.assertEquals(1, firstFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(1, firstFeatureSummary.getFailedBuilds());
@@ -675,8 +682,8 @@ public class CalculationsTest {
 		Assert.assertEquals(213221533518l,
 				firstFeatureSummary.calculateAverageDuration());
 		// test second feature summary
-		String secondComplexKey = features1.get(1).getId()
-				+ features1.get(1).getId();
+		SummaryKey secondComplexKey = new SummaryKey(features1.get(1).getId(),
+				features1.get(1).getId());
 		Summary secondFeatureSummary = featureSummaries.get(secondComplexKey);
 		Assert.assertEquals(2, secondFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, secondFeatureSummary.getFailedBuilds());
@@ -689,8 +696,8 @@ public class CalculationsTest {
 		Assert.assertEquals(163627555004l,
 				secondFeatureSummary.calculateAverageDuration());
 		// test third feature summary
-		String thirdComplexKey = features1.get(2).getId()
-				+ features1.get(2).getId();
+		SummaryKey thirdComplexKey = new SummaryKey(features1.get(2).getId(),
+				features1.get(2).getId());
 		Summary thirdFeatureSummary = featureSummaries.get(thirdComplexKey);
 		Assert.assertEquals(2, thirdFeatureSummary.getPassedBuilds());
 		Assert.assertEquals(0, thirdFeatureSummary.getFailedBuilds());
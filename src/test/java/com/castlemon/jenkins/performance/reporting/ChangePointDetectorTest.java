@@ -0,0 +1,142 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.reporting.ChangePoint;
+import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+public class ChangePointDetectorTest {
+
+	private ChangePointDetector detector = new ChangePointDetector();
+
+	private Random random = new Random(1234);
+
+	private void addEntries(Summary summary, int count, long duration) {
+		for (int i = 0; i < count; i++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(summary.getEntries() == null ? 1 : summary
+					.getEntries().size() + 1);
+			// up to 3% noise either way
+			entry.setElapsedTime(duration
+					+ (long) ((random.nextDouble() - 0.5) * 0.06 * duration));
+			entry.setPassed(true);
+			summary.addEntry(entry);
+		}
+	}
+
+	@Test
+	public void testStepChangeIsFound() {
+		Summary summary = new Summary();
+		addEntries(summary, 30, 1000000000l);
+		addEntries(summary, 30, 1500000000l);
+		detector.update(summary);
+		List<ChangePoint> changePoints = summary.getChangePoints();
+		Assert.assertEquals(1, changePoints.size());
+		Assert.assertEquals(31, changePoints.get(0).getBuildNumber());
+		Assert.assertTrue(changePoints.get(0).isSlowdown());
+		Assert.assertEquals(50.0, changePoints.get(0).getPercentageChange(),
+				5.0);
+		Assert.assertSame(changePoints.get(0), summary.getLatestSlowdown());
+	}
+
+	@Test
+	public void testSpeedUpIsFound() {
+		Summary summary = new Summary();
+		addEntries(summary, 20, 2000000000l);
+		addEntries(summary, 20, 1000000000l);
+		detector.update(summary);
+		Assert.assertEquals(1, summary.getChangePoints().size());
+		Assert.assertEquals(21, summary.getChangePoints().get(0)
+				.getBuildNumber());
+		Assert.assertFalse(summary.getChangePoints().get(0).isSlowdown());
+		Assert.assertNull(summary.getLatestSlowdown());
+	}
+
+	@Test
+	public void testNoiseIsIgnored() {
+		Summary summary = new Summary();
+		addEntries(summary, 100, 1000000000l);
+		detector.update(summary);
+		Assert.assertTrue(summary.getChangePoints().isEmpty());
+	}
+
+	@Test
+	public void testSmallShiftIsIgnored() {
+		// consistent, but only 5% slower
+		Summary summary = new Summary();
+		addEntries(summary, 20, 1000000l);
+		addEntries(summary, 20, 1050000l);
+		for (PerformanceEntry entry : summary.getEntries()) {
+			entry.setElapsedTime(entry.getBuildNumber() <= 20 ? 1000000l
+					: 1050000l);
+		}
+		detector.update(summary);
+		Assert.assertTrue(summary.getChangePoints().isEmpty());
+	}
+
+	@Test
+	public void testFailedBuildsAreSkipped() {
+		Summary summary = new Summary();
+		addEntries(summary, 20, 1000000000l);
+		PerformanceEntry failed = new PerformanceEntry();
+		failed.setBuildNumber(21);
+		failed.setElapsedTime(1l);
+		summary.addEntry(failed);
+		addEntries(summary, 20, 1500000000l);
+		detector.update(summary);
+		Assert.assertEquals(1, summary.getChangePoints().size());
+		Assert.assertEquals(22, summary.getChangePoints().get(0)
+				.getBuildNumber());
+	}
+
+	@Test
+	public void testUpdatingBuildByBuildMatchesFullDetection() {
+		Summary incremental = new Summary();
+		Summary full = new Summary();
+		long[] levels = { 1000000000l, 1400000000l, 900000000l, 1800000000l };
+		for (long level : levels) {
+			for (int i = 0; i < 25; i++) {
+				addEntries(incremental, 1, level);
+				detector.update(incremental);
+			}
+		}
+		for (PerformanceEntry entry : incremental.getEntries()) {
+			full.addEntry(entry);
+		}
+		detector.update(full);
+		Assert.assertEquals(3, full.getChangePoints().size());
+		Assert.assertEquals(full.getChangePoints().size(), incremental
+				.getChangePoints().size());
+		for (int i = 0; i < full.getChangePoints().size(); i++) {
+			Assert.assertEquals(full.getChangePoints().get(i)
+					.getBuildNumber(), incremental.getChangePoints().get(i)
+					.getBuildNumber());
+		}
+	}
+
+	@Test
+	public void testShortSeries() {
+		Summary summary = new Summary();
+		addEntries(summary, 5, 1000l);
+		detector.update(summary);
+		Assert.assertTrue(summary.getChangePoints().isEmpty());
+		detector.update(new Summary());
+	}
+
+	@Test
+	public void testZScore() {
+		long[] durations = new long[2 * ChangePointDetector.WINDOW];
+		for (int i = 0; i < durations.length; i++) {
+			durations[i] = i < ChangePointDetector.WINDOW ? 10 : 20;
+		}
+		// completely separated windows give the most extreme score
+		Assert.assertEquals(-3.36, ChangePointDetector.zScore(durations,
+				ChangePointDetector.WINDOW), 0.01);
+	}
+
+}
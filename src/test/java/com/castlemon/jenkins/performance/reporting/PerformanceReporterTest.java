@@ -1,20 +1,29 @@
 package com.castlemon.jenkins.performance.reporting;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.castlemon.jenkins.performance.TestUtils;
 import com.castlemon.jenkins.performance.domain.Feature;
 import com.castlemon.jenkins.performance.domain.Step;
+import com.castlemon.jenkins.performance.domain.Tag;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
 import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionCaller;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionSummary;
 import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.SummaryKey;
 import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
 
 public class PerformanceReporterTest {
@@ -57,21 +66,22 @@ public class PerformanceReporterTest {
 				jobOutput.getFormattedAverageDuration());
 		Assert.assertEquals(55, jobOutput.getPassedSteps());
 		Assert.assertEquals(0, jobOutput.getFailedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(2, featureSummaries.size());
-		String complexKey = features.get(0).getId() + features.get(0).getId();
+		SummaryKey complexKey = new SummaryKey(features.get(0).getId(),
+				features.get(0).getId());
 		Summary mainSummary = featureSummaries.get(complexKey);
 		Assert.assertEquals(1, mainSummary.getPassedBuilds());
 		Assert.assertEquals(0, mainSummary.getFailedBuilds());
 		Assert.assertEquals(8, mainSummary.getNumberOfSubItems());
 		Assert.assertEquals(1, mainSummary.getEntries().size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(9, scenarioSummaries.size());
 		// test first scenario summary
-		String complexId = features.get(0).getId()
-				+ features.get(0).getElements().get(0).getId();
+		SummaryKey complexId = new SummaryKey(features.get(0).getId(),
+				features.get(0).getElements().get(0).getId());
 		Summary firstScenarioSummary = scenarioSummaries.get(complexId);
 		Assert.assertEquals(17383328936l,
 				firstScenarioSummary.getShortestDuration());
@@ -107,7 +117,7 @@ public class PerformanceReporterTest {
 		Assert.assertEquals(Long.MAX_VALUE, jobOutput.getShortestDuration());
 		Assert.assertEquals(52, jobOutput.getPassedSteps());
 		Assert.assertEquals(2, jobOutput.getFailedSteps());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(2, featureSummaries.size());
 	}
@@ -176,7 +186,8 @@ public class PerformanceReporterTest {
 		performanceReporter.initialiseEntryMaps();
 		PerformanceEntry scenarioEntry = performanceReporter.processScenario(
 				features.get(0).getElements().get(0), date, 116, features
-						.get(0).getId(), 0, features.get(0).getName());
+						.get(0).getId(), 0, features.get(0).getName(), features
+						.get(0).getTags());
 		Assert.assertEquals(17383328936l, scenarioEntry.getElapsedTime());
 		Assert.assertEquals(5, scenarioEntry.getPassedSteps());
 		Assert.assertEquals(0, scenarioEntry.getFailedSteps());
@@ -199,14 +210,34 @@ public class PerformanceReporterTest {
 		Assert.assertEquals(0, featureEntry.getFailedSteps());
 		Assert.assertEquals(0, featureEntry.getSkippedSteps());
 		Assert.assertTrue(featureEntry.isPassed());
-		Map<String, Summary> featureSummaries = performanceReporter
+		Map<SummaryKey, Summary> featureSummaries = performanceReporter
 				.getFeatureSummaries();
 		Assert.assertEquals(1, featureSummaries.size());
-		Map<String, Summary> scenarioSummaries = performanceReporter
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
 				.getScenarioSummaries();
 		Assert.assertEquals(8, scenarioSummaries.size());
 	}
 
+	@Test
+	public void testScenariosHoldTheirFeaturesTags() throws IOException {
+		String jsonString = testUtils.loadJsonFile("/cucumber-success.json");
+		List<Feature> features = CucumberPerfUtils.getData(jsonString);
+		Tag featureTag = new Tag();
+		featureTag.setName("@Reports");
+		features.get(0).setTags(Arrays.asList(featureTag));
+		performanceReporter.initialiseEntryMaps();
+		performanceReporter.processFeature(features.get(0), new Date(), 117, 0);
+		Summary featureSummary = performanceReporter.getFeatureSummaries()
+				.values().iterator().next();
+		Assert.assertEquals(Arrays.asList("@Reports"), featureSummary.getTags());
+		for (Summary scenarioSummary : performanceReporter
+				.getScenarioSummaries().values()) {
+			Assert.assertTrue(scenarioSummary.hasTag("@Reports"));
+			Assert.assertTrue(scenarioSummary.hasTag("@Stubs"));
+			Assert.assertFalse(scenarioSummary.hasTag("@Other"));
+		}
+	}
+
 	@Test
 	public void testProcessRun() throws IOException {
 		String jsonString = testUtils.loadJsonFile("/cucumber-success.json");
@@ -242,4 +273,132 @@ public class PerformanceReporterTest {
 		Assert.assertEquals(1, jobOutput.getEntries().size());
 	}
 
+	@Test
+	public void testGetPerformanceDataStreamed() throws IOException {
+		File f = FileUtils.toFile(this.getClass().getResource(
+				"/cucumber-success.json"));
+		List<ProjectRun> runs = new ArrayList<ProjectRun>();
+		ProjectRun run = new ProjectRun();
+		run.setReportDirectory(f.getParentFile());
+		run.setReportFiles(Arrays.asList("cucumber-success.json"));
+		run.setBuildNumber(112);
+		runs.add(run);
+		performanceReporter.initialiseEntryMaps();
+		Summary jobOutput = performanceReporter.getPerformanceData(runs);
+		Assert.assertEquals(1, jobOutput.getEntries().size());
+		Assert.assertEquals(192349832481l, jobOutput.getEntries().get(0)
+				.getElapsedTime());
+		Assert.assertEquals(55, jobOutput.getPassedSteps());
+		Assert.assertEquals(2, performanceReporter.getFeatureSummaries()
+				.size());
+		Assert.assertEquals(9, performanceReporter.getScenarioSummaries()
+				.size());
+	}
+
+	@Test
+	public void testGetPerformanceDataStreamedNoFeatures() throws IOException {
+		List<ProjectRun> runs = new ArrayList<ProjectRun>();
+		ProjectRun run = new ProjectRun();
+		run.setReportDirectory(new File("nonexistent"));
+		run.setReportFiles(Arrays.asList("cucumber.json"));
+		runs.add(run);
+		performanceReporter.initialiseEntryMaps();
+		Summary jobOutput = performanceReporter.getPerformanceData(runs);
+		Assert.assertEquals(0, jobOutput.getEntries().size());
+		Assert.assertEquals(0, jobOutput.getTotalBuilds());
+	}
+
+	@Test
+	public void testStepDefinitionSummaries() throws IOException {
+		String jsonString = testUtils.loadJsonFile("/cucumber-success.json");
+		List<Feature> features = CucumberPerfUtils.getData(jsonString);
+		ProjectRun run = new ProjectRun();
+		run.setFeatures(features);
+		run.setBuildNumber(3);
+		performanceReporter.initialiseEntryMaps();
+		performanceReporter.getPerformanceData(Collections
+				.singletonList(run));
+		Map<String, StepDefinitionSummary> stepDefinitions = performanceReporter
+				.getStepDefinitionSummaries();
+		Assert.assertEquals(30, stepDefinitions.size());
+		StepDefinitionSummary notesLink = stepDefinitions
+				.get("PortfolioImperative.clickOnNotesLink()");
+		Assert.assertEquals(SummaryType.STEP_DEFINITION,
+				notesLink.getSummaryType());
+		Assert.assertEquals(8, notesLink.getTotalCalls());
+		// a single entry for the build, holding every call
+		Assert.assertEquals(1, notesLink.getEntries().size());
+		Assert.assertEquals(3, notesLink.getEntries().get(0).getBuildNumber());
+		Assert.assertEquals(6510408189l, notesLink.getEntries().get(0)
+				.getElapsedTime());
+		Assert.assertTrue(notesLink.getEntries().get(0).isPassed());
+		Assert.assertEquals(1, notesLink.getPassedBuilds());
+		Assert.assertEquals(6510408189l / 8, notesLink.getAverageCallDuration());
+		Assert.assertEquals(7, notesLink.getCallers().size());
+		long calls = 0;
+		for (StepDefinitionCaller caller : notesLink.getCallers().values()) {
+			calls += caller.getCalls();
+		}
+		Assert.assertEquals(8, calls);
+		List<StepDefinitionCaller> topCallers = notesLink.getTopCallers();
+		for (int i = 1; i < topCallers.size(); i++) {
+			Assert.assertTrue(topCallers.get(i - 1).getTotalDuration() >= topCallers
+					.get(i).getTotalDuration());
+		}
+		Assert.assertEquals(StepDefinitionSummary.TOP_CALLERS, notesLink
+				.getTopCallers().size());
+	}
+
+	@Test
+	public void testNamesAreShared() throws IOException {
+		String jsonString = testUtils.loadJsonFile("/cucumber-success.json");
+		List<ProjectRun> runs = new ArrayList<ProjectRun>();
+		for (int i = 1; i <= 2; i++) {
+			// each run parsed separately, as each build's reports are
+			ProjectRun run = new ProjectRun();
+			run.setFeatures(CucumberPerfUtils.getData(jsonString));
+			run.setBuildNumber(i);
+			runs.add(run);
+		}
+		performanceReporter.initialiseEntryMaps();
+		performanceReporter.getPerformanceData(runs);
+		Map<SummaryKey, Summary> scenarioSummaries = performanceReporter
+				.getScenarioSummaries();
+		for (Summary stepSummary : performanceReporter.getStepSummaries()
+				.values()) {
+			Summary scenarioSummary = null;
+			for (Summary candidate : scenarioSummaries.values()) {
+				if (candidate.getId().equals(stepSummary.getSeniorId())) {
+					scenarioSummary = candidate;
+				}
+			}
+			Assert.assertSame(scenarioSummary.getId(),
+					stepSummary.getSeniorId());
+			Assert.assertSame(scenarioSummary.getName(),
+					stepSummary.getSeniorName());
+		}
+		Assert.assertTrue(performanceReporter.getStringPool().getDuplicates() > 0);
+	}
+
+	@Test
+	public void testStepDefinitionWithFailedCall() {
+		ProjectRun passed = testUtils.generateRun("passed");
+		passed.setBuildNumber(1);
+		ProjectRun failed = testUtils.generateRun("failed");
+		failed.setBuildNumber(2);
+		performanceReporter.initialiseEntryMaps();
+		performanceReporter.getPerformanceData(Arrays.asList(passed, failed));
+		StepDefinitionSummary stepDefinition = performanceReporter
+				.getStepDefinitionSummaries().get("TestSteps.testStep()");
+		Assert.assertEquals(2, stepDefinition.getEntries().size());
+		Assert.assertFalse(stepDefinition.getEntries().get(1).isPassed());
+		Assert.assertEquals(1, stepDefinition.getPassedBuilds());
+		Assert.assertEquals(1, stepDefinition.getFailedBuilds());
+		Assert.assertEquals(2, stepDefinition.getTotalCalls());
+		// only the passed call is counted towards the call statistics
+		Assert.assertEquals(1, stepDefinition.getCallHistogram()
+				.getTotalCount());
+		Assert.assertEquals(3456l, stepDefinition.getAverageCallDuration());
+	}
+
 }
@@ -0,0 +1,147 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import hudson.model.Result;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Regression;
+import com.castlemon.jenkins.performance.domain.reporting.RegressionThreshold;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+public class RegressionGateTest {
+
+	private Summary createSummary(SummaryType type, String id,
+			long... elapsedTimes) {
+		Summary summary = new Summary();
+		summary.setSummaryType(type);
+		summary.setId(id);
+		summary.setName(id);
+		int buildNumber = 1;
+		for (long elapsedTime : elapsedTimes) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(buildNumber++);
+			entry.setElapsedTime(elapsedTime);
+			entry.setPassed(elapsedTime > 0);
+			summary.addEntry(entry);
+		}
+		return summary;
+	}
+
+	private ProjectSummary createProjectSummary(Summary overall,
+			Summary... steps) {
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setOverallSummary(overall);
+		projectSummary.setFeatureSummaries(new HashMap<String, Summary>());
+		projectSummary.setScenarioSummaries(new HashMap<String, Summary>());
+		Map<String, Summary> stepSummaries = new HashMap<String, Summary>();
+		for (Summary step : steps) {
+			stepSummaries.put(step.getPageLink(), step);
+		}
+		projectSummary.setStepSummaries(stepSummaries);
+		return projectSummary;
+	}
+
+	@Test
+	public void testNoRegressions() {
+		ProjectSummary projectSummary = createProjectSummary(
+				createSummary(SummaryType.PROJECT, "p", 100, 100, 100, 110),
+				createSummary(SummaryType.STEP, "s", 10, 10, 10, 10));
+		RegressionGate gate = new RegressionGate(
+				RegressionThreshold.parseThresholds("project 20 50\nstep 20 50"),
+				10);
+		List<Regression> regressions = gate.evaluate(projectSummary, 4);
+		Assert.assertTrue(regressions.isEmpty());
+		Assert.assertNull(RegressionGate.getWorstResult(regressions));
+	}
+
+	@Test
+	public void testUnstableAndFailure() {
+		Summary project = createSummary(SummaryType.PROJECT, "p", 100, 100,
+				100, 130);
+		Summary slowStep = createSummary(SummaryType.STEP, "slow", 10, 10, 10,
+				25);
+		ProjectSummary projectSummary = createProjectSummary(project,
+				slowStep, createSummary(SummaryType.STEP, "ok", 10, 10, 10, 10));
+		RegressionGate gate = new RegressionGate(
+				RegressionThreshold.parseThresholds("project 20 50\nstep 20 50"),
+				10);
+		List<Regression> regressions = gate.evaluate(projectSummary, 4);
+		Assert.assertEquals(2, regressions.size());
+		// worst first
+		Assert.assertSame(slowStep, regressions.get(0).getSummary());
+		Assert.assertEquals(Result.FAILURE, regressions.get(0).getResult());
+		Assert.assertEquals(150.0, regressions.get(0).getPercentageIncrease(),
+				0.001);
+		Assert.assertSame(project, regressions.get(1).getSummary());
+		Assert.assertEquals(Result.UNSTABLE, regressions.get(1).getResult());
+		Assert.assertEquals(Result.FAILURE,
+				RegressionGate.getWorstResult(regressions));
+	}
+
+	@Test
+	public void testFirstMatchingThresholdApplies() {
+		ProjectSummary projectSummary = createProjectSummary(
+				createSummary(SummaryType.PROJECT, "p", 100, 100, 100, 100),
+				createSummary(SummaryType.STEP, "I wait", 10, 10, 10, 25),
+				createSummary(SummaryType.STEP, "I log in", 10, 10, 10, 25));
+		RegressionGate gate = new RegressionGate(
+				RegressionThreshold
+						.parseThresholds("step - - I wait\nstep 20 -"), 10);
+		List<Regression> regressions = gate.evaluate(projectSummary, 4);
+		Assert.assertEquals(1, regressions.size());
+		Assert.assertEquals("I log in", regressions.get(0).getSummary()
+				.getId());
+		Assert.assertEquals(Result.UNSTABLE, regressions.get(0).getResult());
+	}
+
+	@Test
+	public void testBaselineIsRolling() {
+		// only the last three builds before the current one are used
+		ProjectSummary projectSummary = createProjectSummary(
+				createSummary(SummaryType.PROJECT, "p", 10, 10, 100, 100, 100,
+						110));
+		RegressionGate gate = new RegressionGate(
+				RegressionThreshold.parseThresholds("project 20 50"), 3);
+		Assert.assertTrue(gate.evaluate(projectSummary, 6).isEmpty());
+	}
+
+	@Test
+	public void testFailedBuildsAreIgnored() {
+		// a failed current run and a short baseline are not judged
+		ProjectSummary projectSummary = createProjectSummary(
+				createSummary(SummaryType.PROJECT, "p", 100, 100, 100, 0),
+				createSummary(SummaryType.STEP, "s", 0, 10, 10, 50));
+		RegressionGate gate = new RegressionGate(
+				RegressionThreshold.parseThresholds("project 20 50\nstep 20 50"),
+				10);
+		Assert.assertTrue(gate.evaluate(projectSummary, 4).isEmpty());
+	}
+
+	@Test
+	public void testOtherBuildIsIgnored() {
+		ProjectSummary projectSummary = createProjectSummary(
+				createSummary(SummaryType.PROJECT, "p", 100, 100, 100, 200));
+		RegressionGate gate = new RegressionGate(
+				RegressionThreshold.parseThresholds("project 20 50"), 10);
+		Assert.assertTrue(gate.evaluate(projectSummary, 5).isEmpty());
+	}
+
+	@Test
+	public void testNoThresholds() {
+		ProjectSummary projectSummary = createProjectSummary(
+				createSummary(SummaryType.PROJECT, "p", 100, 100, 100, 200));
+		RegressionGate gate = new RegressionGate(
+				new ArrayList<RegressionThreshold>(), 10);
+		Assert.assertTrue(gate.evaluate(projectSummary, 4).isEmpty());
+	}
+
+}
@@ -2,8 +2,14 @@ package com.castlemon.jenkins.performance.reporting;
 
 import hudson.model.BuildListener;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Rule;
@@ -12,7 +18,13 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import com.castlemon.jenkins.performance.TestUtils;
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
 import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.util.CucumberPerfUtils;
 
 public class ReportBuilderTest {
 
@@ -34,4 +46,235 @@ public class ReportBuilderTest {
 		Assert.assertEquals(1, testFolder.getRoot().listFiles().length);
 	}
 
+	@Test
+	public void testUpdateWithSeveralRuns() {
+		ProjectRun run1 = testUtils.generateRun("passed");
+		run1.setBuildNumber(1);
+		ProjectRun run2 = testUtils.generateRun("failed");
+		run2.setBuildNumber(2);
+		ProjectRun run3 = testUtils.generateRun("passed");
+		run3.setBuildNumber(3);
+		ProjectSummary previous = builder.buildProjectSummary(
+				Collections.singletonList(run1), "test build 1");
+		ProjectSummary updated = builder.updateProjectSummary(previous,
+				Arrays.asList(run2, run3), "test build 1");
+		ProjectSummary rebuilt = builder.buildProjectSummary(
+				Arrays.asList(run1, run2, run3), "test build 1");
+		Assert.assertEquals(3, updated.getLastBuildNumber());
+		Assert.assertEquals(rebuilt.getOverallSummary().getPassedBuilds(),
+				updated.getOverallSummary().getPassedBuilds());
+		Assert.assertEquals(rebuilt.getOverallSummary().getFailedBuilds(),
+				updated.getOverallSummary().getFailedBuilds());
+		Summary step = updated.getStepSummaries().values().iterator().next();
+		Assert.assertEquals(3, step.getEntries().size());
+		Assert.assertEquals(2, step.getEntries().get(1).getBuildNumber());
+	}
+
+	@Test
+	public void testPageLinksAreStable() {
+		ProjectRun run1 = testUtils.generateRun("passed");
+		run1.setBuildNumber(1);
+		ProjectRun run2 = testUtils.generateRun("failed");
+		run2.setBuildNumber(2);
+		ProjectSummary previous = builder.buildProjectSummary(
+				Collections.singletonList(run1), "test build 1");
+		ProjectSummary updated = builder.updateProjectSummary(previous, run2,
+				"test build 1");
+		ProjectSummary rebuilt = builder.buildProjectSummary(
+				Arrays.asList(run1, run2), "test build 1");
+		Assert.assertEquals(previous.getStepSummaries().keySet(), updated
+				.getStepSummaries().keySet());
+		Assert.assertEquals(rebuilt.getFeatureSummaries().keySet(), updated
+				.getFeatureSummaries().keySet());
+		Assert.assertEquals(rebuilt.getScenarioSummaries().keySet(), updated
+				.getScenarioSummaries().keySet());
+		Assert.assertEquals(rebuilt.getStepSummaries().keySet(), updated
+				.getStepSummaries().keySet());
+		Assert.assertEquals(rebuilt.getStepDefinitionSummaries().keySet(),
+				updated.getStepDefinitionSummaries().keySet());
+		Summary scenario = rebuilt.getScenarioSummaries().values().iterator()
+				.next();
+		Assert.assertEquals(rebuilt.getFeatureSummaries().keySet().iterator()
+				.next(), scenario.getSeniorPageLink());
+	}
+
+	@Test
+	public void testJuniorPageLinks() {
+		ProjectRun run = testUtils.generateRun("passed");
+		ProjectSummary projectSummary = builder.buildProjectSummary(
+				Collections.singletonList(run), "test build 1");
+		for (Summary feature : projectSummary.getFeatureSummaries().values()) {
+			Assert.assertEquals(CucumberPerfUtils.getRelevantSummaries(
+					projectSummary.getScenarioSummaries(), feature.getId()),
+					projectSummary.getScenarios(feature));
+		}
+		for (Summary scenario : projectSummary.getScenarioSummaries().values()) {
+			List<Summary> steps = projectSummary.getSteps(scenario);
+			Assert.assertFalse(steps.isEmpty());
+			Assert.assertEquals(CucumberPerfUtils.getRelevantSummaries(
+					projectSummary.getStepSummaries(), scenario.getId()), steps);
+		}
+		Assert.assertEquals(projectSummary.getScenarioSummaries().size(),
+				projectSummary.getStepLinks().size());
+	}
+
+	@Test
+	public void testRankings() {
+		ProjectRun run = testUtils.generateRun("passed");
+		ProjectSummary projectSummary = builder.buildProjectSummary(
+				Collections.singletonList(run), "test build 1");
+		Assert.assertEquals(projectSummary.getStepSummaries().size(),
+				projectSummary.getRankings().get(SummaryType.STEP)
+						.get(RankingMetric.AVERAGE).size());
+		Assert.assertEquals(projectSummary.getSortedStepSummaryList(20),
+				projectSummary.getSortedStepSummaryList(RankingMetric.AVERAGE, 20));
+		Assert.assertEquals(1, projectSummary.getRankings()
+				.get(SummaryType.STEP_DEFINITION).get(RankingMetric.TOTAL)
+				.size());
+	}
+
+	@Test
+	public void testUpdateProjectSummaryMatchesFullRebuild() {
+		ProjectRun run1 = testUtils.generateRun("passed");
+		run1.setBuildNumber(1);
+		ProjectRun run2 = testUtils.generateRun("failed");
+		run2.setBuildNumber(2);
+		ProjectSummary previous = builder.buildProjectSummary(
+				Collections.singletonList(run1), "test build 1");
+		Assert.assertTrue(ReportBuilder.canUpdate(previous, 2));
+		ProjectSummary updated = builder.updateProjectSummary(previous, run2,
+				"test build 1");
+		ProjectSummary rebuilt = builder.buildProjectSummary(
+				Arrays.asList(run1, run2), "test build 1");
+		Summary updatedOverall = updated.getOverallSummary();
+		Summary rebuiltOverall = rebuilt.getOverallSummary();
+		Assert.assertEquals(rebuiltOverall.getEntries().size(),
+				updatedOverall.getEntries().size());
+		Assert.assertEquals(2, updatedOverall.getEntries().get(1)
+				.getBuildNumber());
+		Assert.assertEquals(rebuiltOverall.getPassedBuilds(),
+				updatedOverall.getPassedBuilds());
+		Assert.assertEquals(rebuiltOverall.getFailedBuilds(),
+				updatedOverall.getFailedBuilds());
+		Assert.assertEquals(rebuiltOverall.getTotalBuilds(),
+				updatedOverall.getTotalBuilds());
+		Assert.assertEquals(1, updated.getFeatureSummaries().size());
+		Assert.assertEquals(1, updated.getScenarioSummaries().size());
+		Assert.assertEquals(1, updated.getStepSummaries().size());
+		Summary step = updated.getStepSummaries().values().iterator().next();
+		Assert.assertEquals(2, step.getEntries().size());
+		Assert.assertEquals(1, step.getPassedBuilds());
+		Assert.assertEquals(1, step.getFailedBuilds());
+		Assert.assertEquals(2, updated.getLastBuildNumber());
+		Assert.assertEquals(1, updated.getStepDefinitionSummaries().size());
+		StepDefinitionSummary updatedStepDefinition = updated
+				.getStepDefinitionSummaries().values().iterator().next();
+		StepDefinitionSummary rebuiltStepDefinition = rebuilt
+				.getStepDefinitionSummaries().values().iterator().next();
+		Assert.assertEquals(rebuiltStepDefinition.getEntries().size(),
+				updatedStepDefinition.getEntries().size());
+		Assert.assertEquals(rebuiltStepDefinition.getTotalCalls(),
+				updatedStepDefinition.getTotalCalls());
+		Assert.assertEquals(rebuiltStepDefinition.getFailedBuilds(),
+				updatedStepDefinition.getFailedBuilds());
+	}
+
+	@Test
+	public void testPartitionedBuildMatchesSequentialBuild()
+			throws IOException {
+		String[] reports = { testUtils.loadJsonFile("/cuc-large-1.json"),
+				testUtils.loadJsonFile("/cuc-large-2.json"),
+				testUtils.loadJsonFile("/cuc-large-1-fail.json") };
+		List<ProjectRun> projectRuns = new ArrayList<ProjectRun>();
+		for (int i = 0; i < 3 * ReportBuilder.MINIMUM_RUNS_PER_PARTITION; i++) {
+			ProjectRun run = new ProjectRun();
+			run.setBuildNumber(i + 1);
+			run.setRunDate(new Date(i * 1000l));
+			// features first seen part way through the history
+			run.setFeatures(CucumberPerfUtils.getData(reports[i < 70 ? i % 2
+					: i % 3]));
+			projectRuns.add(run);
+		}
+		ProjectSummary sequential = builder.buildProjectSummary(projectRuns,
+				"test build 1", 1);
+		ProjectSummary partitioned = builder.buildProjectSummary(projectRuns,
+				"test build 1", 4);
+		assertSameSummary(sequential.getOverallSummary(),
+				partitioned.getOverallSummary());
+		Map<String, Summary> sequentialSummaries = getByKey(sequential);
+		Map<String, Summary> partitionedSummaries = getByKey(partitioned);
+		Assert.assertEquals(sequentialSummaries.keySet(),
+				partitionedSummaries.keySet());
+		for (String key : sequentialSummaries.keySet()) {
+			assertSameSummary(sequentialSummaries.get(key),
+					partitionedSummaries.get(key));
+		}
+	}
+
+	private Map<String, Summary> getByKey(ProjectSummary projectSummary) {
+		Map<String, Summary> summaries = new HashMap<String, Summary>();
+		for (Summary summary : projectSummary.assembleAllSummaries().values()) {
+			summaries.put(summary.getSummaryType() + summary.getSeniorId()
+					+ summary.getId(), summary);
+		}
+		return summaries;
+	}
+
+	private void assertSameSummary(Summary expected, Summary actual) {
+		Assert.assertEquals(expected.getName(), actual.getName());
+		Assert.assertEquals(expected.getOrder(), actual.getOrder());
+		Assert.assertEquals(expected.getPassedBuilds(), actual.getPassedBuilds());
+		Assert.assertEquals(expected.getFailedBuilds(), actual.getFailedBuilds());
+		Assert.assertEquals(expected.getTotalBuilds(), actual.getTotalBuilds());
+		Assert.assertEquals(expected.getPassedSteps(), actual.getPassedSteps());
+		Assert.assertEquals(expected.getFailedSteps(), actual.getFailedSteps());
+		Assert.assertEquals(expected.getSkippedSteps(),
+				actual.getSkippedSteps());
+		Assert.assertEquals(expected.getShortestDuration(),
+				actual.getShortestDuration());
+		Assert.assertEquals(expected.getLongestDuration(),
+				actual.getLongestDuration());
+		Assert.assertEquals(expected.getAverageDuration(),
+				actual.getAverageDuration());
+		Assert.assertEquals(expected.getP90Duration(), actual.getP90Duration());
+		Assert.assertEquals(expected.getKeyword(), actual.getKeyword());
+		Assert.assertEquals(expected.getEntries().size(), actual.getEntries()
+				.size());
+		for (int i = 0; i < expected.getEntries().size(); i++) {
+			Assert.assertEquals(expected.getEntries().get(i).getBuildNumber(),
+					actual.getEntries().get(i).getBuildNumber());
+		}
+		if (expected instanceof StepDefinitionSummary) {
+			StepDefinitionSummary expectedStepDefinition = (StepDefinitionSummary) expected;
+			StepDefinitionSummary actualStepDefinition = (StepDefinitionSummary) actual;
+			Assert.assertEquals(expectedStepDefinition.getCallP90Duration(),
+					actualStepDefinition.getCallP90Duration());
+			Assert.assertEquals(
+					expectedStepDefinition.getAverageCallDuration(),
+					actualStepDefinition.getAverageCallDuration());
+			Assert.assertEquals(expectedStepDefinition.getTopCallers().size(),
+					actualStepDefinition.getTopCallers().size());
+			for (int i = 0; i < expectedStepDefinition.getTopCallers().size(); i++) {
+				Assert.assertEquals(expectedStepDefinition.getTopCallers()
+						.get(i).getCalls(), actualStepDefinition
+						.getTopCallers().get(i).getCalls());
+			}
+		}
+	}
+
+	@Test
+	public void testCanUpdate() {
+		ProjectRun run = testUtils.generateRun("passed");
+		run.setBuildNumber(5);
+		ProjectSummary summary = builder.buildProjectSummary(
+				Collections.singletonList(run), "test build 1");
+		Assert.assertFalse(ReportBuilder.canUpdate(null, 6));
+		Assert.assertTrue(ReportBuilder.canUpdate(summary, 6));
+		// already contains this build
+		Assert.assertFalse(ReportBuilder.canUpdate(summary, 5));
+		// written by an older version of the plugin
+		summary.setFormatVersion(0);
+		Assert.assertFalse(ReportBuilder.canUpdate(summary, 6));
+	}
+
 }
@@ -0,0 +1,144 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Shard;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ShardBalancerTest {
+
+	private Summary createSummary(String id, long averageDuration) {
+		Summary summary = new Summary(id + "-link");
+		summary.setId(id);
+		summary.setName(id.toUpperCase());
+		summary.setAverageDuration(averageDuration);
+		return summary;
+	}
+
+	@Test
+	public void testLongestItemsArePlacedFirst() {
+		List<Summary> summaries = new ArrayList<Summary>();
+		summaries.add(createSummary("a", 2));
+		summaries.add(createSummary("b", 7));
+		summaries.add(createSummary("c", 5));
+		summaries.add(createSummary("d", 4));
+		summaries.add(createSummary("e", 3));
+		summaries.add(createSummary("f", 3));
+		List<Shard> shards = new ShardBalancer(2, SummaryType.FEATURE)
+				.balance(summaries);
+		Assert.assertEquals(2, shards.size());
+		// 7 5 4 3 3 2 - shard 0 gets b,e,a and shard 1 gets c,d,f
+		Assert.assertEquals(12, shards.get(0).getExpectedDuration());
+		Assert.assertEquals(12, shards.get(1).getExpectedDuration());
+		Assert.assertEquals("b", shards.get(0).getSummaries().get(0).getId());
+		Assert.assertEquals("e", shards.get(0).getSummaries().get(1).getId());
+		Assert.assertEquals("a", shards.get(0).getSummaries().get(2).getId());
+		Assert.assertEquals("c", shards.get(1).getSummaries().get(0).getId());
+		Assert.assertEquals("f", shards.get(1).getSummaries().get(2).getId());
+	}
+
+	@Test
+	public void testBalanceIsDeterministic() {
+		List<Summary> summaries = new ArrayList<Summary>();
+		for (int i = 0; i < 50; i++) {
+			summaries.add(createSummary("item" + i, i % 7 + 1));
+		}
+		List<Shard> first = new ShardBalancer(4, SummaryType.FEATURE)
+				.balance(summaries);
+		Collections.reverse(summaries);
+		List<Shard> second = new ShardBalancer(4, SummaryType.FEATURE)
+				.balance(summaries);
+		for (int i = 0; i < 4; i++) {
+			Assert.assertEquals(first.get(i).getSummaries().size(), second
+					.get(i).getSummaries().size());
+			for (int j = 0; j < first.get(i).getSummaries().size(); j++) {
+				Assert.assertSame(first.get(i).getSummaries().get(j), second
+						.get(i).getSummaries().get(j));
+			}
+		}
+	}
+
+	@Test
+	public void testMoreShardsThanItems() {
+		List<Summary> summaries = new ArrayList<Summary>();
+		summaries.add(createSummary("a", 10));
+		List<Shard> shards = new ShardBalancer(3, SummaryType.FEATURE)
+				.balance(summaries);
+		Assert.assertEquals(3, shards.size());
+		Assert.assertEquals(1, shards.get(0).getSummaries().size());
+		Assert.assertTrue(shards.get(2).getSummaries().isEmpty());
+	}
+
+	@Test
+	public void testBalanceScenarios() {
+		Map<String, Summary> scenarios = new HashMap<String, Summary>();
+		scenarios.put("x", createSummary("f;x", 100));
+		scenarios.put("y", createSummary("f;y", 100));
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setScenarioSummaries(scenarios);
+		List<Shard> shards = new ShardBalancer(2, SummaryType.SCENARIO)
+				.balance(projectSummary);
+		Assert.assertEquals("f;x", shards.get(0).getSummaries().get(0).getId());
+		Assert.assertEquals("f;y", shards.get(1).getSummaries().get(0).getId());
+		Assert.assertTrue(new ShardBalancer(2, SummaryType.FEATURE).balance(
+				projectSummary).get(0).getSummaries().isEmpty());
+	}
+
+	@Test
+	public void testWritePlan() throws IOException {
+		List<Summary> summaries = new ArrayList<Summary>();
+		Summary summary = createSummary("f;x", 100);
+		summary.setSeniorName("Feature F");
+		summaries.add(summary);
+		ShardBalancer balancer = new ShardBalancer(2, SummaryType.SCENARIO);
+		StringWriter writer = new StringWriter();
+		balancer.writePlan(balancer.balance(summaries), 12, writer);
+		JsonNode plan = new ObjectMapper().readTree(writer.toString());
+		Assert.assertEquals("scenario", plan.get("shardBy").asText());
+		Assert.assertEquals(2, plan.get("shardCount").asInt());
+		Assert.assertEquals(12, plan.get("basedOnBuild").asInt());
+		JsonNode item = plan.get("shards").get(0).get("items").get(0);
+		Assert.assertEquals("f;x", item.get("id").asText());
+		Assert.assertEquals("F;X", item.get("name").asText());
+		Assert.assertEquals("Feature F", item.get("feature").asText());
+		Assert.assertEquals(100, item.get("expectedDuration").asLong());
+		Assert.assertEquals(0, plan.get("shards").get(1).get("items").size());
+	}
+
+	@Test
+	public void testParseLevel() {
+		Assert.assertEquals(SummaryType.FEATURE, ShardBalancer.parseLevel(null));
+		Assert.assertEquals(SummaryType.FEATURE, ShardBalancer.parseLevel(" "));
+		Assert.assertEquals(SummaryType.SCENARIO,
+				ShardBalancer.parseLevel("Scenario"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseUnknownLevel() {
+		ShardBalancer.parseLevel("tag");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStepsCannotBeSharded() {
+		new ShardBalancer(2, SummaryType.STEP);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoShards() {
+		new ShardBalancer(0, SummaryType.FEATURE);
+	}
+
+}
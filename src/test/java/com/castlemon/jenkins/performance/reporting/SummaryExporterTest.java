@@ -0,0 +1,300 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.SummaryQuery;
+import com.castlemon.jenkins.performance.domain.reporting.comparator.SummaryRankingComparator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SummaryExporterTest {
+
+	private ProjectSummary projectSummary;
+
+	private SummaryExporter exporter;
+
+	private Summary createSummary(SummaryType summaryType, String id,
+			Summary senior, int firstBuild, long elapsedTime) {
+		Summary summary = new Summary(id);
+		summary.setSummaryType(summaryType);
+		summary.setId(id);
+		summary.setName(id.replace('-', ' '));
+		if (senior != null) {
+			summary.setSeniorId(senior.getId());
+			summary.setSeniorName(senior.getName());
+			summary.setSeniorPageLink(senior.getPageLink());
+		}
+		for (int build = firstBuild; build <= 6; build++) {
+			PerformanceEntry entry = new PerformanceEntry();
+			entry.setBuildNumber(build);
+			entry.setElapsedTime(elapsedTime + build);
+			entry.setPassed(true);
+			summary.addEntry(entry);
+		}
+		return summary;
+	}
+
+	@Before
+	public void setUp() {
+		Map<String, Summary> features = new HashMap<String, Summary>();
+		Map<String, Summary> scenarios = new HashMap<String, Summary>();
+		Map<String, Summary> steps = new HashMap<String, Summary>();
+		for (int f = 0; f < 3; f++) {
+			Summary feature = createSummary(SummaryType.FEATURE, "feature-"
+					+ f, null, 1, 1000l * (f + 1));
+			if (f == 1) {
+				feature.setTags(Arrays.asList("@slow"));
+			}
+			features.put(feature.getPageLink(), feature);
+			for (int s = 0; s < 4; s++) {
+				// the last feature's scenarios only ran in the later builds
+				Summary scenario = createSummary(SummaryType.SCENARIO,
+						"scenario-" + f + "-" + s, feature, f == 2 ? 5 : 1,
+						(s * 7 + f * 3) % 10 * 10l);
+				List<String> tags = new ArrayList<String>();
+				if (feature.getTags() != null) {
+					tags.addAll(feature.getTags());
+				}
+				if (s % 2 == 0) {
+					tags.add("@smoke");
+				}
+				scenario.setTags(tags.isEmpty() ? null : tags);
+				scenarios.put(scenario.getPageLink(), scenario);
+				for (int t = 0; t < 3; t++) {
+					Summary step = createSummary(SummaryType.STEP, "step-" + f
+							+ "-" + s + "-" + t, scenario, 1, t);
+					steps.put(step.getPageLink(), step);
+				}
+			}
+		}
+		projectSummary = new ProjectSummary();
+		Summary overall = createSummary(SummaryType.PROJECT, "project", null,
+				1, 5000l);
+		projectSummary.setOverallSummary(overall);
+		projectSummary.setFeatureSummaries(features);
+		projectSummary.setScenarioSummaries(scenarios);
+		projectSummary.setStepSummaries(steps);
+		exporter = new SummaryExporter(projectSummary);
+	}
+
+	private List<String> getPageLinks(List<Summary> summaries) {
+		List<String> pageLinks = new ArrayList<String>();
+		for (Summary summary : summaries) {
+			pageLinks.add(summary.getPageLink());
+		}
+		return pageLinks;
+	}
+
+	private List<String> pageThrough(SummaryType summaryType,
+			SummaryQuery query) {
+		List<String> pageLinks = new ArrayList<String>();
+		SummaryExporter.Page page = exporter.select(summaryType, query);
+		pageLinks.addAll(getPageLinks(page.getSummaries()));
+		while (page.getNextCursor() != null) {
+			Assert.assertEquals(query.getLimit(), page.getSummaries().size());
+			query.setCursor(page.getNextCursor());
+			page = exporter.select(summaryType, query);
+			pageLinks.addAll(getPageLinks(page.getSummaries()));
+		}
+		return pageLinks;
+	}
+
+	private JsonNode write(SummaryType summaryType, SummaryQuery query)
+			throws IOException {
+		StringWriter output = new StringWriter();
+		exporter.writeSummaries(summaryType, query, output);
+		return new ObjectMapper().readTree(output.toString());
+	}
+
+	@Test
+	public void testPagesByName() {
+		SummaryQuery query = new SummaryQuery();
+		query.setLimit("5");
+		List<String> pageLinks = pageThrough(SummaryType.SCENARIO, query);
+		List<String> expected = new ArrayList<String>(projectSummary
+				.getScenarioSummaries().keySet());
+		Collections.sort(expected);
+		Assert.assertEquals(expected, pageLinks);
+		query = new SummaryQuery();
+		query.setLimit("5");
+		query.setOrder("desc");
+		Collections.reverse(expected);
+		Assert.assertEquals(expected, pageThrough(SummaryType.SCENARIO, query));
+	}
+
+	@Test
+	public void testPagesByMetric() {
+		SummaryQuery query = new SummaryQuery();
+		query.setLimit("4");
+		query.setSort("average");
+		Assert.assertTrue(query.isDescending());
+		List<Summary> sorted = new ArrayList<Summary>(projectSummary
+				.getScenarioSummaries().values());
+		// many scenarios share an average, so the page links settle the order
+		Collections.sort(sorted, new SummaryRankingComparator(
+				RankingMetric.AVERAGE));
+		Assert.assertEquals(getPageLinks(sorted),
+				pageThrough(SummaryType.SCENARIO, query));
+	}
+
+	@Test
+	public void testFilters() {
+		SummaryQuery query = new SummaryQuery();
+		query.setName("SCENARIO 1");
+		SummaryExporter.Page page = exporter.select(SummaryType.SCENARIO,
+				query);
+		Assert.assertEquals(4, page.getTotal());
+		Assert.assertNull(page.getNextCursor());
+		query = new SummaryQuery();
+		query.setTags(new String[] { "smoke" });
+		Assert.assertEquals(6, exporter.select(SummaryType.SCENARIO, query)
+				.getTotal());
+		// a feature has the tags of its scenarios
+		Assert.assertEquals(3, exporter.select(SummaryType.FEATURE, query)
+				.getTotal());
+		// and a step those of its scenario
+		Assert.assertEquals(18, exporter.select(SummaryType.STEP, query)
+				.getTotal());
+		query.setTags(new String[] { "@smoke", "@slow" });
+		Assert.assertEquals(Arrays.asList("scenario-1-0", "scenario-1-2"),
+				getPageLinks(exporter.select(SummaryType.SCENARIO, query)
+						.getSummaries()));
+		query = new SummaryQuery();
+		query.setSenior("scenario-2-3");
+		Assert.assertEquals(
+				Arrays.asList("step-2-3-0", "step-2-3-1", "step-2-3-2"),
+				getPageLinks(exporter.select(SummaryType.STEP, query)
+						.getSummaries()));
+		query = new SummaryQuery();
+		query.setToBuild("4");
+		Assert.assertEquals(8, exporter.select(SummaryType.SCENARIO, query)
+				.getTotal());
+	}
+
+	@Test
+	public void testRefusedQueries() {
+		SummaryQuery query = new SummaryQuery();
+		query.setCursor("no-such-scenario");
+		try {
+			exporter.select(SummaryType.SCENARIO, query);
+			Assert.fail("an unknown cursor should be refused");
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().contains("no-such-scenario"));
+		}
+		query = new SummaryQuery();
+		query.setSenior("feature-0");
+		try {
+			exporter.select(SummaryType.FEATURE, query);
+			Assert.fail("features have no senior");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		query = new SummaryQuery();
+		query.setSenior("scenario-0-0");
+		try {
+			exporter.select(SummaryType.SCENARIO, query);
+			Assert.fail("a scenario's senior must be a feature");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testWriteSummaries() throws IOException {
+		SummaryQuery query = new SummaryQuery();
+		query.setLimit("2");
+		query.setFields("pageLink,tags,url,entries");
+		query.setFromBuild("5");
+		JsonNode page = write(SummaryType.SCENARIO, query);
+		Assert.assertEquals("scenario", page.get("type").asText());
+		Assert.assertEquals(12, page.get("total").asInt());
+		Assert.assertEquals(2, page.get("count").asInt());
+		Assert.assertEquals("scenario-0-1", page.get("nextCursor").asText());
+		JsonNode item = page.get("items").get(0);
+		Set<String> fieldNames = new HashSet<String>();
+		for (Iterator<String> names = item.fieldNames(); names.hasNext();) {
+			fieldNames.add(names.next());
+		}
+		Assert.assertEquals(
+				new HashSet<String>(Arrays.asList("pageLink", "tags", "url",
+						"entries")), fieldNames);
+		Assert.assertEquals("scenario-0-0", item.get("pageLink").asText());
+		Assert.assertEquals("@smoke", item.get("tags").get(0).asText());
+		Assert.assertEquals("scenario/scenario-0-0", item.get("url").asText());
+		// only builds 5 and 6 are in range
+		Assert.assertEquals(2, item.get("entries").size());
+		Assert.assertEquals(5, item.get("entries").get(0).get("buildNumber")
+				.asInt());
+		Assert.assertEquals(5l, item.get("entries").get(0).get("elapsedTime")
+				.asLong());
+		Assert.assertEquals(0, item.get("entries").get(0).get("failedSteps")
+				.asInt());
+		query.setCursor(page.get("nextCursor").asText());
+		query.setLimit("1000");
+		page = write(SummaryType.SCENARIO, query);
+		Assert.assertEquals(10, page.get("count").asInt());
+		Assert.assertTrue(page.get("nextCursor").isNull());
+	}
+
+	@Test
+	public void testWriteProject() throws IOException {
+		StringWriter output = new StringWriter();
+		SummaryQuery query = new SummaryQuery();
+		query.setFields("averageDuration,totalBuilds");
+		exporter.writeProject(query, output);
+		JsonNode project = new ObjectMapper().readTree(output.toString());
+		Assert.assertEquals(6, project.get("lastBuildNumber").asInt());
+		Assert.assertEquals(3, project.get("features").asInt());
+		Assert.assertEquals(12, project.get("scenarios").asInt());
+		Assert.assertEquals(36, project.get("steps").asInt());
+		Assert.assertEquals(0, project.get("stepDefinitions").asInt());
+		Assert.assertEquals(2, project.get("overall").size());
+		Assert.assertEquals(5003l, project.get("overall")
+				.get("averageDuration").asLong());
+	}
+
+	@Test
+	public void testWriteSeries() throws IOException {
+		Summary scenario = exporter.getSummary(SummaryType.SCENARIO,
+				"scenario-1-1");
+		SummaryQuery query = new SummaryQuery();
+		query.setLimit("4");
+		query.setFromBuild("2");
+		StringWriter output = new StringWriter();
+		exporter.writeSeries(scenario, query, output);
+		JsonNode series = new ObjectMapper().readTree(output.toString());
+		Assert.assertEquals("scenario-1-1", series.get("pageLink").asText());
+		Assert.assertEquals(4, series.get("count").asInt());
+		Assert.assertEquals(2, series.get("entries").get(0).get("buildNumber")
+				.asInt());
+		Assert.assertEquals("5", series.get("nextCursor").asText());
+		query.setCursor("5");
+		output = new StringWriter();
+		exporter.writeSeries(scenario, query, output);
+		series = new ObjectMapper().readTree(output.toString());
+		Assert.assertEquals(1, series.get("count").asInt());
+		Assert.assertEquals(6, series.get("entries").get(0).get("buildNumber")
+				.asInt());
+		Assert.assertTrue(series.get("nextCursor").isNull());
+	}
+
+}
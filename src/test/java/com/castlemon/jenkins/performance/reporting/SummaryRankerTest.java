@@ -0,0 +1,96 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.comparator.SummaryRankingComparator;
+
+public class SummaryRankerTest {
+
+	private List<Summary> createSummaries(int count) {
+		Random random = new Random(11l);
+		List<Summary> summaries = new ArrayList<Summary>();
+		for (int i = 0; i < count; i++) {
+			Summary summary = new Summary("link" + i);
+			summary.setSummaryType(SummaryType.STEP);
+			for (int build = 1; build <= 6; build++) {
+				PerformanceEntry entry = new PerformanceEntry();
+				entry.setBuildNumber(build);
+				// plenty of ties, so that the page links settle the order
+				entry.setElapsedTime(random.nextInt(20) * 100l);
+				entry.setPassed(build != 3);
+				summary.addEntry(entry);
+			}
+			summaries.add(summary);
+		}
+		return summaries;
+	}
+
+	private List<String> getPageLinks(List<Summary> summaries) {
+		List<String> pageLinks = new ArrayList<String>();
+		for (Summary summary : summaries) {
+			pageLinks.add(summary.getPageLink());
+		}
+		return pageLinks;
+	}
+
+	@Test
+	public void testRankingsMatchAFullSort() {
+		List<Summary> summaries = createSummaries(200);
+		Map<RankingMetric, List<String>> rankings = new SummaryRanker(15)
+				.rank(summaries);
+		Assert.assertEquals(RankingMetric.values().length, rankings.size());
+		for (RankingMetric metric : RankingMetric.values()) {
+			List<Summary> sorted = new ArrayList<Summary>(summaries);
+			Collections.sort(sorted, new SummaryRankingComparator(metric));
+			Assert.assertEquals(metric.toString(),
+					getPageLinks(sorted.subList(0, 15)), rankings.get(metric));
+		}
+	}
+
+	@Test
+	public void testFewerSummariesThanTheRankingSize() {
+		List<Summary> summaries = createSummaries(3);
+		Map<RankingMetric, List<String>> rankings = new SummaryRanker(10)
+				.rank(summaries);
+		List<Summary> sorted = new ArrayList<Summary>(summaries);
+		Collections.sort(sorted, new SummaryRankingComparator(
+				RankingMetric.TOTAL));
+		Assert.assertEquals(getPageLinks(sorted),
+				rankings.get(RankingMetric.TOTAL));
+		Assert.assertTrue(new SummaryRanker(10).rank(new ArrayList<Summary>())
+				.get(RankingMetric.AVERAGE).isEmpty());
+	}
+
+	@Test
+	public void testRankProjectSummary() {
+		ProjectSummary projectSummary = new ProjectSummary();
+		Map<String, Summary> features = new HashMap<String, Summary>();
+		for (Summary summary : createSummaries(4)) {
+			features.put(summary.getPageLink(), summary);
+		}
+		projectSummary.setFeatureSummaries(features);
+		projectSummary.setScenarioSummaries(new HashMap<String, Summary>());
+		projectSummary.setStepSummaries(new HashMap<String, Summary>());
+		Map<SummaryType, Map<RankingMetric, List<String>>> rankings = new SummaryRanker(
+				2).rank(projectSummary);
+		Assert.assertEquals(2, rankings.get(SummaryType.FEATURE)
+				.get(RankingMetric.P95).size());
+		Assert.assertTrue(rankings.get(SummaryType.STEP)
+				.get(RankingMetric.GROWTH).isEmpty());
+		Assert.assertNull(rankings.get(SummaryType.STEP_DEFINITION));
+	}
+
+}
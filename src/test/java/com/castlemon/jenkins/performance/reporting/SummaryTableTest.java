@@ -0,0 +1,126 @@
+package com.castlemon.jenkins.performance.reporting;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.domain.reporting.TableQuery;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SummaryTableTest {
+
+	private SummaryTable table;
+
+	private TableQuery query = new TableQuery();
+
+	@Before
+	public void setUp() {
+		Map<String, Summary> steps = new HashMap<String, Summary>();
+		for (int i = 0; i < 25; i++) {
+			Summary step = new Summary("step-" + i);
+			step.setSummaryType(SummaryType.STEP);
+			step.setName("step " + i);
+			step.setKeyword("Given ");
+			step.setSeniorName(i % 5 == 0 ? "login scenario" : "other scenario");
+			step.setSeniorPageLink(i % 5 == 0 ? "login" : "other");
+			step.setAverageDuration(i * 1000000000l);
+			steps.put(step.getPageLink(), step);
+		}
+		ProjectSummary projectSummary = new ProjectSummary();
+		projectSummary.setStepSummaries(steps);
+		table = new SummaryTable(projectSummary);
+	}
+
+	private JsonNode write() throws IOException {
+		StringWriter writer = new StringWriter();
+		table.write(SummaryType.STEP, query, writer);
+		return new ObjectMapper().readTree(writer.toString());
+	}
+
+	@Test
+	public void testFirstPageIsTheSlowest() throws IOException {
+		query.setDraw("4");
+		JsonNode page = write();
+		Assert.assertEquals(4, page.get("draw").asInt());
+		Assert.assertEquals(25, page.get("recordsTotal").asInt());
+		Assert.assertEquals(25, page.get("recordsFiltered").asInt());
+		Assert.assertEquals(TableQuery.DEFAULT_LENGTH, page.get("data").size());
+		JsonNode row = page.get("data").get(0);
+		Assert.assertEquals("step-24", row.get("pageLink").asText());
+		Assert.assertEquals("step/step-24", row.get("url").asText());
+		Assert.assertEquals("Given ", row.get("keyword").asText());
+		Assert.assertTrue(row.get("averageDuration").isTextual());
+		Assert.assertEquals("step-23", page.get("data").get(1).get("pageLink")
+				.asText());
+	}
+
+	@Test
+	public void testLastPageAscending() throws IOException {
+		query.setOrder("averageDuration", "asc");
+		query.setStart("20");
+		JsonNode page = write();
+		Assert.assertEquals(5, page.get("data").size());
+		Assert.assertEquals("step-20", page.get("data").get(0).get("pageLink")
+				.asText());
+		Assert.assertEquals("step-24", page.get("data").get(4).get("pageLink")
+				.asText());
+	}
+
+	@Test
+	public void testSearch() throws IOException {
+		query.setSearch("LOGIN");
+		query.setStart("2");
+		JsonNode page = write();
+		Assert.assertEquals(25, page.get("recordsTotal").asInt());
+		Assert.assertEquals(5, page.get("recordsFiltered").asInt());
+		Assert.assertEquals(3, page.get("data").size());
+		Assert.assertEquals("step-10", page.get("data").get(0).get("pageLink")
+				.asText());
+		query.setSearch("step 1");
+		query.setStart("0");
+		query.setOrder("name", "asc");
+		page = write();
+		// step 1 and step 10 to step 19
+		Assert.assertEquals(11, page.get("recordsFiltered").asInt());
+		Assert.assertEquals("step 1", page.get("data").get(0).get("name")
+				.asText());
+	}
+
+	@Test
+	public void testSenior() throws IOException {
+		query.setSenior("login");
+		query.setLength("2");
+		JsonNode page = write();
+		Assert.assertEquals(5, page.get("recordsTotal").asInt());
+		Assert.assertEquals(5, page.get("recordsFiltered").asInt());
+		Assert.assertEquals(2, page.get("data").size());
+		Assert.assertEquals("step-20", page.get("data").get(0).get("pageLink")
+				.asText());
+		Assert.assertEquals("step-15", page.get("data").get(1).get("pageLink")
+				.asText());
+		query.setSearch("step 1");
+		page = write();
+		Assert.assertEquals(5, page.get("recordsTotal").asInt());
+		// step 10 and step 15
+		Assert.assertEquals(2, page.get("recordsFiltered").asInt());
+	}
+
+	@Test
+	public void testNoSummaries() throws IOException {
+		StringWriter writer = new StringWriter();
+		table.write(SummaryType.FEATURE, query, writer);
+		JsonNode page = new ObjectMapper().readTree(writer.toString());
+		Assert.assertEquals(0, page.get("recordsTotal").asInt());
+		Assert.assertEquals(0, page.get("data").size());
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+
+public class DigestCallableTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	@Test
+	public void testInvoke() throws Exception {
+		File reportFile = FileUtils.toFile(this.getClass().getResource(
+				"/cuc-large-1.json"));
+		File reportDirectory = testFolder.newFolder("target");
+		FileUtils.copyFile(reportFile, new File(reportDirectory,
+				"cucumber.json"));
+		FileUtils.copyFile(reportFile, new File(reportDirectory,
+				"other.json"));
+		DigestCallable.Digest result = new DigestCallable("cucumber.json", 7,
+				new Date(5000l)).invoke(testFolder.getRoot(), null);
+		Assert.assertNotNull(result);
+		byte[] digest = result.getBytes();
+		Assert.assertTrue(digest.length < reportFile.length());
+		final List<Feature> features = new ArrayList<Feature>();
+		int featureCount = RunDigest.read(new ByteArrayInputStream(digest),
+				new FeatureHandler() {
+					public void handleFeature(Feature feature) {
+						features.add(feature);
+					}
+				});
+		List<Feature> bound = CucumberPerfUtils.getData(FileUtils
+				.readFileToString(reportFile));
+		// only the named report is read
+		Assert.assertEquals(bound.size(), featureCount);
+		Assert.assertEquals(featureCount, result.getFeatureCount());
+		Assert.assertTrue(result.getBytesSkipped() >= 0);
+		Assert.assertEquals(bound.get(0).getId(), features.get(0).getId());
+		File digestFile = testFolder.newFile(RunDigest.DIGEST_FILE_NAME);
+		FileUtils.writeByteArrayToFile(digestFile, digest);
+		ProjectRun run = RunDigest.openRun(digestFile);
+		Assert.assertEquals(7, run.getBuildNumber());
+		Assert.assertEquals(new Date(5000l), run.getRunDate());
+	}
+
+	@Test
+	public void testSkipsUnreadableReports() throws Exception {
+		File reportFile = FileUtils.toFile(this.getClass().getResource(
+				"/cucumber-success.json"));
+		String report = FileUtils.readFileToString(reportFile);
+		FileUtils.copyFile(reportFile, new File(testFolder.newFolder("good"),
+				"cucumber.json"));
+		// cut short part way through, as by a fork killed mid-write
+		FileUtils.writeStringToFile(new File(testFolder.newFolder("truncated"),
+				"cucumber.json"), report.substring(0, report.length() / 2));
+		DigestCallable.Digest result = new DigestCallable("cucumber.json", 3,
+				null).invoke(testFolder.getRoot(), null);
+		Assert.assertNotNull(result);
+		Assert.assertEquals(1, result.getReportsSkipped());
+		Assert.assertEquals(2, result.getFeatureCount());
+		Assert.assertEquals(2, RunDigest.read(
+				new ByteArrayInputStream(result.getBytes()),
+				new FeatureHandler() {
+					public void handleFeature(Feature feature) {
+					}
+				}));
+	}
+
+	@Test
+	public void testNoReports() throws Exception {
+		Assert.assertNull(new DigestCallable("cucumber.json", 1, null).invoke(
+				testFolder.getRoot(), null));
+		Assert.assertNull(new DigestCallable("cucumber.json", 1, null).invoke(
+				new File(testFolder.getRoot(), "missing"), null));
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+public class PageLinksTest {
+
+	private Summary createSummary(String seniorId, String id) {
+		Summary summary = new Summary();
+		summary.setSummaryType(SummaryType.STEP);
+		summary.setSeniorId(seniorId);
+		summary.setId(id);
+		return summary;
+	}
+
+	@Test
+	public void testLinksAreDerived() {
+		String pageLink = PageLinks.getPageLink(SummaryType.STEP, "feature;a",
+				"1");
+		Assert.assertEquals(PageLinks.LINK_LENGTH, pageLink.length());
+		Assert.assertTrue(pageLink.matches("[a-z2-7]+"));
+		Assert.assertEquals(pageLink,
+				PageLinks.getPageLink(SummaryType.STEP, "feature;a", "1"));
+		Assert.assertFalse(pageLink.equals(PageLinks.getPageLink(
+				SummaryType.SCENARIO, "feature;a", "1")));
+		Assert.assertFalse(pageLink.equals(PageLinks.getPageLink(
+				SummaryType.STEP, "feature;b", "1")));
+		Assert.assertFalse(pageLink.equals(PageLinks.getPageLink(
+				SummaryType.STEP, "feature;a", "1", 1)));
+		// the parts cannot run into one another
+		Assert.assertFalse(PageLinks.getPageLink(SummaryType.STEP, "ab", "c")
+				.equals(PageLinks.getPageLink(SummaryType.STEP, "a", "bc")));
+		Assert.assertFalse(PageLinks.getPageLink(SummaryType.STEP, null, "a")
+				.equals(PageLinks.getPageLink(SummaryType.STEP, "", "a")));
+	}
+
+	@Test
+	public void testAssignPageLinks() {
+		Summary summary1 = createSummary("feature;a", "1");
+		Summary summary2 = createSummary("feature;a", "2");
+		Map<String, Summary> summaries = PageLinks.assignPageLinks(Arrays
+				.asList(summary2, summary1));
+		Assert.assertEquals(2, summaries.size());
+		Assert.assertSame(summary1, summaries.get(PageLinks.getPageLink(
+				SummaryType.STEP, "feature;a", "1")));
+		Assert.assertSame(summary2, summaries.get(summary2.getPageLink()));
+	}
+
+	@Test
+	public void testCollisionsAreSettled() {
+		// the same summary twice stands in for two whose links collide
+		Summary first = createSummary("feature;a", "1");
+		Summary second = createSummary("feature;a", "1");
+		Map<String, Summary> summaries = PageLinks.assignPageLinks(Arrays
+				.asList(first, second));
+		Assert.assertEquals(2, summaries.size());
+		Assert.assertEquals(
+				PageLinks.getPageLink(SummaryType.STEP, "feature;a", "1", 1),
+				second.getPageLink());
+		// the links are kept when they are assigned again, in any order
+		Summary later = createSummary("feature;a", "1");
+		Map<String, Summary> reassigned = PageLinks.assignPageLinks(Arrays
+				.asList(later, second, first));
+		Assert.assertSame(first, reassigned.get(first.getPageLink()));
+		Assert.assertSame(second, reassigned.get(second.getPageLink()));
+		Assert.assertEquals(
+				PageLinks.getPageLink(SummaryType.STEP, "feature;a", "1", 2),
+				later.getPageLink());
+	}
+
+	@Test
+	public void testRandomLinksAreReplaced() {
+		List<Summary> summaries = new ArrayList<Summary>();
+		Summary legacy = new Summary("aBcDeFgHiJ");
+		legacy.setSummaryType(SummaryType.FEATURE);
+		legacy.setId("feature;a");
+		summaries.add(legacy);
+		PageLinks.assignPageLinks(summaries);
+		Assert.assertEquals(
+				PageLinks.getPageLink(SummaryType.FEATURE, null, "feature;a"),
+				legacy.getPageLink());
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.castlemon.jenkins.performance.domain.Feature;
+
+public class ParallelReportParserTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private List<Feature> features = new ArrayList<Feature>();
+
+	private FeatureHandler collector = new FeatureHandler() {
+		public void handleFeature(Feature feature) {
+			features.add(feature);
+		}
+	};
+
+	private List<String> copyReports(String... resources) throws IOException {
+		List<String> fileNames = new ArrayList<String>();
+		for (int i = 0; i < resources.length; i++) {
+			String fileName = "cucumber-" + i + ".json";
+			FileUtils.copyFile(
+					FileUtils.toFile(this.getClass().getResource(resources[i])),
+					new File(testFolder.getRoot(), fileName));
+			fileNames.add(fileName);
+		}
+		return fileNames;
+	}
+
+	@Test
+	public void testParseKeepsReportOrder() throws IOException {
+		List<String> fileNames = copyReports("/cuc-large-1.json",
+				"/cucumber-success.json", "/cuc-large-2.json",
+				"/cucumber-basic.json", "/cuc-large-3.json");
+		final List<Feature> sequential = new ArrayList<Feature>();
+		StreamingReportParser streamingParser = new StreamingReportParser();
+		for (String fileName : fileNames) {
+			streamingParser.parse(new File(testFolder.getRoot(), fileName),
+					new FeatureHandler() {
+						public void handleFeature(Feature feature) {
+							sequential.add(feature);
+						}
+					});
+		}
+		ParallelReportParser parser = new ParallelReportParser();
+		int featureCount = parser.parse(testFolder.getRoot(), fileNames,
+				collector);
+		Assert.assertEquals(sequential.size(), featureCount);
+		Assert.assertEquals(sequential.size(), features.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			Assert.assertEquals(sequential.get(i).getId(), features.get(i)
+					.getId());
+		}
+		Assert.assertEquals(streamingParser.getBytesSkipped(),
+				parser.getBytesSkipped());
+	}
+
+	@Test
+	public void testParseMoreReportsThanWorkers() throws IOException {
+		// read ahead no further than the pool's workers, refilling as each
+		// report is handed on
+		String[] resources = new String[WorkerPool.get().getParallelism() * 2 + 1];
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] = i % 2 == 0 ? "/cucumber-success.json"
+					: "/cucumber-basic.json";
+		}
+		List<String> fileNames = copyReports(resources);
+		final List<Feature> sequential = new ArrayList<Feature>();
+		for (String fileName : fileNames) {
+			new StreamingReportParser().parse(new File(testFolder.getRoot(),
+					fileName), new FeatureHandler() {
+				public void handleFeature(Feature feature) {
+					sequential.add(feature);
+				}
+			});
+		}
+		Assert.assertEquals(sequential.size(), new ParallelReportParser()
+				.parse(testFolder.getRoot(), fileNames, collector));
+		for (int i = 0; i < sequential.size(); i++) {
+			Assert.assertEquals(sequential.get(i).getId(), features.get(i)
+					.getId());
+		}
+	}
+
+	@Test
+	public void testParseSingleReport() throws IOException {
+		List<String> fileNames = copyReports("/cucumber-success.json");
+		Assert.assertEquals(2, new ParallelReportParser().parse(
+				testFolder.getRoot(), fileNames, collector));
+		Assert.assertEquals(2, features.size());
+	}
+
+	@Test
+	public void testParseContinuesPastBrokenReport() throws IOException {
+		List<String> fileNames = new ArrayList<String>(
+				copyReports("/cucumber-success.json"));
+		FileUtils.writeStringToFile(new File(testFolder.getRoot(),
+				"broken.json"), "{}");
+		fileNames.add(0, "broken.json");
+		try {
+			new ParallelReportParser().parse(testFolder.getRoot(), fileNames,
+					collector);
+			Assert.fail("expected the broken report to be reported");
+		} catch (IOException e) {
+			// expected
+		}
+		Assert.assertEquals(2, features.size());
+	}
+
+	@Test
+	public void testParseSkipsUnreadableReports() throws IOException {
+		List<String> fileNames = new ArrayList<String>(
+				copyReports("/cucumber-success.json"));
+		String report = FileUtils.readFileToString(FileUtils.toFile(this
+				.getClass().getResource("/cuc-large-1.json")));
+		// cut short after its first features are complete
+		FileUtils.writeStringToFile(new File(testFolder.getRoot(),
+				"truncated.json"), report.substring(0, report.length() / 2));
+		fileNames.add(0, "truncated.json");
+		ParallelReportParser parser = new ParallelReportParser();
+		parser.setSkipUnreadable(true);
+		Assert.assertEquals(2, parser.parse(testFolder.getRoot(), fileNames,
+				collector));
+		Assert.assertEquals(2, features.size());
+		Assert.assertEquals(1, parser.getReportsSkipped());
+		// nothing of a lone report is handed on if it is cut short
+		features.clear();
+		Assert.assertEquals(0, parser.parse(testFolder.getRoot(),
+				fileNames.subList(0, 1), collector));
+		Assert.assertTrue(features.isEmpty());
+		Assert.assertEquals(2, parser.getReportsSkipped());
+	}
+
+	@Test
+	public void testParseNoReports() throws IOException {
+		Assert.assertEquals(0, new ParallelReportParser().parse(
+				testFolder.getRoot(), Arrays.<String> asList(), collector));
+	}
+
+}
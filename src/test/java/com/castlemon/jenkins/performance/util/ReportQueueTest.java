@@ -0,0 +1,127 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReportQueueTest {
+
+	private final List<String> completed = new CopyOnWriteArrayList<String>();
+
+	private Runnable regeneration(final String name) {
+		return new Runnable() {
+			public void run() {
+				completed.add(name);
+			}
+		};
+	}
+
+	private Runnable blockingRegeneration(final String name,
+			final CountDownLatch started, final CountDownLatch release) {
+		return new Runnable() {
+			public void run() {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				completed.add(name);
+			}
+		};
+	}
+
+	private void awaitIdle(ReportQueue queue, String key)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (queue.isUpdating(key)) {
+			Assert.assertTrue("timed out waiting for the queue",
+					System.currentTimeMillis() < deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testRegenerationsAreCoalesced() throws InterruptedException {
+		ReportQueue queue = new ReportQueue(1, 10);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Assert.assertFalse(queue.isUpdating("job"));
+		Assert.assertTrue(queue.submit("job",
+				blockingRegeneration("build1", started, release)));
+		Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(queue.isUpdating("job"));
+		// these arrive while build 1 is being generated - only the last runs
+		Assert.assertTrue(queue.submit("job", regeneration("build2")));
+		Assert.assertTrue(queue.submit("job", regeneration("build3")));
+		Assert.assertTrue(queue.submit("job", regeneration("build4")));
+		release.countDown();
+		awaitIdle(queue, "job");
+		Assert.assertEquals(2, completed.size());
+		Assert.assertEquals("build1", completed.get(0));
+		Assert.assertEquals("build4", completed.get(1));
+		Assert.assertEquals(2, queue.getCoalescedCount());
+	}
+
+	@Test
+	public void testJobsAreIndependent() throws InterruptedException {
+		ReportQueue queue = new ReportQueue(1, 10);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		queue.submit("job1", blockingRegeneration("job1", started, release));
+		Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+		queue.submit("job2", regeneration("job2"));
+		Assert.assertTrue(queue.isUpdating("job2"));
+		release.countDown();
+		awaitIdle(queue, "job1");
+		awaitIdle(queue, "job2");
+		Assert.assertTrue(completed.contains("job1"));
+		Assert.assertTrue(completed.contains("job2"));
+		Assert.assertEquals(0, queue.getCoalescedCount());
+	}
+
+	@Test
+	public void testFullQueueIsRefused() throws InterruptedException {
+		ReportQueue queue = new ReportQueue(1, 1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Assert.assertTrue(queue.submit("job1",
+				blockingRegeneration("job1", started, release)));
+		Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(queue.submit("job2", regeneration("job2")));
+		// the one place in the queue is taken
+		Assert.assertFalse(queue.submit("job3", regeneration("job3")));
+		Assert.assertFalse(queue.isUpdating("job3"));
+		release.countDown();
+		awaitIdle(queue, "job2");
+		Assert.assertFalse(completed.contains("job3"));
+	}
+
+	@Test
+	public void testFailedRegenerationDoesNotStopTheJob()
+			throws InterruptedException {
+		ReportQueue queue = new ReportQueue(1, 10);
+		queue.submit("job", new Runnable() {
+			public void run() {
+				throw new IllegalStateException("expected by the test");
+			}
+		});
+		awaitIdle(queue, "job");
+		queue.submit("job", regeneration("retry"));
+		awaitIdle(queue, "job");
+		Assert.assertEquals(1, completed.size());
+	}
+
+	@Test
+	public void testKey() {
+		File directory = new File("jobs/test");
+		Assert.assertEquals(directory.getAbsolutePath(),
+				ReportQueue.getKey(directory));
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.domain.Step;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectRun;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+import com.castlemon.jenkins.performance.reporting.PerformanceReporter;
+
+public class RunDigestTest {
+
+	private File reportFile;
+
+	private File digestFile;
+
+	private List<Feature> features = new ArrayList<Feature>();
+
+	private FeatureHandler collector = new FeatureHandler() {
+		public void handleFeature(Feature feature) {
+			features.add(feature);
+		}
+	};
+
+	@Before
+	public void setUp() throws IOException {
+		reportFile = FileUtils.toFile(this.getClass().getResource(
+				"/cuc-large-1.json"));
+		digestFile = File.createTempFile("cukeperf", ".digest");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(digestFile);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		int written = RunDigest.write(reportFile.getParentFile(),
+				Arrays.asList(reportFile.getName()), 5, new Date(1000l),
+				digestFile);
+		Assert.assertEquals(written, RunDigest.read(digestFile, collector));
+		List<Feature> bound = CucumberPerfUtils.getData(FileUtils
+				.readFileToString(reportFile));
+		Assert.assertEquals(bound.size(), features.size());
+		for (int i = 0; i < bound.size(); i++) {
+			Assert.assertEquals(bound.get(i).getId(), features.get(i).getId());
+			Assert.assertEquals(bound.get(i).getName(), features.get(i)
+					.getName());
+			Assert.assertEquals(bound.get(i).getElements().size(), features
+					.get(i).getElements().size());
+		}
+		Step boundStep = bound.get(0).getElements().get(0).getSteps().get(0);
+		Step step = features.get(0).getElements().get(0).getSteps().get(0);
+		Assert.assertEquals(boundStep.getName(), step.getName());
+		Assert.assertEquals(boundStep.getKeyword(), step.getKeyword());
+		Assert.assertEquals(boundStep.getResult().getStatus(), step
+				.getResult().getStatus());
+		Assert.assertEquals(boundStep.getResult().getDuration(), step
+				.getResult().getDuration());
+		Assert.assertEquals(boundStep.getMatch().getLocation(), step
+				.getMatch().getLocation());
+		Assert.assertEquals("@US2644", features.get(0).getElements().get(0)
+				.getTags().get(1).getName());
+	}
+
+	@Test
+	public void testDigestIsSmallerThanReport() throws IOException {
+		RunDigest.write(reportFile.getParentFile(),
+				Arrays.asList(reportFile.getName()), 5, null, digestFile);
+		Assert.assertTrue(digestFile.length() * 4 < reportFile.length());
+	}
+
+	@Test
+	public void testReportFromDigestMatchesReportFromJson() throws IOException {
+		RunDigest.write(reportFile.getParentFile(),
+				Arrays.asList(reportFile.getName()), 5, null, digestFile);
+		ProjectRun run = RunDigest.openRun(digestFile);
+		PerformanceReporter reporter = new PerformanceReporter();
+		reporter.initialiseEntryMaps();
+		Summary summary = reporter.getPerformanceData(Arrays.asList(run));
+		Assert.assertEquals(1, summary.getEntries().size());
+		Assert.assertEquals(378363603637l, summary.getEntries().get(0)
+				.getElapsedTime());
+		Assert.assertEquals(313, summary.getPassedSteps());
+	}
+
+	@Test
+	public void testOpenRun() throws IOException {
+		RunDigest.write(reportFile.getParentFile(),
+				Arrays.asList(reportFile.getName()), 17, new Date(123456l),
+				digestFile);
+		ProjectRun run = RunDigest.openRun(digestFile);
+		Assert.assertEquals(17, run.getBuildNumber());
+		Assert.assertEquals(new Date(123456l), run.getRunDate());
+		Assert.assertEquals(digestFile, run.getDigestFile());
+		Assert.assertNull(run.getFeatures());
+	}
+
+	@Test
+	public void testOpenRunNoDate() throws IOException {
+		RunDigest.write(reportFile.getParentFile(),
+				Arrays.asList(reportFile.getName()), 17, null, digestFile);
+		Assert.assertNull(RunDigest.openRun(digestFile).getRunDate());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadNotADigest() throws IOException {
+		RunDigest.read(new ByteArrayInputStream("[{}]".getBytes("UTF-8")),
+				collector);
+	}
+
+	@Test
+	public void testVarLong() throws IOException {
+		long[] values = { 0l, 1l, 127l, 128l, 300l, 378363603637l,
+				Long.MAX_VALUE };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (long value : values) {
+			RunDigest.writeVarLong(out, value);
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				bytes.toByteArray()));
+		for (long value : values) {
+			Assert.assertEquals(value, RunDigest.readVarLong(in));
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.castlemon.jenkins.performance.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SeriesDownsamplerTest {
+
+	private int[] createBuilds(int count) {
+		int[] builds = new int[count];
+		for (int i = 0; i < count; i++) {
+			builds[i] = i + 1;
+		}
+		return builds;
+	}
+
+	@Test
+	public void testShortSeriesAreKept() {
+		int[] builds = createBuilds(4);
+		long[] durations = { 5l, 6l, 7l, 8l };
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3 },
+				SeriesDownsampler.select(builds, durations, 4));
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3 },
+				SeriesDownsampler.select(builds, durations, 100));
+		// too few points to sample with
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3 },
+				SeriesDownsampler.select(builds, durations, 2));
+		Assert.assertEquals(0, SeriesDownsampler.select(new int[0],
+				new long[0], 10).length);
+	}
+
+	@Test
+	public void testSpikesAreKept() {
+		int[] builds = createBuilds(1000);
+		long[] durations = new long[1000];
+		for (int i = 0; i < durations.length; i++) {
+			durations[i] = i % 2 == 0 ? 100l : 110l;
+		}
+		durations[333] = 5000l;
+		durations[777] = 1l;
+		int[] selected = SeriesDownsampler.select(builds, durations, 50);
+		Assert.assertEquals(50, selected.length);
+		Assert.assertEquals(0, selected[0]);
+		Assert.assertEquals(999, selected[49]);
+		boolean spike = false;
+		boolean dip = false;
+		for (int i = 0; i < selected.length; i++) {
+			if (i > 0) {
+				Assert.assertTrue(selected[i] > selected[i - 1]);
+			}
+			spike |= selected[i] == 333;
+			dip |= selected[i] == 777;
+		}
+		Assert.assertTrue(spike);
+		Assert.assertTrue(dip);
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.castlemon.jenkins.performance.domain.Feature;
+import com.castlemon.jenkins.performance.domain.Step;
+import com.fasterxml.jackson.core.JsonParseException;
+
+public class StreamingReportParserTest {
+
+	private StreamingReportParser parser = new StreamingReportParser();
+
+	private List<Feature> features = new ArrayList<Feature>();
+
+	private FeatureHandler collector = new FeatureHandler() {
+		public void handleFeature(Feature feature) {
+			features.add(feature);
+		}
+	};
+
+	@Test
+	public void testParseFile() throws IOException {
+		File f = FileUtils.toFile(this.getClass().getResource(
+				"/cucumber-success.json"));
+		Assert.assertEquals(2, parser.parse(f, collector));
+		Assert.assertEquals(2, features.size());
+		Feature feature = features.get(0);
+		Assert.assertEquals(8, feature.getElements().size());
+		Step step = feature.getElements().get(0).getSteps().get(0);
+		Assert.assertEquals("Given ", step.getKeyword());
+		Assert.assertEquals("passed", step.getResult().getStatus());
+		Assert.assertEquals(Long.valueOf(10957080635l), step.getResult()
+				.getDuration());
+		Assert.assertEquals("ImperativeMappings.loggedOnGoesToLandingPage()",
+				step.getMatch().getLocation());
+	}
+
+	@Test
+	public void testParseMatchesDataBinding() throws IOException {
+		File f = FileUtils.toFile(this.getClass().getResource(
+				"/cuc-large-1.json"));
+		parser.parse(f, collector);
+		List<Feature> bound = CucumberPerfUtils.getData(FileUtils
+				.readFileToString(f));
+		Assert.assertEquals(bound.size(), features.size());
+		for (int i = 0; i < bound.size(); i++) {
+			Assert.assertEquals(bound.get(i).getId(), features.get(i).getId());
+			Assert.assertEquals(bound.get(i).getElements().size(), features
+					.get(i).getElements().size());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testParseSkipsUnusedContent() throws IOException {
+		String json = "[{\"id\":\"f1\",\"comments\":[{\"value\":\"#x\"}],"
+				+ "\"elements\":[{\"id\":\"s1\",\"before\":[{\"result\":{\"duration\":5}}],"
+				+ "\"steps\":[{\"name\":\"a step\",\"embeddings\":[{\"data\":\"AAAA\",\"mime_type\":\"image/png\"}],"
+				+ "\"output\":[\"some output\"],\"doc_string\":{\"value\":\"text\"},"
+				+ "\"rows\":[{\"cells\":[\"a\",\"b\"],\"line\":4}],"
+				+ "\"result\":{\"status\":\"failed\",\"error_message\":\"boom\",\"duration\":12}}]}]}]";
+		parser.parse(new ByteArrayInputStream(json.getBytes("UTF-8")),
+				collector);
+		Assert.assertEquals(1, features.size());
+		Assert.assertEquals("f1", features.get(0).getId());
+		Assert.assertTrue(features.get(0).getAdditionalProperties().isEmpty());
+		Step step = features.get(0).getElements().get(0).getSteps().get(0);
+		Assert.assertEquals("a step", step.getName());
+		Assert.assertEquals(Long.valueOf(12l), step.getResult().getDuration());
+		Assert.assertTrue(step.getResult().getAdditionalProperties().isEmpty());
+		Assert.assertEquals(1, step.getAdditionalProperties().size());
+		List<Map<String, List<String>>> rows = (List<Map<String, List<String>>>) step
+				.getAdditionalProperties().get("rows");
+		Assert.assertEquals("b", rows.get(0).get("cells").get(1));
+	}
+
+	@Test
+	public void testParseTags() throws IOException {
+		String json = "[{\"id\":\"f1\",\"tags\":[{\"name\":\"@slow\",\"line\":1}],"
+				+ "\"elements\":[{\"id\":\"s1\",\"tags\":[{\"line\":3,\"name\":\"@smoke\"},"
+				+ "{\"name\":\"@wip\"}],\"steps\":[]},{\"id\":\"s2\",\"tags\":[]}]}]";
+		parser.parse(new ByteArrayInputStream(json.getBytes("UTF-8")),
+				collector);
+		Feature feature = features.get(0);
+		Assert.assertEquals(1, feature.getTags().size());
+		Assert.assertEquals("@slow", feature.getTags().get(0).getName());
+		Assert.assertEquals(2, feature.getElements().get(0).getTags().size());
+		Assert.assertEquals("@wip", feature.getElements().get(0).getTags()
+				.get(1).getName());
+		Assert.assertTrue(feature.getElements().get(1).getTags().isEmpty());
+	}
+
+	@Test
+	public void testBytesSkipped() throws IOException {
+		String embeddings = "[{\"data\":\"AAAA\",\"mime_type\":\"image/png\"}]";
+		String output = "[\"some output\"]";
+		String docString = "{\"value\":\"text\"}";
+		String json = "[{\"id\":\"f1\",\"elements\":[{\"id\":\"s1\","
+				+ "\"steps\":[{\"name\":\"a step\",\"embeddings\":"
+				+ embeddings + ",\"output\":" + output + ",\"doc_string\":"
+				+ docString + ",\"result\":{\"duration\":12}}]}]}]";
+		parser.parse(new ByteArrayInputStream(json.getBytes("UTF-8")),
+				collector);
+		Assert.assertEquals(embeddings.length() + output.length()
+				+ docString.length(), parser.getBytesSkipped());
+	}
+
+	@Test
+	public void testRetainedProperties() throws IOException {
+		String json = "[{\"id\":\"f1\",\"elements\":[{\"id\":\"s1\","
+				+ "\"steps\":[{\"name\":\"a step\",\"output\":[\"some output\"],"
+				+ "\"doc_string\":{\"value\":\"text\"},"
+				+ "\"rows\":[{\"cells\":[\"a\"]}],\"result\":{\"duration\":12}}]}]}]";
+		parser = new StreamingReportParser(Arrays.asList("doc_string"));
+		parser.parse(new ByteArrayInputStream(json.getBytes("UTF-8")),
+				collector);
+		Step step = features.get(0).getElements().get(0).getSteps().get(0);
+		Assert.assertEquals(1, step.getAdditionalProperties().size());
+		Map<?, ?> docString = (Map<?, ?>) step.getAdditionalProperties().get(
+				"doc_string");
+		Assert.assertEquals("text", docString.get("value"));
+		Assert.assertEquals(Long.valueOf(12l), step.getResult().getDuration());
+	}
+
+	@Test
+	public void testDefaultRetainedProperties() {
+		Assert.assertEquals(Arrays.asList("rows"),
+				StreamingReportParser.getDefaultRetainedProperties());
+		System.setProperty(StreamingReportParser.RETAINED_PROPERTIES_PROPERTY,
+				"rows, output,");
+		try {
+			Assert.assertEquals(Arrays.asList("rows", "output"),
+					StreamingReportParser.getDefaultRetainedProperties());
+		} finally {
+			System.clearProperty(StreamingReportParser.RETAINED_PROPERTIES_PROPERTY);
+		}
+	}
+
+	@Test
+	public void testParseEmptyInput() throws IOException {
+		Assert.assertEquals(0, parser.parse(new ByteArrayInputStream(
+				new byte[0]), collector));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testParseNotAnArray() throws IOException {
+		parser.parse(new ByteArrayInputStream("{}".getBytes("UTF-8")),
+				collector);
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.castlemon.jenkins.performance.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringPoolTest {
+
+	@Test
+	public void testIntern() {
+		StringPool pool = new StringPool();
+		String first = new String("Given I am logged in");
+		String second = new String("Given I am logged in");
+		Assert.assertSame(first, pool.intern(first));
+		Assert.assertSame(first, pool.intern(second));
+		Assert.assertSame(first, pool.intern(first));
+		Assert.assertNull(pool.intern(null));
+		Assert.assertEquals(1, pool.size());
+		// only the copy that was replaced counts
+		Assert.assertEquals(1, pool.getDuplicates());
+		Assert.assertEquals(40 + 2 * first.length(), pool.getBytesSaved());
+	}
+
+}
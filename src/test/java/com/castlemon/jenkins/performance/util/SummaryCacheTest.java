@@ -0,0 +1,106 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+
+public class SummaryCacheTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private File firstDirectory;
+
+	private File secondDirectory;
+
+	private long summarySize;
+
+	@Before
+	public void setUp() throws IOException {
+		File f = FileUtils.toFile(this.getClass().getResource("/cukeperf.xml"));
+		ProjectSummary summary = CucumberPerfUtils.readSummaryFromDisk(f
+				.getParentFile());
+		summary.precalculate();
+		summarySize = SummaryCache.estimateSize(summary);
+		firstDirectory = testFolder.newFolder("first");
+		secondDirectory = testFolder.newFolder("second");
+		CucumberPerfUtils.writeSummaryToDisk(summary, firstDirectory);
+		CucumberPerfUtils.writeSummaryToDisk(summary, secondDirectory);
+	}
+
+	@Test
+	public void testSizeIncludesTheSortedIndices() {
+		ProjectSummary summary = CucumberPerfUtils
+				.readSummaryFromDisk(firstDirectory);
+		long unsorted = SummaryCache.estimateSize(summary);
+		summary.precalculate();
+		Assert.assertTrue(summary.getSortedIndexLength() > 0l);
+		Assert.assertEquals(unsorted + summary.getSortedIndexLength() * 8l,
+				SummaryCache.estimateSize(summary));
+	}
+
+	@Test
+	public void testRepeatedReadsAreCached() {
+		SummaryCache cache = new SummaryCache(summarySize * 4);
+		ProjectSummary summary = cache.getSummary(firstDirectory);
+		Assert.assertEquals(11, summary.getOverallSummary().getEntries().size());
+		Assert.assertSame(summary, cache.getSummary(firstDirectory));
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(summarySize, cache.getTotalSize());
+	}
+
+	@Test
+	public void testChangedFileIsReRead() {
+		SummaryCache cache = new SummaryCache(summarySize * 4);
+		ProjectSummary summary = cache.getSummary(firstDirectory);
+		File summaryFile = CucumberPerfUtils.getSummaryFile(firstDirectory);
+		Assert.assertTrue(summaryFile.setLastModified(summaryFile
+				.lastModified() - 10000));
+		ProjectSummary reRead = cache.getSummary(firstDirectory);
+		Assert.assertNotSame(summary, reRead);
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(summarySize, cache.getTotalSize());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		SummaryCache cache = new SummaryCache(summarySize + 1);
+		ProjectSummary first = cache.getSummary(firstDirectory);
+		cache.getSummary(secondDirectory);
+		Assert.assertEquals(1, cache.size());
+		Assert.assertNotSame(first, cache.getSummary(firstDirectory));
+	}
+
+	@Test
+	public void testSummaryLargerThanBudgetIsNotCached() {
+		SummaryCache cache = new SummaryCache(summarySize - 1);
+		Assert.assertNotNull(cache.getSummary(firstDirectory));
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(0l, cache.getTotalSize());
+	}
+
+	@Test
+	public void testMissingSummary() throws IOException {
+		SummaryCache cache = new SummaryCache(summarySize * 4);
+		Assert.assertNull(cache.getSummary(testFolder.newFolder("empty")));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testClear() {
+		SummaryCache cache = new SummaryCache(summarySize * 4);
+		cache.getSummary(firstDirectory);
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(0l, cache.getTotalSize());
+	}
+
+}
@@ -0,0 +1,278 @@
+package com.castlemon.jenkins.performance.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.castlemon.jenkins.performance.domain.enums.RankingMetric;
+import com.castlemon.jenkins.performance.domain.enums.SummaryType;
+import com.castlemon.jenkins.performance.domain.reporting.ChangePoint;
+import com.castlemon.jenkins.performance.domain.reporting.PerformanceEntry;
+import com.castlemon.jenkins.performance.domain.reporting.ProjectSummary;
+import com.castlemon.jenkins.performance.domain.reporting.StepDefinitionSummary;
+import com.castlemon.jenkins.performance.domain.reporting.Summary;
+
+public class SummaryStoreTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private ProjectSummary readLegacySummary() {
+		File f = FileUtils.toFile(this.getClass().getResource("/cukeperf.xml"));
+		return CucumberPerfUtils.readSummaryFromDisk(f.getParentFile());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ProjectSummary original = readLegacySummary();
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(original, storeFile);
+		ProjectSummary restored = SummaryStore.read(storeFile);
+		Assert.assertEquals(original.getFormatVersion(),
+				restored.getFormatVersion());
+		assertSummariesEqual(original.getOverallSummary(),
+				restored.getOverallSummary());
+		assertSummaryMapsEqual(original.getFeatureSummaries(),
+				restored.getFeatureSummaries());
+		assertSummaryMapsEqual(original.getScenarioSummaries(),
+				restored.getScenarioSummaries());
+		assertSummaryMapsEqual(original.getStepSummaries(),
+				restored.getStepSummaries());
+	}
+
+	@Test
+	public void testWriteReplacesTheStore() throws IOException {
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(new ProjectSummary(), storeFile);
+		SummaryStore.write(readLegacySummary(), storeFile);
+		Assert.assertEquals(2, SummaryStore.read(storeFile)
+				.getFeatureSummaries().size());
+		// no temporary files are left behind
+		Assert.assertArrayEquals(new String[] { SummaryStore.STORE_FILE_NAME },
+				testFolder.getRoot().list());
+	}
+
+	@Test
+	public void testRoundTripJuniorPageLinks() throws IOException {
+		ProjectSummary original = readLegacySummary();
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(original, storeFile);
+		Assert.assertNull(SummaryStore.read(storeFile).getScenarioLinks());
+		Map<String, List<String>> scenarioLinks = new HashMap<String, List<String>>();
+		scenarioLinks.put("feature", Arrays.asList("scenario2", "scenario1"));
+		Map<String, List<String>> stepLinks = new HashMap<String, List<String>>();
+		stepLinks.put("scenario1", Arrays.asList("step1"));
+		stepLinks.put("scenario2", new ArrayList<String>());
+		original.setScenarioLinks(scenarioLinks);
+		original.setStepLinks(stepLinks);
+		SummaryStore.write(original, storeFile);
+		ProjectSummary restored = SummaryStore.read(storeFile);
+		Assert.assertEquals(scenarioLinks, restored.getScenarioLinks());
+		Assert.assertEquals(stepLinks, restored.getStepLinks());
+	}
+
+	@Test
+	public void testRoundTripRankings() throws IOException {
+		ProjectSummary original = readLegacySummary();
+		Map<RankingMetric, List<String>> stepRankings = new EnumMap<RankingMetric, List<String>>(
+				RankingMetric.class);
+		stepRankings.put(RankingMetric.P95, Arrays.asList("step2", "step1"));
+		stepRankings.put(RankingMetric.GROWTH, new ArrayList<String>());
+		Map<SummaryType, Map<RankingMetric, List<String>>> rankings = new EnumMap<SummaryType, Map<RankingMetric, List<String>>>(
+				SummaryType.class);
+		rankings.put(SummaryType.STEP, stepRankings);
+		original.setRankings(rankings);
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(original, storeFile);
+		Assert.assertEquals(rankings, SummaryStore.read(storeFile)
+				.getRankings());
+	}
+
+	@Test
+	public void testRoundTripTags() throws IOException {
+		ProjectSummary original = readLegacySummary();
+		Summary scenario = original.getScenarioSummaries().values().iterator()
+				.next();
+		scenario.setTags(Arrays.asList("@smoke", "@slow"));
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(original, storeFile);
+		ProjectSummary restored = SummaryStore.read(storeFile);
+		Assert.assertEquals(Arrays.asList("@smoke", "@slow"), restored
+				.getScenarioSummaries().get(scenario.getPageLink()).getTags());
+		Assert.assertNull(restored.getFeatureSummaries().values().iterator()
+				.next().getTags());
+	}
+
+	@Test
+	public void testRoundTripChangePoints() throws IOException {
+		ProjectSummary original = readLegacySummary();
+		List<ChangePoint> changePoints = new ArrayList<ChangePoint>();
+		changePoints.add(new ChangePoint(7, 1000l, 2500l));
+		original.getOverallSummary().setChangePoints(changePoints);
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(original, storeFile);
+		ProjectSummary restored = SummaryStore.read(storeFile);
+		List<ChangePoint> restoredChangePoints = restored.getOverallSummary()
+				.getChangePoints();
+		Assert.assertEquals(1, restoredChangePoints.size());
+		Assert.assertEquals(7, restoredChangePoints.get(0).getBuildNumber());
+		Assert.assertEquals(1000l, restoredChangePoints.get(0)
+				.getMedianBefore());
+		Assert.assertEquals(2500l, restoredChangePoints.get(0).getMedianAfter());
+		// summaries never scanned stay that way
+		Summary feature = restored.getFeatureSummaries().values().iterator()
+				.next();
+		Assert.assertNull(feature.getChangePoints());
+	}
+
+	@Test
+	public void testRoundTripStepDefinitions() throws IOException {
+		ProjectSummary original = readLegacySummary();
+		StepDefinitionSummary stepDefinition = new StepDefinitionSummary();
+		stepDefinition.setId("Steps.login()");
+		stepDefinition.setName("Steps.login()");
+		PerformanceEntry entry = new PerformanceEntry();
+		entry.setBuildNumber(4);
+		entry.setElapsedTime(300l);
+		entry.setPassed(true);
+		stepDefinition.addEntry(entry);
+		stepDefinition.addToPassedSteps(2);
+		stepDefinition.recordPassedCall("f;a", "A", 100l);
+		stepDefinition.recordPassedCall("f;b", "B", 200l);
+		Map<String, StepDefinitionSummary> stepDefinitions = new HashMap<String, StepDefinitionSummary>();
+		stepDefinitions.put(stepDefinition.getPageLink(), stepDefinition);
+		original.setStepDefinitionSummaries(stepDefinitions);
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(original, storeFile);
+		ProjectSummary restored = SummaryStore.read(storeFile);
+		StepDefinitionSummary restoredStepDefinition = restored
+				.getStepDefinitionSummaries().get(stepDefinition.getPageLink());
+		assertSummariesEqual(stepDefinition, restoredStepDefinition);
+		Assert.assertEquals(SummaryType.STEP_DEFINITION,
+				restoredStepDefinition.getSummaryType());
+		Assert.assertEquals(2, restoredStepDefinition.getTotalCalls());
+		Assert.assertEquals(150l,
+				restoredStepDefinition.getAverageCallDuration());
+		Assert.assertEquals(stepDefinition.getCallP99Duration(),
+				restoredStepDefinition.getCallP99Duration());
+		Assert.assertEquals(2, restoredStepDefinition.getCallers().size());
+		Assert.assertEquals("B", restoredStepDefinition.getTopCallers().get(0)
+				.getScenarioName());
+		Assert.assertEquals(200l, restoredStepDefinition.getTopCallers()
+				.get(0).getTotalDuration());
+	}
+
+	@Test
+	public void testStoreIsSmallerThanXml() throws IOException {
+		File f = FileUtils.toFile(this.getClass().getResource("/cukeperf.xml"));
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(readLegacySummary(), storeFile);
+		Assert.assertTrue(storeFile.length() * 4 < f.length());
+	}
+
+	@Test
+	public void testRoundTripEmptySummary() throws IOException {
+		File storeFile = new File(testFolder.getRoot(),
+				SummaryStore.STORE_FILE_NAME);
+		SummaryStore.write(new ProjectSummary(), storeFile);
+		ProjectSummary restored = SummaryStore.read(storeFile);
+		Assert.assertNull(restored.getOverallSummary());
+		Assert.assertNull(restored.getFeatureSummaries());
+		Assert.assertEquals(1, testFolder.getRoot().listFiles().length);
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadNotAStore() throws IOException {
+		File f = FileUtils.toFile(this.getClass().getResource("/cukeperf.xml"));
+		SummaryStore.read(f);
+	}
+
+	@Test
+	public void testWriteReplacesLegacyXml() throws IOException {
+		FileUtils.copyFile(
+				FileUtils.toFile(this.getClass().getResource("/cukeperf.xml")),
+				testFolder.newFile("cukeperf.xml"));
+		ProjectSummary summary = CucumberPerfUtils
+				.readSummaryFromDisk(testFolder.getRoot());
+		Assert.assertTrue(CucumberPerfUtils.writeSummaryToDisk(summary,
+				testFolder.getRoot()));
+		Assert.assertFalse(new File(testFolder.getRoot(), "cukeperf.xml")
+				.exists());
+		ProjectSummary restored = CucumberPerfUtils
+				.readSummaryFromDisk(testFolder.getRoot());
+		Assert.assertEquals(11, restored.getOverallSummary().getEntries()
+				.size());
+	}
+
+	private void assertSummaryMapsEqual(Map<String, Summary> expected,
+			Map<String, Summary> actual) {
+		Assert.assertEquals(expected.keySet(), actual.keySet());
+		for (Map.Entry<String, Summary> entry : expected.entrySet()) {
+			assertSummariesEqual(entry.getValue(), actual.get(entry.getKey()));
+		}
+	}
+
+	private void assertSummariesEqual(Summary expected, Summary actual) {
+		Assert.assertEquals(expected.getPageLink(), actual.getPageLink());
+		Assert.assertEquals(expected.getId(), actual.getId());
+		Assert.assertEquals(expected.getName(), actual.getName());
+		Assert.assertEquals(expected.getSummaryType(), actual.getSummaryType());
+		Assert.assertEquals(expected.getShortestDuration(),
+				actual.getShortestDuration());
+		Assert.assertEquals(expected.getLongestDuration(),
+				actual.getLongestDuration());
+		Assert.assertEquals(expected.getAverageDuration(),
+				actual.getAverageDuration());
+		Assert.assertEquals(expected.getPassedBuilds(), actual.getPassedBuilds());
+		Assert.assertEquals(expected.getFailedBuilds(), actual.getFailedBuilds());
+		Assert.assertEquals(expected.getPassedSteps(), actual.getPassedSteps());
+		Assert.assertEquals(expected.getSeniorId(), actual.getSeniorId());
+		Assert.assertEquals(expected.getSeniorPageLink(),
+				actual.getSeniorPageLink());
+		Assert.assertEquals(expected.getOrder(), actual.getOrder());
+		Assert.assertEquals(expected.getKeyword(), actual.getKeyword());
+		Assert.assertEquals(expected.getRows(), actual.getRows());
+		Assert.assertArrayEquals(expected.getDurationHistogram().getBuckets(),
+				actual.getDurationHistogram().getBuckets());
+		Assert.assertEquals(expected.getP95Duration(), actual.getP95Duration());
+		Assert.assertEquals(expected.getEntries().size(), actual.getEntries()
+				.size());
+		for (int i = 0; i < expected.getEntries().size(); i++) {
+			PerformanceEntry expectedEntry = expected.getEntries().get(i);
+			PerformanceEntry actualEntry = actual.getEntries().get(i);
+			Assert.assertEquals(expectedEntry.getBuildNumber(),
+					actualEntry.getBuildNumber());
+			Assert.assertEquals(expectedEntry.getElapsedTime(),
+					actualEntry.getElapsedTime());
+			Assert.assertEquals(expectedEntry.isPassed(), actualEntry.isPassed());
+			Assert.assertEquals(expectedEntry.getRunDate(),
+					actualEntry.getRunDate());
+			Assert.assertEquals(expectedEntry.getPassedSteps(),
+					actualEntry.getPassedSteps());
+			Assert.assertEquals(expectedEntry.getFailedSteps(),
+					actualEntry.getFailedSteps());
+			Assert.assertEquals(expectedEntry.getSkippedSteps(),
+					actualEntry.getSkippedSteps());
+		}
+	}
+
+}